@@ -0,0 +1,145 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time budgeted schedule generation which can be resumed.
+ *
+ * <p>Each call to {@link #run(long, CancellationToken)} searches until its time budget runs out, the token is cancelled
+ * or the search space is exhausted, then returns the best schedules found so far. The scheduler itself is the
+ * checkpoint: it keeps the search position and the kept schedules, so calling {@link #run(long, CancellationToken)}
+ * again continues where the previous call stopped and can only improve on its results.</p>
+ */
+public class AnytimeScheduler {
+
+    /**
+     * Outcome of one call to {@link #run(long, CancellationToken)}.
+     */
+    public static class Result {
+
+        private final ArrayList<Schedule> schedules;
+        private final int[] scores;
+        private final boolean complete;
+        private final boolean cancelled;
+        private final double exploredFraction;
+        private final long schedulesScored;
+        private final long elapsedMillis;
+
+        Result(ArrayList<Schedule> schedules, int[] scores, boolean complete, boolean cancelled, double exploredFraction, long schedulesScored, long elapsedMillis) {
+            this.schedules = schedules;
+            this.scores = scores;
+            this.complete = complete;
+            this.cancelled = cancelled;
+            this.exploredFraction = exploredFraction;
+            this.schedulesScored = schedulesScored;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        /**
+         * Obtains the best schedules found by this and every earlier run, best first.
+         */
+        public ArrayList<Schedule> getSchedules() {
+            return schedules;
+        }
+
+        /**
+         * Obtains the scores of the schedules returned by {@link #getSchedules()}, in the same order.
+         */
+        public int[] getScores() {
+            return scores;
+        }
+
+        /**
+         * True if the whole search space has been visited, so the schedules are the best possible ones.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * True if the run stopped because its cancellation token was cancelled rather than because its budget ran out.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Estimated fraction of the search space visited by this and every earlier run. See {@link ScheduleEnumerator#getExploredFraction()}.
+         */
+        public double getExploredFraction() {
+            return exploredFraction;
+        }
+
+        /**
+         * Number of complete schedules scored by this and every earlier run.
+         */
+        public long getSchedulesScored() {
+            return schedulesScored;
+        }
+
+        /**
+         * Time spent in this run only.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+
+    private final TopScheduleGenerator generator;
+    private boolean complete = false;
+
+    /**
+     * @param enumerator enumerator over the schedules to rank. It should not have been advanced yet.
+     * @param scorer scoring function. Higher scores are better.
+     * @param count number of schedules to keep.
+     * @param blockOutTimesList Arraylist of block-out times attached to each generated schedule
+     * @param semesterNumber Semester Number the generated schedules are built for.
+     */
+    AnytimeScheduler(ScheduleEnumerator enumerator, ScheduleScorer scorer, int count, ArrayList<Section> blockOutTimesList, int semesterNumber) {
+        this.generator = new TopScheduleGenerator(enumerator, scorer, count, blockOutTimesList, semesterNumber);
+    }
+
+    /**
+     * Searches for better schedules until the budget runs out, the token is cancelled, or the search is complete.
+     *
+     * @param budgetMillis maximum time to search for. Values below 1 search without a time limit.
+     * @param cancellationToken token which stops this run when cancelled, or null. A later run may use a new token to resume.
+     * @return best schedules found so far and statistics about the search.
+     */
+    public Result run(long budgetMillis, CancellationToken cancellationToken) {
+        long startTime = System.nanoTime();
+        ScheduleEnumerator enumerator = generator.getEnumerator();
+
+        if (!complete) {
+            enumerator.setDeadline(budgetMillis > 0 ? startTime + TimeUnit.MILLISECONDS.toNanos(budgetMillis) : 0);
+            enumerator.setCancellationToken(cancellationToken);
+            complete = generator.resume();
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        boolean cancelled = !complete && cancellationToken != null && cancellationToken.isCancelled();
+        Log.i("Anytime Scheduler", "Run finished after " + elapsedMillis + "ms, " + (complete ? "search complete" : Math.round(enumerator.getExploredFraction() * 100) + "% explored"));
+
+        return new Result(generator.getSchedules(), generator.getScores(), complete, cancelled, enumerator.getExploredFraction(), generator.getSchedulesScored(), elapsedMillis);
+    }
+
+    /**
+     * Keeps a schedule found elsewhere, such as by a {@link ScheduleSession} before its courses changed, if it is good enough.
+     * Offering good schedules before the first run lets the search skip more branches from the start.
+     *
+     * @param selection one section per course, in the scheduler's course order. Must be conflict free.
+     */
+    void offer(Section[] selection) {
+        generator.offer(selection);
+    }
+
+    /**
+     * True once a run has visited the whole search space. Further runs return immediately.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+}
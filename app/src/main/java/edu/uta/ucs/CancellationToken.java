@@ -0,0 +1,37 @@
+package edu.uta.ucs;
+
+/**
+ * Shared flag used to stop a running schedule search from another thread.
+ *
+ * <p>Searches poll the token between steps, so cancellation takes effect shortly after {@link #cancel()} is called
+ * rather than immediately.</p>
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled = false;
+    private final CancellationToken parent;
+
+    public CancellationToken() {
+        this(null);
+    }
+
+    /**
+     * Creates a token which can be cancelled on its own, and is also cancelled whenever its parent is.
+     *
+     * @param parent token whose cancellation also cancels this one, or null
+     */
+    public CancellationToken(CancellationToken parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * Requests that every search holding this token stops as soon as possible.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+}
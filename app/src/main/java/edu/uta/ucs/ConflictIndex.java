@@ -0,0 +1,349 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Section compatibility computed once per generation request.
+ *
+ * <p>Every section of every course is given an id, numbered course by course. For each section a bitset over all ids
+ * records which other sections it can share a schedule with. Separately, a usable bitset leaves out sections which
+ * conflict with a block-out time or are not {@link ClassStatus#OPEN} while non-open classes are not allowed.</p>
+ *
+ * <p>A search keeps one mask per depth. The mask for the first course is {@link #newMask()}, and the mask for the next
+ * course is the current one ANDed with the bitset of the section just selected (see {@link #restrict(long[], int, long[])}).
+ * Whether a section can be selected is then a single bit test instead of a comparison against every selected section
+ * and block-out time.</p>
+ *
+ * <p>Block-out times are numbered after the sections, starting at {@link #getSectionCount()}, so that conflicts with
+ * them can be recorded with the same ids (see {@link ScheduleConflicts}). They are never part of a mask.</p>
+ *
+ * <p>Section compatibility does not depend on block-out times or the open class filter, so
+ * {@link #withFilters(ArrayList, boolean)} can change those without comparing any sections again. When courses change,
+ * {@link #ConflictIndex(ArrayList, ArrayList, boolean, ConflictIndex)} copies the bitsets of the leading courses which
+ * did not change and only compares the sections after them.</p>
+ */
+class ConflictIndex {
+
+    private final Course[] courses;
+    /** Every section of every course, indexed by id. */
+    private final Section[] sections;
+    /** Ids of course n are courseStart[n] up to, but not including, courseStart[n + 1]. */
+    private final int[] courseStart;
+    /** Compatible sections of each section, as a bitset over ids. Shared between indexes made by {@link #withFilters(ArrayList, boolean)}. */
+    private final long[][] compatible;
+    private final int wordCount;
+
+    /** Sections which may be selected at all, as a bitset over ids. */
+    private long[] usable;
+    private Section[] blockOutTimes;
+    /** Id of the block-out time which rules out each section, or -1 if it does not conflict with any. */
+    private int[] blockedBy;
+    private boolean[] statusAllowed;
+
+    /**
+     * Computes compatibility between every pair of sections of the provided courses.
+     *
+     * @param courseArrayList Arraylist of courses which will be searched, in search order.
+     * @param blockOutTimesList Arraylist of block-out times which a user had defined. Sections which conflict with these are marked unusable.
+     * @param allowNonOpenClasses Boolean toggle which allows classes to be selected if they are not open
+     */
+    ConflictIndex(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses) {
+        this(courseArrayList, blockOutTimesList, allowNonOpenClasses, null);
+    }
+
+    /**
+     * Computes compatibility between every pair of sections of the provided courses, reusing what it can from an earlier index.
+     * Bitsets are copied for the leading courses which have the same sections as in the earlier index, so only sections after those are compared.
+     *
+     * @param courseArrayList Arraylist of courses which will be searched, in search order.
+     * @param blockOutTimesList Arraylist of block-out times which a user had defined. Sections which conflict with these are marked unusable.
+     * @param allowNonOpenClasses Boolean toggle which allows classes to be selected if they are not open
+     * @param previous earlier index to copy from, or null to compare every section.
+     */
+    ConflictIndex(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses, ConflictIndex previous) {
+        int courseCount = courseArrayList.size();
+        courses = courseArrayList.toArray(new Course[courseCount]);
+        courseStart = new int[courseCount + 1];
+        for (int index = 0; index < courseCount; index++) {
+            courseStart[index + 1] = courseStart[index] + courseArrayList.get(index).getSectionList().size();
+        }
+
+        int sectionCount = courseStart[courseCount];
+        wordCount = (sectionCount + 63) >>> 6;
+        sections = new Section[sectionCount];
+        compatible = new long[sectionCount][wordCount];
+
+        for (int index = 0; index < courseCount; index++) {
+            ArrayList<Section> sectionList = courseArrayList.get(index).getSectionList();
+            for (int offset = 0; offset < sectionList.size(); offset++) {
+                sections[courseStart[index] + offset] = sectionList.get(offset);
+            }
+        }
+
+        int reusedCount = previous != null ? countReusableSections(previous) : 0;
+        copyCompatibility(previous, reusedCount);
+
+        // Sections of the same course are never selected together, so only pairs across courses are compared.
+        // Pairs where both sections were reused have already been copied.
+        for (int course = 0; course < courseCount; course++) {
+            for (int first = courseStart[course]; first < courseStart[course + 1]; first++) {
+                for (int second = Math.max(courseStart[course + 1], reusedCount); second < sectionCount; second++) {
+                    if (sections[first].conflictsWith(sections[second]))
+                        continue;
+                    compatible[first][second >>> 6] |= 1L << second;
+                    compatible[second][first >>> 6] |= 1L << first;
+                }
+            }
+        }
+
+        applyFilters(blockOutTimesList, allowNonOpenClasses);
+        Log.i("Conflict Index", "Indexed " + sectionCount + " sections of " + courseCount + " courses in " + wordCount + " words, reusing " + reusedCount);
+    }
+
+    /**
+     * Creates an index over the same sections as the source with different filters. No sections are compared.
+     */
+    private ConflictIndex(ConflictIndex source, ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses) {
+        this.courses = source.courses;
+        this.sections = source.sections;
+        this.courseStart = source.courseStart;
+        this.compatible = source.compatible;
+        this.wordCount = source.wordCount;
+        applyFilters(blockOutTimesList, allowNonOpenClasses);
+    }
+
+    /**
+     * Creates an index over the same courses with different block-out times or open class filter.
+     * Only the sections are checked against the block-out times; compatibility between sections is shared with this index.
+     *
+     * @param blockOutTimesList Arraylist of block-out times which a user had defined. Sections which conflict with these are marked unusable.
+     * @param allowNonOpenClasses Boolean toggle which allows classes to be selected if they are not open
+     */
+    ConflictIndex withFilters(ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses) {
+        return new ConflictIndex(this, blockOutTimesList, allowNonOpenClasses);
+    }
+
+    /**
+     * Counts the ids at the start of this index which hold sections with the same IDs and meeting times, grouped into the same courses, as in the previous index.
+     * Sections are compared by content rather than identity, since courses fetched again from the server are new objects.
+     */
+    private int countReusableSections(ConflictIndex previous) {
+        int reusedCourses = 0;
+        while (reusedCourses < courses.length && reusedCourses < previous.courses.length
+                && courseStart[reusedCourses + 1] == previous.courseStart[reusedCourses + 1]) {
+            boolean sameSections = true;
+            for (int id = courseStart[reusedCourses]; id < courseStart[reusedCourses + 1]; id++) {
+                if (!sections[id].isSameSectionAs(previous.sections[id])) {
+                    sameSections = false;
+                    break;
+                }
+            }
+            if (!sameSections)
+                break;
+            reusedCourses++;
+        }
+        return courseStart[reusedCourses];
+    }
+
+    /**
+     * Copies the compatibility between the first reusedCount sections from the previous index.
+     */
+    private void copyCompatibility(ConflictIndex previous, int reusedCount) {
+        if (reusedCount == 0)
+            return;
+        int fullWords = reusedCount >>> 6;
+        long partialWordBits = (1L << (reusedCount & 63)) - 1;
+        for (int id = 0; id < reusedCount; id++) {
+            long[] previousRow = previous.compatible[id];
+            System.arraycopy(previousRow, 0, compatible[id], 0, fullWords);
+            if (partialWordBits != 0)
+                compatible[id][fullWords] = previousRow[fullWords] & partialWordBits;
+        }
+    }
+
+    /**
+     * Works out which sections are usable under the given block-out times and open class filter.
+     */
+    private void applyFilters(ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses) {
+        int sectionCount = sections.length;
+        blockOutTimes = blockOutTimesList.toArray(new Section[blockOutTimesList.size()]);
+        blockedBy = new int[sectionCount];
+        statusAllowed = new boolean[sectionCount];
+        usable = new long[wordCount];
+
+        for (int id = 0; id < sectionCount; id++) {
+            Section section = sections[id];
+            statusAllowed[id] = allowNonOpenClasses || section.getStatus() == ClassStatus.OPEN;
+            blockedBy[id] = -1;
+            for (int blockOutIndex = 0; blockOutIndex < blockOutTimes.length; blockOutIndex++) {
+                if (section.conflictsWith(blockOutTimes[blockOutIndex])) {
+                    blockedBy[id] = sectionCount + blockOutIndex;
+                    break;
+                }
+            }
+            if (statusAllowed[id] && blockedBy[id] == -1)
+                usable[id >>> 6] |= 1L << id;
+        }
+    }
+
+    /**
+     * Tests whether the given id is set in a bitset produced by this index.
+     */
+    static boolean contains(long[] mask, int id) {
+        return (mask[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Creates the mask for the first course of a search: every usable section.
+     */
+    long[] newMask() {
+        return usable.clone();
+    }
+
+    /**
+     * Narrows a mask to the sections which are also compatible with the selected section.
+     *
+     * @param mask mask in effect when the section was selected
+     * @param id id of the selected section
+     * @param result receives the narrowed mask. May be the same array as mask.
+     */
+    void restrict(long[] mask, int id, long[] result) {
+        long[] sectionCompatible = compatible[id];
+        for (int word = 0; word < wordCount; word++) {
+            result[word] = mask[word] & sectionCompatible[word];
+        }
+    }
+
+    /**
+     * Tests whether two sections can be in the same schedule. Always false for two sections of the same course.
+     */
+    boolean isCompatible(int firstId, int secondId) {
+        return contains(compatible[firstId], secondId);
+    }
+
+    boolean isUsable(int id) {
+        return contains(usable, id);
+    }
+
+    /**
+     * Tests whether a section passes the open class filter this index was built with.
+     */
+    boolean isStatusAllowed(int id) {
+        return statusAllowed[id];
+    }
+
+    /**
+     * Obtains the block-out time which rules out a section.
+     *
+     * @return the first conflicting block-out time, or null if the section conflicts with none.
+     */
+    Section getBlockingBlockOut(int id) {
+        return blockedBy[id] == -1 ? null : getSection(blockedBy[id]);
+    }
+
+    /**
+     * Obtains the id of the block-out time which rules out a section.
+     *
+     * @return id of the first conflicting block-out time, or -1 if the section conflicts with none.
+     */
+    int getBlockingBlockOutId(int id) {
+        return blockedBy[id];
+    }
+
+    /**
+     * Obtains the section or block-out time with the given id.
+     */
+    Section getSection(int id) {
+        return id < sections.length ? sections[id] : blockOutTimes[id - sections.length];
+    }
+
+    boolean isBlockOutTime(int id) {
+        return id >= sections.length;
+    }
+
+    int getBlockOutTimeCount() {
+        return blockOutTimes.length;
+    }
+
+    Course getCourse(int course) {
+        return courses[course];
+    }
+
+    int getCourseCount() {
+        return courseStart.length - 1;
+    }
+
+    int getSectionCount() {
+        return sections.length;
+    }
+
+    /**
+     * Number of longs in every mask produced by this index.
+     */
+    int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * Counts the sections of a course which are set in a mask.
+     */
+    int countInCourse(long[] mask, int course) {
+        int first = courseStart[course];
+        int end = courseStart[course + 1];
+        if (first == end)
+            return 0;
+
+        int firstWord = first >>> 6;
+        int lastWord = (end - 1) >>> 6;
+        long firstWordBits = -1L << first;
+        long lastWordBits = -1L >>> (63 - ((end - 1) & 63));
+        if (firstWord == lastWord)
+            return Long.bitCount(mask[firstWord] & firstWordBits & lastWordBits);
+
+        int count = Long.bitCount(mask[firstWord] & firstWordBits) + Long.bitCount(mask[lastWord] & lastWordBits);
+        for (int word = firstWord + 1; word < lastWord; word++) {
+            count += Long.bitCount(mask[word]);
+        }
+        return count;
+    }
+
+    /**
+     * Lists the ids of the sections of a course which are set in a mask, in section list order.
+     */
+    int[] getSectionIds(long[] mask, int course) {
+        int[] ids = new int[countInCourse(mask, course)];
+        int count = 0;
+        for (int id = courseStart[course]; id < courseStart[course + 1]; id++) {
+            if (contains(mask, id))
+                ids[count++] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Lists the ids of every section of a course, including unusable ones.
+     */
+    int[] getSectionIds(int course) {
+        int[] ids = new int[courseStart[course + 1] - courseStart[course]];
+        for (int offset = 0; offset < ids.length; offset++) {
+            ids[offset] = courseStart[course] + offset;
+        }
+        return ids;
+    }
+
+    /**
+     * Lists the ids of the usable sections of a course, in section list order.
+     */
+    int[] getUsableSectionIds(int course) {
+        int[] ids = new int[courseStart[course + 1] - courseStart[course]];
+        int count = 0;
+        for (int id = courseStart[course]; id < courseStart[course + 1]; id++) {
+            if (isUsable(id))
+                ids[count++] = id;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+}
@@ -83,30 +83,23 @@ public class Course {
      */
     Course(JSONObject jsonObject) throws JSONException {
 
-        if (jsonObject.toString().length() > 4000) {
-            Log.v("New Course", "sb.length = " + jsonObject.toString().length());
-            int chunkCount = jsonObject.toString().length() / 4000;     // integer division
+        // Serialized once; every toString() call walks the whole object again.
+        String courseString = jsonObject.toString();
+        if (courseString.length() > 4000) {
+            Log.v("New Course", "sb.length = " + courseString.length());
+            int chunkCount = courseString.length() / 4000;     // integer division
             for (int i = 0; i <= chunkCount; i++) {
                 int max = 4000 * (i + 1);
-                if (max >= jsonObject.toString().length()) {
-                    Log.v("New Course", "chunk " + i + " of " + chunkCount + ":" + jsonObject.toString().substring(4000 * i));
+                if (max >= courseString.length()) {
+                    Log.v("New Course", "chunk " + i + " of " + chunkCount + ":" + courseString.substring(4000 * i));
                 } else {
-                    Log.v("New Course", "chunk " + i + " of " + chunkCount + ":" + jsonObject.toString().substring(4000 * i, max));
+                    Log.v("New Course", "chunk " + i + " of " + chunkCount + ":" + courseString.substring(4000 * i, max));
                 }
             }
         } else {
-            Log.v("New Course", jsonObject.toString().toString());
+            Log.v("New Course", courseString);
         }
 
-        if(jsonObject.has("CourseResults")) {
-            JSONArray jsonSectionList = jsonObject.getJSONArray("CourseResults");
-            for(int index = jsonSectionList.length(); index != 0;index--){
-                Log.i("New Course Section: ",jsonSectionList.getJSONObject( index-1 ).toString());
-            }
-        }
-
-
-
         if(jsonObject.has("CourseId")) {
             this.courseNumber = jsonObject.getString("CourseId");
             Log.i("New Course ID", getCourseNumber());
@@ -205,6 +198,8 @@ public class Course {
      * If the Course constructor throws a JSONException it is assumed that the object retrieved from the original JSONArray is a JSONObject in string format.
      * The String is
      *
+     * <p>Prefer {@link CourseResponse#read(String)} for whole server responses, which builds courses without an org.json tree.</p>
+     *
      * @param jsonCourses JSONArray of Courses as JSONObjects
      * @return ArrayList<Course>
      * @throws JSONException throws
@@ -224,7 +219,6 @@ public class Course {
                 courseJSON = new JSONObject(courseString);
             }
 
-            Log.i("New Course JSON", "test: " + courseJSON.toString() );
             courseList.add(new Course(courseJSON));
         }
         Collections.reverse(courseList);
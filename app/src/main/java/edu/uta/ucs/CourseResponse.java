@@ -0,0 +1,265 @@
+package edu.uta.ucs;
+
+import android.content.Intent;
+import android.util.Log;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+/**
+ * A server response carrying courses, such as the responses to GetCourseInfo and ValidateCourses.
+ *
+ * <p>{@link #read(Reader)} decodes the response in a single pass with a streaming {@link JsonReader}, building each
+ * {@link Course} and {@link Section} as its fields are read. Unlike {@link Course#buildCourseList(org.json.JSONArray)}
+ * no org.json tree is built for the response first and nothing is serialized again for logging, so a response with
+ * many courses needs far less time and memory.</p>
+ */
+public class CourseResponse {
+
+    private boolean success = false;
+    private String message = null;
+    private float timeTaken = -1;
+    private ArrayList<Course> courses = new ArrayList<>();
+
+    private CourseResponse() {
+    }
+
+    /**
+     * Decodes a response received from {@link HTTPService}.
+     *
+     * @param response response text as broadcast in {@link HTTPService#SERVER_RESPONSE}
+     * @return the decoded response
+     * @throws JSONException if the response is not valid JSON or a course or section is missing a required key.
+     */
+    public static CourseResponse read(String response) throws JSONException {
+        return read(new StringReader(response));
+    }
+
+    /**
+     * Decodes the response carried by a broadcast from {@link HTTPService}, whether it was streamed to a file or sent as a String.
+     *
+     * @param broadcastIntent intent received by the BroadcastReceiver
+     * @return the decoded response
+     * @throws JSONException if the response cannot be read, is not valid JSON or a course or section is missing a required key.
+     */
+    public static CourseResponse read(Intent broadcastIntent) throws JSONException {
+        Reader responseReader = null;
+        try {
+            responseReader = HTTPService.openResponse(broadcastIntent);
+            return read(responseReader);
+        } catch (IOException e) {
+            throw new JSONException("Could not read course response: " + e.getMessage());
+        } finally {
+            if (responseReader != null) {
+                try {
+                    responseReader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a response from a character stream. The stream is read to the end of the response but not closed.
+     *
+     * @param responseReader stream positioned at the start of the response
+     * @return the decoded response
+     * @throws JSONException if the response is not valid JSON or a course or section is missing a required key.
+     */
+    public static CourseResponse read(Reader responseReader) throws JSONException {
+        long startTime = System.currentTimeMillis();
+        CourseResponse courseResponse = new CourseResponse();
+        JsonReader reader = new JsonReader(responseReader);
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("Success")) {
+                    courseResponse.success = reader.peek() == JsonToken.BOOLEAN ? reader.nextBoolean() : Boolean.parseBoolean(reader.nextString());
+                } else if (name.equals("Message")) {
+                    courseResponse.message = nextStringOrNull(reader);
+                } else if (name.equals("TimeTaken")) {
+                    String timeTaken = nextStringOrNull(reader);
+                    if (timeTaken != null)
+                        courseResponse.timeTaken = Float.parseFloat(timeTaken);
+                } else if (name.equals("Results") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    courseResponse.courses = readCourseList(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException e) {
+            throw new JSONException("Could not read course response: " + e.getMessage());
+        } catch (NumberFormatException e) {
+            throw new JSONException("Could not read course response: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            // JsonReader throws this when a value has another type than expected, such as an object where a string should be.
+            throw new JSONException("Could not read course response: " + e.getMessage());
+        }
+        Log.i("Course Response", "Read " + courseResponse.courses.size() + " courses in " + (System.currentTimeMillis() - startTime) + "ms");
+        return courseResponse;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return message sent by the server, or null if it did not send one.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean hasMessage() {
+        return message != null;
+    }
+
+    /**
+     * @return server side time taken in seconds, or -1 if the server did not send it.
+     */
+    public float getTimeTaken() {
+        return timeTaken;
+    }
+
+    /**
+     * Obtains the courses of the response in the order the server sent them. Empty if the response had no results.
+     */
+    public ArrayList<Course> getCourses() {
+        return courses;
+    }
+
+    private static ArrayList<Course> readCourseList(JsonReader reader) throws IOException, JSONException {
+        ArrayList<Course> courseList = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (reader.peek() == JsonToken.STRING) {
+                // Some responses nest each course as a JSON string, see Course.buildCourseList.
+                JsonReader courseReader = new JsonReader(new StringReader(reader.nextString()));
+                courseList.add(readCourse(courseReader));
+                courseReader.close();
+            } else {
+                courseList.add(readCourse(reader));
+            }
+        }
+        reader.endArray();
+        return courseList;
+    }
+
+    /**
+     * Reads one course with the keys described in {@link Course#Course(org.json.JSONObject)}.
+     */
+    private static Course readCourse(JsonReader reader) throws IOException, JSONException {
+        String courseNumber = null;
+        String courseTitle = null;
+        String departmentAcronym = null;
+        ArrayList<Section> sectionList = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("CourseId")) {
+                courseNumber = nextStringOrNull(reader);
+            } else if (name.equals("CourseName")) {
+                courseTitle = nextStringOrNull(reader);
+            } else if (name.equals("Department")) {
+                departmentAcronym = nextStringOrNull(reader);
+            } else if (name.equals("CourseResults")) {
+                sectionList = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    sectionList.add(readSection(reader));
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (courseNumber == null)
+            throw new JSONException("CourseId not found");
+        if (courseTitle == null)
+            throw new JSONException("CourseName not found");
+        if (departmentAcronym == null)
+            throw new JSONException("Department not found");
+        if (sectionList == null)
+            throw new JSONException("CourseResults not found");
+
+        // Points the source course of every section at the new course.
+        return new Course(courseNumber, departmentAcronym, courseTitle, sectionList);
+    }
+
+    /**
+     * Reads one section with the keys described in {@link Section#Section(org.json.JSONObject, Course)}.
+     * The source course is left unset for {@link #readCourse(JsonReader)} to fill in.
+     */
+    private static Section readSection(JsonReader reader) throws IOException, JSONException {
+        String sectionID = null;
+        String sectionNumber = null;
+        String room = null;
+        String instructors = null;
+        String meetingTime = null;
+        ArrayList<Day> days = null;
+        String status = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("CourseNumber")) {
+                sectionID = nextStringOrNull(reader);
+            } else if (name.equals("Section")) {
+                sectionNumber = nextStringOrNull(reader);
+            } else if (name.equals("Room")) {
+                room = nextStringOrNull(reader);
+            } else if (name.equals("Instructor")) {
+                instructors = nextStringOrNull(reader);
+            } else if (name.equals("MeetingTime")) {
+                meetingTime = nextStringOrNull(reader);
+            } else if (name.equals("MeetingDays")) {
+                days = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    days.add(Day.valueOf(reader.nextString()));
+                }
+                reader.endArray();
+            } else if (name.equals("Status")) {
+                status = nextStringOrNull(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (sectionID == null || sectionNumber == null || room == null || instructors == null || meetingTime == null || days == null || status == null)
+            throw new JSONException("Section is missing a required key");
+
+        TimeShort[] times = Section.parseMeetingTime(meetingTime);
+        Section section = new Section(Integer.parseInt(sectionID), instructors, room, times[0], times[1], days, Section.parseStatus(status), null);
+        section.setSectionNumber(Integer.parseInt(sectionNumber));
+        return section;
+    }
+
+    /**
+     * Reads a string, number or boolean as a string, or null for a JSON null.
+     */
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (token == JsonToken.BOOLEAN)
+            return Boolean.toString(reader.nextBoolean());
+        return reader.nextString();
+    }
+}
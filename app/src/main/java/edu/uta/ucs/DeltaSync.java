@@ -0,0 +1,550 @@
+package edu.uta.ucs;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.support.v4.content.LocalBroadcastManager;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Per-record delta sync of saved schedules and block-out times with the server.
+ *
+ * <p>Each schedule, and the set of block-out times as a whole, is a record with a revision counter and a content hash.
+ * A sync uploads only the records which changed or were deleted since the last sync, and the server answers with the
+ * records changed by other devices since the sync token it handed out last time. Records are identified by type and
+ * id, the schedule name for schedules.</p>
+ *
+ * <p>Request: {"Email", "MilitaryTime", "SyncToken", "Changes": [record...]}. Response: {"Success", "SyncToken",
+ * "Accepted": [{"Type", "Id", "Hash"}...], "Changes": [record...]}. A record is {"Type", "Id", "Revision", "Hash",
+ * "Deleted", "Data"}, with Data left out of deleted records. Only uploaded records listed in Accepted with the hash
+ * that was uploaded count as synced; any other upload is sent again by the next sync. Hash is left out of the
+ * acceptance of a deletion. While {@link UserData#spoofServer()} is on, the request is answered by
+ * {@link SyncStandInServer}.</p>
+ *
+ * <p>Delta sync is only used once the server serves R.string.sync_delta, see {@link #isEnabled(Context)}. Until then
+ * {@link UserData#sync_upload(String)} uploads and downloads all user data.</p>
+ *
+ * <p>Only one sync runs at a time. A sync asked for while one is running follows it, so that it uploads what changed
+ * after the running one built its request. The sync state is kept as JSON in the shared preference file 'SYNC_STATE'.</p>
+ */
+class DeltaSync {
+
+    static final String TYPE_SCHEDULE = "SCHEDULE";
+    static final String TYPE_BLOCKOUT_TIMES = "BLOCKOUTTIMES";
+
+    private static final String SYNC_STATE = "SYNC_STATE";
+    private static final String ACTION_DELTA_SYNC = "edu.uta.ucs.ACTION_DELTA_SYNC";
+
+    /**
+     * Sync state of one record.
+     */
+    private static class Record {
+
+        /** Increased each time the record is found changed locally. */
+        int revision = 0;
+        /** Hash of the record as saved on this device, or null if it was deleted here. */
+        String hash = null;
+        /** Hash of the record the server is known to hold, or null if it holds none. */
+        String syncedHash = null;
+        /** Hash uploaded by the sync in flight, "" for a deletion, or null if the record was not uploaded. */
+        String pendingHash = null;
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject result = new JSONObject();
+            result.put("Revision", revision);
+            if (hash != null)
+                result.put("Hash", hash);
+            if (syncedHash != null)
+                result.put("SyncedHash", syncedHash);
+            if (pendingHash != null)
+                result.put("PendingHash", pendingHash);
+            return result;
+        }
+
+        static Record fromJSON(JSONObject recordJSON) {
+            Record record = new Record();
+            record.revision = recordJSON.optInt("Revision", 0);
+            record.hash = recordJSON.has("Hash") ? recordJSON.optString("Hash") : null;
+            record.syncedHash = recordJSON.has("SyncedHash") ? recordJSON.optString("SyncedHash") : null;
+            record.pendingHash = recordJSON.has("PendingHash") ? recordJSON.optString("PendingHash") : null;
+            return record;
+        }
+    }
+
+    /**
+     * The schedules and block-out times saved on this device, which the sync reads and writes.
+     */
+    interface LocalRecords {
+
+        /**
+         * @return the saved body of every record by {@link #key(String, String)}.
+         */
+        HashMap<String, String> readAll();
+
+        /**
+         * @return the saved body of a record, or null if it is not saved.
+         */
+        String read(String type, String id);
+
+        /**
+         * Saves a record sent by the server.
+         *
+         * @param change the record, with its body in Data
+         */
+        void save(String type, JSONObject change) throws JSONException;
+
+        /**
+         * Deletes a record deleted on the server. Afterwards {@link #read(String, String)} returns null for it, so the
+         * next sync does not upload it again as a new record.
+         */
+        void delete(String type, String id);
+    }
+
+    /**
+     * Records kept in the {@link ScheduleStore} and the block-out times preference file.
+     */
+    private static class SavedRecords implements LocalRecords {
+
+        private final Context context;
+
+        SavedRecords(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public HashMap<String, String> readAll() {
+            HashMap<String, String> bodies = new HashMap<>();
+            for (ScheduleSummary summary : Schedule.loadScheduleSummariesFromFile()) {
+                String body = Schedule.loadScheduleBodyFromFile(summary.getName());
+                if (body != null)
+                    bodies.put(key(TYPE_SCHEDULE, summary.getName()), body);
+            }
+            String blockoutTimes = read(TYPE_BLOCKOUT_TIMES, TYPE_BLOCKOUT_TIMES);
+            if (blockoutTimes != null)
+                bodies.put(key(TYPE_BLOCKOUT_TIMES, TYPE_BLOCKOUT_TIMES), blockoutTimes);
+            return bodies;
+        }
+
+        @Override
+        public String read(String type, String id) {
+            if (TYPE_SCHEDULE.equals(type))
+                return Schedule.loadScheduleBodyFromFile(id);
+            return context.getSharedPreferences(SelectBlockoutTimes.BLOCKOUT_TIMES, Context.MODE_PRIVATE).getString(SelectBlockoutTimes.BLOCKOUT_TIMES, null);
+        }
+
+        @Override
+        public void save(String type, JSONObject change) throws JSONException {
+            if (TYPE_SCHEDULE.equals(type))
+                Schedule.saveScheduleToFile(new Schedule(change.getJSONObject("Data")));
+            else
+                SelectBlockoutTimes.saveBlockoutCoursesToFile(context, Course.buildCourseList(change.getJSONArray("Data")));
+        }
+
+        @Override
+        public void delete(String type, String id) {
+            if (TYPE_SCHEDULE.equals(type))
+                Schedule.removeScheduleFromFile(id);
+            else
+                // Removed rather than saved as an empty list, which would read back as a new record
+                context.getSharedPreferences(SelectBlockoutTimes.BLOCKOUT_TIMES, Context.MODE_PRIVATE).edit().remove(SelectBlockoutTimes.BLOCKOUT_TIMES).apply();
+        }
+    }
+
+    /** Receivers of the sync running, or null if none is. Guarded by the class. */
+    private static ArrayList<String> runningReceiverTags = null;
+    /** Receivers of the sync to run once the running one is over, or null if none is due. Guarded by the class. */
+    private static ArrayList<String> nextReceiverTags = null;
+
+    private final LocalRecords localRecords;
+    private String syncToken = "";
+    /** Records by {@link #key(String, String)}. */
+    private final HashMap<String, Record> records = new HashMap<>();
+
+    DeltaSync(LocalRecords localRecords) {
+        this.localRecords = localRecords;
+    }
+
+    /**
+     * @return true if the server serves delta sync, or the spoof server stands in for it.
+     */
+    static boolean isEnabled(Context context) {
+        return context.getResources().getBoolean(R.bool.use_delta_sync) || UserData.spoofServer();
+    }
+
+    /**
+     * Loads the sync state saved for this app.
+     */
+    static DeltaSync load(Context context) {
+        DeltaSync deltaSync = new DeltaSync(new SavedRecords(context));
+        String stateString = context.getSharedPreferences(SYNC_STATE, Context.MODE_PRIVATE).getString(SYNC_STATE, null);
+        if (stateString != null)
+            deltaSync.restoreState(stateString);
+        return deltaSync;
+    }
+
+    /**
+     * Saves the sync state.
+     */
+    void save(Context context) {
+        try {
+            context.getSharedPreferences(SYNC_STATE, Context.MODE_PRIVATE).edit().putString(SYNC_STATE, getState()).apply();
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forgets the sync state, including the sync token, for example when the user logs out.
+     * The next sync uploads every saved record.
+     */
+    static void clear(Context context) {
+        context.getSharedPreferences(SYNC_STATE, Context.MODE_PRIVATE).edit().clear().apply();
+    }
+
+    /**
+     * @return the sync token and the state of every record as JSON text.
+     */
+    String getState() throws JSONException {
+        JSONObject recordsJSON = new JSONObject();
+        for (Map.Entry<String, Record> entry : records.entrySet()) {
+            recordsJSON.put(entry.getKey(), entry.getValue().toJSON());
+        }
+        JSONObject state = new JSONObject();
+        state.put("SyncToken", syncToken);
+        state.put("Records", recordsJSON);
+        return state.toString();
+    }
+
+    /**
+     * Replaces the sync state with one from {@link #getState()}. An unreadable state starts over.
+     */
+    void restoreState(String stateString) {
+        syncToken = "";
+        records.clear();
+        try {
+            JSONObject state = new JSONObject(stateString);
+            syncToken = state.optString("SyncToken", "");
+            JSONObject recordsJSON = state.getJSONObject("Records");
+            Iterator<String> keys = recordsJSON.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                records.put(key, Record.fromJSON(recordsJSON.getJSONObject(key)));
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+            Log.e("Delta Sync", "Sync state unreadable, starting over");
+            syncToken = "";
+            records.clear();
+        }
+    }
+
+    String getSyncToken() {
+        return syncToken;
+    }
+
+    /**
+     * Uploads local changes and applies the changes the server answers with. If a sync is running already, this one
+     * runs once it is over.
+     *
+     * @param context context to send the request and receive its response with
+     * @param receiverTag intentFilter told once the sync is over, with the server response in {@link HTTPService#SERVER_RESPONSE}. May be empty.
+     */
+    static void sync(Context context, String receiverTag) {
+        if (beginSync(receiverTag))
+            startSync(context.getApplicationContext());
+        else
+            Log.i("Delta Sync", "Sync running, syncing again once it is over");
+    }
+
+    /**
+     * Joins the receiver to the running sync, or to the one following it if a sync is running.
+     *
+     * @return true if no sync was running and the caller has to start one.
+     */
+    static synchronized boolean beginSync(String receiverTag) {
+        if (runningReceiverTags == null) {
+            runningReceiverTags = new ArrayList<>();
+            addReceiverTag(runningReceiverTags, receiverTag);
+            return true;
+        }
+        if (nextReceiverTags == null)
+            nextReceiverTags = new ArrayList<>();
+        addReceiverTag(nextReceiverTags, receiverTag);
+        return false;
+    }
+
+    /**
+     * Ends the running sync.
+     *
+     * @return receivers to tell that it is over.
+     */
+    static synchronized ArrayList<String> endSync() {
+        ArrayList<String> receiverTags = runningReceiverTags;
+        runningReceiverTags = new ArrayList<>();
+        return receiverTags;
+    }
+
+    /**
+     * Starts the sync asked for while the one just ended was running, if there is one.
+     *
+     * @return true if the caller has to start the following sync, false if syncing is over.
+     */
+    static synchronized boolean startFollowingSync() {
+        runningReceiverTags = nextReceiverTags;
+        nextReceiverTags = null;
+        return runningReceiverTags != null;
+    }
+
+    private static void addReceiverTag(ArrayList<String> receiverTags, String receiverTag) {
+        if (receiverTag != null && !receiverTag.isEmpty() && !receiverTags.contains(receiverTag))
+            receiverTags.add(receiverTag);
+    }
+
+    private static void startSync(Context context) {
+        DeltaSync deltaSync = load(context);
+        JSONObject request;
+        try {
+            request = deltaSync.buildRequest();
+        } catch (JSONException e) {
+            e.printStackTrace();
+            finishSync(context, HTTPService.BAD_RESPONSE);
+            return;
+        }
+        deltaSync.save(context);
+
+        final LocalBroadcastManager broadcastManager = LocalBroadcastManager.getInstance(context);
+        broadcastManager.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                broadcastManager.unregisterReceiver(this);
+                String response = intent.getStringExtra(HTTPService.SERVER_RESPONSE);
+                try {
+                    // Reload, in case the state changed while the request was out
+                    DeltaSync current = load(context);
+                    current.applyResponse(new JSONObject(response));
+                    current.save(context);
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                }
+                finishSync(context.getApplicationContext(), response);
+            }
+        }, new IntentFilter(ACTION_DELTA_SYNC));
+
+        String syncURL = context.getResources().getString(R.string.sync_delta);
+        HTTPService.PostJSON(syncURL, request, ACTION_DELTA_SYNC, context, HTTPService.PRIORITY_BACKGROUND);
+    }
+
+    /**
+     * Tells the receivers of the sync which just ended, and starts the following sync if one is due.
+     */
+    private static void finishSync(Context context, String response) {
+        LocalBroadcastManager broadcastManager = LocalBroadcastManager.getInstance(context);
+        for (String receiverTag : endSync()) {
+            Intent syncDone = new Intent(receiverTag);
+            syncDone.putExtra(HTTPService.SERVER_RESPONSE, response);
+            broadcastManager.sendBroadcast(syncDone);
+        }
+        if (startFollowingSync())
+            startSync(context);
+    }
+
+    /**
+     * Compares every local record with the sync state and builds a request carrying only the changed and deleted ones.
+     * The uploaded hashes are remembered until the response arrives.
+     */
+    JSONObject buildRequest() throws JSONException {
+        return buildRequest(UserData.getEmail(), UserData.useMilitaryTime());
+    }
+
+    /**
+     * @see #buildRequest()
+     */
+    JSONObject buildRequest(String email, boolean militaryTime) throws JSONException {
+        HashMap<String, String> bodies = localRecords.readAll();
+        JSONArray changes = new JSONArray();
+
+        for (Map.Entry<String, String> entry : bodies.entrySet()) {
+            String hash = hash(entry.getValue());
+            Record record = records.get(entry.getKey());
+            if (record == null) {
+                record = new Record();
+                records.put(entry.getKey(), record);
+            }
+            if (!hash.equals(record.hash)) {
+                record.revision++;
+                record.hash = hash;
+            }
+            record.pendingHash = null;
+            if (!hash.equals(record.syncedHash)) {
+                JSONObject change = change(entry.getKey(), record);
+                change.put("Data", TYPE_SCHEDULE.equals(typeOf(entry.getKey())) ? new JSONObject(entry.getValue()) : new JSONArray(entry.getValue()));
+                changes.put(change);
+                record.pendingHash = hash;
+            }
+        }
+
+        Iterator<Map.Entry<String, Record>> iterator = records.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Record> entry = iterator.next();
+            if (bodies.containsKey(entry.getKey()))
+                continue;
+            Record record = entry.getValue();
+            if (record.syncedHash == null) {
+                // Never reached the server, so there is nothing to delete there
+                iterator.remove();
+                continue;
+            }
+            if (record.hash != null) {
+                record.revision++;
+                record.hash = null;
+            }
+            changes.put(change(entry.getKey(), record));
+            record.pendingHash = "";
+        }
+
+        JSONObject request = new JSONObject();
+        request.put("Email", email);
+        request.put("MilitaryTime", militaryTime);
+        request.put("SyncToken", syncToken);
+        request.put("Changes", changes);
+        Log.i("Delta Sync", "Uploading " + changes.length() + " of " + records.size() + " records");
+        return request;
+    }
+
+    /**
+     * Marks the uploaded records the server accepted as synced and saves the records changed on the server since the
+     * last sync. Uploads which were not accepted are sent again by the next sync.
+     *
+     * @param response response to a request from {@link #buildRequest()}
+     * @return true if the server accepted the sync.
+     */
+    boolean applyResponse(JSONObject response) throws JSONException {
+        if (!response.optBoolean("Success", false)) {
+            Log.e("Delta Sync", "Sync failed: " + response.optString("Message"));
+            return false;
+        }
+
+        // Hash accepted for each uploaded record, "" for a deletion
+        HashMap<String, String> acceptedHashes = new HashMap<>();
+        JSONArray accepted = response.optJSONArray("Accepted");
+        for (int index = 0; accepted != null && index < accepted.length(); index++) {
+            JSONObject acceptance = accepted.getJSONObject(index);
+            acceptedHashes.put(key(acceptance.getString("Type"), acceptance.getString("Id")), acceptance.optString("Hash", ""));
+        }
+
+        int acceptedCount = 0;
+        Iterator<Map.Entry<String, Record>> iterator = records.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Record> entry = iterator.next();
+            Record record = entry.getValue();
+            if (record.pendingHash == null)
+                continue;
+            if (record.pendingHash.equals(acceptedHashes.get(entry.getKey()))) {
+                record.syncedHash = record.pendingHash.isEmpty() ? null : record.pendingHash;
+                acceptedCount++;
+            }
+            record.pendingHash = null;
+            if (record.hash == null && record.syncedHash == null)
+                iterator.remove();
+        }
+
+        JSONArray changes = response.optJSONArray("Changes");
+        int applied = 0;
+        for (int index = 0; changes != null && index < changes.length(); index++) {
+            JSONObject change = changes.getJSONObject(index);
+            String type = change.getString("Type");
+            String id = change.getString("Id");
+            String key = key(type, id);
+            Record record = records.get(key);
+            if (record == null)
+                record = new Record();
+
+            if (change.optBoolean("Deleted", false)) {
+                localRecords.delete(type, id);
+                records.remove(key);
+            } else {
+                String hash = change.getString("Hash");
+                if (!hash.equals(record.hash)) {
+                    localRecords.save(type, change);
+                    String savedBody = localRecords.read(type, id);
+                    hash = savedBody != null ? hash(savedBody) : hash;
+                }
+                record.hash = hash;
+                record.syncedHash = hash;
+                record.pendingHash = null;
+                record.revision = Math.max(record.revision, change.optInt("Revision", 0));
+                records.put(key, record);
+            }
+            applied++;
+        }
+
+        syncToken = response.optString("SyncToken", syncToken);
+        Log.i("Delta Sync", "Server accepted " + acceptedCount + " records, applied " + applied + " records from the server, sync token " + syncToken);
+        return true;
+    }
+
+    /**
+     * Records every local record as held by the server, for example after all user data was downloaded at login.
+     *
+     * @param syncToken token sent along with the downloaded data, or "" if there was none
+     */
+    void markAllSynced(String syncToken) {
+        records.clear();
+        for (Map.Entry<String, String> entry : localRecords.readAll().entrySet()) {
+            Record record = new Record();
+            record.hash = hash(entry.getValue());
+            record.syncedHash = record.hash;
+            records.put(entry.getKey(), record);
+        }
+        this.syncToken = syncToken;
+    }
+
+    private static JSONObject change(String key, Record record) throws JSONException {
+        JSONObject change = new JSONObject();
+        change.put("Type", typeOf(key));
+        change.put("Id", key.substring(key.indexOf(':') + 1));
+        change.put("Revision", record.revision);
+        change.put("Deleted", record.hash == null);
+        if (record.hash != null)
+            change.put("Hash", record.hash);
+        return change;
+    }
+
+    static String key(String type, String id) {
+        return type + ":" + id;
+    }
+
+    private static String typeOf(String key) {
+        return key.substring(0, key.indexOf(':'));
+    }
+
+    /**
+     * @return SHA-1 of the text as lowercase hex.
+     */
+    static String hash(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(body.getBytes("UTF-8"));
+            StringBuilder hash = new StringBuilder(digest.length * 2);
+            for (byte digestByte : digest) {
+                hash.append(String.format("%02x", digestByte));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
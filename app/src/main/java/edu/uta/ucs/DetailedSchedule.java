@@ -9,7 +9,6 @@ import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.ServiceConnection;
-import android.content.SharedPreferences;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.os.Handler;
@@ -25,12 +24,10 @@ import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
-import java.util.Map;
 
 
 /**
@@ -266,8 +263,10 @@ public class DetailedSchedule extends Activity {
      * @param view View this function is called from
      */
     public void verifySchedule(View view){
-        scheduleToShow.verifySchedule(DetailedSchedule.this);
-        showProgressDialog("Verifying Class Statuses");
+        if (scheduleToShow.verifySchedule(DetailedSchedule.this))
+            showProgressDialog("Verifying Class Statuses");
+        else
+            Toast.makeText(getApplicationContext(), "This schedule has no classes to verify", Toast.LENGTH_LONG).show();
     }
 
     /**
@@ -328,12 +327,7 @@ public class DetailedSchedule extends Activity {
 
         saveCheck = true;
 
-        SharedPreferences reader = getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, MODE_PRIVATE);
-        Map<String, ?> schedules = reader.getAll();
-
-        String scheduleName = scheduleToShow.fileName();
-
-        if (schedules.containsKey(scheduleName)) {
+        if (Schedule.isScheduleSaved(scheduleToShow.getName())) {
             final AlertDialog.Builder confirmOverWrite = new AlertDialog.Builder(DetailedSchedule.this);
             confirmOverWrite.setTitle("A Schedule with this name already exists");
             confirmOverWrite.setMessage("Are you sure you want to overwrite it?");
@@ -387,7 +381,7 @@ public class DetailedSchedule extends Activity {
                 + URL_GET_COURSE_SECTIONS_PARAM_SEMESTER + scheduleToShow.getSemesterNumber()
                 + URL_GET_COURSE_SECTIONS_PARAM_CLASSNUMBER + department + "-" + classNumber;
 
-        HTTPService.FetchURL(url, ACTION_GET_COURSE_SECTIONS, this);
+        HTTPService.FetchURL(url, ACTION_GET_COURSE_SECTIONS, this, true);
 
         showProgressDialog("Fetching Class Details", "Getting alternate sections for class:\n" + section.getDescription());
 
@@ -436,31 +430,27 @@ public class DetailedSchedule extends Activity {
         @SuppressWarnings("JavaDoc")
         @Override
         public void onReceive(Context context, Intent intent) {
-            JSONObject response;
-            boolean success;
+            CourseResponse response;
             String message;
 
             ArrayList<Course> fetchedCourses;
 
             try {
                 // Standard server response info
-                response = new JSONObject(intent.getStringExtra(HTTPService.SERVER_RESPONSE));
-                success = response.getBoolean("Success");
-                if(response.has("Message")) {
-                    if(success)
-                        message = response.getString("Message");
-                    else message = "Error: " + response.getString("Message");
+                response = CourseResponse.read(intent);
+                if(response.hasMessage()) {
+                    if(response.isSuccess())
+                        message = response.getMessage();
+                    else message = "Error: " + response.getMessage();
                     Toast.makeText(getApplicationContext(), message, Toast.LENGTH_LONG).show();
                 }
-                if(response.has("TimeTaken")){
-                    float timeTaken = Float.parseFloat(response.getString("TimeTaken"));
-                    Log.d("New Request Time Taken:", Float.toString(timeTaken));
+                if(response.getTimeTaken() >= 0){
+                    Log.d("New Request Time Taken:", Float.toString(response.getTimeTaken()));
                 }
                 // End of standard server response info
 
-                if(success) {
-                    JSONArray jsonCourses = response.getJSONArray("Results");
-                    fetchedCourses = Course.buildCourseList(jsonCourses);
+                if(response.isSuccess()) {
+                    fetchedCourses = response.getCourses();
                     ArrayList<Section> fetchedSections = new ArrayList<>();
                     for(Course course : fetchedCourses){
                         fetchedSections.addAll(course.getSectionList());
@@ -527,8 +517,7 @@ public class DetailedSchedule extends Activity {
         @SuppressWarnings("JavaDoc")
         @Override
         public void onReceive(Context context, Intent intent) {
-            JSONObject response;
-            boolean success;
+            CourseResponse response;
             String message;
 
             ArrayList<Course> fetchedCourses;
@@ -536,41 +525,20 @@ public class DetailedSchedule extends Activity {
 
             try {
 
-                response = new JSONObject(intent.getStringExtra(HTTPService.SERVER_RESPONSE));
-                success = response.getBoolean("Success");
-                if(response.has("Message")) {
-                    if(success)
-                        message = response.getString("Message");
-                    else message = "Error: " + response.getString("Message");
+                response = CourseResponse.read(intent);
+                if(response.hasMessage()) {
+                    if(response.isSuccess())
+                        message = response.getMessage();
+                    else message = "Error: " + response.getMessage();
                     Toast.makeText(getApplicationContext(), message, Toast.LENGTH_LONG).show();
                 }
-                if(response.has("TimeTaken")){
-                    float timeTaken = Float.parseFloat(response.getString("TimeTaken"));
-                    Log.d("New Request Time Taken:", Float.toString(timeTaken));
+                if(response.getTimeTaken() >= 0){
+                    Log.d("New Request Time Taken:", Float.toString(response.getTimeTaken()));
                 }
-                if(success){
-                    JSONArray jsonCourses = response.getJSONArray("Results");
-                    fetchedCourses = Course.buildCourseList(jsonCourses);
-
-                    ArrayList<Section> fetchedSections = new ArrayList<>(fetchedCourses.size());
-                    for (Course course : fetchedCourses){
-                        fetchedSections.addAll(course.getSectionList());
-                    }
+                if(response.isSuccess()){
+                    fetchedCourses = response.getCourses();
 
-                    ArrayList<String> notifications = new ArrayList<>();
-                    for(Section section : scheduleToShow.getSelectedSections()){
-                        for(Section fetchedSection : fetchedSections){
-                            if (section.getSectionID() == fetchedSection.getSectionID()){
-                                if(section.getStatus() != fetchedSection.getStatus()){
-                                    String notification = section.getDescription() + " status has changed to: " + fetchedSection.getStatus().toString().replace("_", " ");
-                                    Log.i("DetailedSchedule", "Verify Schedule detected status change: " + notification);
-                                    notifications.add(notification);
-                                    section.setStatus(fetchedSection.getStatus());
-                                }
-                            }
-
-                        }
-                    }
+                    ArrayList<String> notifications = ScheduleVerifier.applyStatuses(scheduleToShow, ScheduleVerifier.readStatuses(fetchedCourses));
 
                     //scheduleToShow.setSelectedSections(fetchedSections);
                     showStatusChanges(notifications);
@@ -605,6 +573,17 @@ public class DetailedSchedule extends Activity {
         context.startActivity(scheduleIntent);
     }
 
+    /**
+     * Shows a schedule saved as JSON text, such as one read with {@link Schedule#loadScheduleBodyFromFile(String)}, without decoding it first.
+     * @param scheduleJSON JSON text as expected by {@link Schedule#Schedule(JSONObject)}
+     * @param context Context to start the activity from
+     */
+    public static void ShowSchedule(String scheduleJSON, Context context){
+        Intent scheduleIntent = new Intent(context, DetailedSchedule.class);
+        scheduleIntent.putExtra("Schedule Data", scheduleJSON);
+        context.startActivity(scheduleIntent);
+    }
+
     /**
      * Display alternate choices for a particular section
      * @param alternates ArrayList of Section from which user will select a schedule.
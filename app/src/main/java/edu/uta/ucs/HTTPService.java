@@ -1,77 +1,272 @@
 package edu.uta.ucs;
 
-import android.app.IntentService;
+import android.app.Service;
 import android.content.Context;
 import android.content.Intent;
+import android.os.IBinder;
 import android.support.v4.content.LocalBroadcastManager;
 import android.util.Log;
-/*Todd added on 10/31/2015 5:48pm
-* import android.content.SharedPreferences; */
-import android.content.SharedPreferences;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.protocol.ClientContext;
 import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
- * An {@link IntentService} subclass for handling asynchronous task requests in
- * a service on a separate handler thread.
+ * A {@link Service} for handling asynchronous task requests on a pool of worker threads.
  * <p/>
- * This IntentService is designed to interact with a web page and either get or send information there through the use of helper methods.
+ * This Service is designed to interact with a web page and either get or send information there through the use of helper methods.
  * Use the Facory patterns provided at the bottom to ensure least problems.
+ * <p/>
+ * Requests run concurrently, at most {@link #maxConnectionsPerHost} to one host, and {@link #PRIORITY_INTERACTIVE}
+ * requests are started before {@link #PRIORITY_BACKGROUND} ones. Background requests run one at a time in the order
+ * they were made, so a sync upload finishes before the download after it starts.
  */
-public class HTTPService extends IntentService {
+public class HTTPService extends Service {
 
     public static final String REQUEST_TYPE= "edu.uta.ucs.REQUEST_TYPE";
     public static final String REQUEST_URL = "edu.uta.ucs.REQUEST_URL";
     public static final String REQUEST_JSON_POST = "edu.uta.ucs.REQUEST_JSON_POST";
     public static final String SPOOF_SERVER_RESPONSE = "edu.uta.ucs.SPOOF_SERVER_RESPONSE";
     public static final String SERVER_RESPONSE = "edu.uta.ucs.SERVER_RESPONSE";
+    public static final String SERVER_RESPONSE_FILE = "edu.uta.ucs.SERVER_RESPONSE_FILE";
+    public static final String REQUEST_STREAM_RESPONSE = "edu.uta.ucs.REQUEST_STREAM_RESPONSE";
+    public static final String REQUEST_ALLOW_STALE = "edu.uta.ucs.REQUEST_ALLOW_STALE";
     public static final String SPOOFED_RESPONSE = "edu.uta.ucs.SPOOFED_RESPONSE";
     public static final String SOURCE_INTENT = "SOURCE_INTENT";
+    public static final String REQUEST_PRIORITY = "edu.uta.ucs.REQUEST_PRIORITY";
+    /** Id of the in flight request a GET was registered as by {@link #joinRequest(String, String)}. Missing for requests which were not registered. */
+    private static final String REQUEST_ID = "edu.uta.ucs.REQUEST_ID";
+    public static final int PRIORITY_INTERACTIVE = 0;
+    public static final int PRIORITY_BACKGROUND = 1;
     public static final String BAD_RESPONSE = "{\"SUCCESS\":false}";
 
     private static final int socketTimeoutMilliseconds = 45000; // 45 second timeout
     private static final int connectionTimeoutMilliseconds = 10000; // 10 second timeout
+    private static final int keepAliveMilliseconds = 30000; // 30 seconds idle before a pooled connection is closed
+    private static final int maxConnectionsPerHost = 4;
+    private static final int workerThreads = 6;
+    private static final long unopenedResponseFileMilliseconds = 10 * 60 * 1000; // 10 minutes before a response file nobody opened is deleted
 
-    private static String sec_session_id = null;
+    /** Name of the session cookie set by the server on login. */
+    private static final String SESSION_COOKIE = "sec_session_id";
     // Unused public static final String GOOD_RESPONSE = "{\"Success\":true}";
 
     /**
-     * Creates an IntentService.  Invoked by your subclass's constructor.
+     * A request waiting for a worker thread. Ordered by priority, then by the order requests were made.
+     */
+    private class QueuedRequest implements Runnable, Comparable<QueuedRequest> {
+
+        private final Intent intent;
+        private final int priority;
+        private final long sequence;
+        /** True once the background slot was handed to this request by the one finishing before it, so it must not try to take the slot again. */
+        private boolean handedOff = false;
+
+        QueuedRequest(Intent intent, long sequence) {
+            this.intent = intent;
+            this.priority = intent.getIntExtra(REQUEST_PRIORITY, PRIORITY_INTERACTIVE);
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(QueuedRequest another) {
+            if (priority != another.priority)
+                return priority < another.priority ? -1 : 1;
+            return sequence < another.sequence ? -1 : (sequence == another.sequence ? 0 : 1);
+        }
+
+        @Override
+        public void run() {
+            // Wait for the running background request without holding on to a worker thread
+            if (priority == PRIORITY_BACKGROUND && !handedOff && !backgroundSlot.acquire(this))
+                return;
+            Semaphore hostPermit = getHostPermits(intent.getStringExtra(REQUEST_URL));
+            try {
+                hostPermit.acquireUninterruptibly();
+                try {
+                    onHandleIntent(intent);
+                } finally {
+                    hostPermit.release();
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                Log.e("HTTPService", "Request failed: " + intent.getStringExtra(REQUEST_URL));
+                answerFailedRequest(intent);
+            } finally {
+                if (priority == PRIORITY_BACKGROUND) {
+                    QueuedRequest next = backgroundSlot.release();
+                    if (next != null) {
+                        next.handedOff = true;
+                        getRequestExecutor().execute(next);
+                    }
+                }
+                requestFinished();
+            }
+        }
+    }
+
+    /**
+     * Lets one background request run at a time. Requests which find the slot taken wait in the order they were made,
+     * and the slot passes straight from each finishing request to the next one without being released in between.
      */
+    static class BackgroundRequestSlot<T> {
+
+        private final ArrayList<T> pending = new ArrayList<>();
+        private boolean running = false;
+
+        /**
+         * Takes the slot, or queues the request to be handed the slot later.
+         * @return true if the slot was free and the request may run now.
+         */
+        synchronized boolean acquire(T request) {
+            if (running) {
+                pending.add(request);
+                return false;
+            }
+            running = true;
+            return true;
+        }
 
-    public HTTPService() {
-        super("HTTPGetService");
+        /**
+         * Passes the slot on from a finished request.
+         * @return the next request, which now holds the slot and must run without calling {@link #acquire(Object)}, or null if the slot is free.
+         */
+        synchronized T release() {
+            if (pending.isEmpty()) {
+                running = false;
+                return null;
+            }
+            return pending.remove(0);
+        }
+    }
+
+    private static ThreadPoolExecutor requestExecutor = null;
+    private static final HashMap<String, Semaphore> hostPermits = new HashMap<>();
+    private static final BackgroundRequestSlot<QueuedRequest> backgroundSlot = new BackgroundRequestSlot<>();
+    private static long requestSequence = 0;
+
+    private int activeRequests = 0;
+    private int lastStartId = 0;
+
+    private static synchronized ThreadPoolExecutor getRequestExecutor(){
+        if (requestExecutor == null){
+            requestExecutor = new ThreadPoolExecutor(workerThreads, workerThreads, keepAliveMilliseconds, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>());
+            requestExecutor.allowCoreThreadTimeOut(true);
+        }
+        return requestExecutor;
+    }
+
+    /**
+     * Obtains the permits limiting concurrent requests to the host of a url. Spoofed and malformed urls share one set.
+     */
+    private static Semaphore getHostPermits(String urlString){
+        String host;
+        try {
+            host = new URL(urlString.replace(" ", "")).getHost();
+        } catch (MalformedURLException e) {
+            host = "";
+        }
+        synchronized (hostPermits) {
+            Semaphore permits = hostPermits.get(host);
+            if (permits == null) {
+                permits = new Semaphore(maxConnectionsPerHost, true);
+                hostPermits.put(host, permits);
+            }
+            return permits;
+        }
     }
 
     @Override
-    protected void onHandleIntent(Intent intent) {
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (intent == null)
+            return START_NOT_STICKY;
+        long sequence;
+        synchronized (HTTPService.class) {
+            sequence = requestSequence++;
+        }
+        synchronized (this) {
+            activeRequests++;
+            lastStartId = startId;
+        }
+        getRequestExecutor().execute(new QueuedRequest(intent, sequence));
+        return START_NOT_STICKY;
+    }
+
+    /**
+     * Stops the service once no request is left, like an IntentService does once its queue is empty.
+     */
+    private synchronized void requestFinished() {
+        activeRequests--;
+        if (activeRequests == 0)
+            stopSelf(lastStartId);
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void onHandleIntent(Intent intent) {
 
         String requestType = intent.getStringExtra(REQUEST_TYPE);
 
@@ -88,21 +283,116 @@ public class HTTPService extends IntentService {
     }
 
 
-    private HttpContext httpContext = null;
-    private HttpContext getHttpContext(){
+    private static HttpContext httpContext = null;
+    private static CookieStore cookieStore = null;
+    private static synchronized HttpContext getHttpContext(){
         if (httpContext == null){
-            // Create a local instance of cookie store
-            CookieStore cookieStore = new BasicCookieStore();
+            // Create a process wide cookie store, shared by every request. It sends the session cookie and keeps any new one the server sets.
+            cookieStore = new BasicCookieStore();
 
             // Create local HTTP context
             HttpContext localContext = new BasicHttpContext();
             // Bind custom cookie store to the local context
             localContext.setAttribute(ClientContext.COOKIE_STORE, cookieStore);
 
-            return httpContext;
+            httpContext = localContext;
+        }
+        return httpContext;
+    }
 
+    /**
+     * Obtains the session cookie the server set on login, so cached responses are kept apart per session.
+     * @return value of the session cookie, or null if there is no session.
+     */
+    private static synchronized String getSessionId(){
+        getHttpContext();
+        for (Cookie cookie : cookieStore.getCookies()){
+            if (cookie.getName().equals(SESSION_COOKIE))
+                return cookie.getValue();
+        }
+        return null;
+    }
+
+    /**
+     * Forgets every cookie, ending the session on this device. Called on logout.
+     */
+    static synchronized void clearCookies(){
+        getHttpContext();
+        cookieStore.clear();
+        Log.i("HTTPService", "Cookies cleared");
+    }
+
+    private static DefaultHttpClient httpClient = null;
+    private static ThreadSafeClientConnManager connectionManager = null;
+
+    /**
+     * Obtains the process wide HTTP client. Connections are pooled and kept alive between requests,
+     * so repeated requests to the server reuse a warm socket instead of connecting again.
+     * @return client shared by every request made through HTTPService
+     */
+    static synchronized HttpClient getHttpClient(){
+        if (httpClient == null){
+            HttpParams httpParams = new BasicHttpParams();
+            HttpConnectionParams.setConnectionTimeout(httpParams, connectionTimeoutMilliseconds);
+            HttpConnectionParams.setSoTimeout(httpParams, socketTimeoutMilliseconds);
+            HttpProtocolParams.setVersion(httpParams, HttpVersion.HTTP_1_1);
+            HttpProtocolParams.setContentCharset(httpParams, "UTF-8");
+
+            // Allow a few parallel connections to the server, and fewer to any other host
+            ConnPerRouteBean connectionsPerRoute = new ConnPerRouteBean(maxConnectionsPerHost / 2);
+            try {
+                URL domain = new URL(UserData.getContext().getResources().getString(R.string.domain));
+                HttpHost domainHost = new HttpHost(domain.getHost(), domain.getPort(), domain.getProtocol());
+                connectionsPerRoute.setMaxForRoute(new HttpRoute(domainHost), maxConnectionsPerHost);
+            } catch (MalformedURLException e) {
+                e.printStackTrace();
+            }
+            ConnManagerParams.setMaxConnectionsPerRoute(httpParams, connectionsPerRoute);
+            ConnManagerParams.setMaxTotalConnections(httpParams, maxConnectionsPerHost * 2);
+            ConnManagerParams.setTimeout(httpParams, connectionTimeoutMilliseconds);
+
+            SchemeRegistry schemeRegistry = new SchemeRegistry();
+            schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+            schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+
+            connectionManager = new ThreadSafeClientConnManager(httpParams, schemeRegistry);
+            httpClient = new DefaultHttpClient(connectionManager, httpParams);
+            // Ask for compressed responses and decompress them as they are read
+            httpClient.addRequestInterceptor(new HttpRequestInterceptor() {
+                @Override
+                public void process(HttpRequest request, HttpContext context) {
+                    if (!request.containsHeader("Accept-Encoding"))
+                        request.addHeader("Accept-Encoding", "gzip, deflate");
+                }
+            });
+            httpClient.addResponseInterceptor(new HttpResponseInterceptor() {
+                @Override
+                public void process(HttpResponse response, HttpContext context) {
+                    HttpEntity entity = response.getEntity();
+                    Header contentEncoding = entity != null ? entity.getContentEncoding() : null;
+                    if (contentEncoding != null) {
+                        String encoding = contentEncoding.getValue().trim();
+                        if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("deflate"))
+                            response.setEntity(new DecompressingEntity(entity, encoding.equalsIgnoreCase("gzip")));
+                    }
+                }
+            });
+            httpClient.setKeepAliveStrategy(new ConnectionKeepAliveStrategy() {
+                @Override
+                public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                    // Honor a Keep-Alive timeout sent by the server, otherwise keep connections for a while
+                    long serverDuration = new DefaultConnectionKeepAliveStrategy().getKeepAliveDuration(response, context);
+                    return serverDuration > 0 ? serverDuration : keepAliveMilliseconds;
+                }
+            });
+            Log.i("HTTPService", "Created pooled HTTP client");
+        }
+        else {
+            // Drop sockets the server has likely closed by now rather than failing a request on one
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(keepAliveMilliseconds, TimeUnit.MILLISECONDS);
         }
-        else return httpContext;
+        return httpClient;
     }
 
     /**
@@ -118,18 +408,12 @@ public class HTTPService extends IntentService {
         String source = intent.getStringExtra(SOURCE_INTENT);
         String jsonString = intent.getStringExtra(REQUEST_JSON_POST);
 
-        if (!urlString.equalsIgnoreCase(SPOOF_SERVER_RESPONSE)) {
-            try {
-                URL targetURL = new URL(urlString);
-                response = postJSON(targetURL, jsonString);
-            } catch (MalformedURLException e) {
-                e.printStackTrace();
-                response = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"Malformed URL\"}";
-            }
-        }
-        else{
-            response = intent.getStringExtra(SPOOFED_RESPONSE);
-            Log.i("HTTPGetService", "Spoofing response");
+        try {
+            URL targetURL = new URL(urlString);
+            response = postJSON(targetURL, jsonString);
+        } catch (MalformedURLException e) {
+            e.printStackTrace();
+            response = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"Malformed URL\"}";
         }
 
 
@@ -152,59 +436,204 @@ public class HTTPService extends IntentService {
     private void getURL(Intent intent){
 
         String response;
-        //Todd added on 10/31/2015 5:43pm
-        SharedPreferences preferences = UserData.getContext().getSharedPreferences(SPOOFED_RESPONSE, Context.MODE_PRIVATE);
-        String dataReceived = preferences.getString(SPOOFED_RESPONSE, null);
         String urlString = intent.getStringExtra(REQUEST_URL).replace(" ", "");   // Remove any whitespace
         String source = intent.getStringExtra(SOURCE_INTENT);
+        String requestKey = requestKey(intent);
+        long requestId = intent.getLongExtra(REQUEST_ID, -1);
 
-
-        if (!urlString.equalsIgnoreCase(SPOOF_SERVER_RESPONSE)) {
-
+        if (intent.getBooleanExtra(REQUEST_STREAM_RESPONSE, false)) {
+            File responseFile = null;
+            boolean staleResponseSent = false;
+            String failureMessage = "bad connection";
             try {
-                URL url = new URL(urlString);
-                response = fetchJSON(url);
-            } catch (MalformedURLException e) {
+                if (intent.getBooleanExtra(REQUEST_ALLOW_STALE, false) && (responseFile = copyCachedResponse(new URL(urlString))) != null) {
+                    // Answer right away with the cached copy, then revalidate it so the next request gets fresh data
+                    broadcastResponseFile(finishRequest(requestKey, requestId, source), urlString, responseFile, null);
+                    staleResponseSent = true;
+                    // Only a changed response is downloaded, which updates the cache. Nobody reads the file itself.
+                    File refreshedFile = fetchToFile(this, new URL(urlString), true);
+                    if (refreshedFile != null)
+                        //noinspection ResultOfMethodCallIgnored
+                        refreshedFile.delete();
+                    return;
+                }
+                else
+                    responseFile = fetchToFile(this, new URL(urlString), false);
+            } catch (URISyntaxException | IOException e) {
                 e.printStackTrace();
-                response = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"Malformed URL\"}";
+                Log.d("HTTPService getURL", "HTTP Request Failed");
+                if (staleResponseSent)
+                    return;
+                if (e instanceof BadServerResponseException)
+                    failureMessage = "Bad server response";
+                responseFile = null;
             }
+            broadcastResponseFile(finishRequest(requestKey, requestId, source), urlString, responseFile, failureMessage);
+            return;
         }
-        else{
-            // Todd removed response = intent.getStringExtra(SPOOFED_RESPONSE);
 
-            //Todd added
-            response = dataReceived;
-            //Todd end added
-            Log.i("HTTPGetService", "Spoofing response");
+        try {
+            URL url = new URL(urlString);
+            response = fetchJSON(url);
+        } catch (MalformedURLException e) {
+            e.printStackTrace();
+            response = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"Malformed URL\"}";
         }
 
-        Intent broadcastIntent = new Intent(intent.getStringExtra(SOURCE_INTENT));
-
         if(!isJSON(response))
             response = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"Bad server response\"}";
-        broadcastIntent.putExtra(SERVER_RESPONSE, response);
-        Log.i("HTTPService SOURCE", source);
         Log.i("HTTPService URL", urlString);
-
         Log.i("HTTPService Response", response);
-        LocalBroadcastManager.getInstance(this).sendBroadcast(broadcastIntent);
+
+        // Every receiver which asked for this url while it was being fetched gets the same response
+        for (String receiverTag : finishRequest(requestKey, requestId, source)) {
+            Intent broadcastIntent = new Intent(receiverTag);
+            broadcastIntent.putExtra(SERVER_RESPONSE, response);
+            Log.i("HTTPService SOURCE", receiverTag);
+            LocalBroadcastManager.getInstance(this).sendBroadcast(broadcastIntent);
+        }
         //sendBroadcast(broadcastIntent);
     }
 
+    /**
+     * Answers a request which threw while being handled with {@link #BAD_RESPONSE}, so that no receiver waits for it
+     * forever and identical requests stop joining it. Receivers of a GET which already answered them are not answered again.
+     * @param intent the intent the HTTPService was started with
+     */
+    private void answerFailedRequest(Intent intent) {
+        String source = intent.getStringExtra(SOURCE_INTENT);
+        ArrayList<String> receiverTags;
+        if (REQUEST_URL.equals(intent.getStringExtra(REQUEST_TYPE))) {
+            receiverTags = finishRequest(requestKey(intent), intent.getLongExtra(REQUEST_ID, -1), source);
+        } else {
+            receiverTags = new ArrayList<>();
+            receiverTags.add(source);
+        }
+        for (String receiverTag : receiverTags) {
+            if (receiverTag == null || receiverTag.isEmpty())
+                continue;
+            Intent broadcastIntent = new Intent(receiverTag);
+            broadcastIntent.putExtra(SERVER_RESPONSE, BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"Request failed\"}");
+            Log.i("HTTPService SOURCE", receiverTag);
+            LocalBroadcastManager.getInstance(this).sendBroadcast(broadcastIntent);
+        }
+    }
+
+    /**
+     * Thrown when the server answers a streamed request with anything other than a response body, such as an error page.
+     */
+    private static class BadServerResponseException extends IOException {
+
+        BadServerResponseException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A GET request which has been handed to the service and not answered yet, with the receivers waiting for it.
+     */
+    private static class InFlightRequest {
+
+        private final long id;
+        private final long startTime = System.currentTimeMillis();
+        private final ArrayList<String> receiverTags = new ArrayList<>();
+
+        InFlightRequest(long id) {
+            this.id = id;
+        }
+    }
+
+    /** GET requests being fetched, by {@link #requestKey(String, boolean, boolean, int)}. Guarded by itself. */
+    private static final HashMap<String, InFlightRequest> inFlightRequests = new HashMap<>();
+    private static long nextRequestId = 0;
+
+    /**
+     * Builds the key under which identical GET requests are coalesced. Requests only share a response if they
+     * would have been handled the same way, so stale answers and priority are part of the key.
+     */
+    static String requestKey(String url, boolean streamResponse, boolean allowStale, int priority) {
+        return (streamResponse ? "stream " : "string ") + (allowStale ? "stale " : "fresh ") + priority + " " + url;
+    }
+
+    /**
+     * @see #requestKey(String, boolean, boolean, int)
+     */
+    private static String requestKey(Intent intent) {
+        return requestKey(intent.getStringExtra(REQUEST_URL), intent.getBooleanExtra(REQUEST_STREAM_RESPONSE, false),
+                intent.getBooleanExtra(REQUEST_ALLOW_STALE, false), intent.getIntExtra(REQUEST_PRIORITY, PRIORITY_INTERACTIVE));
+    }
+
+    /**
+     * Joins a GET request already being fetched, or registers a new one.
+     * A request older than the timeouts allow is assumed lost and is replaced. Its receivers move to the replacement,
+     * and the lost request answers nobody if it finishes after all, so no receiver is answered twice.
+     * @return -1 if a request was already in flight and the receiver will be answered by it,
+     *         otherwise the id of the new request, to be sent with it as {@link #REQUEST_ID}.
+     */
+    static long joinRequest(String requestKey, String receiverTag) {
+        synchronized (inFlightRequests) {
+            InFlightRequest request = inFlightRequests.get(requestKey);
+            if (request != null && System.currentTimeMillis() - request.startTime < connectionTimeoutMilliseconds + socketTimeoutMilliseconds) {
+                if (!request.receiverTags.contains(receiverTag))
+                    request.receiverTags.add(receiverTag);
+                return -1;
+            }
+            InFlightRequest replacement = new InFlightRequest(nextRequestId++);
+            if (request != null)
+                replacement.receiverTags.addAll(request.receiverTags);
+            if (!replacement.receiverTags.contains(receiverTag))
+                replacement.receiverTags.add(receiverTag);
+            inFlightRequests.put(requestKey, replacement);
+            return replacement.id;
+        }
+    }
+
+    /**
+     * Ends a GET request. Receivers joining after this start a new request.
+     * @param requestId id from {@link #joinRequest(String, String)}, or -1 if the request was never registered
+     * @param source receiver tag of the intent being handled, answered alone if the request was never registered
+     * @return receiver tags to broadcast the response to. Empty if the request was replaced, since its receivers are answered by the replacement.
+     */
+    static ArrayList<String> finishRequest(String requestKey, long requestId, String source) {
+        ArrayList<String> receiverTags = new ArrayList<>();
+        if (requestId == -1) {
+            receiverTags.add(source);
+            return receiverTags;
+        }
+        synchronized (inFlightRequests) {
+            InFlightRequest request = inFlightRequests.get(requestKey);
+            if (request != null && request.id == requestId) {
+                inFlightRequests.remove(requestKey);
+                receiverTags.addAll(request.receiverTags);
+            } else {
+                Log.i("HTTPService", "Request " + requestId + " was replaced, its receivers are answered by the replacement");
+            }
+        }
+        return receiverTags;
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
         //Toast.makeText(getBaseContext(), "HTTPGetService has been created", Toast.LENGTH_LONG).show();
-        Log.d("HTTPService", "IntentService onCreate() called");
+        Log.d("HTTPService", "Service onCreate() called");
         //messenger = new Messenger(new MessageHandler());
 
+        final File cacheDirectory = getCacheDir();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                deleteUnopenedResponseFiles(cacheDirectory, System.currentTimeMillis() - unopenedResponseFileMilliseconds);
+            }
+        }, "Response File Cleanup").start();
+
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
         //Toast.makeText(getBaseContext(), "HTTPGetService has been stopped", Toast.LENGTH_LONG).show();
-        Log.d("HTTPService", "IntentService onDestroy() called");
+        Log.d("HTTPService", "Service onDestroy() called");
     }
 
     /**
@@ -239,10 +668,6 @@ public class HTTPService extends IntentService {
                 }
             }*/
 
-            HttpParams httpParams = new BasicHttpParams();
-            HttpConnectionParams.setConnectionTimeout(httpParams, connectionTimeoutMilliseconds);
-            HttpConnectionParams.setSoTimeout(httpParams, socketTimeoutMilliseconds);
-            HttpClient httpClient = new DefaultHttpClient(httpParams);
             HttpPost httpPost = new HttpPost(targetURL.toURI());
 
 
@@ -251,32 +676,15 @@ public class HTTPService extends IntentService {
             // Prepare JSON to send by setting the entity
             //httpPost.setEntity(new StringEntity(jsonString, "UTF-8"));
             httpPost.setEntity(new UrlEncodedFormEntity(parsedJSON));
-            if(sec_session_id != null){
-                Log.i("sec_session_id", sec_session_id);
-                httpPost.setHeader("Cookie", "sec_session_id="+sec_session_id);
-            }
 
             // Set up the header types needed to properly transfer JSON
             //httpPost.setHeader("Content-Type", "application/json");
             //httpPost.setHeader("Accept-Encoding", "application/json");
             //httpPost.setHeader("Accept-Language", "en-US");
 
-            // Execute POST
-            HttpResponse httpResponse = httpClient.execute(httpPost, getHttpContext());
-            HttpEntity httpEntity = httpResponse.getEntity();
-            response = EntityUtils.toString(httpEntity);
-            //Header responseHeaders[] = httpResponse.getHeaders("Set-Cookie");
-            Header responseHeader = httpResponse.getLastHeader("Set-Cookie");
-
-            if (responseHeader != null) {
-                sec_session_id = responseHeader.getValue();
-                sec_session_id = sec_session_id.substring(sec_session_id.indexOf("=") + 1, sec_session_id.indexOf(";"));
-                Log.i("new sec_session_id", sec_session_id);
-                Log.i("Last Response Header", responseHeader.getValue());
-            }
-            /*for(Header header : responseHeaders){
-                Log.i("Response Headers", header.getValue());
-            }*/
+            // Execute POST. The shared cookie store sends the session cookie and keeps any new one.
+            HttpResponse httpResponse = execute(httpPost);
+            response = readResponse(httpPost, httpResponse);
 
         } catch (URISyntaxException | IOException e) {
             e.printStackTrace();
@@ -291,6 +699,33 @@ public class HTTPService extends IntentService {
         return response;
     }
 
+    /**
+     * Executes a request on the shared client with the shared cookie store.
+     * The connection goes back to the pool once the response entity is consumed, or right away if the request fails.
+     */
+    private static HttpResponse execute(HttpUriRequest request) throws IOException {
+        // Each request keeps its own attributes in a child context, which finds the shared cookie store in its parent
+        HttpContext requestContext = new BasicHttpContext(getHttpContext());
+        try {
+            return getHttpClient().execute(request, requestContext);
+        } catch (IOException e) {
+            request.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the whole response body, which releases its connection back to the pool for the next request.
+     */
+    private static String readResponse(HttpUriRequest request, HttpResponse response) throws IOException {
+        try {
+            return EntityUtils.toString(response.getEntity());
+        } catch (IOException e) {
+            request.abort();
+            throw e;
+        }
+    }
+
     /**
      * Making service call
      * @param url - url to make request
@@ -300,46 +735,307 @@ public class HTTPService extends IntentService {
         Log.d("HTTPGetService URL:", url.toString());
         String response;
         try {
-            HttpParams httpParams = new BasicHttpParams();
-            HttpConnectionParams.setConnectionTimeout(httpParams, connectionTimeoutMilliseconds);
-            HttpConnectionParams.setSoTimeout(httpParams, socketTimeoutMilliseconds);
-            HttpClient httpClient = new DefaultHttpClient(httpParams);
-            HttpEntity httpEntity;
-            HttpResponse httpResponse;
-            Log.d("test:", "fetchJSON HTTP parameters set");
-
             HttpGet httpGet = new HttpGet(url.toURI());
-            if(sec_session_id != null){
-                Log.i("sec_session_id", sec_session_id);
-                httpGet.setHeader("Cookie", "sec_session_id="+sec_session_id);
-            }
-            Log.d("test:", "HTTPGet setup");
-            httpResponse = httpClient.execute(httpGet,getHttpContext());
-            Log.d("test:", "HTTPGet executed - response received");
+            HttpResponse httpResponse = execute(httpGet);
+            response = readResponse(httpGet, httpResponse);
+
+        } catch (URISyntaxException | IOException e) {
+            e.printStackTrace();
+            Log.d("HTTPService fetchJSON", "HTTP Request Failed");
+            response = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"bad connection\"}";
+        }
 
 
-            httpEntity = httpResponse.getEntity();
+        Log.d("Server reply:", response);
+        return response;
+    }
 
-            Header responseHeader = httpResponse.getLastHeader("Set-Cookie");
+    /**
+     * Fetches a url straight into a file in the cache directory, decompressing it on the way, so the response never has to fit in memory as a String.
+     * @param context context whose cache directory holds the file
+     * @param url url to make request
+     * @param onlyIfModified true to return null instead of a copy of the cached response when the server answers that it has not changed
+     * @return file holding the response body. Read it with {@link #openResponse(Intent)}, which deletes it once closed.
+     */
+    private static File fetchToFile(Context context, URL url, boolean onlyIfModified) throws URISyntaxException, IOException {
+        return fetchToFile(context, url, ResponseCache.key(url.toString(), getSessionId()), onlyIfModified, true);
+    }
 
-            if (responseHeader != null) {
-                sec_session_id = responseHeader.getValue();
-                sec_session_id = sec_session_id.substring(sec_session_id.indexOf("=") + 1, sec_session_id.indexOf(";"));
-                Log.i("new sec_session_id", sec_session_id);
-                Log.i("Last Response Header", responseHeader.getValue());
+    /**
+     * @param cacheKey key the response is cached under
+     * @param conditional false to ignore the cached response and ask for the full body, such as when the cached body was evicted after a 304
+     * @see #fetchToFile(Context, URL, boolean)
+     */
+    private static File fetchToFile(Context context, URL url, String cacheKey, boolean onlyIfModified, boolean conditional) throws URISyntaxException, IOException {
+        Log.d("HTTPGetService URL:", url.toString());
+        ResponseCache responseCache = getResponseCache(context);
+        ResponseCache.Entry cachedResponse = conditional ? responseCache.get(cacheKey) : null;
+
+        HttpGet httpGet = new HttpGet(url.toURI());
+        if (cachedResponse != null) {
+            // Ask the server to only send the body if it changed since it was cached
+            if (cachedResponse.getETag() != null)
+                httpGet.setHeader("If-None-Match", cachedResponse.getETag());
+            if (cachedResponse.getLastModified() != null)
+                httpGet.setHeader("If-Modified-Since", cachedResponse.getLastModified());
+        }
+        HttpResponse httpResponse = execute(httpGet);
+        int statusCode = httpResponse.getStatusLine().getStatusCode();
+
+        if (cachedResponse != null && statusCode == HttpStatus.SC_NOT_MODIFIED) {
+            if (httpResponse.getEntity() != null)
+                httpResponse.getEntity().consumeContent();
+            Log.i("HTTPService", "Not modified, serving cached response for " + url);
+            if (onlyIfModified)
+                return null;
+            File responseFile = File.createTempFile("response", ".json", context.getCacheDir());
+            boolean copied = false;
+            try {
+                copied = responseCache.copyBody(cacheKey, responseFile);
+            } finally {
+                if (!copied)
+                    //noinspection ResultOfMethodCallIgnored
+                    responseFile.delete();
             }
+            if (copied)
+                return responseFile;
+            // Another request evicted or replaced the body since it was looked up
+            Log.i("HTTPService", "Cached response for " + url + " is gone, fetching it again");
+            return fetchToFile(context, url, cacheKey, false, false);
+        }
 
-            response = EntityUtils.toString(httpEntity);
+        if (statusCode != HttpStatus.SC_OK) {
+            // An error page is not a response any receiver can read, so it is never written out
+            if (httpResponse.getEntity() != null)
+                httpResponse.getEntity().consumeContent();
+            throw new BadServerResponseException("HTTP " + statusCode + " for " + url);
+        }
 
-        } catch (URISyntaxException | IOException e) {
+        File responseFile;
+        InputStream content = null;
+        try {
+            content = httpResponse.getEntity().getContent();
+            responseFile = writeResponseFile(context, content);
+        } catch (IOException e) {
+            httpGet.abort();
+            throw e;
+        } finally {
+            if (content != null)
+                content.close();
+        }
+
+        Header eTag = httpResponse.getFirstHeader("ETag");
+        Header lastModified = httpResponse.getFirstHeader("Last-Modified");
+        try {
+            responseCache.put(cacheKey, responseFile, eTag != null ? eTag.getValue() : null, lastModified != null ? lastModified.getValue() : null);
+        } catch (IOException e) {
             e.printStackTrace();
-            Log.d("HTTPService fetchJSON", "HTTP Request Failed");
-            response = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"bad connection\"}";
+            Log.e("HTTPService", "Could not cache response for " + url);
         }
+        return responseFile;
+    }
 
+    /**
+     * Fetches a url on the calling thread, for background jobs which run outside of this service.
+     * Like a streamed request, the response is cached and a cached copy is revalidated with a conditional request.
+     * The response is cached apart from other requests for the same url, under the given cache name, so that whether it
+     * changed is always judged against the last response this job read.
+     * While {@link UserData#spoofServer()} is on, the response comes from the {@link SpoofServer} and is never reported as unchanged.
+     * @param context context whose cache directory holds the file
+     * @param urlToFetch String url to fetch, relative to the server domain like in {@link #FetchURL(String, String, Context)}
+     * @param cacheName name of the job, kept apart from other jobs' cached responses
+     * @return file holding the response body, to be deleted by the caller, or null if the server answered that the cached response has not changed.
+     * @throws IOException if the request failed
+     */
+    static File fetchIfModified(Context context, String urlToFetch, String cacheName) throws IOException {
+        urlToFetch = UserData.getContext().getResources().getString(R.string.domain) + urlToFetch;
+        if (UserData.spoofServer()) { // Spoof server response
+            Log.i("HTTPService", "Spoofing response for url fetch: " + urlToFetch);
+            File responseFile = File.createTempFile("response", ".json", context.getCacheDir());
+            OutputStream output = new FileOutputStream(responseFile);
+            try {
+                output.write(SpoofServer.getInstance(context).respond(urlToFetch).getBytes("UTF-8"));
+            } finally {
+                output.close();
+            }
+            return responseFile;
+        }
+        try {
+            URL url = new URL(urlToFetch.replace(" ", ""));
+            return fetchToFile(context, url, ResponseCache.key(cacheName + " " + url.toString(), getSessionId()), true, true);
+        } catch (URISyntaxException e) {
+            throw new IOException("Malformed URL " + urlToFetch, e);
+        }
+    }
 
-        Log.d("Server reply:", response);
-        return response;
+    /**
+     * Copies the cached response for a url, without contacting the server.
+     * @return file holding the cached body, or null if the url has no cached response.
+     */
+    private File copyCachedResponse(URL url) throws IOException {
+        File responseFile = File.createTempFile("response", ".json", getCacheDir());
+        boolean copied = false;
+        try {
+            copied = getResponseCache(this).copyBody(ResponseCache.key(url.toString(), getSessionId()), responseFile);
+        } finally {
+            if (!copied)
+                //noinspection ResultOfMethodCallIgnored
+                responseFile.delete();
+        }
+        if (!copied)
+            return null;
+        Log.i("HTTPService", "Serving stale cached response for " + url);
+        return responseFile;
+    }
+
+    /**
+     * Broadcasts a streamed response to each receiver. Every receiver after the first gets its own copy of the file,
+     * since reading a response deletes it.
+     * @param responseFile file holding the response, or null if the request failed
+     * @param failureMessage message sent with {@link #BAD_RESPONSE} if the request failed
+     */
+    private void broadcastResponseFile(ArrayList<String> receiverTags, String urlString, File responseFile, String failureMessage) {
+        if (receiverTags.isEmpty() && responseFile != null)
+            //noinspection ResultOfMethodCallIgnored
+            responseFile.delete();
+        Log.i("HTTPService URL", urlString);
+        Log.i("HTTPService Response", responseFile != null ? "Streamed to " + responseFile.getPath() + ", " + responseFile.length() + " bytes" : "Failed");
+        for (int index = 0; index < receiverTags.size(); index++) {
+            File receiverFile = responseFile;
+            if (responseFile != null && index > 0) {
+                try {
+                    receiverFile = File.createTempFile("response", ".json", getCacheDir());
+                    ResponseCache.copy(responseFile, receiverFile);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    receiverFile = null;
+                }
+            }
+            Intent broadcastIntent = new Intent(receiverTags.get(index));
+            if (receiverFile != null)
+                broadcastIntent.putExtra(SERVER_RESPONSE_FILE, receiverFile.getPath());
+            else
+                broadcastIntent.putExtra(SERVER_RESPONSE, BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"" + (failureMessage != null ? failureMessage : "bad connection") + "\"}");
+            Log.i("HTTPService SOURCE", receiverTags.get(index));
+            LocalBroadcastManager.getInstance(this).sendBroadcast(broadcastIntent);
+        }
+    }
+
+    private static ResponseCache responseCache = null;
+
+    /**
+     * Obtains the process wide response cache, limited to R.integer.responseCacheSizeKilobytes.
+     */
+    private static synchronized ResponseCache getResponseCache(Context context){
+        if (responseCache == null){
+            long maxBytes = context.getResources().getInteger(R.integer.responseCacheSizeKilobytes) * 1024L;
+            responseCache = new ResponseCache(new File(context.getCacheDir(), "responses"), maxBytes);
+        }
+        return responseCache;
+    }
+
+    /**
+     * Deletes response files which no receiver opened, such as ones broadcast after their receiver was unregistered.
+     * Opening a response with {@link #openResponse(Intent)} deletes it once it is read, so only abandoned files are this old.
+     * @param cacheDirectory directory response files are written to
+     * @param modifiedBefore only files last modified before this time, in milliseconds since the epoch, are deleted
+     */
+    static void deleteUnopenedResponseFiles(File cacheDirectory, long modifiedBefore) {
+        File[] files = cacheDirectory.listFiles();
+        if (files == null)
+            return;
+        int deleted = 0;
+        for (File file : files) {
+            if (file.isFile() && file.getName().startsWith("response") && file.getName().endsWith(".json") && file.lastModified() < modifiedBefore && file.delete())
+                deleted++;
+        }
+        if (deleted > 0)
+            Log.i("HTTPService", "Deleted " + deleted + " unopened response files");
+    }
+
+    private static File writeResponseFile(Context context, InputStream content) throws IOException {
+        File responseFile = File.createTempFile("response", ".json", context.getCacheDir());
+        OutputStream output = new FileOutputStream(responseFile);
+        try {
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = content.read(buffer)) != -1) {
+                output.write(buffer, 0, count);
+            }
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            responseFile.delete();
+            throw e;
+        } finally {
+            output.close();
+        }
+        return responseFile;
+    }
+
+    /**
+     * Opens the response carried by a broadcast from this service. Responses to streamed requests are read from
+     * their file, which is deleted when the reader is closed. Other responses are read from {@link #SERVER_RESPONSE}.
+     * @param broadcastIntent intent received by the BroadcastReceiver
+     * @return reader over the response text, to be closed by the caller
+     */
+    public static Reader openResponse(Intent broadcastIntent) throws IOException {
+        String responseFilePath = broadcastIntent.getStringExtra(SERVER_RESPONSE_FILE);
+        if (responseFilePath == null)
+            return new StringReader(broadcastIntent.getStringExtra(SERVER_RESPONSE));
+
+        final File responseFile = new File(responseFilePath);
+        InputStream input = new FileInputStream(responseFile) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                //noinspection ResultOfMethodCallIgnored
+                responseFile.delete();
+            }
+        };
+        return new BufferedReader(new InputStreamReader(input, "UTF-8"));
+    }
+
+    /**
+     * Decompresses a gzip or deflate response body while it is read.
+     */
+    private static class DecompressingEntity extends HttpEntityWrapper {
+
+        private final boolean gzip;
+
+        DecompressingEntity(HttpEntity entity, boolean gzip) {
+            super(entity);
+            this.gzip = gzip;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            InputStream content = wrappedEntity.getContent();
+            return gzip ? new GZIPInputStream(content) : new InflaterInputStream(content);
+        }
+
+        @Override
+        public Header getContentEncoding() {
+            return null;
+        }
+
+        @Override
+        public long getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(OutputStream output) throws IOException {
+            InputStream content = getContent();
+            try {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = content.read(buffer)) != -1) {
+                    output.write(buffer, 0, count);
+                }
+            } finally {
+                content.close();
+            }
+        }
     }
 
     /**
@@ -352,6 +1048,20 @@ public class HTTPService extends IntentService {
      *                <br>EX: MainActivity.this
      */
     public static void PostJSON(String targetURL, JSONObject jsonToPost,String recieverTag, Context context){
+        PostJSON(targetURL, jsonToPost, recieverTag, context, PRIORITY_INTERACTIVE);
+    }
+
+    /**
+     * Creates and starts a HTTPService for JSON post to a url
+     *
+     * @param targetURL String url where JSON will be posted
+     * @param jsonToPost JSONObject to be posted
+     * @param recieverTag String will be the intentFilter when response is posted
+     * @param context context to create intent with. Usually will be the calling class followed by ".this"
+     *                <br>EX: MainActivity.this
+     * @param priority {@link #PRIORITY_INTERACTIVE} for requests the user is waiting on, {@link #PRIORITY_BACKGROUND} otherwise
+     */
+    public static void PostJSON(String targetURL, JSONObject jsonToPost,String recieverTag, Context context, int priority){
 
         targetURL = UserData.getContext().getResources().getString(R.string.domain) + targetURL;
         //"https://ablesched.ddns.net:8080/test"; //+ targetURL;//UserData.getContext().getResources().getString(R.string.domain) + targetURL;
@@ -359,31 +1069,13 @@ public class HTTPService extends IntentService {
         Intent intent = new Intent(context, HTTPService.class);
         intent.putExtra(HTTPService.REQUEST_TYPE, HTTPService.REQUEST_JSON_POST);
         intent.putExtra(HTTPService.REQUEST_JSON_POST, jsonToPost.toString());
+        intent.putExtra(HTTPService.REQUEST_PRIORITY, priority);
 
         if(UserData.spoofServer()){ // Spoof server response
 
             Log.i("HTTPService PostJSON", "Spoofing JSON Post to URL: " + targetURL);
-
-            intent.putExtra(HTTPService.REQUEST_URL, HTTPService.SPOOF_SERVER_RESPONSE);
-
-            String spoofData = loadSpoofData(targetURL); // Attempt to load spoof data from file
-
-            // Check to see if specific URL had data available
-            // if not, strip parameters and get generic response
-            if(spoofData == null) {
-                String spoofURL = null;
-                int baseURLEnd = targetURL.indexOf("?");
-                if (baseURLEnd != -1)
-                    spoofURL = targetURL.substring(0, baseURLEnd);
-
-                if(spoofURL != null) // if there was a generic response, use it
-                    spoofData = loadSpoofData(spoofURL);
-                if(spoofData == null) // if there was not a generic response return a json with success false and a message
-                    spoofData = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"no spoof URL response stored\"}";
-            }
-
-            Log.i("HTTPService PostJSON", "Spoof response expected: " + spoofData);
-            intent.putExtra(HTTPService.SPOOFED_RESPONSE, spoofData);
+            SpoofServer.answer(context, targetURL, jsonToPost, recieverTag);
+            return;
         }
         else{   // Attempt a real server response
 
@@ -408,6 +1100,49 @@ public class HTTPService extends IntentService {
      */
 
     public static void FetchURL(String urlToFetch, String recieverTag, Context context){
+        FetchURL(urlToFetch, recieverTag, context, false);
+    }
+
+    /**
+     * Creates and starts a HTTPService for URL response
+     *
+     * @param urlToFetch String url to fetch JSON from
+     * @param recieverTag String will be the intentFilter when response is posted
+     * @param context context to create intent with. Usually will be the calling class followed by ".this"
+     *                <br>EX: MainActivity.this
+     * @param streamResponse true to stream a large response into a file instead of a String. The receiver must read it with {@link #openResponse(Intent)}.
+     */
+    public static void FetchURL(String urlToFetch, String recieverTag, Context context, boolean streamResponse){
+        FetchURL(urlToFetch, recieverTag, context, streamResponse, false);
+    }
+
+    /**
+     * Creates and starts a HTTPService for URL response
+     *
+     * @param urlToFetch String url to fetch JSON from
+     * @param recieverTag String will be the intentFilter when response is posted
+     * @param context context to create intent with. Usually will be the calling class followed by ".this"
+     *                <br>EX: MainActivity.this
+     * @param streamResponse true to stream a large response into a file instead of a String. The receiver must read it with {@link #openResponse(Intent)}.
+     *                       Streamed responses are cached and revalidated with conditional requests.
+     * @param allowStale true to answer with a cached response right away and revalidate it afterwards. Only used with streamResponse.
+     */
+    public static void FetchURL(String urlToFetch, String recieverTag, Context context, boolean streamResponse, boolean allowStale){
+        FetchURL(urlToFetch, recieverTag, context, streamResponse, allowStale, PRIORITY_INTERACTIVE);
+    }
+
+    /**
+     * Creates and starts a HTTPService for URL response
+     *
+     * @param urlToFetch String url to fetch JSON from
+     * @param recieverTag String will be the intentFilter when response is posted
+     * @param context context to create intent with. Usually will be the calling class followed by ".this"
+     *                <br>EX: MainActivity.this
+     * @param streamResponse true to stream a large response into a file instead of a String. The receiver must read it with {@link #openResponse(Intent)}.
+     * @param allowStale true to answer with a cached response right away and revalidate it afterwards. Only used with streamResponse.
+     * @param priority {@link #PRIORITY_INTERACTIVE} for requests the user is waiting on, {@link #PRIORITY_BACKGROUND} otherwise
+     */
+    public static void FetchURL(String urlToFetch, String recieverTag, Context context, boolean streamResponse, boolean allowStale, int priority){
 
         urlToFetch = UserData.getContext().getResources().getString(R.string.domain) + urlToFetch;
         //"https://ablesched.ddns.net:8080/test";// + urlToFetch;//UserData.getContext().getResources().getString(R.string.domain) + urlToFetch;
@@ -415,44 +1150,26 @@ public class HTTPService extends IntentService {
         Intent intent = new Intent(context, HTTPService.class);
 
         intent.putExtra(HTTPService.REQUEST_TYPE, HTTPService.REQUEST_URL);
+        intent.putExtra(HTTPService.REQUEST_STREAM_RESPONSE, streamResponse);
+        intent.putExtra(HTTPService.REQUEST_ALLOW_STALE, allowStale);
+        intent.putExtra(HTTPService.REQUEST_PRIORITY, priority);
 
         if(UserData.spoofServer()){ // Spoof server response
 
             Log.i("HTTPService", "Spoofing response for url request: " + urlToFetch);
-
-            intent.putExtra(HTTPService.REQUEST_URL, HTTPService.SPOOF_SERVER_RESPONSE);
-
-            String spoofData = loadSpoofData(urlToFetch);
-
-            // Check to see if specific URL had data available
-            // if not, strip parameters and get generic response
-            if(spoofData == null) {
-                String spoofURL = null;
-                int baseURLEnd = urlToFetch.indexOf("?");
-                if (baseURLEnd != -1)
-                    spoofURL = urlToFetch.substring(0, baseURLEnd);
-
-                if(spoofURL != null) // if there was a generic response, use it
-                    spoofData = loadSpoofData(spoofURL);
-                if(spoofData == null) // if there was not a generic response return a json with success false and a message
-                    spoofData = BAD_RESPONSE.substring(0, BAD_RESPONSE.length()-1) + ",\"Message\":\"no spoof URL response stored\"}";
-            }
-
-            Log.i("HTTPService FetchURL", "Spoof Data:" + spoofData);
-            //Todd removed on 10/31/2015 6:35pm
-            //intent.putExtra(HTTPService.SPOOFED_RESPONSE, spoofData);
-            //Todd remove end
-            // Todd added on 10/31/2015 3:14pm
-            SharedPreferences preferences = UserData.getContext().getSharedPreferences(HTTPService.SPOOFED_RESPONSE, Context.MODE_PRIVATE);
-            SharedPreferences.Editor preferencesEditor = preferences.edit();
-            //preferencesEditor.clear();
-            preferencesEditor.putString(HTTPService.SPOOFED_RESPONSE, spoofData).commit();
-            String test = preferences.getString(HTTPService.SPOOFED_RESPONSE,null);
-            Log.i("HTTPService FetchURL", "Spoof Data stored:" + test);
-            //Todd add end
+            SpoofServer.answer(context, urlToFetch, recieverTag);
+            return;
         }
         else{   // Attempt a real server response
 
+            // Identical requests made while this url is being fetched share its response instead of fetching it again
+            long requestId = joinRequest(requestKey(urlToFetch, streamResponse, allowStale, priority), recieverTag);
+            if (requestId == -1) {
+                Log.i("HTTPService", "Joining the url request in flight for: " + urlToFetch);
+                return;
+            }
+            intent.putExtra(REQUEST_ID, requestId);
+
             Log.i("HTTPService", "Creating a url request for: " + urlToFetch);
 
             intent.putExtra(HTTPService.REQUEST_URL, urlToFetch);
@@ -463,64 +1180,6 @@ public class HTTPService extends IntentService {
         context.startService(intent);
     }
 
-    /**
-     * Will attempt to load a spoof URL reponse from the spoof_data.json file.
-     * If there is a matching Key in the file the method will return the associated token.
-     * @param url Key to load from spoof_data.json
-     * @return String of spoof data if found, null otherwise
-     */
-    private static String loadSpoofData(String url){
-        String spoofData;
-
-        spoofData = loadStringFromAsset("spoof_data.json");
-
-        try {
-            JSONObject spoofDataJSON = new JSONObject(spoofData);
-            if (spoofDataJSON.has(url))
-                spoofData = spoofDataJSON.getString(url);
-            else
-                spoofData = null;
-        } catch (JSONException e) {
-            e.printStackTrace();
-            return null;
-        }
-
-        return spoofData;
-    }
-
-
-    /**
-     * Loads a file and converts content to a string.
-     * @param fileName filename string to load.
-     * @return file content as String.
-     */
-    private static String loadStringFromAsset(String fileName){
-        String fileContent;
-
-        try {
-
-            InputStream is = UserData.getContext().getAssets().open(fileName);
-
-            int size = is.available();
-
-            byte[] buffer = new byte[size];
-
-            //noinspection ResultOfMethodCallIgnored
-            is.read(buffer);
-
-            is.close();
-
-            fileContent = new String(buffer, "UTF-8");
-
-
-        } catch (IOException ex) {
-            ex.printStackTrace();
-            return null;
-        }
-
-        return fileContent;
-    }
-
     /**
      * Test to see if a given string is a valid JSON. It will test the string by attempting to create a JSON object from the string.
      * @param stringToTest String which could be a JSON. Maybe.
@@ -0,0 +1,139 @@
+package edu.uta.ucs;
+
+import org.json.JSONException;
+import org.json.JSONTokener;
+
+/**
+ * Walks JSON text without building objects for the values it passes over.
+ *
+ * <p>Used where only a few keys of a large document are needed right away and the rest can be decoded later.
+ * {@link #skipValue()} moves past a whole object or array in a single character scan, and {@link #getPosition()}
+ * reports where each value starts and ends so that it can be cut out of the text and decoded on demand.</p>
+ */
+class JsonScanner {
+
+    private final String text;
+    private int position = 0;
+
+    JsonScanner(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return offset in the text of the next character to be read.
+     */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it.
+     */
+    char peek() throws JSONException {
+        skipWhitespace();
+        if (position >= text.length())
+            throw new JSONException("Unexpected end of JSON at " + position);
+        return text.charAt(position);
+    }
+
+    /**
+     * Consumes the next character, which must be the expected one.
+     */
+    void expect(char expected) throws JSONException {
+        if (peek() != expected)
+            throw new JSONException("Expected '" + expected + "' but found '" + text.charAt(position) + "' at " + position);
+        position++;
+    }
+
+    /**
+     * Consumes a comma if one comes next.
+     *
+     * @return true if another member or element follows, false if the object or array ends with the given character.
+     */
+    boolean hasNext(char end) throws JSONException {
+        char next = peek();
+        if (next == ',') {
+            position++;
+            return true;
+        }
+        return next != end;
+    }
+
+    /**
+     * Reads an object key and the colon after it.
+     */
+    String nextName() throws JSONException {
+        String name = nextString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Reads a string, number, boolean or null value as a string. JSON null is returned as "null", as org.json does.
+     */
+    String nextScalar() throws JSONException {
+        if (peek() == '"')
+            return nextString();
+        int start = position;
+        while (position < text.length() && ",}] \t\r\n".indexOf(text.charAt(position)) == -1)
+            position++;
+        return text.substring(start, position);
+    }
+
+    /**
+     * Moves past the next value, however deeply nested.
+     */
+    void skipValue() throws JSONException {
+        char first = peek();
+        if (first != '{' && first != '[') {
+            nextScalar();
+            return;
+        }
+        int depth = 0;
+        while (position < text.length()) {
+            char current = text.charAt(position++);
+            if (current == '"') {
+                skipStringBody();
+            } else if (current == '{' || current == '[') {
+                depth++;
+            } else if (current == '}' || current == ']') {
+                if (--depth == 0)
+                    return;
+            }
+        }
+        throw new JSONException("Unterminated " + (first == '{' ? "object" : "array"));
+    }
+
+    private String nextString() throws JSONException {
+        expect('"');
+        int start = position;
+        boolean escaped = skipStringBody();
+        String raw = text.substring(start, position - 1);
+        // Strings with escapes are rare in catalog headers, so org.json decodes them rather than duplicating its rules here.
+        return escaped ? new JSONTokener("\"" + raw + "\"").nextValue().toString() : raw;
+    }
+
+    /**
+     * Moves past the rest of a string whose opening quote has been consumed.
+     *
+     * @return true if the string contained any escape sequences.
+     */
+    private boolean skipStringBody() throws JSONException {
+        boolean escaped = false;
+        while (position < text.length()) {
+            char current = text.charAt(position++);
+            if (current == '\\') {
+                escaped = true;
+                position++;
+            } else if (current == '"') {
+                return escaped;
+            }
+        }
+        throw new JSONException("Unterminated string");
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position)))
+            position++;
+    }
+}
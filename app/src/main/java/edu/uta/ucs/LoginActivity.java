@@ -513,6 +513,8 @@ public class LoginActivity extends Activity implements LoaderCallbacks<Cursor> {
                     scheduleEditor = context.getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, Context.MODE_PRIVATE).edit();
                     scheduleEditor.clear();
                     scheduleEditor.apply();
+                    // Schedules are kept in the ScheduleStore file, not in the preferences above.
+                    Schedule.clearSchedulesFromFile();
 
                     SharedPreferences.Editor blockoutTimesEditor;
                     blockoutTimesEditor = context.getSharedPreferences(SelectBlockoutTimes.BLOCKOUT_TIMES, MODE_PRIVATE).edit();
@@ -528,6 +530,10 @@ public class LoginActivity extends Activity implements LoaderCallbacks<Cursor> {
             } catch (JSONException e) {
                 e.printStackTrace();
             }
+            // The user is sent back to log in either way, so neither the session cookie, the sync token nor status polling may outlive this.
+            HTTPService.clearCookies();
+            DeltaSync.clear(context);
+            SectionStatusWatcher.cancel(context);
 
             Intent logoutIntent = new Intent(context, LoginActivity.class);
             logoutIntent.putExtra("finish", true); // if you are checking for this in your other Activities
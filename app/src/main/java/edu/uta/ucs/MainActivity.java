@@ -1,5 +1,7 @@
 package edu.uta.ucs;
 
+import android.app.AlertDialog;
+import android.app.ProgressDialog;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -14,6 +16,7 @@ import android.view.View;
 import android.widget.AdapterView;
 import android.widget.ArrayAdapter;
 import android.widget.ListView;
+import android.widget.Toast;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -24,12 +27,11 @@ import java.util.ArrayList;
 public class MainActivity extends ActionBarActivity {
 
     public static final String ACTION_SYNC ="edu.uta.ucs.intent.action.ACTION_SYNC";
-    private static final String FETCH_USER_DATA_URL = UserData.getContext().getString(R.string.sync_download);
 
     private ListView scheduleListView;
 
-    ArrayList<Schedule> scheduleArrayList;
-    ArrayAdapter<String> scheduleNameAdapter;
+    ArrayList<ScheduleSummary> scheduleSummaryArrayList;
+    ArrayAdapter<ScheduleSummary> scheduleNameAdapter;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -82,10 +84,12 @@ public class MainActivity extends ActionBarActivity {
                 //signOut();
                 break;
             case R.id.action_sync:
-                UserData.sync_upload();
-                HTTPService.FetchURL(FETCH_USER_DATA_URL, ACTION_SYNC, this);
+                UserData.sync_upload(ACTION_SYNC);
                 //signOut();
                 break;
+            case R.id.action_verify_schedules:
+                verifySavedSchedules();
+                break;
         }
 
         return super.onOptionsItemSelected(item);
@@ -97,6 +101,83 @@ public class MainActivity extends ActionBarActivity {
         MainActivity.this.startActivity(startSelectCoursesActivity);
     }
 
+    /**
+     * Checks the sections of every saved schedule for status changes, with one request per semester, and shows what changed.
+     */
+    private void verifySavedSchedules(){
+
+        final ProgressDialog progressDialog = new ProgressDialog(MainActivity.this);
+        progressDialog.setTitle("Verifying Class Statuses");
+        progressDialog.setMessage("Please wait while data is fetched...");
+        progressDialog.show();
+
+        // Saved schedules are read off the UI thread
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final ArrayList<ScheduleVerifier> verifiers = ScheduleVerifier.forSavedSchedules();
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (verifiers.isEmpty()) {
+                            progressDialog.dismiss();
+                            Toast.makeText(MainActivity.this, "No saved schedules to verify", Toast.LENGTH_LONG).show();
+                            return;
+                        }
+                        ScheduleVerifier.VerificationListener listener = new ScheduleVerifier.VerificationListener() {
+                            int pendingVerifiers = verifiers.size();
+                            final ArrayList<String> changes = new ArrayList<>();
+                            final ArrayList<String> failures = new ArrayList<>();
+
+                            @Override
+                            public void onVerified(ScheduleVerifier verifier, ArrayList<String> notifications) {
+                                changes.addAll(notifications);
+                                verifierDone();
+                            }
+
+                            @Override
+                            public void onVerificationFailed(ScheduleVerifier verifier, String message) {
+                                failures.add("Semester " + verifier.getSemesterNumber() + " could not be verified" + (message != null ? ": " + message : ""));
+                                verifierDone();
+                            }
+
+                            private void verifierDone() {
+                                if (--pendingVerifiers > 0)
+                                    return;
+                                progressDialog.dismiss();
+                                changes.addAll(failures);
+                                showStatusChanges(changes);
+                                refreshView();
+                            }
+                        };
+                        for (ScheduleVerifier verifier : verifiers) {
+                            verifier.verify(MainActivity.this, listener);
+                        }
+                    }
+                });
+            }
+        }, "Load Schedules").start();
+    }
+
+    /**
+     * Show the user a list of status changes as an AlertDialog.
+     *
+     * @param listToShow List of strings to show.
+     */
+    private void showStatusChanges(ArrayList<String> listToShow){
+        AlertDialog.Builder showStatusBuilder = new AlertDialog.Builder(MainActivity.this);
+        if (listToShow.size() > 0) {
+            showStatusBuilder.setTitle("Section statuses have changed");
+            showStatusBuilder.setItems(listToShow.toArray(new String[listToShow.size()]), null);
+        }
+        else {
+            showStatusBuilder.setTitle("Section statuses have not changed");
+        }
+        showStatusBuilder.setNeutralButton("OKAY", null);
+        if (!MainActivity.this.isFinishing())
+            showStatusBuilder.show();
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
@@ -106,23 +187,34 @@ public class MainActivity extends ActionBarActivity {
 
     private void refreshView(){
 
-        // Reload schedules from file.
-        scheduleArrayList = Schedule.loadSchedulesFromFile();
-        ArrayList<String> scheduleNameArrayList = new ArrayList<>(scheduleArrayList.size());
-
-        // Display schedules that were loaded.
-        for (Schedule schedule : scheduleArrayList){
-            scheduleNameArrayList.add(schedule.getName());
-        }
-        scheduleNameAdapter = new ArrayAdapter<>(MainActivity.this, android.R.layout.simple_selectable_list_item, scheduleNameArrayList);
+        // Reload schedule summaries from file. Schedules themselves are only loaded when selected.
+        scheduleSummaryArrayList = Schedule.loadScheduleSummariesFromFile();
+        // Watch the sections of saved schedules for status changes in the background
+        if (!scheduleSummaryArrayList.isEmpty())
+            SectionStatusWatcher.schedule(this);
+        scheduleNameAdapter = new ArrayAdapter<>(MainActivity.this, android.R.layout.simple_selectable_list_item, scheduleSummaryArrayList);
         scheduleListView.setAdapter(scheduleNameAdapter);
 
         // Set on click listener to show DetailedSchedule Activty for selected schedule when user selects a schedule.
         scheduleListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
             @Override
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                Log.i("Main Activity", "Showing Schedule Named: " + scheduleArrayList.get(position).getName());
-                DetailedSchedule.ShowSchedule(scheduleArrayList.get(position), MainActivity.this);
+                final String scheduleName = scheduleSummaryArrayList.get(position).getName();
+                Log.i("Main Activity", "Showing Schedule Named: " + scheduleName);
+                // Read the saved schedule off the UI thread. It is decoded once, by DetailedSchedule.
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        final String scheduleBody = Schedule.loadScheduleBodyFromFile(scheduleName);
+                        runOnUiThread(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (scheduleBody != null)
+                                    DetailedSchedule.ShowSchedule(scheduleBody, MainActivity.this);
+                            }
+                        });
+                    }
+                }, "Load Schedule").start();
             }
         });
 
@@ -140,10 +232,13 @@ public class MainActivity extends ActionBarActivity {
 
             try {
                 response = new JSONObject(intent.getStringExtra(HTTPService.SERVER_RESPONSE));
+                // A delta sync response has none of the user data, its changes were already saved by DeltaSync
                 if (response.has("SCHEDULES")){
                     Schedule.clearSchedulesFromFile();
                 }
                 UserData.setUserData(response);
+                if(response.has("Message"))
+                    Toast.makeText(MainActivity.this, response.getString("Message"), Toast.LENGTH_LONG).show();
                 if(response.has("TimeTaken")){
                     float timeTaken = Float.parseFloat(response.getString("TimeTaken"));
                     Log.d("New Request Time Taken:", Float.toString(timeTaken));
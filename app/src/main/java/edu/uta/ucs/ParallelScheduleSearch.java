@@ -0,0 +1,267 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a {@link ScheduleEnumerator} search on several threads at once.
+ *
+ * <p>The top of the search tree is split into branches by enumerating every conflict free combination of sections for
+ * the first few courses. Each branch becomes a task which searches the remaining courses with its own forked
+ * enumerator. Enough branches are made that every thread gets several of them, so a thread which finishes a small
+ * branch early simply picks up the next one instead of sitting idle.</p>
+ *
+ * <p>Results from every branch are merged in branch order, so the schedules returned do not depend on which thread
+ * finished first. When schedules are capped, each branch keeps at most the cap, and once the branches finished so far
+ * hold enough schedules in branch order, every later branch is cancelled. The schedules returned are then the same
+ * as a single threaded enumeration would give. A search can be stopped from any thread with {@link #cancel()}, in
+ * which case it returns whatever the branches had found.</p>
+ */
+public class ParallelScheduleSearch {
+
+    /** Number of branches to aim for per thread. More branches balance better but cost more to set up. */
+    private static final int BRANCHES_PER_THREAD = 8;
+
+    private final ScheduleEnumerator rootEnumerator;
+    private final ArrayList<Section> blockOutTimesList;
+    private final int semesterNumber;
+    private final int parallelism;
+    private final CancellationToken cancellationToken = new CancellationToken();
+
+    private long schedulesFound = 0;
+
+    /**
+     * Prepares a parallel search over the same space as the provided enumerator. The enumerator itself is never advanced.
+     *
+     * @param rootEnumerator enumerator holding the pruned sections for every course
+     * @param blockOutTimesList Arraylist of block-out times attached to each generated schedule
+     * @param semesterNumber Semester Number the generated schedules are built for.
+     * @param parallelism number of threads to search with. Values below 1 use one thread per available processor.
+     */
+    ParallelScheduleSearch(ScheduleEnumerator rootEnumerator, ArrayList<Section> blockOutTimesList, int semesterNumber, int parallelism) {
+        this.rootEnumerator = rootEnumerator;
+        this.blockOutTimesList = blockOutTimesList;
+        this.semesterNumber = semesterNumber;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.rootEnumerator.setCancellationToken(cancellationToken);
+    }
+
+    /**
+     * Stops a running search. The running call returns whatever it has found so far.
+     */
+    public void cancel() {
+        cancellationToken.cancel();
+    }
+
+    public boolean isCancelled() {
+        return cancellationToken.isCancelled();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Obtains the number of schedules counted by the last call to {@link #countSchedules()}, or returned by the last
+     * call to {@link #findSchedules(int)}.
+     */
+    public long getSchedulesFound() {
+        return schedulesFound;
+    }
+
+    /**
+     * Counts every conflict free schedule without building any of them.
+     *
+     * @return number of schedules, or the number found before the search was cancelled.
+     */
+    public long countSchedules() {
+        run(0);
+        return schedulesFound;
+    }
+
+    /**
+     * Builds up to maxSchedules conflict free schedules. Once the leading branches hold that many, the remaining branches are cancelled.
+     *
+     * @param maxSchedules maximum number of schedules to return. Values below 1 return every schedule.
+     * @return schedules found, in branch order.
+     */
+    public ArrayList<Schedule> findSchedules(int maxSchedules) {
+        ArrayList<Section[]> selections = run(maxSchedules > 0 ? maxSchedules : Integer.MAX_VALUE);
+
+        ArrayList<Schedule> schedules = new ArrayList<>(selections.size());
+        for (Section[] selection : selections) {
+            schedules.add(new Schedule("Generated Schedule", semesterNumber, new ArrayList<>(Arrays.asList(selection)), blockOutTimesList));
+        }
+        return schedules;
+    }
+
+    /**
+     * Splits the search into branches, runs them on a fixed pool and merges the results in branch order.
+     *
+     * @param maxSelections number of selections to keep, or 0 to only count them.
+     * @return kept selections, in branch order.
+     */
+    private ArrayList<Section[]> run(final int maxSelections) {
+        long startTime = System.currentTimeMillis();
+        schedulesFound = 0;
+
+        List<int[]> branches = splitBranches();
+        Log.i("Parallel Schedule Search", "Searching " + branches.size() + " branches on " + parallelism + " threads");
+
+        final BranchProgress progress = new BranchProgress(branches.size(), maxSelections);
+        ArrayList<Callable<BranchResult>> tasks = new ArrayList<>(branches.size());
+        for (int index = 0; index < branches.size(); index++) {
+            final int branchIndex = index;
+            final int[] branch = branches.get(index);
+            tasks.add(new Callable<BranchResult>() {
+                @Override
+                public BranchResult call() {
+                    BranchResult result = searchBranch(branch, maxSelections, progress.tokens[branchIndex]);
+                    progress.finished(branchIndex, result);
+                    return result;
+                }
+            });
+        }
+
+        ArrayList<Section[]> merged = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new SearchThreadFactory());
+        try {
+            List<Future<BranchResult>> futures = executor.invokeAll(tasks);
+            for (Future<BranchResult> future : futures) {
+                BranchResult result = future.get();
+                if (maxSelections == 0)
+                    schedulesFound += result.count;
+                for (Section[] selection : result.selections) {
+                    if (merged.size() >= maxSelections)
+                        break;
+                    merged.add(selection);
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.w("Parallel Schedule Search", "Search interrupted");
+            cancellationToken.cancel();
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+            cancellationToken.cancel();
+        } finally {
+            executor.shutdownNow();
+        }
+        if (maxSelections > 0)
+            schedulesFound = merged.size();
+
+        Log.i("Parallel Schedule Search", "Found " + schedulesFound + " schedules in " + (System.currentTimeMillis() - startTime) + "ms");
+        return merged;
+    }
+
+    /**
+     * Searches every schedule which starts with the given branch.
+     */
+    private BranchResult searchBranch(int[] branch, int maxSelections, CancellationToken branchToken) {
+        BranchResult result = new BranchResult();
+        if (branchToken.isCancelled())
+            return result;
+
+        ScheduleEnumerator enumerator = rootEnumerator.fork(branch);
+        enumerator.setCancellationToken(branchToken);
+        while (enumerator.advance()) {
+            result.count++;
+            if (maxSelections == 0)
+                continue;
+            result.selections.add(enumerator.getSelection().clone());
+            if (result.selections.size() >= maxSelections)
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Picks the smallest number of leading courses whose conflict free combinations give every thread
+     * {@link #BRANCHES_PER_THREAD} branches, and lists those combinations.
+     */
+    private List<int[]> splitBranches() {
+        int courseCount = rootEnumerator.getCourseCount();
+        int targetBranches = parallelism * BRANCHES_PER_THREAD;
+
+        ArrayList<int[]> branches = new ArrayList<>();
+        branches.add(new int[0]);
+
+        for (int splitDepth = 1; splitDepth < courseCount && branches.size() < targetBranches; splitDepth++) {
+            ScheduleEnumerator prefixEnumerator = rootEnumerator.truncate(splitDepth);
+            ArrayList<int[]> deeperBranches = new ArrayList<>();
+            while (prefixEnumerator.advance())
+                deeperBranches.add(prefixEnumerator.getSelectionIds().clone());
+            branches = deeperBranches;
+        }
+        return branches;
+    }
+
+    /**
+     * Count and kept selections of a single branch.
+     */
+    private static class BranchResult {
+        long count = 0;
+        ArrayList<Section[]> selections = new ArrayList<>();
+    }
+
+    /**
+     * Tracks which branches have finished, and cancels the later branches once the finished leading branches hold
+     * enough selections to fill the cap on their own.
+     */
+    private class BranchProgress {
+
+        final CancellationToken[] tokens;
+        private final BranchResult[] results;
+        private final int maxSelections;
+        /** Number of leading branches which have all finished. */
+        private int finishedBranches = 0;
+        private long selectionsInFinishedBranches = 0;
+
+        BranchProgress(int branchCount, int maxSelections) {
+            this.tokens = new CancellationToken[branchCount];
+            this.results = new BranchResult[branchCount];
+            this.maxSelections = maxSelections;
+            for (int index = 0; index < branchCount; index++) {
+                tokens[index] = new CancellationToken(cancellationToken);
+            }
+        }
+
+        synchronized void finished(int branchIndex, BranchResult result) {
+            results[branchIndex] = result;
+            while (finishedBranches < results.length && results[finishedBranches] != null) {
+                selectionsInFinishedBranches += results[finishedBranches].selections.size();
+                finishedBranches++;
+            }
+            if (maxSelections > 0 && selectionsInFinishedBranches >= maxSelections) {
+                for (int index = finishedBranches; index < tokens.length; index++) {
+                    tokens[index].cancel();
+                }
+            }
+        }
+    }
+
+    /**
+     * Names search threads and keeps them from holding the app open.
+     */
+    private static class SearchThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "Schedule Search " + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Locale;
+
+/**
+ * Prefix index for autocomplete, so a search costs time in the length of the typed text and the number of matches
+ * instead of a scan over every department or course.
+ *
+ * <p>Items are indexed under terms: whole keys such as a department acronym or course number, and every word of a
+ * title. Terms and queries are upper-cased and split on anything other than letters and digits. Each term is given a
+ * rank, lower ranking first. Every trie node keeps the items of all terms passing through it, sorted by rank and then
+ * by the order the items were given in, so a search only walks down to the node of the typed text and reads its list
+ * up to the limit.</p>
+ *
+ * <p>A query of several words matches items having, for each word, a term starting with it. The first word picks the
+ * candidates from the trie and the other words are checked against each candidate.</p>
+ *
+ * <p>Terms are added first and the trie is built on the first search. Searching is thread safe.</p>
+ */
+class PrefixIndex<T> {
+
+    static final int MAX_RESULTS = 50;
+
+    private final ArrayList<T> items = new ArrayList<>();
+    /** Every term of each item, in the same order as {@link #items}. */
+    private final ArrayList<ArrayList<String>> itemTerms = new ArrayList<>();
+    /** Terms waiting for {@link #build()}. */
+    private ArrayList<Term> pendingTerms = new ArrayList<>();
+    private Node root;
+
+    private static class Term {
+        final String text;
+        final int item;
+        final int rank;
+
+        Term(String text, int item, int rank) {
+            this.text = text;
+            this.item = item;
+            this.rank = rank;
+        }
+    }
+
+    private static class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        int childCount;
+        int[] items = new int[2];
+        int itemCount;
+
+        Node child(char key) {
+            int position = Arrays.binarySearch(keys, 0, childCount, key);
+            return position >= 0 ? children[position] : null;
+        }
+
+        Node addChild(char key) {
+            int position = Arrays.binarySearch(keys, 0, childCount, key);
+            if (position >= 0)
+                return children[position];
+            position = -position - 1;
+            if (childCount == keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(2, childCount * 2));
+                children = Arrays.copyOf(children, keys.length);
+            }
+            System.arraycopy(keys, position, keys, position + 1, childCount - position);
+            System.arraycopy(children, position, children, position + 1, childCount - position);
+            keys[position] = key;
+            children[position] = new Node();
+            childCount++;
+            return children[position];
+        }
+
+        void addItem(int item) {
+            // Terms of one item are added one after another, so a repeat of the last item is the only duplicate within a rank
+            if (itemCount > 0 && items[itemCount - 1] == item)
+                return;
+            if (itemCount == items.length)
+                items = Arrays.copyOf(items, itemCount * 2);
+            items[itemCount++] = item;
+        }
+    }
+
+    /**
+     * Adds an item with no terms yet.
+     *
+     * @return position of the item, to pass to {@link #addKey(int, String, int)} and {@link #addWords(int, String, int, int)}
+     */
+    synchronized int addItem(T item) {
+        items.add(item);
+        itemTerms.add(new ArrayList<String>(4));
+        return items.size() - 1;
+    }
+
+    /**
+     * Indexes an item under a whole key, such as an acronym. Characters other than letters and digits are dropped.
+     */
+    synchronized void addKey(int item, String key, int rank) {
+        if (key == null)
+            return;
+        StringBuilder normalized = new StringBuilder(key.length());
+        for (String word : split(key)) {
+            normalized.append(word);
+        }
+        addTerm(item, normalized.toString(), rank);
+    }
+
+    /**
+     * Indexes an item under every word of a text, such as a title.
+     *
+     * @param firstRank rank of the first word
+     * @param laterRank rank of every other word
+     */
+    synchronized void addWords(int item, String text, int firstRank, int laterRank) {
+        if (text == null)
+            return;
+        ArrayList<String> words = split(text);
+        for (int index = 0; index < words.size(); index++) {
+            addTerm(item, words.get(index), index == 0 ? firstRank : laterRank);
+        }
+    }
+
+    private void addTerm(int item, String term, int rank) {
+        if (term.isEmpty())
+            return;
+        if (pendingTerms == null)
+            throw new IllegalStateException("Index has already been built");
+        itemTerms.get(item).add(term);
+        pendingTerms.add(new Term(term, item, rank));
+    }
+
+    private void build() {
+        long startTime = System.currentTimeMillis();
+        Collections.sort(pendingTerms, new Comparator<Term>() {
+            @Override
+            public int compare(Term lhs, Term rhs) {
+                if (lhs.rank != rhs.rank)
+                    return lhs.rank < rhs.rank ? -1 : 1;
+                return lhs.item < rhs.item ? -1 : (lhs.item == rhs.item ? 0 : 1);
+            }
+        });
+
+        root = new Node();
+        for (Term term : pendingTerms) {
+            Node node = root;
+            for (int index = 0; index < term.text.length(); index++) {
+                node = node.addChild(term.text.charAt(index));
+                node.addItem(term.item);
+            }
+        }
+        Log.i("Prefix Index", "Indexed " + items.size() + " items under " + pendingTerms.size() + " terms in " + (System.currentTimeMillis() - startTime) + "ms");
+        pendingTerms = null;
+    }
+
+    /**
+     * @return the number of items added.
+     */
+    synchronized int size() {
+        return items.size();
+    }
+
+    /**
+     * Finds the items matching a query, best ranked first.
+     *
+     * @param query typed text. An empty query returns every item, in the order they were added, so the whole list can be browsed.
+     * @param limit most items to return for a query which is not empty
+     * @return matching items, each only once
+     */
+    synchronized ArrayList<T> search(CharSequence query, int limit) {
+        if (root == null)
+            build();
+
+        ArrayList<String> words = split(query != null ? query.toString() : "");
+        ArrayList<T> results = new ArrayList<>();
+        if (words.isEmpty()) {
+            results.addAll(items);
+            return results;
+        }
+
+        Node node = root;
+        String firstWord = words.get(0);
+        for (int index = 0; index < firstWord.length() && node != null; index++) {
+            node = node.child(firstWord.charAt(index));
+        }
+        if (node == null)
+            return results;
+
+        HashSet<Integer> seen = new HashSet<>();
+        for (int index = 0; index < node.itemCount && results.size() < limit; index++) {
+            int item = node.items[index];
+            if (seen.add(item) && matchesOtherWords(item, words))
+                results.add(items.get(item));
+        }
+        return results;
+    }
+
+    private boolean matchesOtherWords(int item, ArrayList<String> words) {
+        ArrayList<String> terms = itemTerms.get(item);
+        for (int wordIndex = 1; wordIndex < words.size(); wordIndex++) {
+            boolean matched = false;
+            for (String term : terms) {
+                if (term.startsWith(words.get(wordIndex))) {
+                    matched = true;
+                    break;
+                }
+            }
+            if (!matched)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Upper-cases a text and splits it into runs of letters and digits.
+     */
+    static ArrayList<String> split(String text) {
+        ArrayList<String> words = new ArrayList<>();
+        String upperCase = text.toUpperCase(Locale.US);
+        int start = -1;
+        for (int index = 0; index <= upperCase.length(); index++) {
+            boolean wordCharacter = index < upperCase.length() && Character.isLetterOrDigit(upperCase.charAt(index));
+            if (wordCharacter && start < 0) {
+                start = index;
+            } else if (!wordCharacter && start >= 0) {
+                words.add(upperCase.substring(start, index));
+                start = -1;
+            }
+        }
+        return words;
+    }
+}
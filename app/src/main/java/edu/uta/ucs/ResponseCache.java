@@ -0,0 +1,273 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Properties;
+
+/**
+ * On-disk cache of server responses for {@link HTTPService}, keyed by URL and session.
+ *
+ * <p>Only responses which carry an ETag or Last-Modified header are kept, so that they can be revalidated with a
+ * conditional request. A 304 reply is then served from the cached body. Each entry is a body file and a small
+ * properties file holding its validators. Entries are evicted least recently used first once the bodies take up more
+ * than the size limit.</p>
+ */
+class ResponseCache {
+
+    /**
+     * A cached response body and the validators to revalidate it with.
+     */
+    static class Entry {
+
+        private final String key;
+        private final File body;
+        private final String eTag;
+        private final String lastModified;
+
+        private Entry(String key, File body, String eTag, String lastModified) {
+            this.key = key;
+            this.body = body;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        File getBody() {
+            return body;
+        }
+
+        /**
+         * @return ETag header sent with the response, or null if there was none.
+         */
+        String getETag() {
+            return eTag;
+        }
+
+        /**
+         * @return Last-Modified header sent with the response, or null if there was none.
+         */
+        String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+
+    private final File directory;
+    private final long maxBytes;
+    /** Entries in least recently used first order. */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    /**
+     * Opens a cache, indexing the entries already in its directory by the time they were last used.
+     *
+     * @param directory directory to keep entries in. Created if missing.
+     * @param maxBytes size limit for all cached bodies together
+     */
+    ResponseCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        //noinspection ResultOfMethodCallIgnored
+        directory.mkdirs();
+
+        File[] bodyFiles = directory.listFiles();
+        ArrayList<File> bodies = new ArrayList<>();
+        if (bodyFiles != null) {
+            for (File file : bodyFiles) {
+                if (file.getName().endsWith(BODY_SUFFIX))
+                    bodies.add(file);
+                else if (!file.getName().endsWith(META_SUFFIX))
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+            }
+        }
+        Collections.sort(bodies, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                return Long.valueOf(first.lastModified()).compareTo(second.lastModified());
+            }
+        });
+        for (File body : bodies) {
+            String key = body.getName().substring(0, body.getName().length() - BODY_SUFFIX.length());
+            Entry entry = readEntry(key);
+            if (entry == null) {
+                remove(key);
+                continue;
+            }
+            entries.put(key, entry);
+            totalBytes += body.length();
+        }
+        evict();
+        Log.i("Response Cache", "Opened with " + entries.size() + " entries, " + totalBytes + " bytes");
+    }
+
+    /**
+     * Builds the key of a response. The session is part of it so that one user never sees another user's responses.
+     *
+     * @param url requested url
+     * @param session session id the request was made with, or null
+     */
+    static String key(String url, String session) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest((url + "\n" + (session != null ? session : "")).getBytes("UTF-8"));
+            StringBuilder key = new StringBuilder(hash.length * 2);
+            for (byte hashByte : hash) {
+                key.append(String.format("%02x", hashByte));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Looks up a response and marks it as recently used.
+     *
+     * @return the entry, or null if the response is not cached.
+     */
+    synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null)
+            //noinspection ResultOfMethodCallIgnored
+            entry.body.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * Caches a response body, replacing any earlier body for the key, and evicts old entries if the cache is full.
+     *
+     * @param body file holding the response body. It is copied, so the caller keeps ownership.
+     * @param eTag ETag header of the response, or null
+     * @param lastModified Last-Modified header of the response, or null
+     * @return the new entry, or null if the response has no validators or is larger than the whole cache.
+     */
+    synchronized Entry put(String key, File body, String eTag, String lastModified) throws IOException {
+        if ((eTag == null && lastModified == null) || body.length() > maxBytes)
+            return null;
+        remove(key);
+
+        File cachedBody = new File(directory, key + BODY_SUFFIX);
+        File temporaryBody = new File(directory, key + ".tmp");
+        copy(body, temporaryBody);
+
+        Properties meta = new Properties();
+        if (eTag != null)
+            meta.setProperty("ETag", eTag);
+        if (lastModified != null)
+            meta.setProperty("Last-Modified", lastModified);
+        OutputStream metaOutput = new FileOutputStream(new File(directory, key + META_SUFFIX));
+        try {
+            meta.store(metaOutput, null);
+        } finally {
+            metaOutput.close();
+        }
+        if (!temporaryBody.renameTo(cachedBody))
+            throw new IOException("Could not store cached response " + key);
+
+        Entry entry = new Entry(key, cachedBody, eTag, lastModified);
+        entries.put(key, entry);
+        totalBytes += cachedBody.length();
+        evict();
+        return entry;
+    }
+
+    /**
+     * Copies the cached body of a response to another file while holding the cache lock, so that it cannot be replaced
+     * or evicted halfway through the copy.
+     *
+     * @return true if the body was copied, false if the response is no longer cached.
+     */
+    synchronized boolean copyBody(String key, File target) throws IOException {
+        Entry entry = entries.get(key);
+        if (entry == null)
+            return false;
+        if (!entry.body.exists()) {
+            remove(key);
+            return false;
+        }
+        copy(entry.body, target);
+        //noinspection ResultOfMethodCallIgnored
+        entry.body.setLastModified(System.currentTimeMillis());
+        return true;
+    }
+
+    /**
+     * Copies a file, such as a response file for another receiver. Use {@link #copyBody(String, File)} for cached bodies.
+     */
+    static void copy(File source, File target) throws IOException {
+        InputStream input = new FileInputStream(source);
+        try {
+            OutputStream output = new FileOutputStream(target);
+            try {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = input.read(buffer)) != -1) {
+                    output.write(buffer, 0, count);
+                }
+            } finally {
+                output.close();
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private Entry readEntry(String key) {
+        File metaFile = new File(directory, key + META_SUFFIX);
+        if (!metaFile.exists())
+            return null;
+        Properties meta = new Properties();
+        try {
+            InputStream metaInput = new FileInputStream(metaFile);
+            try {
+                meta.load(metaInput);
+            } finally {
+                metaInput.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return new Entry(key, new File(directory, key + BODY_SUFFIX), meta.getProperty("ETag"), meta.getProperty("Last-Modified"));
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null)
+            totalBytes -= entry.body.length();
+        //noinspection ResultOfMethodCallIgnored
+        new File(directory, key + BODY_SUFFIX).delete();
+        //noinspection ResultOfMethodCallIgnored
+        new File(directory, key + META_SUFFIX).delete();
+    }
+
+    private void evict() {
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (totalBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            Entry entry = leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            totalBytes -= entry.body.length();
+            //noinspection ResultOfMethodCallIgnored
+            entry.body.delete();
+            //noinspection ResultOfMethodCallIgnored
+            new File(directory, entry.key + META_SUFFIX).delete();
+            Log.i("Response Cache", "Evicted " + entry.key);
+        }
+    }
+}
@@ -9,10 +9,11 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * This class is used to store schedules.
@@ -196,7 +197,7 @@ public class Schedule {
     }
 
     /**
-     * Saves all schedules in the list of schedules provided to a sharedPreferance file. This will overwrite all schedules currently in that file.
+     * Saves all schedules in the list of schedules provided to the {@link ScheduleStore}. This will overwrite all schedules currently saved.
      *
      * @param context Context to save with. Usually will be the calling class followed by ".this"
      *                <br>EX: MainActivity.this
@@ -204,41 +205,35 @@ public class Schedule {
      */
     public static void saveSchedulesToFile(Context context, ArrayList<Schedule> schedulesToSave){
 
-        SharedPreferences.Editor scheduleEditor;
-        scheduleEditor = context.getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, Context.MODE_PRIVATE).edit();
-        scheduleEditor.clear();
-
-        //noinspection MismatchedQueryAndUpdateOfCollection
-        ArrayList<JSONObject> savedSchedules = new ArrayList<>(schedulesToSave.size());
-        ArrayList<String> scheduleNames = new ArrayList<>(schedulesToSave.size());
+        ArrayList<ScheduleSummary> summaries = new ArrayList<>(schedulesToSave.size());
+        ArrayList<String> bodies = new ArrayList<>(schedulesToSave.size());
 
         for (Schedule schedule : schedulesToSave){
-            scheduleNames.add(schedule.getName());
             try {
-                savedSchedules.add(schedule.toJSON());
-                scheduleEditor.putString(Schedule.SCHEDULE_NAMES + "_" + schedule.getName(), schedule.toJSON().toString());
+                bodies.add(schedule.toJSON().toString());
+                summaries.add(ScheduleSummary.of(schedule));
                 Log.i("Saving schedule name",schedule.getName());
             } catch (JSONException e) {
                 e.printStackTrace();
             }
         }
 
-        HashSet<String> scheduleNameSet = new HashSet<>(scheduleNames);
-        scheduleEditor.putStringSet(Schedule.SCHEDULE_NAMES, scheduleNameSet);
-        scheduleEditor.apply();
+        try {
+            getScheduleStore(context).replaceAll(summaries, bodies);
+        } catch (IOException e) {
+            e.printStackTrace();
+            Log.e("Save Schedules", "Could not save schedules");
+        }
 
     }
 
     /**
+     * Saves one schedule, replacing any saved schedule with the same name. Only this schedule is written.
      *
      * @param schedule The schedule to save to file
      */
     public static void saveScheduleToFile(Schedule schedule){
 
-        Context context = UserData.getContext();
-
-        SharedPreferences.Editor editor = context.getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, Context.MODE_PRIVATE).edit();
-
         String scheduleToString;
         try {
             scheduleToString = schedule.toJSON().toString();
@@ -247,53 +242,98 @@ public class Schedule {
             return;
         }
 
-        String scheduleName = schedule.fileName();
-        Log.i("Schedule to Save", "Name: " + scheduleName + " JSON: " + scheduleToString);
+        Log.i("Schedule to Save", "Name: " + schedule.getName() + " JSON: " + scheduleToString);
 
-        editor.putString(scheduleName, scheduleToString);
-        editor.apply();
+        try {
+            getScheduleStore(UserData.getContext()).put(ScheduleSummary.of(schedule), scheduleToString);
+        } catch (IOException e) {
+            e.printStackTrace();
+            Log.e("Save Schedule", "Could not save schedule " + schedule.getName());
+        }
 
     }
 
+    /**
+     * Obtains the name, semester, section count and last modified time of all saved schedules without loading any of them.
+     * @return summaries in the order the schedules were first saved
+     */
+    public static ArrayList<ScheduleSummary> loadScheduleSummariesFromFile(){
+        try {
+            return getScheduleStore(UserData.getContext()).getSummaries();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
 
+    /**
+     * @return true if a schedule with this name is saved.
+     */
+    public static boolean isScheduleSaved(String name){
+        try {
+            return getScheduleStore(UserData.getContext()).contains(name);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
 
     /**
-     * Loads all schedules from the Schedule Savefile into an ArrayList.
-     * @return An arraylist of all schedules which could be parsed from the shared preference file 'SCHEDULE_SAVEFILE'
+     * Loads one saved schedule.
+     * @param name name of the schedule
+     * @return the schedule, or null if no schedule with this name could be loaded
      */
-    public static ArrayList<Schedule> loadSchedulesFromFile(){
+    public static Schedule loadScheduleFromFile(String name){
+        String scheduleBody = loadScheduleBodyFromFile(name);
+        if (scheduleBody == null)
+            return null;
+        try {
+            return new Schedule(new JSONObject(scheduleBody));
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 
-        SharedPreferences scheduleFile = UserData.getContext().getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, Context.MODE_PRIVATE);
-        Map<String, ?> schedulesOnFile = scheduleFile.getAll();
+    /**
+     * Reads the JSON text of one saved schedule without decoding it.
+     * @param name name of the schedule
+     * @return JSON text as expected by {@link #Schedule(JSONObject)}, or null if no schedule with this name could be read
+     */
+    public static String loadScheduleBodyFromFile(String name){
+        try {
+            return getScheduleStore(UserData.getContext()).read(name);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
 
-        ArrayList<Schedule> scheduleArrayList = new ArrayList<>(schedulesOnFile.size());
-        for(String key : schedulesOnFile.keySet()){
-            if (key != SCHEDULE_NAMES){
-                Log.i("Load Schedules", "Loading Schedule Name: " + key);
-                String scheduleBody = schedulesOnFile.get(key).toString();
-                Log.i("Load Schedules", "Loading Schedule body: " + scheduleBody);
+    /**
+     * Loads all schedules from the {@link ScheduleStore} into an ArrayList.
+     * @return An arraylist of all schedules which could be parsed from the schedule store
+     */
+    public static ArrayList<Schedule> loadSchedulesFromFile(){
 
-                try {
-                    JSONObject scheduleJSON = new JSONObject(scheduleBody);
-                    Schedule schedule = new Schedule(scheduleJSON);
-                    Log.i("Load Schedules", "Schedule JSON" + schedule.toJSON().toString());
-                    scheduleArrayList.add(schedule);
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                }
+        ArrayList<ScheduleSummary> summaries = loadScheduleSummariesFromFile();
 
-            }
+        ArrayList<Schedule> scheduleArrayList = new ArrayList<>(summaries.size());
+        for(ScheduleSummary summary : summaries){
+            Log.i("Load Schedules", "Loading Schedule Name: " + summary.getName());
+            Schedule schedule = loadScheduleFromFile(summary.getName());
+            if (schedule != null)
+                scheduleArrayList.add(schedule);
         }
 
         return scheduleArrayList;
     }
 
     public static void clearSchedulesFromFile(){
-        Context context = UserData.getContext();
-
-        SharedPreferences.Editor editor = context.getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, Context.MODE_PRIVATE).edit();
-        editor.clear();
-        editor.commit();
+        try {
+            getScheduleStore(UserData.getContext()).clear();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -302,43 +342,67 @@ public class Schedule {
      * Future suggestion: Perhaps it should only remove the schedule if the contents remain the same.
      */
     public static void removeScheduleFromFile(Schedule schedule){
+        removeScheduleFromFile(schedule.getName());
+    }
 
-        Context context = UserData.getContext();
-
-        SharedPreferences reader = context.getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, Context.MODE_PRIVATE);
-        SharedPreferences.Editor editor = context.getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, Context.MODE_PRIVATE).edit();
-        Map<String, ?> schedules = reader.getAll();
+    /**
+     * Removes the saved schedule with this name, if there is one.
+     */
+    public static void removeScheduleFromFile(String name){
+        try {
+            getScheduleStore(UserData.getContext()).remove(name);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-        String scheduleFileName = schedule.fileName();
+    /**
+     * Obtains the schedule store, first moving over any schedules saved in the shared preference file 'SCHEDULE_SAVEFILE' by earlier versions.
+     */
+    private static ScheduleStore getScheduleStore(Context context) throws IOException {
+        ScheduleStore store = ScheduleStore.getInstance(context);
 
+        SharedPreferences scheduleFile = context.getSharedPreferences(Schedule.SCHEDULE_SAVEFILE, Context.MODE_PRIVATE);
+        Map<String, ?> schedulesOnFile = scheduleFile.getAll();
+        if (schedulesOnFile.isEmpty())
+            return store;
 
-        if(schedules.containsKey(scheduleFileName)){
-            editor.remove(scheduleFileName);
-            editor.apply();
+        String keyPrefix = Schedule.SCHEDULE_NAMES + "_";
+        for (Map.Entry<String, ?> entry : schedulesOnFile.entrySet()) {
+            if (entry.getKey().startsWith(keyPrefix) && !store.contains(entry.getKey().substring(keyPrefix.length()))) {
+                try {
+                    // Decoded once here so that the store has a summary of it.
+                    Schedule schedule = new Schedule(new JSONObject(entry.getValue().toString()));
+                    schedule.setName(entry.getKey().substring(keyPrefix.length()));
+                    store.put(ScheduleSummary.of(schedule), entry.getValue().toString());
+                    Log.i("Load Schedules", "Moved schedule to schedule store: " + entry.getKey());
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                    Log.e("Load Schedules", "Dropping unreadable schedule: " + entry.getKey());
+                }
+            }
         }
+        scheduleFile.edit().clear().commit();
+        return store;
     }
 
     /**
      * Creates a query to check if the statuses of sections in this schedule have changed.
      * @param context The context from which this method was called. Used to ensure HTTPService can function without errors.
+     * @return true if the query was sent, false if this schedule only has block-out times, in which case nothing is broadcast.
      */
-    public void verifySchedule(Context context){
+    public boolean verifySchedule(Context context){
 
         Log.i("Verify Schedule", "About to attempt verify schedule");
 
-        StringBuilder semesterParam = new StringBuilder();
-        StringBuilder classNumberParam = new StringBuilder(UserData.getContext().getString(R.string.validate_courses_param_sections));
-
-        for (Section section : selectedSections){
-
-            classNumberParam.append(section.getSectionID()).append(",");
+        String urlFinal = ScheduleVerifier.buildURL(this.getSemesterNumber(), selectedSections);
+        if (urlFinal == null) {
+            Log.i("Verify Schedule", "No sections to verify");
+            return false;
         }
 
-        String courseNumberParamFinal = classNumberParam.length() > 0 ? classNumberParam.substring( 0, classNumberParam.length() - 1 ): "";
-
-        String urlFinal = UserData.getContext().getString(R.string.validate_courses_base) + UserData.getContext().getString(R.string.validate_courses_param_semester) + this.getSemesterNumber() + courseNumberParamFinal;
-
-        HTTPService.FetchURL(urlFinal, ACTION_VERIFY_SCHEDULE, context);
+        HTTPService.FetchURL(urlFinal, ACTION_VERIFY_SCHEDULE, context, true);
+        return true;
 
     }
 
@@ -351,6 +415,20 @@ public class Schedule {
      * @throws NoSchedulesPossibleException
      */
     public static Schedule scheduleFactory(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, int semesterNumber) throws NoSchedulesPossibleException{
+        return scheduleFactory(courseArrayList, blockOutTimesList, semesterNumber, false);
+    }
+
+    /**
+     * Initial schedule generator call.
+     *
+     * @param courseArrayList Arraylist with all courses this schedule can pick from.
+     * @param blockOutTimesList Arraylist of Block-Out Times this schedule should avoid conflicts with.
+     * @param useSolver true to search with a {@link ScheduleSolver}, which assigns the most constrained course first and backtracks as soon as any course runs out of sections.
+     *                  false to use the recursive {@link #scheduleBuilder(int, ArrayList, ArrayList, ArrayList, boolean)}, which assigns courses in order.
+     * @return a schedule built with the selected courses
+     * @throws NoSchedulesPossibleException
+     */
+    public static Schedule scheduleFactory(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, int semesterNumber, boolean useSolver) throws NoSchedulesPossibleException{
         /*
         SharedPreferences preferences = UserData.getContext().getSharedPreferences("C", Context.MODE_PRIVATE);
         SharedPreferences.Editor preferencesEditor = preferences.edit();
@@ -362,21 +440,136 @@ public class Schedule {
 
         boolean allowNonOpenClassesSetting = settings.getBoolean(UserData.getContext().getResources().getString(R.string.pref_key_allow_nonopen_classes), false);
 
-        ArrayList<Section> selectedSections = scheduleBuilder(0, courseArrayList, new ArrayList<Section>(), blockOutTimesList, allowNonOpenClassesSetting);
+        ArrayList<Section> selectedSections;
+        if (useSolver) {
+            ConflictIndex conflictIndex = new ConflictIndex(courseArrayList, blockOutTimesList, allowNonOpenClassesSetting);
+            selectedSections = new ScheduleSolver(conflictIndex, new Random()).solve();
+        } else {
+            selectedSections = scheduleBuilder(0, courseArrayList, new ArrayList<Section>(), blockOutTimesList, allowNonOpenClassesSetting);
+        }
         return new Schedule("Generated Schedule", semesterNumber, selectedSections, blockOutTimesList); //Todd added new constructor with blockouts included
     }
 
     /**
-     * Recursively builds schedules using the provided information.
-     * It will get the course at the provided index, shuffle the arraylist of courses to ensure any two executions of the generator will be unique, and select a section.
-     * If the allowNonOpenClasses boolean is set to false the function will only allow selection of a section if the section status is {@link ClassStatus#OPEN}, otherwise it will allow any section.
-     * It will then compare the selected section it to all sections in the already selected sections ArrayList for conflicts.
-     * It will then compare the selected section it to all sections in the block-out times ArrayList for conflicts.
-     * If no conflics are detected the section is added to the already selected sections Arraylist, and the function is recursively called with an incremented index.
-     * If a conflict is detected the next section in the course is selected.
-     * If all sections in the course have been tested and all of them conflict with the selected sections arraylist or the blockout times list the function will throw a NoSchedulesPossible error.
+     * Narrows courses which cannot be scheduled together down to a smallest set of courses and block-out times which still conflict.
      *
-     * If the recursive call throws a NoSchedulesPossible error the last selected section is removed from the selected sections list and the function selects the next section on the current index.
+     * @param courseArrayList Arraylist with all courses a schedule could not be built from.
+     * @param blockOutTimesList Arraylist of Block-Out Times used in the failed generation.
+     * @return the minimal conflicting set, or null if a schedule can actually be built.
+     * @see ScheduleConflicts#findMinimalCore(ArrayList, ArrayList, boolean)
+     */
+    public static ScheduleConflicts.Core findConflictCore(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList){
+        return findConflictCore(courseArrayList, blockOutTimesList, null, 0);
+    }
+
+    /**
+     * Narrows courses which cannot be scheduled together down to a smallest set of courses and block-out times which still conflict, giving up when stopped.
+     *
+     * @param cancellationToken token which stops the search when cancelled, or null.
+     * @param deadlineNanos value of {@link System#nanoTime()} to stop at, or 0 for no deadline.
+     * @return the minimal conflicting set, or null if a schedule can actually be built or the search was stopped first.
+     * @see ScheduleConflicts#findMinimalCore(ArrayList, ArrayList, boolean, CancellationToken, long)
+     */
+    public static ScheduleConflicts.Core findConflictCore(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, CancellationToken cancellationToken, long deadlineNanos){
+
+        SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(UserData.getContext());
+        boolean allowNonOpenClassesSetting = settings.getBoolean(UserData.getContext().getResources().getString(R.string.pref_key_allow_nonopen_classes), false);
+
+        return ScheduleConflicts.findMinimalCore(courseArrayList, blockOutTimesList, allowNonOpenClassesSetting, cancellationToken, deadlineNanos);
+    }
+
+    /**
+     * Creates an enumerator which produces every conflict free schedule for the provided courses, instead of only the first one found by {@link #scheduleFactory(ArrayList, ArrayList, int)}.
+     * Schedules are generated one at a time as the enumerator is advanced.
+     *
+     * @param courseArrayList Arraylist with all courses this schedule can pick from.
+     * @param blockOutTimesList Arraylist of Block-Out Times the schedules should avoid conflicts with.
+     * @param semesterNumber Semester Number the schedules are built for.
+     * @return an enumerator positioned before the first schedule
+     * @see ScheduleEnumerator
+     */
+    public static ScheduleEnumerator scheduleEnumerator(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, int semesterNumber){
+
+        SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(UserData.getContext());
+        boolean allowNonOpenClassesSetting = settings.getBoolean(UserData.getContext().getResources().getString(R.string.pref_key_allow_nonopen_classes), false);
+
+        return new ScheduleEnumerator(courseArrayList, blockOutTimesList, allowNonOpenClassesSetting, semesterNumber);
+    }
+
+    /**
+     * Builds the best scoring conflict free schedules for the provided courses.
+     *
+     * @param courseArrayList Arraylist with all courses this schedule can pick from.
+     * @param blockOutTimesList Arraylist of Block-Out Times the schedules should avoid conflicts with.
+     * @param semesterNumber Semester Number the schedules are built for.
+     * @param scorer scoring function to rank schedules by. See {@link ScheduleScorers} for built in scorers.
+     * @param count maximum number of schedules to return.
+     * @return Arraylist of up to count schedules, best first.
+     * @throws NoSchedulesPossibleException if no schedule could be built.
+     * @see TopScheduleGenerator
+     */
+    public static ArrayList<Schedule> topScheduleFactory(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, int semesterNumber, ScheduleScorer scorer, int count) throws NoSchedulesPossibleException{
+
+        ScheduleEnumerator enumerator = scheduleEnumerator(courseArrayList, blockOutTimesList, semesterNumber);
+        ArrayList<Schedule> schedules = new TopScheduleGenerator(enumerator, scorer, count, blockOutTimesList, semesterNumber).generate();
+        if (schedules.isEmpty())
+            throw new NoSchedulesPossibleException("No conflict free schedule exists for the selected courses");
+        return schedules;
+    }
+
+    /**
+     * Creates a time budgeted generator for the best scoring schedules. Nothing is searched until {@link AnytimeScheduler#run(long, CancellationToken)} is called.
+     *
+     * @param courseArrayList Arraylist with all courses this schedule can pick from.
+     * @param blockOutTimesList Arraylist of Block-Out Times the schedules should avoid conflicts with.
+     * @param semesterNumber Semester Number the schedules are built for.
+     * @param scorer scoring function to rank schedules by. See {@link ScheduleScorers} for built in scorers.
+     * @param count maximum number of schedules to keep.
+     * @return a scheduler which can be run repeatedly, each run continuing from the last.
+     */
+    public static AnytimeScheduler anytimeScheduler(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, int semesterNumber, ScheduleScorer scorer, int count){
+        return new AnytimeScheduler(scheduleEnumerator(courseArrayList, blockOutTimesList, semesterNumber), scorer, count, blockOutTimesList, semesterNumber);
+    }
+
+    /**
+     * Parallel variant of {@link #scheduleFactory(ArrayList, ArrayList, int)}. Builds up to maxSchedules conflict free schedules using several threads.
+     * Must not be called from the UI thread, as it blocks until the search is finished.
+     *
+     * @param courseArrayList Arraylist with all courses this schedule can pick from.
+     * @param blockOutTimesList Arraylist of Block-Out Times the schedules should avoid conflicts with.
+     * @param semesterNumber Semester Number the schedules are built for.
+     * @param maxSchedules maximum number of schedules to build. Values below 1 build every schedule.
+     * @param parallelism number of threads to search with. Values below 1 use one thread per available processor.
+     * @return Arraylist of generated schedules
+     * @throws NoSchedulesPossibleException if no schedule could be built.
+     * @see ParallelScheduleSearch
+     */
+    public static ArrayList<Schedule> parallelScheduleFactory(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, int semesterNumber, int maxSchedules, int parallelism) throws NoSchedulesPossibleException{
+
+        ParallelScheduleSearch search = parallelScheduleSearch(courseArrayList, blockOutTimesList, semesterNumber, parallelism);
+        ArrayList<Schedule> schedules = search.findSchedules(maxSchedules);
+        if (schedules.isEmpty())
+            throw new NoSchedulesPossibleException("No conflict free schedule exists for the selected courses");
+        return schedules;
+    }
+
+    /**
+     * Creates a parallel search over every conflict free schedule for the provided courses.
+     * Keep a reference to the returned search to be able to {@link ParallelScheduleSearch#cancel()} it from another thread.
+     *
+     * @param courseArrayList Arraylist with all courses this schedule can pick from.
+     * @param blockOutTimesList Arraylist of Block-Out Times the schedules should avoid conflicts with.
+     * @param semesterNumber Semester Number the schedules are built for.
+     * @param parallelism number of threads to search with. Values below 1 use one thread per available processor.
+     * @return a search which has not been started yet
+     */
+    public static ParallelScheduleSearch parallelScheduleSearch(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, int semesterNumber, int parallelism){
+        return new ParallelScheduleSearch(scheduleEnumerator(courseArrayList, blockOutTimesList, semesterNumber), blockOutTimesList, semesterNumber, parallelism);
+    }
+
+    /**
+     * Recursively builds schedules using the provided information.
+     * Builds a {@link ConflictIndex} for the courses and block-out times, then searches it with {@link #scheduleBuilder(int, ConflictIndex, long[][], int[], ScheduleConflicts, Random)}.
      *
      * @param index index of course in courseArrayList which will be attempted to be added to the schedule
      * @param courseArrayList Arraylist of courses to select sections from.
@@ -390,65 +583,104 @@ public class Schedule {
      */
     public static ArrayList<Section> scheduleBuilder(int index, ArrayList<Course> courseArrayList, ArrayList<Section> alreadySelectedSections, ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses) throws NoSchedulesPossibleException{
 
-        // Create an error to throw if no schedule can be built. It will buffer all errors so that
-        NoSchedulesPossibleException scheduleConflict = new NoSchedulesPossibleException("");
-        Log.i("schedule Factory", "Loop Counter:" + ((Integer) index).toString());
-        if (index == courseArrayList.size()){
-            return alreadySelectedSections;
+        // Sections selected before index are treated as extra block-out times so the index only has to cover the remaining courses.
+        ArrayList<Section> fixedSections = new ArrayList<>(blockOutTimesList.size() + alreadySelectedSections.size());
+        fixedSections.addAll(blockOutTimesList);
+        fixedSections.addAll(alreadySelectedSections);
+        ArrayList<Course> remainingCourses = new ArrayList<>(courseArrayList.subList(index, courseArrayList.size()));
+
+        ConflictIndex conflictIndex = new ConflictIndex(remainingCourses, fixedSections, allowNonOpenClasses);
+        long[][] masks = new long[remainingCourses.size() + 1][];
+        masks[0] = conflictIndex.newMask();
+        for (int depth = 1; depth < masks.length; depth++) {
+            masks[depth] = new long[conflictIndex.getWordCount()];
         }
-        Course course = courseArrayList.get(index);
-        ArrayList<Section> possibleSections = new ArrayList<>(course.getSectionList().size());
-        possibleSections.addAll(course.getSectionList());
-        Collections.shuffle(possibleSections);
 
-        for (Section section : possibleSections){
+        int[] selectedIds = new int[remainingCourses.size()];
+        ScheduleConflicts conflicts = new ScheduleConflicts(conflictIndex);
+        if (!scheduleBuilder(0, conflictIndex, masks, selectedIds, conflicts, new Random()))
+            throw conflicts.toException();
 
-            if(!allowNonOpenClasses)
-                if(section.getStatus() != ClassStatus.OPEN)
-                    continue;
+        for (int selectedId : selectedIds) {
+            alreadySelectedSections.add(conflictIndex.getSection(selectedId));
+        }
+        return alreadySelectedSections;
+    }
 
-            boolean conflictDetected = false;
+    /**
+     * Recursively builds schedules using a precomputed {@link ConflictIndex}.
+     * It will get the course at the provided index, shuffle its sections to ensure any two executions of the generator will be unique, and select a section.
+     * Sections which are not open while non-open classes are not allowed are skipped.
+     * Sections which conflict with a block-out time or an already selected section are found with a single bit test against masks[index].
+     * If no conflics are detected the section is selected, masks[index + 1] is narrowed to the sections compatible with it, and the function is recursively called with an incremented index.
+     * If a conflict is detected it is recorded in conflicts and the next section in the course is selected.
+     * If all sections in the course have been tested and all of them conflict the function returns false so the caller can select its next section.
+     *
+     * @param index index of the course in the conflict index which will be attempted to be added to the schedule
+     * @param conflictIndex compatibility of every section of the courses being scheduled
+     * @param masks one mask per course. masks[index] must hold the sections compatible with everything selected so far.
+     * @param selectedIds receives the id of the section selected for each course.
+     * @param conflicts receives every conflict which ruled out a section.
+     * @param random shuffles the sections of every course. One instance is shared by the whole search.
+     * @return true if a section was selected for this course and every course after it.
+     */
+    static boolean scheduleBuilder(int index, ConflictIndex conflictIndex, long[][] masks, int[] selectedIds, ScheduleConflicts conflicts, Random random){
 
-            try {
-                for (Section sectionToCompare : blockOutTimesList) {
-                    if (section.conflictsWith(sectionToCompare)) {
-                        throw new NoSchedulesPossibleException(section, sectionToCompare);
-                    }
-                }
-            } catch (NoSchedulesPossibleException innerException){
-                Log.w("Schedule Generator", "Conflict With Block-Out time detected");
-                scheduleConflict.addConflict(innerException);
-                conflictDetected = true;
+        if (index == conflictIndex.getCourseCount()){
+            return true;
+        }
+        int[] possibleSections = conflictIndex.getSectionIds(index);
+        shuffle(possibleSections, random);
+        boolean anyStatusAllowed = false;
+
+        for (int sectionId : possibleSections){
+
+            if(!conflictIndex.isStatusAllowed(sectionId))
+                continue;
+            anyStatusAllowed = true;
+
+            if(!ConflictIndex.contains(masks[index], sectionId)){
+                if (conflictIndex.getBlockingBlockOutId(sectionId) != -1)
+                    conflicts.add(sectionId, conflictIndex.getBlockingBlockOutId(sectionId));
+                else
+                    conflicts.add(sectionId, findConflict(sectionId, conflictIndex, selectedIds, index));
+                continue;
             }
 
-            try {
-                for (Section sectionToCompare : alreadySelectedSections) {
-                    if (section.conflictsWith(sectionToCompare)) {
-                        throw new NoSchedulesPossibleException(section, sectionToCompare);
-                    }
-                }
-            } catch (NoSchedulesPossibleException innerException){
-                Log.w("Schedule Generator", "Conflict With already selected sections detected");
-                scheduleConflict.addConflict(innerException);
-                conflictDetected = true;
-            }
+            selectedIds[index] = sectionId;
+            conflictIndex.restrict(masks[index], sectionId, masks[index + 1]);
 
-            if(!conflictDetected){
-                Log.i("Adding Section to List", section.toJSON().toString());
-                alreadySelectedSections.add(section); //Add the class section to this array if there are no conflicts with the blockout times
+            if (scheduleBuilder(index + 1, conflictIndex, masks, selectedIds, conflicts, random))
+                return true;
 
-                try{
-                    return scheduleBuilder(index + 1, courseArrayList, alreadySelectedSections, blockOutTimesList, allowNonOpenClasses);
-                } catch (NoSchedulesPossibleException exception){
-                    exception.printStackTrace();
-                    alreadySelectedSections.remove(index);
-                    scheduleConflict = exception;
-                }
+        }
 
-            }
+        if (!anyStatusAllowed)
+            conflicts.addCourseWithoutOpenSections(index);
+        return false;
+    }
 
-        }throw scheduleConflict;
+    /**
+     * Shuffles an array of section ids in place.
+     */
+    static void shuffle(int[] sectionIds, Random random){
+        for (int index = sectionIds.length - 1; index > 0; index--) {
+            int swapIndex = random.nextInt(index + 1);
+            int swap = sectionIds[index];
+            sectionIds[index] = sectionIds[swapIndex];
+            sectionIds[swapIndex] = swap;
+        }
+    }
 
+    /**
+     * Finds the first selected section which the provided section is not compatible with. Only used to describe a conflict already found through a {@link ConflictIndex} mask.
+     */
+    private static int findConflict(int sectionId, ConflictIndex conflictIndex, int[] selectedIds, int selectedCount){
+        for (int index = 0; index < selectedCount; index++) {
+            if (!conflictIndex.isCompatible(selectedIds[index], sectionId))
+                return selectedIds[index];
+        }
+        return selectedIds[selectedCount - 1];
     }
 
 
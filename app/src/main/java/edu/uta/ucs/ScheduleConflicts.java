@@ -0,0 +1,238 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Conflicts found while searching for a schedule, recorded as pairs of {@link ConflictIndex} ids.
+ *
+ * <p>Each pair is packed into one long and kept in an open addressing hash set, so recording a conflict during the
+ * search is a few integer operations and recording the same pair twice costs nothing extra. Descriptions are only
+ * built when asked for.</p>
+ *
+ * <p>{@link #findMinimalCore(ArrayList, ArrayList, boolean)} goes further and narrows a failed request down to a
+ * smallest set of courses and block-out times which still cannot be scheduled together.</p>
+ */
+public class ScheduleConflicts {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ConflictIndex conflictIndex;
+    /** Packed pairs, 0 marks an empty slot. */
+    private long[] table = new long[INITIAL_CAPACITY];
+    private int pairCount = 0;
+    /** Courses with no section passing the open class filter. */
+    private final ArrayList<Course> coursesWithoutOpenSections = new ArrayList<>();
+
+    ScheduleConflicts(ConflictIndex conflictIndex) {
+        this.conflictIndex = conflictIndex;
+    }
+
+    /**
+     * Records that two sections, or a section and a block-out time, cannot be in the same schedule.
+     */
+    void add(int firstId, int secondId) {
+        // The smaller id goes in the high half and the larger one is always above 0, so a packed pair is never 0.
+        long pair = firstId < secondId ? ((long) firstId << 32) | secondId : ((long) secondId << 32) | firstId;
+
+        int mask = table.length - 1;
+        int slot = hash(pair) & mask;
+        while (table[slot] != 0) {
+            if (table[slot] == pair)
+                return;
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = pair;
+        pairCount++;
+        if (pairCount * 2 > table.length)
+            grow();
+    }
+
+    /**
+     * Records that a course could not be scheduled because none of its sections are open.
+     */
+    void addCourseWithoutOpenSections(int course) {
+        Course sourceCourse = conflictIndex.getCourse(course);
+        if (!coursesWithoutOpenSections.contains(sourceCourse))
+            coursesWithoutOpenSections.add(sourceCourse);
+    }
+
+    public boolean isEmpty() {
+        return pairCount == 0 && coursesWithoutOpenSections.isEmpty();
+    }
+
+    /**
+     * Number of distinct conflicting pairs recorded.
+     */
+    public int getConflictCount() {
+        return pairCount;
+    }
+
+    /**
+     * Obtains every distinct conflicting pair, ordered by id.
+     *
+     * @return Arraylist of two element arrays. The second element may be a block-out time.
+     */
+    public ArrayList<Section[]> getConflictPairs() {
+        long[] pairs = new long[pairCount];
+        int count = 0;
+        for (long pair : table) {
+            if (pair != 0)
+                pairs[count++] = pair;
+        }
+        Arrays.sort(pairs);
+
+        ArrayList<Section[]> conflictPairs = new ArrayList<>(pairs.length);
+        for (long pair : pairs) {
+            conflictPairs.add(new Section[]{conflictIndex.getSection((int) (pair >>> 32)), conflictIndex.getSection((int) pair)});
+        }
+        return conflictPairs;
+    }
+
+    /**
+     * Builds a human readable description with one line per course without open sections and one line per conflicting pair.
+     */
+    public String describe() {
+        StringBuilder description = new StringBuilder();
+        for (Course course : coursesWithoutOpenSections) {
+            description.append(description.length() == 0 ? "" : "\n").append("No Open Classes found for course: ").append(course.getCourseDescription());
+        }
+        for (Section[] conflictPair : getConflictPairs()) {
+            description.append(description.length() == 0 ? "" : "\n").append("Conflict between ").append(conflictPair[0].getDescription()).append(" and ").append(conflictPair[1].getDescription());
+        }
+        return description.toString();
+    }
+
+    /**
+     * Wraps the recorded conflicts in an exception to report a failed generation.
+     */
+    NoSchedulesPossibleException toException() {
+        return new NoSchedulesPossibleException(isEmpty() ? "No conflict free schedule exists for the selected courses" : describe());
+    }
+
+    private void grow() {
+        long[] oldTable = table;
+        table = new long[oldTable.length * 2];
+        int mask = table.length - 1;
+        for (long pair : oldTable) {
+            if (pair == 0)
+                continue;
+            int slot = hash(pair) & mask;
+            while (table[slot] != 0)
+                slot = (slot + 1) & mask;
+            table[slot] = pair;
+        }
+    }
+
+    private static int hash(long pair) {
+        long mixed = pair * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    /**
+     * A smallest set of courses and block-out times which cannot be scheduled together.
+     * Removing any one of them would make a schedule possible.
+     */
+    public static class Core {
+
+        private final ArrayList<Course> courses;
+        private final ArrayList<Section> blockOutTimes;
+
+        Core(ArrayList<Course> courses, ArrayList<Section> blockOutTimes) {
+            this.courses = courses;
+            this.blockOutTimes = blockOutTimes;
+        }
+
+        public ArrayList<Course> getCourses() {
+            return courses;
+        }
+
+        public ArrayList<Section> getBlockOutTimes() {
+            return blockOutTimes;
+        }
+
+        /**
+         * Builds a human readable list of the courses and block-out times in this core.
+         */
+        public String describe() {
+            StringBuilder description = new StringBuilder("These cannot all fit in one schedule:");
+            for (Course course : courses) {
+                description.append("\n").append(course.getCourseDescription());
+            }
+            for (Section blockOutTime : blockOutTimes) {
+                description.append("\n").append(blockOutTime.getDescription());
+            }
+            return description.toString();
+        }
+    }
+
+    /**
+     * Narrows a request which cannot be scheduled to a minimal unsatisfiable core.
+     *
+     * <p>Each course and block-out time is removed in turn. If the rest still cannot be scheduled it stays removed,
+     * otherwise it is put back. Every check is a {@link ScheduleSolver} run, which fails fast on infeasible input.</p>
+     *
+     * @param courseArrayList courses of the failed request.
+     * @param blockOutTimesList block-out times of the failed request.
+     * @param allowNonOpenClasses open class filter of the failed request.
+     * @return the core, or null if the request can actually be scheduled.
+     */
+    public static Core findMinimalCore(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses) {
+        return findMinimalCore(courseArrayList, blockOutTimesList, allowNonOpenClasses, null, 0);
+    }
+
+    /**
+     * Narrows a request which cannot be scheduled to a minimal unsatisfiable core, giving up when stopped.
+     *
+     * @param cancellationToken token which stops the search when cancelled, or null.
+     * @param deadlineNanos value of {@link System#nanoTime()} to stop at, or 0 for no deadline.
+     * @return the core, or null if the request can actually be scheduled or the search was stopped first.
+     * @see #findMinimalCore(ArrayList, ArrayList, boolean)
+     */
+    public static Core findMinimalCore(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses, CancellationToken cancellationToken, long deadlineNanos) {
+        long startTime = System.currentTimeMillis();
+        try {
+            if (isSatisfiable(courseArrayList, blockOutTimesList, allowNonOpenClasses, cancellationToken, deadlineNanos))
+                return null;
+
+            ArrayList<Course> coreCourses = new ArrayList<>(courseArrayList);
+            ArrayList<Section> coreBlockOutTimes = new ArrayList<>(blockOutTimesList);
+
+            for (int index = coreBlockOutTimes.size() - 1; index >= 0; index--) {
+                Section removed = coreBlockOutTimes.remove(index);
+                if (isSatisfiable(coreCourses, coreBlockOutTimes, allowNonOpenClasses, cancellationToken, deadlineNanos))
+                    coreBlockOutTimes.add(index, removed);
+            }
+            for (int index = coreCourses.size() - 1; index >= 0; index--) {
+                Course removed = coreCourses.remove(index);
+                if (isSatisfiable(coreCourses, coreBlockOutTimes, allowNonOpenClasses, cancellationToken, deadlineNanos))
+                    coreCourses.add(index, removed);
+            }
+
+            Log.i("Schedule Conflicts", "Minimal core of " + coreCourses.size() + " courses and " + coreBlockOutTimes.size() + " block-out times found in " + (System.currentTimeMillis() - startTime) + "ms");
+            return new Core(coreCourses, coreBlockOutTimes);
+        } catch (SearchStoppedException e) {
+            Log.i("Schedule Conflicts", "Minimal core search stopped after " + (System.currentTimeMillis() - startTime) + "ms");
+            return null;
+        }
+    }
+
+    private static boolean isSatisfiable(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses,
+                                         CancellationToken cancellationToken, long deadlineNanos) throws SearchStoppedException {
+        ScheduleSolver solver = new ScheduleSolver(new ConflictIndex(courseArrayList, blockOutTimesList, allowNonOpenClasses), null);
+        solver.setCancellationToken(cancellationToken);
+        solver.setDeadline(deadlineNanos);
+        boolean solved = solver.search();
+        if (solver.isStopped())
+            throw new SearchStoppedException();
+        return solved;
+    }
+
+    /**
+     * Thrown by a satisfiability check which was stopped before it could answer.
+     */
+    private static class SearchStoppedException extends Exception {
+    }
+}
@@ -0,0 +1,387 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the full Course x Section search space and produces every conflict free schedule, one at a time.
+ *
+ * <p>Unlike {@link Schedule#scheduleBuilder(int, ArrayList, ArrayList, ArrayList, boolean)}, which stops at the first
+ * valid combination, this keeps its place between results so the caller can pull as many schedules as it wants.
+ * Nothing is materialized up front: the only state kept is one selected section and one cursor per course, so memory
+ * stays flat no matter how many combinations the courses produce.</p>
+ *
+ * <p>Sections are pruned before the search starts if they conflict with a block-out time, or if they are not
+ * {@link ClassStatus#OPEN} while allowNonOpenClasses is false. Conflicts between sections are looked up in a
+ * {@link ConflictIndex} built once per enumerator, so each candidate is checked with a single bit test.</p>
+ *
+ * <p>Results can be consumed either as an {@link Iterator} of {@link Schedule} or through a {@link ScheduleListener}
+ * callback, which avoids building a Schedule object for every result.</p>
+ */
+public class ScheduleEnumerator implements Iterator<Schedule> {
+
+    /**
+     * Callback for {@link #forEach(ScheduleListener)}.
+     */
+    public interface ScheduleListener {
+
+        /**
+         * Called for every conflict free schedule found.
+         *
+         * @param selection one section per course, in course order. This array is reused for the next result, so copy it if it needs to be kept.
+         * @return true to keep searching, false to stop.
+         */
+        boolean onScheduleFound(Section[] selection);
+    }
+
+    /**
+     * Decides whether the search should descend below a partial schedule. See {@link #setBranchFilter(BranchFilter)}.
+     */
+    public interface BranchFilter {
+
+        /**
+         * Called each time a section is selected for any course but the last.
+         *
+         * @param selection sections selected so far, in course order. Only the first assignedCount entries are filled.
+         * @param assignedCount number of courses which have a section selected.
+         * @return true to search the schedules starting with this selection, false to skip all of them.
+         */
+        boolean shouldExplore(Section[] selection, int assignedCount);
+    }
+
+    private final int semesterNumber;
+    private final ArrayList<Section> blockOutTimesList;
+
+    private final ConflictIndex conflictIndex;
+    /** Sections which survived pruning for each course, indexed by course position. */
+    private final Section[][] candidates;
+    /** {@link ConflictIndex} ids of the sections in {@link #candidates}. */
+    private final int[][] candidateIds;
+    /** Section currently selected at each depth of the search. */
+    private final Section[] selection;
+    /** {@link ConflictIndex} id of the section currently selected at each depth of the search. */
+    private final int[] selectionIds;
+    /** Sections still compatible with everything selected above each depth. */
+    private final long[][] masks;
+    /** Index of the next candidate to try at each depth of the search. */
+    private final int[] cursor;
+    /** Depths above this are fixed by a prefix and never changed by this enumerator. See {@link #fork(int[])}. */
+    private final int floor;
+
+    private int depth;
+    private boolean exhausted = false;
+
+    /** Number of search steps between checks of the cancellation token and deadline. */
+    private static final int CANCELLATION_CHECK_INTERVAL = 1024;
+    private CancellationToken cancellationToken = null;
+    /** {@link System#nanoTime()} after which {@link #advance()} stops, or 0 for no deadline. */
+    private long deadlineNanos = 0;
+    private BranchFilter branchFilter = null;
+    private int stepsUntilCancellationCheck = CANCELLATION_CHECK_INTERVAL;
+
+    private boolean lookAhead = false;
+    private boolean lookAheadResult = false;
+
+    /**
+     * Prepares an enumerator for the provided courses. No schedules are built until the first call to {@link #advance()}.
+     *
+     * @param courseArrayList Arraylist of courses to select sections from. One section of every course will be in each schedule.
+     * @param blockOutTimesList Arraylist of block-out times which a user had defined. Sections which conflict with these are never selected.
+     * @param allowNonOpenClasses Boolean toggle which allows classes to be added if they are not open
+     * @param semesterNumber Semester Number the generated schedules are built for.
+     */
+    ScheduleEnumerator(ArrayList<Course> courseArrayList, ArrayList<Section> blockOutTimesList, boolean allowNonOpenClasses, int semesterNumber) {
+        this(new ConflictIndex(courseArrayList, blockOutTimesList, allowNonOpenClasses), blockOutTimesList, semesterNumber);
+    }
+
+    /**
+     * Prepares an enumerator over an index which has already been built, such as the one kept by a {@link ScheduleSession}.
+     *
+     * @param conflictIndex compatibility of every section of the courses to select sections from.
+     * @param blockOutTimesList Arraylist of block-out times the index was built with. Attached to each generated schedule.
+     * @param semesterNumber Semester Number the generated schedules are built for.
+     */
+    ScheduleEnumerator(ConflictIndex conflictIndex, ArrayList<Section> blockOutTimesList, int semesterNumber) {
+        this.semesterNumber = semesterNumber;
+        this.blockOutTimesList = blockOutTimesList;
+        this.conflictIndex = conflictIndex;
+
+        int courseCount = conflictIndex.getCourseCount();
+        this.candidates = new Section[courseCount][];
+        this.candidateIds = new int[courseCount][];
+        this.selection = new Section[courseCount];
+        this.selectionIds = new int[courseCount];
+        this.cursor = new int[courseCount];
+        this.masks = new long[courseCount][conflictIndex.getWordCount()];
+        this.floor = 0;
+        this.depth = 0;
+
+        for (int index = 0; index < courseCount; index++) {
+            candidateIds[index] = conflictIndex.getUsableSectionIds(index);
+            candidates[index] = new Section[candidateIds[index].length];
+            for (int position = 0; position < candidateIds[index].length; position++) {
+                candidates[index][position] = conflictIndex.getSection(candidateIds[index][position]);
+            }
+
+            if (candidates[index].length == 0) {
+                Log.i("Schedule Enumerator", "No usable sections for course: " + conflictIndex.getCourse(index).getCourseDescription());
+                exhausted = true;
+            }
+        }
+        if (courseCount > 0)
+            masks[0] = conflictIndex.newMask();
+    }
+
+    /**
+     * Creates an enumerator which shares the pruned candidates of another enumerator but only explores schedules starting with the given prefix.
+     *
+     * @param source enumerator whose index and pruned sections are shared
+     * @param courseCount number of leading courses of the source to search
+     * @param prefixIds {@link ConflictIndex} ids of the sections fixed for the first courses. Must not conflict with each other.
+     */
+    private ScheduleEnumerator(ScheduleEnumerator source, int courseCount, int[] prefixIds) {
+        this.semesterNumber = source.semesterNumber;
+        this.blockOutTimesList = source.blockOutTimesList;
+        this.conflictIndex = source.conflictIndex;
+        this.candidates = Arrays.copyOf(source.candidates, courseCount);
+        this.candidateIds = Arrays.copyOf(source.candidateIds, courseCount);
+        this.selection = new Section[courseCount];
+        this.selectionIds = new int[courseCount];
+        this.cursor = new int[courseCount];
+        this.masks = new long[courseCount][conflictIndex.getWordCount()];
+        this.floor = prefixIds.length;
+        this.depth = prefixIds.length;
+        this.cancellationToken = source.cancellationToken;
+        this.branchFilter = source.branchFilter;
+
+        for (Section[] options : candidates) {
+            if (options.length == 0)
+                exhausted = true;
+        }
+
+        long[] mask = conflictIndex.newMask();
+        for (int index = 0; index < prefixIds.length; index++) {
+            selectionIds[index] = prefixIds[index];
+            selection[index] = conflictIndex.getSection(prefixIds[index]);
+            conflictIndex.restrict(mask, prefixIds[index], mask);
+        }
+        if (depth < courseCount)
+            masks[depth] = mask;
+    }
+
+    /**
+     * Creates an enumerator over the part of this search space which starts with the given sections.
+     * Forked enumerators share the pruned candidate lists of this one and can run on other threads.
+     *
+     * @param prefixIds ids of the sections for the first prefixIds.length courses, as returned by {@link #getSelectionIds()}. Must not conflict with each other.
+     * @return a new enumerator positioned before its first schedule
+     */
+    ScheduleEnumerator fork(int[] prefixIds) {
+        return new ScheduleEnumerator(this, candidates.length, prefixIds);
+    }
+
+    /**
+     * Creates an enumerator over only the first courses of this search space. Used to split the search tree into independent branches.
+     *
+     * @param courseCount number of leading courses to keep
+     * @return a new enumerator whose selections hold courseCount sections
+     */
+    ScheduleEnumerator truncate(int courseCount) {
+        ScheduleEnumerator truncated = new ScheduleEnumerator(this, courseCount, new int[0]);
+        truncated.exhausted |= exhausted;
+        return truncated;
+    }
+
+    /**
+     * Sets a token which, once cancelled, makes {@link #advance()} return false.
+     * The search keeps its place, so setting a fresh token and calling {@link #advance()} again resumes where it stopped.
+     */
+    public void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Sets a time after which {@link #advance()} returns false. Like cancellation the search keeps its place and can be resumed with a later deadline.
+     *
+     * @param deadlineNanos value of {@link System#nanoTime()} to stop at, or 0 for no deadline.
+     */
+    public void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Tests whether every combination has been visited, as opposed to {@link #advance()} returning false because of a cancellation or deadline.
+     */
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    /**
+     * Estimates how much of the search space has been visited, counting pruned sections as visited.
+     * The position of the search is read as a mixed radix number with one digit per course, so each course counts less than the one before it.
+     *
+     * @return fraction from 0 to 1. Exactly 1 once {@link #isExhausted()} is true.
+     */
+    public double getExploredFraction() {
+        if (exhausted)
+            return 1;
+
+        double fraction = 0;
+        double scale = 1;
+        for (int index = floor; index <= depth && index < candidateIds.length; index++) {
+            int optionCount = candidateIds[index].length;
+            int finished = index < depth ? cursor[index] - 1 : cursor[index];
+            fraction += scale * finished / optionCount;
+            scale /= optionCount;
+        }
+        return fraction;
+    }
+
+    /**
+     * Sets a filter which can skip every schedule starting with a partial selection. Used to prune subtrees which cannot contain a wanted schedule.
+     */
+    public void setBranchFilter(BranchFilter branchFilter) {
+        this.branchFilter = branchFilter;
+    }
+
+    /**
+     * Obtains the sections which survived pruning for each course. Must not be modified.
+     */
+    Section[][] getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * Number of courses in each schedule produced by this enumerator.
+     */
+    public int getCourseCount() {
+        return candidates.length;
+    }
+
+    /**
+     * Moves to the next conflict free schedule.
+     *
+     * @return true if a new schedule is available through {@link #getSelection()}, false once every combination has been visited.
+     */
+    public boolean advance() {
+        if (lookAhead) {
+            lookAhead = false;
+            return lookAheadResult;
+        }
+        if (exhausted)
+            return false;
+
+        int courseCount = candidates.length;
+        if (courseCount == floor) {
+            // With no courses left to pick the prefix itself is the only schedule.
+            exhausted = true;
+            return true;
+        }
+
+        while (depth >= floor) {
+            if (--stepsUntilCancellationCheck == 0) {
+                stepsUntilCancellationCheck = CANCELLATION_CHECK_INTERVAL;
+                if (cancellationToken != null && cancellationToken.isCancelled()) {
+                    Log.i("Schedule Enumerator", "Search cancelled");
+                    return false;
+                }
+                if (deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0) {
+                    Log.i("Schedule Enumerator", "Search deadline reached");
+                    return false;
+                }
+            }
+
+            int[] optionIds = candidateIds[depth];
+            long[] mask = masks[depth];
+            int placed = -1;
+
+            while (cursor[depth] < optionIds.length) {
+                int position = cursor[depth]++;
+                if (ConflictIndex.contains(mask, optionIds[position])) {
+                    placed = position;
+                    break;
+                }
+            }
+
+            if (placed == -1) {
+                // Every section of this course has been tried with the current selection. Backtrack.
+                cursor[depth] = 0;
+                selection[depth] = null;
+                depth--;
+                continue;
+            }
+
+            selection[depth] = candidates[depth][placed];
+            selectionIds[depth] = optionIds[placed];
+            if (depth == courseCount - 1)
+                return true;                // Leave depth where it is so the next call tries the next section of the last course
+            if (branchFilter != null && !branchFilter.shouldExplore(selection, depth + 1))
+                continue;                   // Skip this section's subtree and try the next section of the same course
+            conflictIndex.restrict(mask, optionIds[placed], masks[depth + 1]);
+            depth++;
+        }
+
+        exhausted = true;
+        return false;
+    }
+
+    /**
+     * Obtains the schedule found by the last successful call to {@link #advance()}.
+     *
+     * @return one section per course, in course order. This array is reused by the next call to {@link #advance()}.
+     */
+    public Section[] getSelection() {
+        return selection;
+    }
+
+    /**
+     * Obtains the {@link ConflictIndex} ids of the schedule found by the last successful call to {@link #advance()}.
+     *
+     * @return one id per course, in course order. This array is reused by the next call to {@link #advance()}.
+     */
+    int[] getSelectionIds() {
+        return selectionIds;
+    }
+
+    /**
+     * Runs the search to completion or until the listener asks to stop, passing every schedule found to the listener.
+     *
+     * @param listener receives each conflict free schedule as it is found.
+     * @return number of schedules passed to the listener.
+     */
+    public long forEach(ScheduleListener listener) {
+        long found = 0;
+        while (advance()) {
+            found++;
+            if (!listener.onScheduleFound(selection))
+                break;
+        }
+        return found;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!lookAhead) {
+            lookAheadResult = advance();
+            lookAhead = lookAheadResult || exhausted;        // A stopped search may be resumed, so do not remember its result
+        }
+        return lookAheadResult;
+    }
+
+    @Override
+    public Schedule next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        lookAhead = false;
+        return new Schedule("Generated Schedule", semesterNumber, new ArrayList<>(Arrays.asList(selection)), blockOutTimesList);
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
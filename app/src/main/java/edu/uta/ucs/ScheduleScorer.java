@@ -0,0 +1,35 @@
+package edu.uta.ucs;
+
+/**
+ * Scores schedules for {@link TopScheduleGenerator}. Higher scores are better.
+ *
+ * <p>Besides scoring a finished schedule, a scorer must give an upper bound on the score of any schedule which can be
+ * completed from a partial one. The bound may be loose but must never be lower than a real completion could score,
+ * otherwise good schedules would be skipped.</p>
+ *
+ * @see ScheduleScorers
+ */
+public interface ScheduleScorer {
+
+    /**
+     * Called once before the search starts.
+     *
+     * @param candidates sections each course may pick from, in course order. Selections passed to the other methods follow the same order.
+     */
+    void prepare(Section[][] candidates);
+
+    /**
+     * Scores a complete schedule.
+     *
+     * @param selection one section per course, in course order.
+     */
+    int score(Section[] selection);
+
+    /**
+     * Gives the best score any completion of a partial schedule could reach.
+     *
+     * @param selection sections selected so far, in course order. Only the first assignedCount entries are filled.
+     * @param assignedCount number of courses which have a section selected.
+     */
+    int upperBound(Section[] selection, int assignedCount);
+}
@@ -0,0 +1,180 @@
+package edu.uta.ucs;
+
+/**
+ * Built in {@link ScheduleScorer} implementations.
+ *
+ * <p>Sections which do not meet on any day, such as online sections, are ignored by every scorer except
+ * {@link MostOpenSections}. Sections whose time is not known yet ("TBA") are also ignored by the scorers which look at
+ * meeting times, {@link LatestStart} and {@link LeastIdleGap}.</p>
+ */
+public final class ScheduleScorers {
+
+    private static final int DAYS_IN_WEEK = 7;
+    private static final int MINUTES_IN_DAY = 24 * 60;
+
+    private ScheduleScorers() {
+    }
+
+    /**
+     * Prefers schedules which meet on fewer days of the week. Score is minus the number of days with at least one class.
+     */
+    public static class FewestCampusDays implements ScheduleScorer {
+
+        @Override
+        public void prepare(Section[][] candidates) {
+        }
+
+        @Override
+        public int score(Section[] selection) {
+            return upperBound(selection, selection.length);
+        }
+
+        /**
+         * Adding sections can only add days, so the days already used are the best case.
+         */
+        @Override
+        public int upperBound(Section[] selection, int assignedCount) {
+            int dayMask = 0;
+            for (int index = 0; index < assignedCount; index++) {
+                dayMask |= selection[index].getDayMask();
+            }
+            return -Integer.bitCount(dayMask);
+        }
+    }
+
+    /**
+     * Prefers schedules whose earliest class starts latest. Score is the earliest start time in minutes after midnight.
+     */
+    public static class LatestStart implements ScheduleScorer {
+
+        @Override
+        public void prepare(Section[][] candidates) {
+        }
+
+        @Override
+        public int score(Section[] selection) {
+            return upperBound(selection, selection.length);
+        }
+
+        /**
+         * Adding sections can only move the earliest start earlier, so the current earliest start is the best case.
+         */
+        @Override
+        public int upperBound(Section[] selection, int assignedCount) {
+            int earliestStart = MINUTES_IN_DAY;
+            for (int index = 0; index < assignedCount; index++) {
+                if (selection[index].hasMeetingTime())
+                    earliestStart = Math.min(earliestStart, selection[index].getStartMinute());
+            }
+            return earliestStart;
+        }
+    }
+
+    /**
+     * Prefers schedules with more {@link ClassStatus#OPEN} sections. Score is the number of open sections.
+     */
+    public static class MostOpenSections implements ScheduleScorer {
+
+        /** Number of courses from each position onward which have at least one open candidate. */
+        private int[] openCoursesFrom;
+
+        @Override
+        public void prepare(Section[][] candidates) {
+            openCoursesFrom = new int[candidates.length + 1];
+            for (int course = candidates.length - 1; course >= 0; course--) {
+                boolean hasOpenSection = false;
+                for (Section section : candidates[course]) {
+                    if (section.getStatus() == ClassStatus.OPEN) {
+                        hasOpenSection = true;
+                        break;
+                    }
+                }
+                openCoursesFrom[course] = openCoursesFrom[course + 1] + (hasOpenSection ? 1 : 0);
+            }
+        }
+
+        @Override
+        public int score(Section[] selection) {
+            return countOpen(selection, selection.length);
+        }
+
+        /**
+         * Best case is every remaining course which has an open candidate picking one.
+         */
+        @Override
+        public int upperBound(Section[] selection, int assignedCount) {
+            return countOpen(selection, assignedCount) + openCoursesFrom[assignedCount];
+        }
+
+        private static int countOpen(Section[] selection, int assignedCount) {
+            int openCount = 0;
+            for (int index = 0; index < assignedCount; index++) {
+                if (selection[index].getStatus() == ClassStatus.OPEN)
+                    openCount++;
+            }
+            return openCount;
+        }
+    }
+
+    /**
+     * Prefers schedules with less time spent waiting between classes. Score is minus the total idle minutes per week,
+     * where idle time on a day is the time between its first and last class not spent in class.
+     */
+    public static class LeastIdleGap implements ScheduleScorer {
+
+        /** For each course position and day, the sum over the remaining courses of their longest candidate meeting on that day. */
+        private int[][] fillableMinutesFrom;
+
+        @Override
+        public void prepare(Section[][] candidates) {
+            fillableMinutesFrom = new int[candidates.length + 1][DAYS_IN_WEEK];
+            for (int course = candidates.length - 1; course >= 0; course--) {
+                for (int day = 0; day < DAYS_IN_WEEK; day++) {
+                    int longestMeeting = 0;
+                    for (Section section : candidates[course]) {
+                        if (section.hasMeetingTime() && (section.getDayMask() & (1 << day)) != 0)
+                            longestMeeting = Math.max(longestMeeting, section.getEndMinute() - section.getStartMinute());
+                    }
+                    fillableMinutesFrom[course][day] = fillableMinutesFrom[course + 1][day] + longestMeeting;
+                }
+            }
+        }
+
+        @Override
+        public int score(Section[] selection) {
+            int idleMinutes = 0;
+            for (int day = 0; day < DAYS_IN_WEEK; day++) {
+                idleMinutes += idleMinutes(selection, selection.length, day);
+            }
+            return -idleMinutes;
+        }
+
+        /**
+         * Sections in a conflict free schedule never overlap, so idle time on a day is its span minus its class time.
+         * Adding sections never shrinks the span, so idle time can only drop by the class time the remaining courses could add on that day.
+         */
+        @Override
+        public int upperBound(Section[] selection, int assignedCount) {
+            int idleMinutes = 0;
+            for (int day = 0; day < DAYS_IN_WEEK; day++) {
+                idleMinutes += Math.max(0, idleMinutes(selection, assignedCount, day) - fillableMinutesFrom[assignedCount][day]);
+            }
+            return -idleMinutes;
+        }
+
+        private static int idleMinutes(Section[] selection, int assignedCount, int day) {
+            int firstStart = MINUTES_IN_DAY;
+            int lastEnd = 0;
+            int classMinutes = 0;
+            for (int index = 0; index < assignedCount; index++) {
+                Section section = selection[index];
+                if (!section.hasMeetingTime() || (section.getDayMask() & (1 << day)) == 0)
+                    continue;
+                firstStart = Math.min(firstStart, section.getStartMinute());
+                lastEnd = Math.max(lastEnd, section.getEndMinute());
+                classMinutes += section.getEndMinute() - section.getStartMinute();
+            }
+            return lastEnd > firstStart ? lastEnd - firstStart - classMinutes : 0;
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Keeps schedule generation state between requests which differ by a few courses or block-out times.
+ *
+ * <p>Users usually tweak a request one course or block-out time at a time. Instead of starting over each time, a
+ * session keeps the {@link ConflictIndex} of the last request and the schedules found for it:</p>
+ *
+ * <li>A change to block-out times or the open class filter only checks sections against the block-out times again. Section compatibility is shared.</li>
+ * <li>A change to courses copies section compatibility for the leading courses which did not change and only compares sections after them.
+ * Courses are kept in the order they were first seen, so added courses go last and most of the index is reused.</li>
+ * <li>Schedules found earlier seed the next search. {@link #solve()} tries their sections first, so it repairs the last schedule rather than
+ * searching from scratch, and {@link #anytimeScheduler(ScheduleScorer, int)} starts with them already kept, so it can skip branches right away.</li>
+ */
+public class ScheduleSession {
+
+    /** Number of earlier schedules kept to seed later searches. */
+    private static final int KNOWN_SCHEDULE_LIMIT = 16;
+
+    private final int semesterNumber;
+    private boolean allowNonOpenClasses;
+    private ArrayList<Course> courseArrayList = new ArrayList<>();
+    private ArrayList<Section> blockOutTimesList = new ArrayList<>();
+    private ConflictIndex conflictIndex;
+
+    /** Section IDs of schedules found for this or earlier requests, most recent first. */
+    private final ArrayList<HashSet<Integer>> knownSchedules = new ArrayList<>();
+
+    /**
+     * @param semesterNumber Semester Number the generated schedules are built for.
+     * @param allowNonOpenClasses Boolean toggle which allows classes to be selected if they are not open
+     */
+    public ScheduleSession(int semesterNumber, boolean allowNonOpenClasses) {
+        this.semesterNumber = semesterNumber;
+        this.allowNonOpenClasses = allowNonOpenClasses;
+    }
+
+    /**
+     * Changes the request to the provided courses and block-out times, recomputing only what they affect.
+     *
+     * @param courses Arraylist of courses to schedule. May be new objects for courses which are already part of the session.
+     * @param blockOutTimes Arraylist of block-out times which a user had defined.
+     */
+    public void update(ArrayList<Course> courses, ArrayList<Section> blockOutTimes) {
+        long startTime = System.currentTimeMillis();
+        ArrayList<Course> orderedCourses = orderLikeCurrentCourses(courses);
+
+        if (conflictIndex != null && isSameCourseList(orderedCourses)) {
+            if (!isSameBlockOutTimeList(blockOutTimes))
+                conflictIndex = conflictIndex.withFilters(blockOutTimes, allowNonOpenClasses);
+        } else {
+            conflictIndex = new ConflictIndex(orderedCourses, blockOutTimes, allowNonOpenClasses, conflictIndex);
+        }
+
+        courseArrayList = orderedCourses;
+        // Copied so that later changes to the caller's list are noticed by the next update.
+        blockOutTimesList = new ArrayList<>(blockOutTimes);
+        Log.i("Schedule Session", "Updated to " + courseArrayList.size() + " courses and " + blockOutTimesList.size() + " block-out times in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * Adds a course to the request, or replaces it if a course with the same department and number is already part of it.
+     */
+    public void addCourse(Course course) {
+        ArrayList<Course> courses = new ArrayList<>(courseArrayList);
+        int index = indexOfCourse(courses, course);
+        if (index == -1)
+            courses.add(course);
+        else
+            courses.set(index, course);
+        update(courses, blockOutTimesList);
+    }
+
+    /**
+     * Removes the course with the same department and number as the one provided from the request.
+     */
+    public void removeCourse(Course course) {
+        ArrayList<Course> courses = new ArrayList<>(courseArrayList);
+        int index = indexOfCourse(courses, course);
+        if (index == -1)
+            return;
+        courses.remove(index);
+        update(courses, blockOutTimesList);
+    }
+
+    public void setBlockOutTimes(ArrayList<Section> blockOutTimes) {
+        update(courseArrayList, blockOutTimes);
+    }
+
+    public void setAllowNonOpenClasses(boolean allowNonOpenClasses) {
+        if (this.allowNonOpenClasses == allowNonOpenClasses)
+            return;
+        this.allowNonOpenClasses = allowNonOpenClasses;
+        if (conflictIndex != null)
+            conflictIndex = conflictIndex.withFilters(blockOutTimesList, allowNonOpenClasses);
+    }
+
+    /**
+     * Finds one conflict free schedule for the current request, starting from the earlier schedule which still fits best.
+     *
+     * @return a schedule built with the current courses
+     * @throws NoSchedulesPossibleException if no combination of sections fits together, describing the conflicts found.
+     */
+    public Schedule solve() throws NoSchedulesPossibleException {
+        return solve(null, 0);
+    }
+
+    /**
+     * Finds one conflict free schedule for the current request, giving up when stopped.
+     *
+     * @param cancellationToken token which stops the search when cancelled, or null.
+     * @param deadlineNanos value of {@link System#nanoTime()} to stop at, or 0 for no deadline.
+     * @return a schedule built with the current courses
+     * @throws NoSchedulesPossibleException if no combination of sections fits together, or the search was stopped first, describing the conflicts found.
+     */
+    public Schedule solve(CancellationToken cancellationToken, long deadlineNanos) throws NoSchedulesPossibleException {
+        ScheduleSolver solver = new ScheduleSolver(getConflictIndex(), new Random());
+        solver.setPreferred(findPreferredIds());
+        solver.setCancellationToken(cancellationToken);
+        solver.setDeadline(deadlineNanos);
+        ArrayList<Section> selectedSections = solver.solve();
+        Log.i("Schedule Session", "Solved after " + solver.getNodesVisited() + " nodes");
+
+        Schedule schedule = new Schedule("Generated Schedule", semesterNumber, selectedSections, blockOutTimesList);
+        remember(schedule);
+        return schedule;
+    }
+
+    /**
+     * Creates a time budgeted generator for the best scoring schedules of the current request.
+     * Earlier schedules which still fit the request are kept by it before its first run.
+     *
+     * @param scorer scoring function to rank schedules by. See {@link ScheduleScorers} for built in scorers.
+     * @param count maximum number of schedules to keep.
+     * @return a scheduler which can be run repeatedly, each run continuing from the last.
+     */
+    public AnytimeScheduler anytimeScheduler(ScheduleScorer scorer, int count) {
+        ConflictIndex index = getConflictIndex();
+        AnytimeScheduler scheduler = new AnytimeScheduler(new ScheduleEnumerator(index, blockOutTimesList, semesterNumber), scorer, count, blockOutTimesList, semesterNumber);
+
+        int offered = 0;
+        for (HashSet<Integer> knownSchedule : knownSchedules) {
+            int[] ids = translate(knownSchedule);
+            if (!isCompleteAndConflictFree(ids))
+                continue;
+            Section[] selection = new Section[ids.length];
+            for (int course = 0; course < ids.length; course++) {
+                selection[course] = index.getSection(ids[course]);
+            }
+            scheduler.offer(selection);
+            offered++;
+        }
+        Log.i("Schedule Session", "Seeded scheduler with " + offered + " of " + knownSchedules.size() + " known schedules");
+        return scheduler;
+    }
+
+    /**
+     * Keeps a schedule so that later searches can start from it.
+     */
+    public void remember(Schedule schedule) {
+        HashSet<Integer> sectionIDs = new HashSet<>();
+        for (Section section : schedule.getSelectedSections()) {
+            sectionIDs.add(section.getSectionID());
+        }
+        knownSchedules.remove(sectionIDs);
+        knownSchedules.add(0, sectionIDs);
+        if (knownSchedules.size() > KNOWN_SCHEDULE_LIMIT)
+            knownSchedules.remove(knownSchedules.size() - 1);
+    }
+
+    public int getSemesterNumber() {
+        return semesterNumber;
+    }
+
+    /**
+     * Obtains the courses of the current request, in the order they are searched.
+     */
+    public ArrayList<Course> getCourses() {
+        return courseArrayList;
+    }
+
+    public ArrayList<Section> getBlockOutTimes() {
+        return blockOutTimesList;
+    }
+
+    ConflictIndex getConflictIndex() {
+        if (conflictIndex == null)
+            conflictIndex = new ConflictIndex(courseArrayList, blockOutTimesList, allowNonOpenClasses);
+        return conflictIndex;
+    }
+
+    /**
+     * Picks, for each course, the section of the known schedule which has the most sections still usable.
+     *
+     * @return one id per course, or -1 for courses the chosen schedule has no usable section for. Null if nothing is known.
+     */
+    private int[] findPreferredIds() {
+        int[] preferredIds = null;
+        int preferredCount = 0;
+        for (HashSet<Integer> knownSchedule : knownSchedules) {
+            int[] ids = translate(knownSchedule);
+            int count = 0;
+            for (int id : ids) {
+                if (id != -1)
+                    count++;
+            }
+            if (count > preferredCount) {
+                preferredIds = ids;
+                preferredCount = count;
+            }
+        }
+        return preferredIds;
+    }
+
+    /**
+     * Finds the usable section of each current course which is part of a known schedule.
+     *
+     * @return one id per course, or -1 for courses the schedule has no usable section for.
+     */
+    private int[] translate(HashSet<Integer> knownSchedule) {
+        ConflictIndex index = getConflictIndex();
+        int[] ids = new int[index.getCourseCount()];
+        for (int course = 0; course < ids.length; course++) {
+            ids[course] = -1;
+            for (int id : index.getUsableSectionIds(course)) {
+                if (knownSchedule.contains(index.getSection(id).getSectionID())) {
+                    ids[course] = id;
+                    break;
+                }
+            }
+        }
+        return ids;
+    }
+
+    private boolean isCompleteAndConflictFree(int[] ids) {
+        ConflictIndex index = getConflictIndex();
+        for (int first = 0; first < ids.length; first++) {
+            if (ids[first] == -1)
+                return false;
+            for (int second = 0; second < first; second++) {
+                if (!index.isCompatible(ids[first], ids[second]))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Orders courses already part of the session as they were before, followed by new courses in the order given.
+     */
+    private ArrayList<Course> orderLikeCurrentCourses(ArrayList<Course> courses) {
+        ArrayList<Course> remaining = new ArrayList<>(courses);
+        ArrayList<Course> orderedCourses = new ArrayList<>(courses.size());
+        for (Course currentCourse : courseArrayList) {
+            int index = indexOfCourse(remaining, currentCourse);
+            if (index != -1)
+                orderedCourses.add(remaining.remove(index));
+        }
+        orderedCourses.addAll(remaining);
+        return orderedCourses;
+    }
+
+    private static int indexOfCourse(ArrayList<Course> courses, Course course) {
+        for (int index = 0; index < courses.size(); index++) {
+            Course candidate = courses.get(index);
+            if (candidate.getDepartmentAcronym().equalsIgnoreCase(course.getDepartmentAcronym()) && candidate.getCourseNumber().equalsIgnoreCase(course.getCourseNumber()))
+                return index;
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether the courses hold the same sections, by ID, meeting times and status, as the current {@link #conflictIndex}.
+     * The indexed sections are compared rather than the course objects, since a course's section list may have changed since it was indexed.
+     * A changed status rebuilds the index over the new sections, so the open class filter and the generated schedules see the current status.
+     */
+    private boolean isSameCourseList(ArrayList<Course> courses) {
+        if (courses.size() != conflictIndex.getCourseCount())
+            return false;
+        for (int course = 0; course < courses.size(); course++) {
+            ArrayList<Section> sectionList = courses.get(course).getSectionList();
+            int[] indexedIds = conflictIndex.getSectionIds(course);
+            if (sectionList.size() != indexedIds.length)
+                return false;
+            for (int offset = 0; offset < indexedIds.length; offset++) {
+                Section indexedSection = conflictIndex.getSection(indexedIds[offset]);
+                if (!sectionList.get(offset).isSameSectionAs(indexedSection) || sectionList.get(offset).getStatus() != indexedSection.getStatus())
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the block-out times have the same names and meeting times as the current ones.
+     */
+    private boolean isSameBlockOutTimeList(ArrayList<Section> blockOutTimes) {
+        if (blockOutTimes.size() != blockOutTimesList.size())
+            return false;
+        for (int index = 0; index < blockOutTimes.size(); index++) {
+            if (!blockOutTimes.get(index).isSameBlockOutTimeAs(blockOutTimesList.get(index)))
+                return false;
+        }
+        return true;
+    }
+}
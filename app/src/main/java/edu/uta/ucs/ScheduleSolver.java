@@ -0,0 +1,226 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Finds one conflict free schedule using forward checking.
+ *
+ * <p>The solver keeps a live domain of viable sections for every course which has not been assigned yet. The domains
+ * are stored together as a single {@link ConflictIndex} mask: assigning a section ANDs its compatibility bitset into the
+ * mask, which prunes every conflicting section from every other domain at once. If any unassigned course is left with
+ * an empty domain the solver backtracks immediately instead of descending until it reaches that course.</p>
+ *
+ * <p>The next course to assign is always the one with the fewest remaining sections, so the most constrained courses
+ * are settled first and dead ends are found near the top of the tree. Within a course sections are tried in random order
+ * so that two runs on the same courses can produce different schedules.</p>
+ *
+ * <p>A preferred section can be given for each course with {@link #setPreferred(int[])}. It is tried before the rest of
+ * its course, so when an earlier schedule mostly still fits, the solver repairs it instead of searching from scratch.</p>
+ *
+ * <p>A search can be bounded with {@link #setCancellationToken(CancellationToken)} and {@link #setDeadline(long)}. Both
+ * are checked at every node, and a stopped search reports {@link #isStopped()}.</p>
+ */
+class ScheduleSolver {
+
+    private final ConflictIndex conflictIndex;
+    private final Random random;
+
+    /** Mask of the sections still viable at each depth of the search. */
+    private final long[][] masks;
+    /** Id of the section assigned to each course, or -1 if the course has not been assigned yet. */
+    private final int[] assignment;
+    /** Id of the section to try first for each course, or -1 for no preference. */
+    private int[] preferred;
+
+    /** Conflicts behind every dead end found. */
+    private final ScheduleConflicts conflicts;
+    private long nodesVisited = 0;
+    private boolean solved = false;
+
+    private CancellationToken cancellationToken = null;
+    /** {@link System#nanoTime()} after which the search stops, or 0 for no deadline. */
+    private long deadlineNanos = 0;
+    private boolean stopped = false;
+
+    /**
+     * @param conflictIndex compatibility of every section of the courses to schedule
+     * @param random source of randomness used to order sections within a course, or null to try them in section list order.
+     */
+    ScheduleSolver(ConflictIndex conflictIndex, Random random) {
+        this.conflictIndex = conflictIndex;
+        this.random = random;
+
+        int courseCount = conflictIndex.getCourseCount();
+        this.masks = new long[courseCount + 1][];
+        this.masks[0] = conflictIndex.newMask();
+        for (int depth = 1; depth <= courseCount; depth++) {
+            masks[depth] = new long[conflictIndex.getWordCount()];
+        }
+        this.assignment = new int[courseCount];
+        Arrays.fill(assignment, -1);
+        this.conflicts = new ScheduleConflicts(conflictIndex);
+    }
+
+    /**
+     * Sets a section to try first for each course.
+     *
+     * @param preferredIds one id per course, or -1 for courses without a preference.
+     */
+    void setPreferred(int[] preferredIds) {
+        this.preferred = preferredIds;
+    }
+
+    /**
+     * Sets a token which stops the search when cancelled.
+     */
+    void setCancellationToken(CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Stops the search once the deadline passes.
+     *
+     * @param deadlineNanos value of {@link System#nanoTime()} to stop at, or 0 for no deadline.
+     */
+    void setDeadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * True if the last search was stopped by its cancellation token or deadline before it could finish.
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Searches for a conflict free schedule.
+     *
+     * @return one section per course, in course order.
+     * @throws NoSchedulesPossibleException if no combination of sections fits together, describing the conflicts behind every dead end found.
+     *                                      Also thrown with the conflicts found so far if the search was stopped, see {@link #isStopped()}.
+     */
+    ArrayList<Section> solve() throws NoSchedulesPossibleException {
+        if (!solved && !search())
+            throw conflicts.toException();
+
+        ArrayList<Section> selectedSections = new ArrayList<>(assignment.length);
+        for (int id : assignment) {
+            selectedSections.add(conflictIndex.getSection(id));
+        }
+        return selectedSections;
+    }
+
+    /**
+     * Searches for a conflict free schedule without building a result or an exception.
+     *
+     * @return true if a schedule was found. Its sections are then returned by {@link #solve()} without searching again.
+     *         False if there is none, or if the search was stopped, see {@link #isStopped()}.
+     */
+    boolean search() {
+        long startTime = System.currentTimeMillis();
+        stopped = false;
+        solved = search(0);
+        Log.i("Schedule Solver", (solved ? "Solved" : stopped ? "Stopped" : "No schedule possible") + " after " + nodesVisited + " nodes in " + (System.currentTimeMillis() - startTime) + "ms");
+        return solved;
+    }
+
+    /**
+     * Obtains the conflicts recorded at every dead end of the search.
+     */
+    ScheduleConflicts getConflicts() {
+        return conflicts;
+    }
+
+    public long getNodesVisited() {
+        return nodesVisited;
+    }
+
+    /**
+     * Assigns the most constrained unassigned course and recurses.
+     *
+     * @param depth number of courses assigned so far
+     * @return true once every course has been assigned
+     */
+    private boolean search(int depth) {
+        if (stopped || (cancellationToken != null && cancellationToken.isCancelled()) || (deadlineNanos != 0 && System.nanoTime() - deadlineNanos >= 0)) {
+            stopped = true;
+            return false;
+        }
+        nodesVisited++;
+        long[] mask = masks[depth];
+
+        // Forward check every unassigned domain and pick the smallest one.
+        int branchCourse = -1;
+        int branchSize = Integer.MAX_VALUE;
+        for (int course = 0; course < assignment.length; course++) {
+            if (assignment[course] != -1)
+                continue;
+            int domainSize = conflictIndex.countInCourse(mask, course);
+            if (domainSize == 0) {
+                recordDeadEnd(course);
+                return false;
+            }
+            if (domainSize < branchSize) {
+                branchCourse = course;
+                branchSize = domainSize;
+            }
+        }
+        if (branchCourse == -1)
+            return true;
+
+        int[] domain = conflictIndex.getSectionIds(mask, branchCourse);
+        if (random != null)
+            Schedule.shuffle(domain, random);
+        if (preferred != null && preferred[branchCourse] != -1)
+            moveToFront(domain, preferred[branchCourse]);
+
+        for (int sectionId : domain) {
+            assignment[branchCourse] = sectionId;
+            conflictIndex.restrict(mask, sectionId, masks[depth + 1]);
+            if (search(depth + 1))
+                return true;
+        }
+        assignment[branchCourse] = -1;
+        return false;
+    }
+
+    private static void moveToFront(int[] domain, int sectionId) {
+        for (int index = 0; index < domain.length; index++) {
+            if (domain[index] == sectionId) {
+                domain[index] = domain[0];
+                domain[0] = sectionId;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records why every section of a course was ruled out by the current assignment.
+     */
+    private void recordDeadEnd(int course) {
+        int[] sectionIds = conflictIndex.getSectionIds(course);
+        boolean anyStatusAllowed = false;
+        for (int sectionId : sectionIds) {
+            if (!conflictIndex.isStatusAllowed(sectionId))
+                continue;
+            anyStatusAllowed = true;
+            if (conflictIndex.getBlockingBlockOutId(sectionId) != -1) {
+                conflicts.add(sectionId, conflictIndex.getBlockingBlockOutId(sectionId));
+                continue;
+            }
+            for (int assignedId : assignment) {
+                if (assignedId != -1 && !conflictIndex.isCompatible(assignedId, sectionId)) {
+                    conflicts.add(sectionId, assignedId);
+                    break;
+                }
+            }
+        }
+        if (!anyStatusAllowed)
+            conflicts.addCourseWithoutOpenSections(course);
+    }
+}
@@ -0,0 +1,350 @@
+package edu.uta.ucs;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Saved schedules in an append-only record file with an in memory index from schedule name to {@link ScheduleSummary}.
+ *
+ * <p>Saving a schedule appends one record and deleting one appends a tombstone, so neither rewrites other schedules.
+ * The index is built once by mapping the file and walking the record headers, without decoding any schedule body, so
+ * {@link #getSummaries()} is cheap. Bodies are read from their offset only when {@link #read(String)} asks for them.</p>
+ *
+ * <p>Records overwritten or deleted stay in the file until it is compacted. Once they take up more than half of the
+ * file, a background thread copies the live records to a new file and swaps it in.</p>
+ *
+ * <p>Each record is: byte type ({@link #RECORD_PUT} or {@link #RECORD_DELETE}), short name length, name in UTF-8,
+ * for a put the int semester number, int section count and long last modified time of its summary, then int body
+ * length, int CRC32 of the body, body in UTF-8. A record cut short by a crash, or whose body does not match
+ * its checksum, is skipped the next time the file is opened: reading resumes at the next valid record, and damaged
+ * bytes at the end of the file are dropped.</p>
+ */
+class ScheduleStore {
+
+    static final String FILE_NAME = "schedules.log";
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+    /** Bytes of a put record other than its name and body. */
+    private static final int PUT_HEADER_BYTES = 1 + 2 + 4 + 4 + 8 + 4 + 4;
+    /** Files smaller than this are never compacted, however much of them is dead. */
+    private static final long COMPACT_MIN_BYTES = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static ScheduleStore instance;
+
+    private final File file;
+    /** Summary and body location of each live schedule, by name, in the order the schedules were first saved. */
+    private final LinkedHashMap<String, ScheduleSummary> index = new LinkedHashMap<>();
+    private RandomAccessFile recordFile;
+    /** Bytes of the records of live schedules, headers included. Everything else in the file is dead. */
+    private long liveBytes = 0;
+    private boolean compacting = false;
+
+    /**
+     * Opens a store file. The app uses {@link #getInstance(Context)}; this is for other files.
+     */
+    ScheduleStore(File file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    /**
+     * Obtains the store for this app, opening it on first use.
+     */
+    static synchronized ScheduleStore getInstance(Context context) throws IOException {
+        if (instance == null)
+            instance = new ScheduleStore(new File(context.getFilesDir(), FILE_NAME));
+        return instance;
+    }
+
+    /**
+     * @return true if no schedules are saved.
+     */
+    synchronized boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    /**
+     * Obtains the summaries of all saved schedules, without reading any schedule.
+     */
+    synchronized ArrayList<ScheduleSummary> getSummaries() {
+        return new ArrayList<>(index.values());
+    }
+
+    synchronized boolean contains(String name) {
+        return index.containsKey(name);
+    }
+
+    /**
+     * Reads the saved body of a schedule.
+     *
+     * @return the body as it was saved, or null if no schedule with this name is saved.
+     */
+    synchronized String read(String name) throws IOException {
+        ScheduleSummary summary = index.get(name);
+        if (summary == null)
+            return null;
+        ByteBuffer body = ByteBuffer.allocate(summary.bodyLength);
+        FileChannel channel = recordFile.getChannel();
+        // A single read may return fewer bytes than asked for
+        while (body.hasRemaining()) {
+            if (channel.read(body, summary.bodyOffset + body.position()) < 0)
+                throw new IOException("Schedule " + name + " is cut short");
+        }
+        return new String(body.array(), UTF_8);
+    }
+
+    /**
+     * Saves a schedule body under the name of its summary, replacing any schedule saved with that name.
+     */
+    synchronized void put(ScheduleSummary summary, String body) throws IOException {
+        byte[] bodyBytes = body.getBytes(UTF_8);
+        long recordStart = recordFile.length();
+        byte[] record = encodeRecord(RECORD_PUT, summary, bodyBytes);
+        recordFile.seek(recordStart);
+        recordFile.write(record);
+
+        summary.bodyOffset = recordStart + record.length - bodyBytes.length;
+        summary.bodyLength = bodyBytes.length;
+        ScheduleSummary previous = index.put(summary.getName(), summary);
+        if (previous != null)
+            liveBytes -= recordLength(previous);
+        liveBytes += record.length;
+        compactIfWasteful();
+    }
+
+    /**
+     * Deletes the schedule saved under a name by appending a tombstone.
+     */
+    synchronized void remove(String name) throws IOException {
+        ScheduleSummary previous = index.remove(name);
+        if (previous == null)
+            return;
+        recordFile.seek(recordFile.length());
+        recordFile.write(encodeRecord(RECORD_DELETE, new ScheduleSummary(name, 0, 0, 0), new byte[0]));
+        liveBytes -= recordLength(previous);
+        compactIfWasteful();
+    }
+
+    /**
+     * Replaces every saved schedule with the ones provided, writing a new file instead of appending.
+     *
+     * @param summaries summaries of the schedules, in the order they should be listed
+     * @param bodies body of each schedule, in the same order as the summaries
+     */
+    synchronized void replaceAll(ArrayList<ScheduleSummary> summaries, ArrayList<String> bodies) throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        try {
+            for (int index = 0; index < summaries.size(); index++) {
+                output.write(encodeRecord(RECORD_PUT, summaries.get(index), bodies.get(index).getBytes(UTF_8)));
+            }
+        } finally {
+            output.close();
+        }
+        swapIn(temporaryFile);
+    }
+
+    /**
+     * Deletes every saved schedule, emptying the file.
+     */
+    synchronized void clear() throws IOException {
+        recordFile.setLength(0);
+        index.clear();
+        liveBytes = 0;
+    }
+
+    /**
+     * Builds the index by walking the record headers of the mapped file. A damaged record is skipped by looking for
+     * the next valid record one byte at a time, so one bad record does not lose the records saved after it.
+     */
+    private void open() throws IOException {
+        long startTime = System.currentTimeMillis();
+        recordFile = new RandomAccessFile(file, "rw");
+        index.clear();
+        liveBytes = 0;
+
+        FileChannel channel = recordFile.getChannel();
+        long fileLength = channel.size();
+        long validLength = 0;
+        if (fileLength > 0) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileLength);
+            int recordStart = 0;
+            while (recordStart < fileLength) {
+                buffer.position(recordStart);
+                if (readRecord(buffer)) {
+                    if (recordStart > validLength)
+                        Log.e("Schedule Store", "Skipped " + (recordStart - validLength) + " bytes of damaged records at " + validLength);
+                    recordStart = buffer.position();
+                    validLength = recordStart;
+                } else {
+                    recordStart++;
+                }
+            }
+        }
+        if (validLength < fileLength) {
+            Log.e("Schedule Store", "Dropping " + (fileLength - validLength) + " bytes of incomplete records");
+            recordFile.setLength(validLength);
+        }
+        Log.i("Schedule Store", "Indexed " + index.size() + " schedules in " + validLength + " bytes in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    /**
+     * Reads the record at the position of the buffer into the index and moves past it.
+     *
+     * @return false if the record is incomplete or damaged.
+     */
+    private boolean readRecord(MappedByteBuffer buffer) {
+        if (buffer.remaining() < 3)
+            return false;
+        byte type = buffer.get();
+        int nameLength = buffer.getShort() & 0xFFFF;
+        if ((type != RECORD_PUT && type != RECORD_DELETE) || buffer.remaining() < nameLength + 8)
+            return false;
+        byte[] nameBytes = new byte[nameLength];
+        buffer.get(nameBytes);
+        int semesterNumber = 0;
+        int sectionCount = 0;
+        long lastModified = 0;
+        if (type == RECORD_PUT) {
+            if (buffer.remaining() < 24)
+                return false;
+            semesterNumber = buffer.getInt();
+            sectionCount = buffer.getInt();
+            lastModified = buffer.getLong();
+        }
+        int bodyLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (bodyLength < 0 || buffer.remaining() < bodyLength)
+            return false;
+
+        long bodyOffset = buffer.position();
+        CRC32 crc = new CRC32();
+        for (int offset = 0; offset < bodyLength; offset++) {
+            crc.update(buffer.get());
+        }
+        if ((int) crc.getValue() != checksum)
+            return false;
+
+        String name = new String(nameBytes, UTF_8);
+        ScheduleSummary previous;
+        if (type == RECORD_PUT) {
+            ScheduleSummary summary = new ScheduleSummary(name, semesterNumber, sectionCount, lastModified);
+            summary.bodyOffset = bodyOffset;
+            summary.bodyLength = bodyLength;
+            previous = index.put(name, summary);
+            liveBytes += PUT_HEADER_BYTES + nameLength + bodyLength;
+        } else {
+            previous = index.remove(name);
+        }
+        if (previous != null)
+            liveBytes -= recordLength(previous);
+        return true;
+    }
+
+    /**
+     * @return bytes taken by the put record of a saved schedule, header included.
+     */
+    private static long recordLength(ScheduleSummary summary) {
+        return PUT_HEADER_BYTES + summary.getName().getBytes(UTF_8).length + summary.bodyLength;
+    }
+
+    /**
+     * Encodes a record. Only the name of the summary is written for a tombstone.
+     */
+    private static byte[] encodeRecord(byte type, ScheduleSummary summary, byte[] body) throws IOException {
+        byte[] nameBytes = summary.getName().getBytes(UTF_8);
+        if (nameBytes.length > 0xFFFF)
+            throw new IOException("Schedule name is too long to save");
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream(nameBytes.length + body.length + 27);
+        DataOutputStream output = new DataOutputStream(record);
+        output.writeByte(type);
+        output.writeShort(nameBytes.length);
+        output.write(nameBytes);
+        if (type == RECORD_PUT) {
+            output.writeInt(summary.getSemesterNumber());
+            output.writeInt(summary.getSectionCount());
+            output.writeLong(summary.getLastModified());
+        }
+        output.writeInt(body.length);
+        output.writeInt((int) crc.getValue());
+        output.write(body);
+        output.flush();
+        return record.toByteArray();
+    }
+
+    /**
+     * Starts compaction in the background if dead records take up more than half of a file of some size.
+     */
+    private void compactIfWasteful() throws IOException {
+        long fileLength = recordFile.length();
+        if (compacting || fileLength < COMPACT_MIN_BYTES || liveBytes * 2 > fileLength)
+            return;
+        compacting = true;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    Log.e("Schedule Store", "Compaction failed, keeping the current file");
+                } finally {
+                    synchronized (ScheduleStore.this) {
+                        compacting = false;
+                    }
+                }
+            }
+        }, "Schedule Store Compaction");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * Copies the live records to a new file and swaps it in. Holds the store lock throughout, so saves wait for it rather than being lost.
+     */
+    private synchronized void compact() throws IOException {
+        long startTime = System.currentTimeMillis();
+        long oldLength = recordFile.length();
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        try {
+            for (ScheduleSummary summary : index.values()) {
+                output.write(encodeRecord(RECORD_PUT, summary, read(summary.getName()).getBytes(UTF_8)));
+            }
+        } finally {
+            output.close();
+        }
+        swapIn(temporaryFile);
+        Log.i("Schedule Store", "Compacted " + oldLength + " bytes to " + recordFile.length() + " in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private void swapIn(File temporaryFile) throws IOException {
+        recordFile.close();
+        boolean replaced = temporaryFile.renameTo(file);
+        if (!replaced && !temporaryFile.delete())
+            Log.e("Schedule Store", "Could not delete " + temporaryFile.getPath());
+        open();
+        if (!replaced)
+            throw new IOException("Could not replace " + file.getPath());
+    }
+}
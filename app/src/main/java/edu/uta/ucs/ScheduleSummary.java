@@ -0,0 +1,66 @@
+package edu.uta.ucs;
+
+/**
+ * What the schedule list needs to know about a saved schedule, kept in the {@link ScheduleStore} index so that listing
+ * schedules never decodes one.
+ */
+class ScheduleSummary {
+
+    private final String name;
+    private final int semesterNumber;
+    private final int sectionCount;
+    private final long lastModified;
+
+    /** Position of the saved schedule body in the store file, set by {@link ScheduleStore}. */
+    long bodyOffset;
+    int bodyLength;
+
+    /**
+     * @param name name of the schedule
+     * @param semesterNumber Semester Number the schedule is built for
+     * @param sectionCount number of course sections in the schedule, not counting block-out times
+     * @param lastModified time the schedule was last saved, in milliseconds since the epoch
+     */
+    ScheduleSummary(String name, int semesterNumber, int sectionCount, long lastModified) {
+        this.name = name;
+        this.semesterNumber = semesterNumber;
+        this.sectionCount = sectionCount;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Summarizes a schedule about to be saved.
+     */
+    static ScheduleSummary of(Schedule schedule) {
+        int sectionCount = 0;
+        for (Section section : schedule.getSelectedSections()) {
+            if (section.getSourceCourse() == null || !section.getSourceCourse().getDepartmentAcronym().equalsIgnoreCase("BLOCKOUT"))
+                sectionCount++;
+        }
+        return new ScheduleSummary(schedule.getName(), schedule.getSemesterNumber(), sectionCount, System.currentTimeMillis());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getSemesterNumber() {
+        return semesterNumber;
+    }
+
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the schedule name, as shown in schedule lists.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,249 @@
+package edu.uta.ucs;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.content.LocalBroadcastManager;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks the sections of several schedules of one semester for status changes with a single request.
+ *
+ * <p>The section IDs of every schedule are gathered into one deduplicated GetSectionInfo request. The response is
+ * turned into a section ID to status map once, and each schedule is then updated in time linear in its own sections,
+ * instead of comparing every selected section with every fetched section.</p>
+ */
+class ScheduleVerifier {
+
+    /**
+     * Callback for {@link #verify(Context, VerificationListener)}. Always called on the main thread.
+     */
+    interface VerificationListener {
+
+        /**
+         * Called once the statuses have been applied. Changed schedules have already been saved.
+         *
+         * @param verifier the verifier which finished
+         * @param notifications one line per section whose status changed, prefixed by its schedule name. Empty if nothing changed.
+         */
+        void onVerified(ScheduleVerifier verifier, ArrayList<String> notifications);
+
+        /**
+         * Called if the server could not be reached or answered with an error. No schedule was changed.
+         *
+         * @param message reason given by the server, or null
+         */
+        void onVerificationFailed(ScheduleVerifier verifier, String message);
+    }
+
+    private static final String ACTION_VERIFY_SCHEDULES = "edu.uta.ucs.ACTION_VERIFY_SCHEDULES.";
+    /** Numbers each verify request, so that requests running at once each get their own response. */
+    private static final AtomicInteger requestCount = new AtomicInteger();
+
+    private final int semesterNumber;
+    private final ArrayList<Schedule> schedules;
+
+    /**
+     * @param semesterNumber Semester Number all schedules are built for
+     * @param schedules schedules to verify. Schedules of any other semester are left out.
+     */
+    ScheduleVerifier(int semesterNumber, ArrayList<Schedule> schedules) {
+        this.semesterNumber = semesterNumber;
+        this.schedules = new ArrayList<>(schedules.size());
+        for (Schedule schedule : schedules) {
+            if (schedule.getSemesterNumber() == semesterNumber)
+                this.schedules.add(schedule);
+        }
+    }
+
+    /**
+     * Builds one verifier per semester which has saved schedules, in the order the schedules were first saved.
+     */
+    static ArrayList<ScheduleVerifier> forSavedSchedules() {
+        LinkedHashMap<Integer, ArrayList<Schedule>> schedulesBySemester = new LinkedHashMap<>();
+        for (ScheduleSummary summary : Schedule.loadScheduleSummariesFromFile()) {
+            Schedule schedule = Schedule.loadScheduleFromFile(summary.getName());
+            if (schedule == null)
+                continue;
+            ArrayList<Schedule> semesterSchedules = schedulesBySemester.get(schedule.getSemesterNumber());
+            if (semesterSchedules == null) {
+                semesterSchedules = new ArrayList<>();
+                schedulesBySemester.put(schedule.getSemesterNumber(), semesterSchedules);
+            }
+            semesterSchedules.add(schedule);
+        }
+
+        ArrayList<ScheduleVerifier> verifiers = new ArrayList<>(schedulesBySemester.size());
+        for (Integer semester : schedulesBySemester.keySet()) {
+            verifiers.add(new ScheduleVerifier(semester, schedulesBySemester.get(semester)));
+        }
+        return verifiers;
+    }
+
+    /**
+     * Builds the GetSectionInfo url for a set of sections. Block-out times have no UTA class number and are left out.
+     *
+     * @param semesterNumber Semester Number of the sections
+     * @param sections sections to check. Sections listed more than once are only requested once.
+     * @return url relative to the server domain, or null if there is no section to check.
+     */
+    static String buildURL(int semesterNumber, ArrayList<Section> sections) {
+        LinkedHashSet<Integer> sectionIDs = new LinkedHashSet<>();
+        for (Section section : sections) {
+            if (section.getSectionID() >= 0)
+                sectionIDs.add(section.getSectionID());
+        }
+        if (sectionIDs.isEmpty())
+            return null;
+
+        StringBuilder classNumberParam = new StringBuilder(UserData.getContext().getString(R.string.validate_courses_param_sections));
+        for (Integer sectionID : sectionIDs) {
+            classNumberParam.append(sectionID).append(",");
+        }
+        classNumberParam.setLength(classNumberParam.length() - 1);
+
+        return UserData.getContext().getString(R.string.validate_courses_base) + UserData.getContext().getString(R.string.validate_courses_param_semester) + semesterNumber + classNumberParam;
+    }
+
+    /**
+     * @return url checking every section of every schedule in this verifier, or null if they have no section to check.
+     */
+    String getURL() {
+        ArrayList<Section> sections = new ArrayList<>();
+        for (Schedule schedule : schedules) {
+            sections.addAll(schedule.getSelectedSections());
+        }
+        return buildURL(semesterNumber, sections);
+    }
+
+    /**
+     * Maps the section ID of every fetched section to its status.
+     */
+    static HashMap<Integer, ClassStatus> readStatuses(ArrayList<Course> fetchedCourses) {
+        HashMap<Integer, ClassStatus> statuses = new HashMap<>();
+        for (Course course : fetchedCourses) {
+            for (Section section : course.getSectionList()) {
+                statuses.put(section.getSectionID(), section.getStatus());
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * Updates the status of each section of a schedule which is in the fetched statuses.
+     *
+     * @return one line per section whose status changed.
+     */
+    static ArrayList<String> applyStatuses(Schedule schedule, HashMap<Integer, ClassStatus> statuses) {
+        ArrayList<String> notifications = new ArrayList<>();
+        for (Section section : schedule.getSelectedSections()) {
+            ClassStatus fetchedStatus = statuses.get(section.getSectionID());
+            if (fetchedStatus != null && section.getStatus() != fetchedStatus) {
+                String notification = section.getDescription() + " status has changed to: " + fetchedStatus.toString().replace("_", " ");
+                Log.i("Schedule Verifier", "Detected status change: " + notification);
+                notifications.add(notification);
+                section.setStatus(fetchedStatus);
+            }
+        }
+        return notifications;
+    }
+
+    /**
+     * Fans fetched statuses out to every schedule of this verifier and saves the schedules which changed.
+     * A changed schedule is loaded again right before it is saved and only its statuses are updated, since the user may
+     * have edited or deleted it while the request was out. Deleted schedules are left deleted.
+     *
+     * @return one line per section whose status changed, prefixed by its schedule name.
+     */
+    ArrayList<String> apply(HashMap<Integer, ClassStatus> statuses) {
+        ArrayList<String> notifications = new ArrayList<>();
+        for (int index = 0; index < schedules.size(); index++) {
+            Schedule schedule = schedules.get(index);
+            if (applyStatuses(schedule, statuses).isEmpty())
+                continue;
+            Schedule savedSchedule = Schedule.loadScheduleFromFile(schedule.getName());
+            if (savedSchedule == null) {
+                Log.i("Schedule Verifier", "Schedule " + schedule.getName() + " was deleted, not saving its statuses");
+                continue;
+            }
+            ArrayList<String> scheduleNotifications = applyStatuses(savedSchedule, statuses);
+            if (scheduleNotifications.isEmpty())
+                continue;
+            for (String notification : scheduleNotifications) {
+                notifications.add(savedSchedule.getName() + ": " + notification);
+            }
+            Schedule.saveScheduleToFile(savedSchedule);
+            schedules.set(index, savedSchedule);
+        }
+        return notifications;
+    }
+
+    /**
+     * Sends the request and applies its response when it arrives. Nothing is sent if the schedules have no section to check.
+     *
+     * @param context context to send the request and receive its response with
+     * @param listener told about the result on the main thread
+     */
+    void verify(Context context, final VerificationListener listener) {
+        String url = getURL();
+        if (url == null) {
+            // Posted so that the listener is never called before verify returns
+            new Handler(Looper.getMainLooper()).post(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onVerified(ScheduleVerifier.this, new ArrayList<String>());
+                }
+            });
+            return;
+        }
+
+        // Each request gets its own tag, since reading a response deletes it
+        String receiverTag = ACTION_VERIFY_SCHEDULES + semesterNumber + "." + requestCount.incrementAndGet();
+        final LocalBroadcastManager broadcastManager = LocalBroadcastManager.getInstance(context);
+        broadcastManager.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                broadcastManager.unregisterReceiver(this);
+                CourseResponse response;
+                try {
+                    response = CourseResponse.read(intent);
+                } catch (JSONException e) {
+                    e.printStackTrace();
+                    listener.onVerificationFailed(ScheduleVerifier.this, null);
+                    return;
+                }
+                if (!response.isSuccess()) {
+                    listener.onVerificationFailed(ScheduleVerifier.this, response.getMessage());
+                    return;
+                }
+                ArrayList<String> notifications = apply(readStatuses(response.getCourses()));
+                Log.i("Schedule Verifier", "Verified " + schedules.size() + " schedules of semester " + semesterNumber + ", " + notifications.size() + " changes");
+                listener.onVerified(ScheduleVerifier.this, notifications);
+            }
+        }, new IntentFilter(receiverTag));
+
+        HTTPService.FetchURL(url, receiverTag, context, true);
+    }
+
+    public int getSemesterNumber() {
+        return semesterNumber;
+    }
+
+    /**
+     * @return the schedules being verified, all of {@link #getSemesterNumber()}.
+     */
+    public ArrayList<Schedule> getSchedules() {
+        return schedules;
+    }
+}
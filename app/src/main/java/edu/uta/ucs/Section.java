@@ -163,6 +163,19 @@ public class Section {
     private ClassStatus status;
     private Course sourceCourse;
 
+    /** Bits of {@link #occupancy} holding one flag per {@link Day}, indexed by {@link Day#ordinal()}.*/
+    private static final int DAY_BITS = 0x7F;
+    /** Width of each packed minute-after-midnight value. 11 bits covers the 1440 minutes of a day.*/
+    private static final int MINUTE_BITS = 0x7FF;
+    private static final int START_SHIFT = 7;
+    private static final int END_SHIFT = 18;
+
+    /**
+     * Weekly occupancy of this section packed as [end minute:11][start minute:11][day mask:7].
+     * Rebuilt whenever the days or times change so {@link #conflictsWith(Section)} can compare two sections with a few integer operations.
+     */
+    private int occupancy;
+
     /**
      * Constructor
      *
@@ -227,20 +240,10 @@ public class Section {
 
         this.setInstructors(jsonObject.getString("Instructor"));
 
-        String times[] = jsonObject.getString("MeetingTime").split("-");
-        Log.i("New Start Time", times[0]);
-        if (times[0].equalsIgnoreCase("UNKNOWN/TBA")){
-            startTime=(new TimeShort(0,0));
-            endTime=(new TimeShort(0,0));
-        }
-        else if (!times[0].equalsIgnoreCase("TBA")) {
-            startTime=(new TimeShort(times[0]));
-            endTime=(new TimeShort(times[1]));
-        }
-        else{
-            startTime=(new TimeShort(0,0));
-            endTime=(new TimeShort(0,0));
-        }
+        TimeShort times[] = parseMeetingTime(jsonObject.getString("MeetingTime"));
+        Log.i("New Start Time", times[0].toString24h());
+        startTime = times[0];
+        endTime = times[1];
 
         JSONArray jsonDaysArray = jsonObject.getJSONArray("MeetingDays");
         Log.i("New Section Days List", jsonDaysArray.toString());
@@ -258,12 +261,32 @@ public class Section {
             Log.i("Day in Section", day.toString());
         }
         Log.i("New Section Days", days.toString());
+        updateOccupancy();
 
-        this.setStatus(ClassStatus.valueOf(jsonObject.getString("Status").toUpperCase().replace(" ", "_")));
+        this.setStatus(parseStatus(jsonObject.getString("Status")));
 
         this.setSourceCourse(sourceCourse);
     }
 
+    /**
+     * Parses a meeting time as sent by the server, such as "8:00AM-8:50AM".
+     * Sections whose time is not known yet ("TBA" or "UNKNOWN/TBA") meet from midnight to midnight.
+     * @return two element array of start time and end time
+     */
+    static TimeShort[] parseMeetingTime(String meetingTime) {
+        String times[] = meetingTime.split("-");
+        if (times[0].equalsIgnoreCase("UNKNOWN/TBA") || times[0].equalsIgnoreCase("TBA"))
+            return new TimeShort[]{new TimeShort(0, 0), new TimeShort(0, 0)};
+        return new TimeShort[]{new TimeShort(times[0]), new TimeShort(times[1])};
+    }
+
+    /**
+     * Parses a class status as sent by the server, such as "Open" or "Wait List".
+     */
+    static ClassStatus parseStatus(String status) {
+        return ClassStatus.valueOf(status.toUpperCase().replace(" ", "_"));
+    }
+
     /**
      * Outputs a JSONObject matching the JSONObject used in {@link #Section(JSONObject, Course)}.
      * @return JSONObject
@@ -337,6 +360,73 @@ public class Section {
 
     public void setDays(ArrayList<Day> days) {
         this.days = days;
+        updateOccupancy();
+    }
+
+    /**
+     * Packs the meeting days and times of this section into {@link #occupancy}.
+     * Sections without times yet (see {@link #Section()}) are treated as meeting from midnight to midnight.
+     */
+    private void updateOccupancy() {
+        int dayMask = 0;
+        if (days != null) {
+            for (Day day : days) {
+                dayMask |= 1 << day.ordinal();
+            }
+        }
+        int start = startTime != null ? startTime.getMinAfterMidnight() : 0;
+        int end = endTime != null ? endTime.getMinAfterMidnight() : 0;
+        occupancy = dayMask | ((start & MINUTE_BITS) << START_SHIFT) | ((end & MINUTE_BITS) << END_SHIFT);
+    }
+
+    /**
+     * Obtains the days this section meets on as a bitmask with one bit per {@link Day}, indexed by {@link Day#ordinal()}.
+     */
+    int getDayMask() {
+        return occupancy & DAY_BITS;
+    }
+
+    /**
+     * Obtains the start time of this section in minutes after midnight.
+     */
+    int getStartMinute() {
+        return (occupancy >>> START_SHIFT) & MINUTE_BITS;
+    }
+
+    /**
+     * Obtains the end time of this section in minutes after midnight.
+     */
+    int getEndMinute() {
+        return (occupancy >>> END_SHIFT) & MINUTE_BITS;
+    }
+
+    /**
+     * Checks whether this section meets at a known time. Sections without days, and "TBA" sections which meet from
+     * midnight to midnight, do not, and {@link #conflictsWith(Section)} never finds them in conflict with a timed section.
+     */
+    boolean hasMeetingTime() {
+        return getDayMask() != 0 && getEndMinute() > getStartMinute();
+    }
+
+    /**
+     * Checks whether two sections meet on the same days at the same times, so that they conflict with exactly the same sections.
+     */
+    boolean meetsAtSameTimeAs(Section section) {
+        return occupancy == section.occupancy;
+    }
+
+    /**
+     * Checks whether two sections have the same ID and meet at the same times, so that an index built over one can stand in for the other.
+     */
+    boolean isSameSectionAs(Section section) {
+        return sectionID == section.sectionID && meetsAtSameTimeAs(section);
+    }
+
+    /**
+     * Checks whether two block-out times have the same name and meet at the same times. Block-out times all share the same negative ID.
+     */
+    boolean isSameBlockOutTimeAs(Section section) {
+        return isSameSectionAs(section) && (instructors == null ? section.instructors == null : instructors.equals(section.instructors));
     }
 
     public ClassStatus getStatus() {
@@ -406,26 +496,25 @@ public class Section {
      *          <ul/>
      */
     public boolean conflictsWith(Section section) {
-        Log.i("Section Conflict Check", "Comparing sections: \n" + toJSON() + " to \n" + section.toJSON().toString());
-        boolean returnValue;
-        if (!Collections.disjoint(days, section.days)) {     // If there is overlap between the two sets of days conflict is possible, run checks
+        int other = section.occupancy;
 
-            if (endTime.equals(section.endTime))                  // If this section's end time equals the other section's end time
-                return true;
+        if ((occupancy & other & DAY_BITS) == 0)                // Days are disjoint, no conflict possible
+            return false;
 
-            if (startTime.before(section.startTime))             // If this section starts before the other section
-                return section.startTime.before(endTime);            //  check to see if this section ends before other section begins
+        int start = (occupancy >>> START_SHIFT) & MINUTE_BITS;
+        int end = (occupancy >>> END_SHIFT) & MINUTE_BITS;
+        int otherStart = (other >>> START_SHIFT) & MINUTE_BITS;
+        int otherEnd = (other >>> END_SHIFT) & MINUTE_BITS;
 
-            // If this section starts after the other section
-            //  check to see if other section ends before this section begins
-            returnValue =  !section.startTime.before(startTime) || startTime.before(section.endTime);
+        if (end == otherEnd)                                    // If this section's end time equals the other section's end time
+            return true;
 
-        } else returnValue =  false;                                                // Days are disjoint, no conflict possible
+        if (start < otherStart)                                 // If this section starts before the other section
+            return otherStart < end;                            //  check to see if this section ends before other section begins
 
-        if(returnValue)
-            Log.w("Schedule Conflict Error", "Conflict between " + getSourceCourse().getCourseTitle() + " " + getSourceCourse().getCourseNumber() + "-" + getSectionNumber() + " and "
-                    + section.getSourceCourse().getCourseTitle() + " " + section.getSourceCourse().getCourseNumber() + "-" + section.getSectionNumber());
-        return returnValue;
+        // If this section starts with or after the other section
+        //  check to see if other section ends before this section begins
+        return start == otherStart || start < otherEnd;
     }
 
     /**
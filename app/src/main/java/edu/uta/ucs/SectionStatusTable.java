@@ -0,0 +1,132 @@
+package edu.uta.ucs;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Last known status of every section the {@link SectionStatusWatcher} watches, so that each poll only reports what
+ * changed since the one before.
+ *
+ * <p>Kept in a small binary file, read whole on open and replaced whole on save. Layout, with every int big endian:</p>
+ *
+ * <li>Header: int magic "UCSS", int {@link #VERSION}, int section count</li>
+ * <li>Sections, 9 bytes each: int semester number, int section ID, byte {@link ClassStatus} ordinal</li>
+ */
+class SectionStatusTable {
+
+    static final String FILE_NAME = "section_status.bin";
+
+    private static final int MAGIC = 0x55435353;
+    /** Increase whenever the layout changes. Files with another version are ignored and rebuilt. */
+    private static final int VERSION = 1;
+
+    private final File file;
+    /** Status by {@link #key(int, int)}. */
+    private final HashMap<Long, ClassStatus> statuses = new HashMap<>();
+
+    private SectionStatusTable(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the table saved for this app. A missing or unreadable table opens empty.
+     */
+    static SectionStatusTable open(Context context) {
+        return open(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Opens a table file. A missing or unreadable file opens empty.
+     */
+    static SectionStatusTable open(File file) {
+        SectionStatusTable table = new SectionStatusTable(file);
+        if (!file.exists())
+            return table;
+        ClassStatus[] classStatuses = ClassStatus.values();
+        try {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if (input.readInt() != MAGIC || input.readInt() != VERSION)
+                    throw new IOException("Not a section status table");
+                int count = input.readInt();
+                for (int index = 0; index < count; index++) {
+                    long key = key(input.readInt(), input.readInt());
+                    int ordinal = input.readByte();
+                    if (ordinal >= 0 && ordinal < classStatuses.length)
+                        table.statuses.put(key, classStatuses[ordinal]);
+                }
+            } finally {
+                input.close();
+            }
+        } catch (EOFException e) {
+            Log.e("Section Status Table", "Table is truncated, keeping " + table.statuses.size() + " sections");
+        } catch (IOException e) {
+            e.printStackTrace();
+            table.statuses.clear();
+        }
+        return table;
+    }
+
+    /**
+     * Combines a semester number and section ID into one key. UTA class numbers are only unique within a semester.
+     */
+    static long key(int semesterNumber, int sectionID) {
+        return ((long) semesterNumber << 32) | (sectionID & 0xffffffffL);
+    }
+
+    /**
+     * Records the status of a section.
+     *
+     * @return the status it replaces, or null if the section had not been seen yet.
+     */
+    ClassStatus put(int semesterNumber, int sectionID, ClassStatus status) {
+        return statuses.put(key(semesterNumber, sectionID), status);
+    }
+
+    /**
+     * Forgets every section whose key is not in the given set, such as sections of schedules which were deleted.
+     */
+    void retain(HashSet<Long> keys) {
+        Iterator<Long> iterator = statuses.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!keys.contains(iterator.next()))
+                iterator.remove();
+        }
+    }
+
+    /**
+     * Writes the table. The file is replaced only once the new one is complete.
+     */
+    void save() throws IOException {
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(statuses.size());
+            for (Map.Entry<Long, ClassStatus> entry : statuses.entrySet()) {
+                output.writeInt((int) (entry.getKey() >>> 32));
+                output.writeInt((int) entry.getKey().longValue());
+                output.writeByte(entry.getValue().ordinal());
+            }
+        } finally {
+            output.close();
+        }
+        if (!temporaryFile.renameTo(file))
+            throw new IOException("Could not replace " + file.getPath());
+    }
+}
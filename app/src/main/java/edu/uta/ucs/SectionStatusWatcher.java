@@ -0,0 +1,229 @@
+package edu.uta.ucs;
+
+import android.app.AlarmManager;
+import android.app.IntentService;
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.SystemClock;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Polls the status of every section of every saved schedule in the background and notifies the user of changes,
+ * so a closed section does not go unnoticed until verify is pressed in {@link DetailedSchedule}.
+ *
+ * <p>Each poll sends one {@link ScheduleVerifier} request per semester as a conditional request. A semester whose
+ * response has not changed since the last poll is skipped without being read. Fetched statuses are compared with the
+ * {@link SectionStatusTable}, and only the differences are reported, once per section even if several schedules hold
+ * it.</p>
+ *
+ * <p>Polls are scheduled with an inexact, non waking alarm every R.integer.sectionStatusPollMinutes. The interval
+ * doubles after each failed poll, up to {@link #MAX_BACKOFF_STEPS} times. Polling stops once no schedule is saved.</p>
+ */
+public class SectionStatusWatcher extends IntentService {
+
+    private static final String PREFERENCES = "SectionStatusWatcher";
+    private static final String FAILED_POLLS = "failedPolls";
+    private static final int MAX_BACKOFF_STEPS = 4;
+    private static final int NOTIFICATION_ID = 1;
+
+    public SectionStatusWatcher() {
+        super("SectionStatusWatcher");
+    }
+
+    /**
+     * Starts polling if it is not scheduled already. A poll already scheduled keeps its time.
+     *
+     * @param context context to schedule with
+     */
+    public static void schedule(Context context) {
+        Intent intent = new Intent(context, SectionStatusWatcher.class);
+        if (PendingIntent.getService(context, 0, intent, PendingIntent.FLAG_NO_CREATE) != null)
+            return;
+        scheduleNext(context, 0);
+    }
+
+    /**
+     * Stops polling.
+     */
+    public static void cancel(Context context) {
+        Intent intent = new Intent(context, SectionStatusWatcher.class);
+        PendingIntent pendingIntent = PendingIntent.getService(context, 0, intent, PendingIntent.FLAG_NO_CREATE);
+        if (pendingIntent != null) {
+            ((AlarmManager) context.getSystemService(Context.ALARM_SERVICE)).cancel(pendingIntent);
+            pendingIntent.cancel();
+        }
+    }
+
+    private static void scheduleNext(Context context, int failedPolls) {
+        long interval = context.getResources().getInteger(R.integer.sectionStatusPollMinutes) * 60 * 1000L;
+        interval <<= Math.min(failedPolls, MAX_BACKOFF_STEPS);
+
+        Intent intent = new Intent(context, SectionStatusWatcher.class);
+        PendingIntent pendingIntent = PendingIntent.getService(context, 0, intent, PendingIntent.FLAG_UPDATE_CURRENT);
+        // Not waking the device up: a poll due while it sleeps waits until something else wakes it
+        ((AlarmManager) context.getSystemService(Context.ALARM_SERVICE)).set(AlarmManager.ELAPSED_REALTIME, SystemClock.elapsedRealtime() + interval, pendingIntent);
+        Log.i("Section Status Watcher", "Next poll in " + interval / 60000 + " minutes");
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        SharedPreferences preferences = getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        int failedPolls = preferences.getInt(FAILED_POLLS, 0);
+
+        ArrayList<ScheduleVerifier> verifiers = ScheduleVerifier.forSavedSchedules();
+        if (verifiers.isEmpty()) {
+            Log.i("Section Status Watcher", "No saved schedules, polling stopped");
+            preferences.edit().remove(FAILED_POLLS).apply();
+            cancel(this);
+            return;
+        }
+
+        if (!isConnected()) {
+            Log.i("Section Status Watcher", "No connection, skipping poll");
+            scheduleNext(this, failedPolls);
+            return;
+        }
+
+        SectionStatusTable table = SectionStatusTable.open(this);
+        HashSet<Long> watchedSections = new HashSet<>();
+        ArrayList<String> changes = new ArrayList<>();
+        boolean failed = false;
+
+        for (ScheduleVerifier verifier : verifiers) {
+            for (Schedule schedule : verifier.getSchedules()) {
+                for (Section section : schedule.getSelectedSections()) {
+                    watchedSections.add(SectionStatusTable.key(verifier.getSemesterNumber(), section.getSectionID()));
+                }
+            }
+            String url = verifier.getURL();
+            if (url == null)
+                continue;
+            try {
+                HashMap<Integer, ClassStatus> statuses = fetchStatuses(url);
+                if (statuses == null) {
+                    Log.i("Section Status Watcher", "Semester " + verifier.getSemesterNumber() + " has not changed");
+                    continue;
+                }
+                changes.addAll(diff(verifier, statuses, table));
+                verifier.apply(statuses);
+            } catch (IOException | JSONException e) {
+                e.printStackTrace();
+                Log.e("Section Status Watcher", "Could not poll semester " + verifier.getSemesterNumber());
+                failed = true;
+            }
+        }
+
+        table.retain(watchedSections);
+        try {
+            table.save();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        if (!changes.isEmpty())
+            notifyChanges(changes);
+
+        failedPolls = failed ? failedPolls + 1 : 0;
+        preferences.edit().putInt(FAILED_POLLS, failedPolls).apply();
+        scheduleNext(this, failedPolls);
+    }
+
+    /**
+     * Fetches the statuses of the sections in a verify url.
+     *
+     * @return status by section ID, or null if the response has not changed since the last poll.
+     * @throws IOException if the server could not be reached
+     * @throws JSONException if the server answered with an error or an unreadable response
+     */
+    private HashMap<Integer, ClassStatus> fetchStatuses(String url) throws IOException, JSONException {
+        // Cached apart from DetailedSchedule's verify of the same url, which would otherwise hide changes from the table
+        File responseFile = HTTPService.fetchIfModified(this, url, PREFERENCES);
+        if (responseFile == null)
+            return null;
+        try {
+            Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(responseFile), "UTF-8"));
+            CourseResponse response;
+            try {
+                response = CourseResponse.read(reader);
+            } finally {
+                reader.close();
+            }
+            if (!response.isSuccess())
+                throw new JSONException("Verify failed: " + response.getMessage());
+            return ScheduleVerifier.readStatuses(response.getCourses());
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            responseFile.delete();
+        }
+    }
+
+    /**
+     * Records fetched statuses in the table and describes each section whose status differs from the last known one.
+     * A section seen for the first time is compared with the status saved in its schedule.
+     */
+    private static ArrayList<String> diff(ScheduleVerifier verifier, HashMap<Integer, ClassStatus> statuses, SectionStatusTable table) {
+        ArrayList<String> changes = new ArrayList<>();
+        int semesterNumber = verifier.getSemesterNumber();
+        HashSet<Integer> comparedSections = new HashSet<>();
+        for (Schedule schedule : verifier.getSchedules()) {
+            for (Section section : schedule.getSelectedSections()) {
+                ClassStatus fetchedStatus = statuses.get(section.getSectionID());
+                if (fetchedStatus == null || !comparedSections.add(section.getSectionID()))
+                    continue;
+                ClassStatus lastStatus = table.put(semesterNumber, section.getSectionID(), fetchedStatus);
+                if (lastStatus == null)
+                    lastStatus = section.getStatus();
+                if (lastStatus != null && lastStatus != fetchedStatus) {
+                    String change = section.getDescription() + " changed from " + lastStatus.toString().replace("_", " ") + " to " + fetchedStatus.toString().replace("_", " ");
+                    Log.i("Section Status Watcher", change);
+                    changes.add(change);
+                }
+            }
+        }
+        return changes;
+    }
+
+    private void notifyChanges(ArrayList<String> changes) {
+        Intent mainIntent = new Intent(this, MainActivity.class);
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0, mainIntent, PendingIntent.FLAG_UPDATE_CURRENT);
+
+        Notification.InboxStyle inboxStyle = new Notification.InboxStyle();
+        for (String change : changes) {
+            inboxStyle.addLine(change);
+        }
+        String summary = changes.size() == 1 ? changes.get(0) : getString(R.string.section_status_changes, changes.size());
+
+        Notification notification = new Notification.Builder(this)
+                .setSmallIcon(R.mipmap.ic_launcher)
+                .setContentTitle(getString(R.string.section_status_changed))
+                .setContentText(summary)
+                .setStyle(inboxStyle)
+                .setContentIntent(contentIntent)
+                .setAutoCancel(true)
+                .build();
+        ((NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE)).notify(NOTIFICATION_ID, notification);
+    }
+
+    private boolean isConnected() {
+        NetworkInfo networkInfo = ((ConnectivityManager) getSystemService(Context.CONNECTIVITY_SERVICE)).getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+}
@@ -13,6 +13,7 @@ import android.os.Build;
 import android.support.v4.content.LocalBroadcastManager;
 import android.support.v7.app.ActionBarActivity;
 import android.os.Bundle;
+import android.preference.PreferenceManager;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -29,17 +30,35 @@ import android.widget.ListView;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Holds all course info for an entire semester for AutoComplete and filtering of courses for validity
+ *
+ * <p>A semester saved with {@link #toJSONString()} can be loaded lazily with {@link #parse(String)}. Only the department
+ * headers are read up front; the courses of each department are decoded from the saved text the first time
+ * {@link DepartmentInfo#getCourses()} is called, so loading does not grow with the number of courses. The department
+ * offsets found while loading can be saved with {@link #getDepartmentOffsets()} and passed to {@link #parse(String, String)},
+ * which then skips even the scan over the text.</p>
+ *
+ * <p>Semesters saved with {@link #saveSemestersToFile(ArrayList, Context)} are kept in a {@link SemesterCatalog} and
+ * loaded from it without any parsing: departments are read from the catalog index when first listed and courses when
+ * first needed.</p>
  */
 class SemesterInfo{
 
@@ -47,6 +66,15 @@ class SemesterInfo{
     private int semesterNumber;
     private String semesterName;
     private ArrayList<DepartmentInfo> departmentArrayList;
+    /** Departments by upper case acronym. */
+    private HashMap<String, DepartmentInfo> departmentsByAcronym;
+    /** JSON text this semester was parsed from by {@link #parse(String)}, or null if it was built from a JSONObject. */
+    private String source;
+    /** Catalog this semester was loaded from and its position in it, or null if it was not loaded from a catalog. */
+    private SemesterCatalog catalog;
+    private int catalogIndex;
+    /** Autocomplete index of the departments, built when first needed. */
+    private PrefixIndex<DepartmentInfo> departmentIndex;
 
 
     public static ArrayList<SemesterInfo> SemesterInfoFactory(JSONObject SemesterRaw) throws JSONException {
@@ -97,7 +125,307 @@ class SemesterInfo{
         for(int index = departmentJSONArrayRaw.length(); index != 0;index--){
             this.getDepartmentArrayList().add(new DepartmentInfo(departmentJSONArrayRaw.getJSONObject(index - 1)));
             }
+        indexDepartments();
+    }
+
+    private SemesterInfo() {
+    }
+
+    /**
+     * Constructor for a semester saved in a catalog. Departments are read from the catalog when first needed.
+     *
+     * @param catalog catalog holding the semester
+     * @param catalogIndex position of the semester in the catalog
+     */
+    SemesterInfo(SemesterCatalog catalog, int catalogIndex) throws IOException {
+        this.catalog = catalog;
+        this.catalogIndex = catalogIndex;
+        this.semesterNumber = catalog.getSemesterNumber(catalogIndex);
+        this.semesterName = catalog.getSemesterName(catalogIndex);
+    }
+
+    /**
+     * @return true if this semester was loaded from the saved catalog, so it can be found again by its number alone.
+     */
+    boolean isSavedInCatalog() {
+        return catalog != null;
+    }
+
+    /**
+     * Parses a semester saved as JSON text, leaving the courses of every department undecoded until they are needed.
+     *
+     * <p>The text is scanned once. Semester and department headers are read as they are passed, and each department
+     * keeps the offsets of its "CourseNumbers" array in the text instead of the courses themselves.</p>
+     *
+     * @param semesterInfoString JSON text with the keys described in {@link #SemesterInfo(JSONObject)}
+     * @throws JSONException if the text is not valid JSON or a header key is missing
+     */
+    static SemesterInfo parse(String semesterInfoString) throws JSONException {
+        long startTime = System.currentTimeMillis();
+        SemesterInfo semesterInfo = new SemesterInfo();
+        semesterInfo.source = semesterInfoString;
+        String semesterNumberString = null;
+
+        JsonScanner scanner = new JsonScanner(semesterInfoString);
+        scanner.expect('{');
+        while (scanner.hasNext('}')) {
+            String name = scanner.nextName();
+            if (name.equals("SemesterNumber")) {
+                semesterNumberString = scanner.nextScalar();
+            } else if (name.equals("SemesterName")) {
+                semesterInfo.semesterName = scanner.nextScalar();
+            } else if (name.equals("Departments")) {
+                semesterInfo.departmentArrayList = semesterInfo.parseDepartments(scanner);
+            } else {
+                scanner.skipValue();
+            }
+        }
+        scanner.expect('}');
+
+        if (semesterNumberString == null)
+            throw new JSONException("SemesterNumber not found");
+        if (semesterInfo.semesterName == null)
+            throw new JSONException("SemesterName not found");
+        if (semesterInfo.departmentArrayList == null)
+            throw new JSONException("Departments not found");
+        try {
+            semesterInfo.semesterNumber = Integer.parseInt(semesterNumberString);
+        } catch (NumberFormatException e) {
+            throw new JSONException("SemesterNumber is not a number: " + semesterNumberString);
+        }
+
+        semesterInfo.indexDepartments();
+        Log.i("Semester Info", "Parsed headers of " + semesterInfo.departmentArrayList.size() + " departments in " + (System.currentTimeMillis() - startTime) + "ms");
+        return semesterInfo;
+    }
 
+    /**
+     * Loads a semester saved as JSON text using the department offsets saved with it, without scanning the text.
+     * Falls back to {@link #parse(String)} if there are no offsets or they do not match the text.
+     *
+     * @param semesterInfoString JSON text with the keys described in {@link #SemesterInfo(JSONObject)}
+     * @param departmentOffsets offsets from {@link #getDepartmentOffsets()} of a semester parsed from the same text, or null
+     * @throws JSONException if the text has to be parsed and is not valid JSON or a header key is missing
+     */
+    static SemesterInfo parse(String semesterInfoString, String departmentOffsets) throws JSONException {
+        if (departmentOffsets == null)
+            return parse(semesterInfoString);
+        try {
+            long startTime = System.currentTimeMillis();
+            JSONObject offsets = new JSONObject(departmentOffsets);
+            if (offsets.getInt("SourceLength") != semesterInfoString.length())
+                throw new JSONException("Saved text is " + semesterInfoString.length() + " characters, offsets are for " + offsets.getInt("SourceLength"));
+
+            SemesterInfo semesterInfo = new SemesterInfo();
+            semesterInfo.source = semesterInfoString;
+            semesterInfo.semesterNumber = offsets.getInt("SemesterNumber");
+            semesterInfo.semesterName = offsets.getString("SemesterName");
+            JSONArray departments = offsets.getJSONArray("Departments");
+            semesterInfo.departmentArrayList = new ArrayList<>(departments.length());
+            for (int index = 0; index < departments.length(); index++) {
+                JSONArray department = departments.getJSONArray(index);
+                int coursesStart = department.getInt(2);
+                int coursesEnd = department.getInt(3);
+                if (coursesStart < 0 || coursesEnd <= coursesStart || coursesEnd > semesterInfoString.length()
+                        || semesterInfoString.charAt(coursesStart) != '[' || semesterInfoString.charAt(coursesEnd - 1) != ']')
+                    throw new JSONException("Offsets of " + department.getString(0) + " do not point at its courses");
+                semesterInfo.departmentArrayList.add(semesterInfo.new DepartmentInfo(department.getString(0), department.getString(1), coursesStart, coursesEnd));
+            }
+
+            semesterInfo.indexDepartments();
+            Log.i("Semester Info", "Loaded offsets of " + semesterInfo.departmentArrayList.size() + " departments in " + (System.currentTimeMillis() - startTime) + "ms");
+            return semesterInfo;
+        } catch (JSONException e) {
+            Log.e("Semester Info", "Saved department offsets are unusable, parsing the semester instead", e);
+            return parse(semesterInfoString);
+        }
+    }
+
+    /**
+     * Obtains the department headers and the offsets of their courses in the text this semester was parsed from,
+     * so that {@link #parse(String, String)} can load the same text again without scanning it.
+     *
+     * @return JSON text of the offsets, or null if this semester was not parsed from text.
+     */
+    String getDepartmentOffsets() throws JSONException {
+        if (source == null)
+            return null;
+        JSONArray departments = new JSONArray();
+        for (DepartmentInfo departmentInfo : departmentArrayList) {
+            JSONArray department = new JSONArray();
+            department.put(departmentInfo.getDepartmentAcronym());
+            department.put(departmentInfo.getDepartmentTitle());
+            department.put(departmentInfo.coursesStart);
+            department.put(departmentInfo.coursesEnd);
+            departments.put(department);
+        }
+        JSONObject offsets = new JSONObject();
+        offsets.put("SemesterNumber", semesterNumber);
+        offsets.put("SemesterName", semesterName);
+        offsets.put("SourceLength", source.length());
+        offsets.put("Departments", departments);
+        return offsets.toString();
+    }
+
+    /**
+     * Reads one semester from a stream, building departments and courses as their keys are read without an org.json tree.
+     * Departments and courses end up in the same order as {@link #SemesterInfo(JSONObject)} puts them.
+     *
+     * @param reader stream positioned at a semester object with the keys described in {@link #SemesterInfo(JSONObject)}
+     * @throws JSONException if a required key is missing
+     */
+    static SemesterInfo read(JsonReader reader) throws IOException, JSONException {
+        SemesterInfo semesterInfo = new SemesterInfo();
+        String semesterNumberString = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("SemesterNumber")) {
+                semesterNumberString = nextString(reader);
+            } else if (name.equals("SemesterName")) {
+                semesterInfo.semesterName = nextString(reader);
+            } else if (name.equals("Departments")) {
+                semesterInfo.departmentArrayList = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    semesterInfo.departmentArrayList.add(semesterInfo.readDepartment(reader));
+                }
+                reader.endArray();
+                Collections.reverse(semesterInfo.departmentArrayList);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (semesterNumberString == null)
+            throw new JSONException("SemesterNumber not found");
+        if (semesterInfo.semesterName == null)
+            throw new JSONException("SemesterName not found");
+        if (semesterInfo.departmentArrayList == null)
+            throw new JSONException("Departments not found");
+        try {
+            semesterInfo.semesterNumber = Integer.parseInt(semesterNumberString);
+        } catch (NumberFormatException e) {
+            throw new JSONException("SemesterNumber is not a number: " + semesterNumberString);
+        }
+
+        semesterInfo.indexDepartments();
+        return semesterInfo;
+    }
+
+    private DepartmentInfo readDepartment(JsonReader reader) throws IOException, JSONException {
+        String acronym = null;
+        String title = null;
+        DepartmentInfo departmentInfo = new DepartmentInfo(null, null, -1, -1);
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("DepartmentAcronym")) {
+                acronym = nextString(reader);
+            } else if (name.equals("DepartmentName")) {
+                title = nextString(reader);
+            } else if (name.equals("CourseNumbers")) {
+                departmentInfo.readCourses(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (acronym == null)
+            throw new JSONException("DepartmentAcronym not found");
+        if (title == null)
+            throw new JSONException("DepartmentName not found");
+        if (departmentInfo.courses == null)
+            throw new JSONException("CourseNumbers not found");
+        departmentInfo.setDepartmentAcronym(acronym);
+        departmentInfo.setDepartmentTitle(title);
+        return departmentInfo;
+    }
+
+    /**
+     * Reads a value as a string the way {@link JSONObject#getString(String)} does, so that a JSON null reads as "null"
+     * like it does when the same semester is built with {@link #SemesterInfo(JSONObject)}.
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        JsonToken token = reader.peek();
+        if (token == JsonToken.NULL) {
+            reader.nextNull();
+            return "null";
+        }
+        if (token == JsonToken.BOOLEAN)
+            return Boolean.toString(reader.nextBoolean());
+        return reader.nextString();
+    }
+
+    /**
+     * Reads department headers, in the same reversed order as {@link #SemesterInfo(JSONObject)}.
+     */
+    private ArrayList<DepartmentInfo> parseDepartments(JsonScanner scanner) throws JSONException {
+        ArrayList<DepartmentInfo> departments = new ArrayList<>();
+        scanner.expect('[');
+        while (scanner.hasNext(']')) {
+            String acronym = null;
+            String title = null;
+            int coursesStart = -1;
+            int coursesEnd = -1;
+
+            scanner.expect('{');
+            while (scanner.hasNext('}')) {
+                String name = scanner.nextName();
+                if (name.equals("DepartmentAcronym")) {
+                    acronym = scanner.nextScalar();
+                } else if (name.equals("DepartmentName")) {
+                    title = scanner.nextScalar();
+                } else if (name.equals("CourseNumbers")) {
+                    scanner.peek();
+                    coursesStart = scanner.getPosition();
+                    scanner.skipValue();
+                    coursesEnd = scanner.getPosition();
+                } else {
+                    scanner.skipValue();
+                }
+            }
+            scanner.expect('}');
+
+            if (acronym == null)
+                throw new JSONException("DepartmentAcronym not found");
+            if (title == null)
+                throw new JSONException("DepartmentName not found");
+            if (coursesStart == -1)
+                throw new JSONException("CourseNumbers not found");
+            departments.add(new DepartmentInfo(acronym, title, coursesStart, coursesEnd));
+        }
+        scanner.expect(']');
+        Collections.reverse(departments);
+        return departments;
+    }
+
+    private void indexDepartments() {
+        departmentsByAcronym = new HashMap<>(departmentArrayList.size() * 2);
+        for (DepartmentInfo departmentInfo : departmentArrayList) {
+            departmentsByAcronym.put(departmentInfo.getDepartmentAcronym().toUpperCase(), departmentInfo);
+        }
+    }
+
+    /**
+     * Finds a department by acronym, ignoring case.
+     * @return the department, or null if this semester does not have it.
+     */
+    public synchronized DepartmentInfo getDepartmentInfo(String departmentAcronym) {
+        getDepartmentArrayList();
+        return departmentsByAcronym.get(departmentAcronym.toUpperCase());
+    }
+
+    /**
+     * Obtains JSON text for this semester which {@link #parse(String)} can load.
+     * A semester loaded with {@link #parse(String)} returns the text it was loaded from, so no course is decoded to save it.
+     */
+    public String toJSONString() throws JSONException {
+        return source != null ? source : toJSON().toString();
     }
 
     public JSONObject toJSON() throws JSONException {
@@ -118,14 +446,31 @@ class SemesterInfo{
         return semesterInfoJSON;
     }
 
+    /**
+     * Saves semesters to the {@link SemesterCatalog} file, where {@link SelectCourses#loadSemesterInfoFromFile()} finds them.
+     * Semesters are saved as JSON in SharedPreferences instead if the catalog cannot be written.
+     */
     public static void saveSemestersToFile(ArrayList <SemesterInfo> semestersToSave, Context context){
         SharedPreferences.Editor savedSemesters = context.getSharedPreferences(SemesterInfo.getSEMESTER_INFO(), Context.MODE_PRIVATE).edit();
         savedSemesters.clear();
+        try {
+            SemesterCatalog.write(semestersToSave, context);
+            savedSemesters.apply();
+            return;
+        } catch (IOException e) {
+            e.printStackTrace();
+            Log.e("Semester Info Save", "Could not write semester catalog, saving as JSON");
+            // An older catalog would otherwise be loaded instead of the semesters saved below.
+            SemesterCatalog.delete(context);
+        }
         for (SemesterInfo semesterInfo : semestersToSave){
             try {
                 Log.i("Semester Info Save", "Saving Semester Number: " + semesterInfo.getSemesterNumber());
-                String semesterInfoJSON = semesterInfo.toJSON().toString();
+                String semesterInfoJSON = semesterInfo.toJSONString();
                 savedSemesters.putString( "SEMESTER_INFO_" + semesterInfo.getSemesterNumber() + "", semesterInfoJSON);//SemesterInfo.getSEMESTER_INFO() + "_" +
+                String departmentOffsets = semesterInfo.getDepartmentOffsets();
+                if (departmentOffsets != null)
+                    savedSemesters.putString("SEMESTER_OFFSETS_" + semesterInfo.getSemesterNumber(), departmentOffsets);
             } catch (JSONException e) {
                 e.printStackTrace();
             }
@@ -137,10 +482,41 @@ class SemesterInfo{
         return semesterNumber;
     }
 
-    public ArrayList<DepartmentInfo> getDepartmentArrayList() {
+    /**
+     * Obtains the departments of this semester, reading them from the catalog first if this semester was loaded from one.
+     * Synchronized, since adapters filter departments on their own thread. The list and its acronym index are
+     * published together.
+     */
+    public synchronized ArrayList<DepartmentInfo> getDepartmentArrayList() {
+        if (departmentArrayList == null && catalog != null) {
+            ArrayList<DepartmentInfo> readDepartments;
+            try {
+                int departmentCount = catalog.getDepartmentCount(catalogIndex);
+                readDepartments = new ArrayList<>(departmentCount);
+                for (int index = 0; index < departmentCount; index++) {
+                    readDepartments.add(new DepartmentInfo(catalog.getDepartmentAcronym(catalogIndex, index), catalog.getDepartmentTitle(catalogIndex, index),
+                            catalog.getCourseBlockOffset(catalogIndex, index), -1));
+                }
+            } catch (IOException e) {
+                Log.e("Semester Info", "Could not read departments of semester " + semesterNumber + " from catalog", e);
+                readDepartments = new ArrayList<>();
+            }
+            departmentArrayList = readDepartments;
+            indexDepartments();
+        }
         return departmentArrayList;
     }
 
+    /**
+     * Obtains the autocomplete index of the departments of this semester, building it the first time. Departments are
+     * ranked by acronym first, then by the first word of their title, then by any other word of it.
+     */
+    public synchronized PrefixIndex<DepartmentInfo> getDepartmentIndex() {
+        if (departmentIndex == null)
+            departmentIndex = DepartmentInfoArrayAdapter.buildIndex(getDepartmentArrayList());
+        return departmentIndex;
+    }
+
     /**
      * Holds a departments' ID, Title, and an arraylist of CourseInfo to hold course information for all courses in that department.
      */
@@ -150,6 +526,14 @@ class SemesterInfo{
         private String departmentAcronym;
         private String departmentTitle;
         private ArrayList<CourseInfo> courses;
+        /**
+         * Offsets of the undecoded "CourseNumbers" array in {@link #source}, used until {@link #courses} is first needed.
+         * For a semester loaded from a catalog, coursesStart is the offset of the course block in {@link #catalog} instead.
+         */
+        private int coursesStart;
+        private int coursesEnd;
+        /** Autocomplete index of the courses, built when first needed. */
+        private PrefixIndex<CourseInfo> courseIndex;
 
         /**
          * Constructor
@@ -180,6 +564,19 @@ class SemesterInfo{
             Log.i("Department Details", "New Department Added:" + getDepartmentAcronym() + " " + getDepartmentTitle() + " " + getCourses().size());
         }
 
+        /**
+         * Constructor for a department whose courses are decoded from {@link #source} or {@link #catalog} when first needed.
+         *
+         * @param coursesStart offset of the "CourseNumbers" array in the source text, or of the course block in the catalog
+         * @param coursesEnd offset just past the end of that array, unused for a catalog
+         */
+        DepartmentInfo(String departmentAcronym, String departmentTitle, int coursesStart, int coursesEnd) {
+            this.setDepartmentAcronym(departmentAcronym);
+            this.setDepartmentTitle(departmentTitle);
+            this.coursesStart = coursesStart;
+            this.coursesEnd = coursesEnd;
+        }
+
         @SuppressWarnings("unused")
         public DepartmentInfo(){
             this.setDepartmentAcronym(null);
@@ -188,8 +585,16 @@ class SemesterInfo{
 
         public JSONObject toJSON() throws JSONException {
 
-            ArrayList<JSONObject> courseInfoArray = new ArrayList<>(courses.size());
-            for(CourseInfo courseInfo : courses){
+            // Loaded here rather than through getCourses() so that unreadable courses fail the save instead of saving none.
+            ArrayList<CourseInfo> loadedCourses;
+            try {
+                loadedCourses = loadCourses();
+            } catch (IOException e) {
+                e.printStackTrace();
+                throw new JSONException("Could not read courses of " + getDepartmentAcronym() + " from catalog");
+            }
+            ArrayList<JSONObject> courseInfoArray = new ArrayList<>(loadedCourses.size());
+            for(CourseInfo courseInfo : loadedCourses){
                 courseInfoArray.add(courseInfo.toJSON());
             }
             JSONArray courseInfoJSONArray = new JSONArray(courseInfoArray);
@@ -215,10 +620,96 @@ class SemesterInfo{
             this.departmentTitle = departmentTitle;
         }
 
+        /**
+         * Obtains the courses of this department, decoding them first if this department was loaded with {@link SemesterInfo#parse(String)}
+         * or from a catalog.
+         */
         public ArrayList<CourseInfo> getCourses() {
+            try {
+                return loadCourses();
+            } catch (IOException | JSONException e) {
+                // Left unloaded, so the next call tries again and saving reports the error instead of saving no courses.
+                Log.e("Department Details", "Could not load courses of " + getDepartmentAcronym(), e);
+                return new ArrayList<>();
+            }
+        }
+
+        /**
+         * Obtains the courses of this department like {@link #getCourses()}, but reports courses which cannot be read
+         * instead of returning none, for saving them.
+         * @throws IOException if the courses could not be read from the catalog
+         * @throws JSONException if the courses could not be decoded from {@link SemesterInfo#parse(String)} text
+         */
+        synchronized ArrayList<CourseInfo> loadCourses() throws IOException, JSONException {
+            if (courses == null && catalog != null) {
+                int[] courseEntries = catalog.readCourses(coursesStart);
+                ArrayList<CourseInfo> readCourses = new ArrayList<>(courseEntries.length / 2);
+                for (int index = 0; index < courseEntries.length; index += 2) {
+                    readCourses.add(new CourseInfo(courseEntries[index], catalog.getString(courseEntries[index + 1]), this));
+                }
+                courses = readCourses;
+            } else if (courses == null && source != null) {
+                courses = decodeCourses();
+            }
             return courses;
         }
 
+        /**
+         * Decodes the "CourseNumbers" array of this department from {@link #source}, in the same reversed order as {@link #DepartmentInfo(JSONObject)}.
+         */
+        private ArrayList<CourseInfo> decodeCourses() throws JSONException {
+            JSONArray courseJSONArrayRaw = new JSONArray(source.substring(coursesStart, coursesEnd));
+            ArrayList<CourseInfo> decodedCourses = new ArrayList<>(courseJSONArrayRaw.length());
+            for(int index = courseJSONArrayRaw.length(); index != 0;index--){
+                decodedCourses.add(new CourseInfo(courseJSONArrayRaw.getJSONObject(index - 1), this));
+            }
+            Log.i("Department Details", "Decoded courses of " + getDepartmentAcronym() + ": " + decodedCourses.size());
+            return decodedCourses;
+        }
+
+        /**
+         * Obtains the autocomplete index of the courses of this department, building it the first time. Courses are
+         * ranked by course number first, then by the first word of their title, then by any other word of it.
+         */
+        public synchronized PrefixIndex<CourseInfo> getCourseIndex() {
+            if (courseIndex == null)
+                courseIndex = CourseInfoArrayAdapter.buildIndex(getCourses());
+            return courseIndex;
+        }
+
+
+        /**
+         * Reads the "CourseNumbers" array of this department from a stream, in the same reversed order as {@link #DepartmentInfo(JSONObject)}.
+         */
+        private void readCourses(JsonReader reader) throws IOException, JSONException {
+            courses = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                String courseNumber = null;
+                String courseTitle = null;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String name = reader.nextName();
+                    if (name.equals("CourseNumber")) {
+                        courseNumber = nextString(reader);
+                    } else if (name.equals("CourseName")) {
+                        courseTitle = nextString(reader);
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+                if (courseNumber == null || courseTitle == null)
+                    throw new JSONException("Course is missing CourseNumber or CourseName");
+                try {
+                    courses.add(new CourseInfo(Integer.parseInt(courseNumber), courseTitle, this));
+                } catch (NumberFormatException e) {
+                    throw new JSONException("CourseNumber is not a number: " + courseNumber);
+                }
+            }
+            reader.endArray();
+            Collections.reverse(courses);
+        }
 
         public String getDepartmentAcronym() {
             return departmentAcronym;
@@ -256,6 +747,12 @@ class SemesterInfo{
                 this.departmentInfo = departmentInfo;
             }
 
+            CourseInfo(int courseNumber, String courseTitle, DepartmentInfo departmentInfo) {
+                this.courseNumber = courseNumber;
+                this.courseTitle = courseTitle;
+                this.departmentInfo = departmentInfo;
+            }
+
             /*public JSONObject toJSONIsolated() throws JSONException {
                 JSONObject courseInfo = new JSONObject();
                 courseInfo.put("CourseNumber", courseNumber);
@@ -298,6 +795,7 @@ class DepartmentInfoArrayAdapter extends ArrayAdapter<SemesterInfo.DepartmentInf
 
     private ArrayList<SemesterInfo.DepartmentInfo> departmentInfoArrayList = new ArrayList<>();
     private ArrayList<SemesterInfo.DepartmentInfo> departmentInfoArrayListAll = new ArrayList<>();
+    private PrefixIndex<SemesterInfo.DepartmentInfo> departmentIndex;
     private Context context;
 
     /**
@@ -309,12 +807,48 @@ class DepartmentInfoArrayAdapter extends ArrayAdapter<SemesterInfo.DepartmentInf
      * @param objects  The objects to represent in the ListView.
      */
     public DepartmentInfoArrayAdapter(Context context, int resource, ArrayList<SemesterInfo.DepartmentInfo> objects) {
+        this(context, resource, objects, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param context  The current context.
+     * @param resource The resource ID for a layout file containing a TextView to use when
+     *                 instantiating views.
+     * @param objects  The objects to represent in the ListView.
+     * @param departmentIndex index of the objects to filter with, such as {@link SemesterInfo#getDepartmentIndex()}. If null, one is built on the first filtering.
+     */
+    public DepartmentInfoArrayAdapter(Context context, int resource, ArrayList<SemesterInfo.DepartmentInfo> objects, PrefixIndex<SemesterInfo.DepartmentInfo> departmentIndex) {
         super(context, resource, objects);
         this.departmentInfoArrayList = objects;
         this.departmentInfoArrayListAll = objects;
+        this.departmentIndex = departmentIndex;
         this.context = context;
     }
 
+    /**
+     * Indexes departments by acronym, then by the first word of their title, then by any other word of it.
+     * Departments without a title are left out.
+     */
+    static PrefixIndex<SemesterInfo.DepartmentInfo> buildIndex(ArrayList<SemesterInfo.DepartmentInfo> departmentInfoArrayList) {
+        PrefixIndex<SemesterInfo.DepartmentInfo> index = new PrefixIndex<>();
+        for (SemesterInfo.DepartmentInfo departmentInfo : departmentInfoArrayList) {
+            if (departmentInfo.getDepartmentTitle() == null || departmentInfo.getDepartmentTitle().equals("null"))
+                continue;
+            int item = index.addItem(departmentInfo);
+            index.addKey(item, departmentInfo.getDepartmentAcronym(), 0);
+            index.addWords(item, departmentInfo.getDepartmentTitle(), 1, 2);
+        }
+        return index;
+    }
+
+    private synchronized PrefixIndex<SemesterInfo.DepartmentInfo> getDepartmentIndex() {
+        if (departmentIndex == null)
+            departmentIndex = buildIndex(departmentInfoArrayListAll);
+        return departmentIndex;
+    }
+
     @Override
     public int getCount() {
         return departmentInfoArrayList.size();
@@ -362,23 +896,9 @@ class DepartmentInfoArrayAdapter extends ArrayAdapter<SemesterInfo.DepartmentInf
                 FilterResults filterResults = new FilterResults();
                 departmentInfoArrayList = departmentInfoArrayListAll;
                 List<SemesterInfo.DepartmentInfo> results = new ArrayList<>();
-                if (constraint != null){
-                    for(SemesterInfo.DepartmentInfo departmentInfo : departmentInfoArrayList){
-
-                        if(departmentInfo.getDepartmentTitle().equals("null"))
-                            continue;
-
-                        if(departmentInfo.getDepartmentAcronym().toUpperCase().startsWith(constraint.toString().toUpperCase())){
-                            if (!results.contains(departmentInfo))
-                                results.add(departmentInfo);
-                        }
-                        if(departmentInfo.getDepartmentTitle().toUpperCase().contains(constraint.toString().toUpperCase())){
-                            if (!results.contains(departmentInfo))
-                                results.add(departmentInfo);
-                        }
-
-                    }
-                }
+                // Matches departments whose acronym or any word of whose title starts with the constraint
+                if (constraint != null)
+                    results = getDepartmentIndex().search(constraint, PrefixIndex.MAX_RESULTS);
                 filterResults.values = results;
                 filterResults.count = results.size();
                 return filterResults;
@@ -407,6 +927,7 @@ class CourseInfoArrayAdapter extends ArrayAdapter<SemesterInfo.DepartmentInfo.Co
 
     private ArrayList<SemesterInfo.DepartmentInfo.CourseInfo> courseInfoArrayList = new ArrayList<>();
     private ArrayList<SemesterInfo.DepartmentInfo.CourseInfo> courseInfoArrayListAll = new ArrayList<>();
+    private PrefixIndex<SemesterInfo.DepartmentInfo.CourseInfo> courseIndex;
     private Context context;
     private boolean showDeleteButton;
 
@@ -419,13 +940,50 @@ class CourseInfoArrayAdapter extends ArrayAdapter<SemesterInfo.DepartmentInfo.Co
      * @param objects  The objects to represent in the ListView.
      */
     public CourseInfoArrayAdapter(Context context, int resource, ArrayList<SemesterInfo.DepartmentInfo.CourseInfo> objects, boolean showDeleteButton) {
+        this(context, resource, objects, showDeleteButton, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param context  The current context.
+     * @param resource The resource ID for a layout file containing a TextView to use when
+     *                 instantiating views.
+     * @param objects  The objects to represent in the ListView.
+     * @param courseIndex index of the objects to filter with, such as {@link SemesterInfo.DepartmentInfo#getCourseIndex()}. If null, one is built on the first filtering.
+     */
+    public CourseInfoArrayAdapter(Context context, int resource, ArrayList<SemesterInfo.DepartmentInfo.CourseInfo> objects, boolean showDeleteButton, PrefixIndex<SemesterInfo.DepartmentInfo.CourseInfo> courseIndex) {
         super(context, resource, objects);
         this.showDeleteButton = showDeleteButton;
         this.courseInfoArrayList = objects;
         this.courseInfoArrayListAll = objects;
+        this.courseIndex = courseIndex;
         this.context = context;
     }
 
+    /**
+     * Indexes courses by course number, then by the first word of their title, then by any other word of it.
+     * Courses whose title ends with null are left out.
+     */
+    static PrefixIndex<SemesterInfo.DepartmentInfo.CourseInfo> buildIndex(ArrayList<SemesterInfo.DepartmentInfo.CourseInfo> courseInfoArrayList) {
+        PrefixIndex<SemesterInfo.DepartmentInfo.CourseInfo> index = new PrefixIndex<>();
+        for (SemesterInfo.DepartmentInfo.CourseInfo courseInfo : courseInfoArrayList) {
+            // According to the internet the only word that ends with null should be 'null' so this should not cause errors.
+            if (courseInfo.getCourseTitle().toUpperCase().endsWith("NULL"))
+                continue;
+            int item = index.addItem(courseInfo);
+            index.addKey(item, String.valueOf(courseInfo.getCourseNumber()), 0);
+            index.addWords(item, courseInfo.getCourseTitle(), 1, 2);
+        }
+        return index;
+    }
+
+    private synchronized PrefixIndex<SemesterInfo.DepartmentInfo.CourseInfo> getCourseIndex() {
+        if (courseIndex == null)
+            courseIndex = buildIndex(courseInfoArrayListAll);
+        return courseIndex;
+    }
+
     @Override
     public int getCount() {
         return courseInfoArrayList.size();
@@ -489,24 +1047,9 @@ class CourseInfoArrayAdapter extends ArrayAdapter<SemesterInfo.DepartmentInfo.Co
                 FilterResults filterResults = new FilterResults();
                 courseInfoArrayList = courseInfoArrayListAll;
                 List<SemesterInfo.DepartmentInfo.CourseInfo> results = new ArrayList<>();
-                if (constraint != null){
-                    for(SemesterInfo.DepartmentInfo.CourseInfo courseInfo : courseInfoArrayList){
-                        // If text in getCourseTitle ends with null do not add this object to the results list. Skip any remaining filtering.
-                        // According to the internet the only word that ends with null should be 'null' so this should not cause errors.
-                        if(courseInfo.getCourseTitle().toUpperCase().endsWith("NULL"))
-                            continue;
-                        // If text in constraint matches the course number add it to results
-                        if(((Integer) courseInfo.getCourseNumber()).toString().contains(constraint.toString())){
-                            if (!results.contains(courseInfo))
-                                results.add(courseInfo);
-                        }
-                        // If text in constraint is contained anywhere within the course title add it to the results list
-                        if(courseInfo.getCourseTitle().toUpperCase().replace(" ", "").contains(constraint.toString().toUpperCase())){
-                            if (!results.contains(courseInfo))
-                                results.add(courseInfo);
-                        }
-                    }
-                }
+                // Matches courses whose number or any word of whose title starts with the constraint. Titles ending with null were left out of the index.
+                if (constraint != null)
+                    results = getCourseIndex().search(constraint, PrefixIndex.MAX_RESULTS);
                 filterResults.values = results;
                 filterResults.count = results.size();
                 return filterResults;
@@ -555,6 +1098,23 @@ public class SelectCourses extends ActionBarActivity {
 
     private ProgressDialog progressDialog;
 
+    /** Longest time a single generation step may take, including updating the {@link #scheduleSession}, before its outcome is shown. */
+    private static final long GENERATION_TIME_BUDGET_MS = 200;
+    /** Longest time spent explaining why no schedule can be built. */
+    private static final long CONFLICT_EXPLANATION_TIME_BUDGET_MS = 2000;
+    /** Number of best schedules kept by the anytime scheduler. */
+    private static final int GENERATION_SCHEDULE_COUNT = 10;
+    /** Generation in progress. Kept so that "Keep Searching" resumes it instead of starting over. */
+    private AnytimeScheduler anytimeScheduler;
+    /** Generation state kept between requests, so that changing one course or block-out time does not start over. */
+    private ScheduleSession scheduleSession;
+    /** Runs generation steps off the UI thread, one at a time so the {@link #scheduleSession} is never used by two threads at once. */
+    private final ExecutorService generationExecutor = Executors.newSingleThreadExecutor();
+    /** Cancels the generation step in progress. Replaced by every new step. */
+    private CancellationToken generationToken;
+    /** Progress dialog of the generation step in progress. */
+    private ProgressDialog generationDialog;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -617,7 +1177,7 @@ public class SelectCourses extends ActionBarActivity {
             public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
                 SemesterInfo.DepartmentInfo departmentInfo = (SemesterInfo.DepartmentInfo) parent.getItemAtPosition(position);
                 courseDepartment.setText(departmentInfo.getDepartmentAcronym());
-                updateCourseInfoAdapter(departmentInfo.getCourses());
+                updateCourseInfoAdapter(departmentInfo);
             }
         });
         courseDepartment.setOnFocusChangeListener(new View.OnFocusChangeListener() {
@@ -627,7 +1187,7 @@ public class SelectCourses extends ActionBarActivity {
                     SemesterInfo.DepartmentInfo departmentInfo = getDepartmentInfo(courseDepartment.getText().toString());
                     if (departmentInfo != null){
                         courseDepartment.setText(departmentInfo.getDepartmentAcronym());
-                        updateCourseInfoAdapter(departmentInfo.getCourses());
+                        updateCourseInfoAdapter(departmentInfo);
                     }
                 }
             }
@@ -653,21 +1213,28 @@ public class SelectCourses extends ActionBarActivity {
         super.onResume();
         SharedPreferences preferences = getSharedPreferences(SemesterInfo.getSEMESTER_INFO(), MODE_PRIVATE);
 
-        // Load Semester Info from previous session
+        // Load Semester Info from previous session, from the semester catalog if it was saved there
+        int selectedSemesterNumber = preferences.getInt("selectedSemesterNumber", -1);
+        SemesterInfo catalogSemester = selectedSemesterNumber != -1 ? SemesterCatalog.loadSemester(this, selectedSemesterNumber) : null;
         String selectedSemesterString = preferences.getString("selectedSemester", null);
-        if (selectedSemesterString != null) {
+        String selectedSemesterOffsets = preferences.getString("selectedSemesterOffsets", null);
+        if (catalogSemester != null) {
+            selectedSemester = catalogSemester;
+            updateDepartmentInfoAdapter(selectedSemester);
+        }
+        else if (selectedSemesterString != null) {
             try {
-                selectedSemester = new SemesterInfo(new JSONObject(selectedSemesterString));
+                selectedSemester = SemesterInfo.parse(selectedSemesterString, selectedSemesterOffsets);
             } catch (JSONException e) {
                 e.printStackTrace();
                 Toast.makeText(getApplicationContext(), "Error: Received Invalid Data", Toast.LENGTH_LONG).show();
-                fetchSemesters();
+                fetchSemesters(true);
                 return;
             }
-            updateDepartmentInfoAdapter(selectedSemester.getDepartmentArrayList());
+            updateDepartmentInfoAdapter(selectedSemester);
         }
         else {
-            fetchSemesters();
+            fetchSemesters(true);
             return;
         }
 
@@ -700,13 +1267,26 @@ public class SelectCourses extends ActionBarActivity {
         super.onPause();
         String selectedSemesterString = null;
         SharedPreferences.Editor editor = getSharedPreferences(SemesterInfo.getSEMESTER_INFO(), MODE_PRIVATE).edit();
-        if (selectedSemester != null){
+        if (selectedSemester != null && selectedSemester.isSavedInCatalog()){
+            // The catalog already holds the semester, so only its number is needed to load it again.
+            editor.putInt("selectedSemesterNumber", selectedSemester.getSemesterNumber());
+            editor.remove("selectedSemester");
+            editor.remove("selectedSemesterOffsets");
+            editor.apply();
+            Log.i("Selected Semester Info", "Semester " + selectedSemester.getSemesterNumber() + " from catalog");
+        }
+        else if (selectedSemester != null){
+            editor.remove("selectedSemesterNumber");
+            String selectedSemesterOffsets = null;
             try {
-                selectedSemesterString = selectedSemester.toJSON().toString();
+                selectedSemesterString = selectedSemester.toJSONString();
+                // Offsets of the departments in the saved text let onResume skip scanning it.
+                selectedSemesterOffsets = selectedSemester.getDepartmentOffsets();
             } catch (JSONException e) {
                 e.printStackTrace();
             }
             editor.putString("selectedSemester", selectedSemesterString);
+            editor.putString("selectedSemesterOffsets", selectedSemesterOffsets);
             editor.apply();
             Log.i("Selected Semester Info", selectedSemesterString );
         }
@@ -807,7 +1387,7 @@ public class SelectCourses extends ActionBarActivity {
 
         String urlFinal = URL_GET_COURSE_SECTIONS + semesterParamFinal + courseNumberParamFinal;
 
-        HTTPService.FetchURL(urlFinal, ACTION_GET_DESIRED_COURSE_SECTIONS, this);
+        HTTPService.FetchURL(urlFinal, ACTION_GET_DESIRED_COURSE_SECTIONS, this, true);
 
         /* Deprecisted with use of HTTPService.FetchURL();
         Intent intent = new Intent(this, HTTPService.class);
@@ -833,7 +1413,7 @@ public class SelectCourses extends ActionBarActivity {
         Log.i("Get Semesters", "Semesters found on file: " + fileSemesters.size());
 
         if (fileSemesters.size() == 0)
-            fetchSemesters();
+            fetchSemesters(true);
         else
             selectSemester(fileSemesters);
 
@@ -853,11 +1433,7 @@ public class SelectCourses extends ActionBarActivity {
     public SemesterInfo.DepartmentInfo getDepartmentInfo(String department){
 
         if (selectedSemester != null)
-        for(SemesterInfo.DepartmentInfo departmentInfo : selectedSemester.getDepartmentArrayList()){
-            if(departmentInfo.getDepartmentAcronym().toUpperCase().equals(department.toUpperCase())){
-                return departmentInfo;
-            }
-        }
+            return selectedSemester.getDepartmentInfo(department);
         return null;
     }
 
@@ -883,7 +1459,8 @@ public class SelectCourses extends ActionBarActivity {
         getDesiredSemester.setNeutralButton("UPDATE SEMESTERS", new DialogInterface.OnClickListener() {
             @Override
             public void onClick(DialogInterface dialog, int which) {
-                fetchSemesters();
+                // Asked for by the user, so a cached copy will not do
+                fetchSemesters(false);
                 dialog.dismiss();
             }
         });
@@ -899,14 +1476,20 @@ public class SelectCourses extends ActionBarActivity {
 
     public void setSelectedSemester(SemesterInfo semesterInfo){
         this.selectedSemester = semesterInfo;
-        updateDepartmentInfoAdapter(semesterInfo.getDepartmentArrayList());
+        updateDepartmentInfoAdapter(semesterInfo);
         desiredCoursesArrayList.clear();
         desiredCoursesArrayAdapter.notifyDataSetChanged();
     }
 
-    private void fetchSemesters(){
+    /**
+     * Fetches the semesters offered by the server.
+     * @param allowStale true to show a cached copy at once while it is revalidated, for loads the user did not ask for.
+     *                   false to wait for the server, such as when the user asks for the semesters to be updated.
+     */
+    private void fetchSemesters(boolean allowStale){
 
-        HTTPService.FetchURL(URL_GET_SEMESTER, ACTION_GET_SEMESTER, this);
+        // Semester catalogs rarely change, so unless asked for fresh data a cached copy is shown at once while it is revalidated
+        HTTPService.FetchURL(URL_GET_SEMESTER, ACTION_GET_SEMESTER, this, true, allowStale);
         /* Deprecisted with use of HTTPService.FetchURL();
         Intent intent = new Intent(this, HTTPService.class);
         if(spoofServerSwitch) {
@@ -934,14 +1517,14 @@ public class SelectCourses extends ActionBarActivity {
         SelectCourses.this.startActivityForResult(startSelectCoursesActivity, 0);
     }
 
-    private void updateDepartmentInfoAdapter(ArrayList<SemesterInfo.DepartmentInfo> departmentInfo){
-        departmentInfoArrayAdapter = new DepartmentInfoArrayAdapter(this,R.layout.desired_courses_listview, departmentInfo);
+    private void updateDepartmentInfoAdapter(SemesterInfo semesterInfo){
+        departmentInfoArrayAdapter = new DepartmentInfoArrayAdapter(this,R.layout.desired_courses_listview, semesterInfo.getDepartmentArrayList(), semesterInfo.getDepartmentIndex());
         courseDepartment.setAdapter(departmentInfoArrayAdapter);
         courseInfoArrayAdapter.clear();
     }
 
-    private void updateCourseInfoAdapter(ArrayList<SemesterInfo.DepartmentInfo.CourseInfo> courseInfo){
-        courseInfoArrayAdapter = new CourseInfoArrayAdapter(this,R.layout.desired_courses_listview, courseInfo, false);
+    private void updateCourseInfoAdapter(SemesterInfo.DepartmentInfo departmentInfo){
+        courseInfoArrayAdapter = new CourseInfoArrayAdapter(this,R.layout.desired_courses_listview, departmentInfo.getCourses(), false, departmentInfo.getCourseIndex());
         courseNumber.setAdapter(courseInfoArrayAdapter);
     }
 
@@ -949,8 +1532,7 @@ public class SelectCourses extends ActionBarActivity {
 
         @Override
         public void onReceive(Context context, Intent intent) {
-            JSONObject response;
-            boolean success;
+            SemesterResponse response;
             String message;
 
             if(progressDialog != null)
@@ -958,22 +1540,25 @@ public class SelectCourses extends ActionBarActivity {
 
             try {
 
-                response = new JSONObject(intent.getStringExtra(HTTPService.SERVER_RESPONSE));
-                success = response.getBoolean("Success");
-                if(response.has("Message")) {
-                    if(success)
-                        message = response.getString("Message");
-                    else message = "Error: " + response.getString("Message");
+                // Streamed from the response file into semesters, the response is never held as a String.
+                response = SemesterResponse.read(intent);
+                if(response.hasMessage()) {
+                    if(response.isSuccess())
+                        message = response.getMessage();
+                    else message = "Error: " + response.getMessage();
                     Toast.makeText(getApplicationContext(), message, Toast.LENGTH_LONG).show();
                 }
-                if(response.has("TimeTaken")){
-                    float timeTaken = Float.parseFloat(response.getString("TimeTaken"));
-                    Log.d("New Request Time Taken:", Float.toString(timeTaken));
+                if(response.getTimeTaken() >= 0){
+                    Log.d("New Request Time Taken:", Float.toString(response.getTimeTaken()));
                 }
-                if(success) {
-                    ArrayList<SemesterInfo> fetchedSemesters = SemesterInfo.SemesterInfoFactory(response);
+                if(response.isSuccess()) {
+                    ArrayList<SemesterInfo> fetchedSemesters = response.getSemesters();
                     Log.i("Get Semesters", "Semesters found in fetch: " + fetchedSemesters.size());
                     SemesterInfo.saveSemestersToFile(fetchedSemesters, SelectCourses.this);
+                    // Offered as saved, so that the selected semester is backed by the catalog and onPause only saves its number
+                    ArrayList<SemesterInfo> savedSemesters = loadSemesterInfoFromFile();
+                    if (!savedSemesters.isEmpty())
+                        fetchedSemesters = savedSemesters;
 
                     Toast.makeText(getBaseContext(), "Semester Data Updated", Toast.LENGTH_LONG).show();
 
@@ -989,8 +1574,7 @@ public class SelectCourses extends ActionBarActivity {
 
         @Override
         public void onReceive(Context context, Intent intent) {
-            JSONObject response;
-            boolean success;
+            CourseResponse response;
             String message;
 
             if(progressDialog!= null)
@@ -999,28 +1583,19 @@ public class SelectCourses extends ActionBarActivity {
             final ArrayList<Course> fetchedCourses;
 
             try {
-                response = new JSONObject(intent.getStringExtra(HTTPService.SERVER_RESPONSE));
-                success = response.getBoolean("Success");
-                if(response.has("Message")) {
-                    if(success)
-                        message = response.getString("Message");
-                    else message = "Error: " + response.getString("Message");
+                // Decoded straight into courses, no JSONObject tree is built for the whole response.
+                response = CourseResponse.read(intent);
+                if(response.hasMessage()) {
+                    if(response.isSuccess())
+                        message = response.getMessage();
+                    else message = "Error: " + response.getMessage();
                     Toast.makeText(getApplicationContext(), message, Toast.LENGTH_LONG).show();
                 }
-                if(response.has("TimeTaken")){
-                    float timeTaken = Float.parseFloat(response.getString("TimeTaken"));
-                    Log.d("New Request Time Taken:", Float.toString(timeTaken));
+                if(response.getTimeTaken() >= 0){
+                    Log.d("New Request Time Taken:", Float.toString(response.getTimeTaken()));
                 }
-                if(success) {
-                    JSONArray jsonCourses = response.getJSONArray("Results");
-                    float timeTaken = Float.parseFloat(response.getString("TimeTaken"));
-                    Log.d("New Request Time Taken:", Float.toString(timeTaken));
-                    fetchedCourses = Course.buildCourseList(jsonCourses);
-                    for(Course course : fetchedCourses){
-                        for(Section section : course.getSectionList()){
-                            Log.i("Section Data Test", section.toJSON().toString());
-                        }
-                    }
+                if(response.isSuccess()) {
+                    fetchedCourses = response.getCourses();
                     generateSchedule(fetchedCourses);
                 }
 
@@ -1033,45 +1608,255 @@ public class SelectCourses extends ActionBarActivity {
 
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // A step finishing after the activity is gone has nowhere to show its outcome.
+        if (generationToken != null)
+            generationToken.cancel();
+        if (generationDialog != null)
+            generationDialog.dismiss();
+        generationExecutor.shutdown();
+    }
+
     /**
      * Attempts to create a schedule from the courses that are passed to it.
+     * Searches in the background for at most {@link #GENERATION_TIME_BUDGET_MS}, counting the time spent updating the {@link #scheduleSession},
+     * and shows the best schedule found in that time. If none was found yet the user can keep searching.
      * @param coursesToSchedule Courses from which the schedule should be generated from.
      */
     public void generateSchedule(final ArrayList<Course> coursesToSchedule){
 
-        try {
-            ArrayList<Section> blockoutSections;
-            if (blockoutTimes != null)
-                blockoutSections = blockoutTimes.getSectionList();
-            else
-                blockoutSections = new ArrayList<>();
+        final ArrayList<Section> blockoutSections;
+        if (blockoutTimes != null)
+            blockoutSections = new ArrayList<>(blockoutTimes.getSectionList());
+        else
+            blockoutSections = new ArrayList<>();
 
+        SharedPreferences settings = PreferenceManager.getDefaultSharedPreferences(UserData.getContext());
+        final boolean allowNonOpenClassesSetting = settings.getBoolean(UserData.getContext().getResources().getString(R.string.pref_key_allow_nonopen_classes), false);
+        final int semesterNumber = selectedSemester.getSemesterNumber();
 
-            Schedule schedule = Schedule.scheduleFactory(coursesToSchedule, blockoutSections, selectedSemester.getSemesterNumber());
+        startGenerationStep("Generating Schedule", GENERATION_TIME_BUDGET_MS, new GenerationStep() {
+            private AnytimeScheduler.Result result;
 
-            DetailedSchedule.ShowSchedule(schedule, SelectCourses.this);
-            Log.i("Built Schedule", schedule.toJSON().toString());
-        } catch (NoSchedulesPossibleException noSchedulesPossible) {
-            noSchedulesPossible.printStackTrace();
-            AlertDialog.Builder noSchedulesPossibleDialog = new AlertDialog.Builder(SelectCourses.this);
-            noSchedulesPossibleDialog.setTitle("Schedule Could be generated. Issues:");
-            noSchedulesPossibleDialog.setMessage(noSchedulesPossible.printConflict());
-            noSchedulesPossibleDialog.setNeutralButton("CHANGE COURSES", new DialogInterface.OnClickListener() {
-                @Override
-                public void onClick(DialogInterface dialog, int which) {
-                    dialog.dismiss();
+            @Override
+            void search(CancellationToken cancellationToken, long deadlineNanos) {
+                if (scheduleSession == null || scheduleSession.getSemesterNumber() != semesterNumber)
+                    scheduleSession = new ScheduleSession(semesterNumber, allowNonOpenClassesSetting);
+                scheduleSession.setAllowNonOpenClasses(allowNonOpenClassesSetting);
+                scheduleSession.update(coursesToSchedule, blockoutSections);
+
+                anytimeScheduler = scheduleSession.anytimeScheduler(new ScheduleScorers.FewestCampusDays(), GENERATION_SCHEDULE_COUNT);
+                result = anytimeScheduler.run(remainingMillis(deadlineNanos), cancellationToken);
+            }
+
+            @Override
+            void show() {
+                showGenerationResult(result, coursesToSchedule, blockoutSections);
+            }
+        });
+    }
+
+    /**
+     * Runs the current {@link #anytimeScheduler} in the background for another {@link #GENERATION_TIME_BUDGET_MS} and shows the outcome.
+     * @param coursesToSchedule Courses the scheduler was created for.
+     * @param blockoutSections Block-out times the scheduler was created for.
+     */
+    private void continueGeneratingSchedule(final ArrayList<Course> coursesToSchedule, final ArrayList<Section> blockoutSections){
+
+        startGenerationStep("Generating Schedule", GENERATION_TIME_BUDGET_MS, new GenerationStep() {
+            private AnytimeScheduler.Result result;
+
+            @Override
+            void search(CancellationToken cancellationToken, long deadlineNanos) {
+                result = anytimeScheduler.run(remainingMillis(deadlineNanos), cancellationToken);
+            }
+
+            @Override
+            void show() {
+                showGenerationResult(result, coursesToSchedule, blockoutSections);
+            }
+        });
+    }
+
+    /**
+     * Shows the best schedule found by a generation step, explains why there is none, or offers to keep searching.
+     */
+    private void showGenerationResult(AnytimeScheduler.Result result, final ArrayList<Course> coursesToSchedule, final ArrayList<Section> blockoutSections){
+
+        if (!result.getSchedules().isEmpty()) {
+            if (!result.isComplete())
+                Toast.makeText(getApplicationContext(), "Showing best schedule after checking " + Math.round(result.getExploredFraction() * 100) + "% of combinations", Toast.LENGTH_SHORT).show();
+            try {
+                Schedule schedule = result.getSchedules().get(0);
+                scheduleSession.remember(schedule);
+                DetailedSchedule.ShowSchedule(schedule, SelectCourses.this);
+                Log.i("Built Schedule", schedule.toJSON().toString());
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
+        if (result.isComplete()) {
+            showNoSchedulesPossible(coursesToSchedule, blockoutSections);
+            return;
+        }
+
+        AlertDialog.Builder keepSearchingDialog = new AlertDialog.Builder(SelectCourses.this);
+        keepSearchingDialog.setTitle("No schedule found yet");
+        keepSearchingDialog.setMessage("Checked " + Math.round(result.getExploredFraction() * 100) + "% of possible combinations.");
+        keepSearchingDialog.setNeutralButton("CHANGE COURSES", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                dialog.dismiss();
+            }
+        });
+        keepSearchingDialog.setPositiveButton("KEEP SEARCHING", new DialogInterface.OnClickListener() {
+            @Override
+            public void onClick(DialogInterface dialog, int which) {
+                continueGeneratingSchedule(coursesToSchedule, blockoutSections);
+            }
+        });
+        keepSearchingDialog.create().show();
+    }
+
+    /**
+     * Explains why no schedule can be built from the courses that are passed to it, and offers to generate one ignoring conflicts.
+     * The explanation is searched for in the background for at most {@link #CONFLICT_EXPLANATION_TIME_BUDGET_MS}.
+     * @param coursesToSchedule Courses from which no conflict free schedule could be generated.
+     * @param blockoutSections Block-out times the courses were scheduled around.
+     */
+    private void showNoSchedulesPossible(final ArrayList<Course> coursesToSchedule, final ArrayList<Section> blockoutSections){
+
+        startGenerationStep("Checking Conflicts", CONFLICT_EXPLANATION_TIME_BUDGET_MS, new GenerationStep() {
+            private Schedule schedule;
+            private NoSchedulesPossibleException noSchedulesPossible;
+            private ScheduleConflicts.Core conflictCore;
+
+            @Override
+            void search(CancellationToken cancellationToken, long deadlineNanos) {
+                try {
+                    // Forward checking finds the dead end quickly and describes the conflicts behind it.
+                    schedule = scheduleSession.solve(cancellationToken, deadlineNanos);
+                } catch (NoSchedulesPossibleException e) {
+                    noSchedulesPossible = e;
+                    conflictCore = Schedule.findConflictCore(coursesToSchedule, blockoutSections, cancellationToken, deadlineNanos);
                 }
-            });
-            noSchedulesPossibleDialog.setPositiveButton("GENERATE IGNORING CONFLICTS", new DialogInterface.OnClickListener() {
-                @Override
-                public void onClick(DialogInterface dialog, int which) {
-                    generateConflictSchedule(coursesToSchedule);
+            }
+
+            @Override
+            void show() {
+                if (schedule != null) {
+                    try {
+                        DetailedSchedule.ShowSchedule(schedule, SelectCourses.this);
+                        Log.i("Built Schedule", schedule.toJSON().toString());
+                    } catch (JSONException e) {
+                        e.printStackTrace();
+                    }
+                    return;
                 }
-            });
-            noSchedulesPossibleDialog.create().show();
-        } catch (JSONException e) {
-            e.printStackTrace();
-        }
+
+                noSchedulesPossible.printStackTrace();
+                AlertDialog.Builder noSchedulesPossibleDialog = new AlertDialog.Builder(SelectCourses.this);
+                String issues = noSchedulesPossible.printConflict();
+                if (conflictCore != null)
+                    issues = conflictCore.describe() + "\n\n" + issues;
+                noSchedulesPossibleDialog.setTitle("Schedule Could be generated. Issues:");
+                noSchedulesPossibleDialog.setMessage(issues);
+                noSchedulesPossibleDialog.setNeutralButton("CHANGE COURSES", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        dialog.dismiss();
+                    }
+                });
+                noSchedulesPossibleDialog.setPositiveButton("GENERATE IGNORING CONFLICTS", new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                        generateConflictSchedule(coursesToSchedule);
+                    }
+                });
+                noSchedulesPossibleDialog.create().show();
+            }
+        });
+    }
+
+    /**
+     * One step of schedule generation. {@link #search(CancellationToken, long)} runs on the {@link #generationExecutor},
+     * then {@link #show()} runs on the UI thread unless the step was cancelled in the meantime.
+     */
+    private abstract static class GenerationStep {
+        abstract void search(CancellationToken cancellationToken, long deadlineNanos);
+        abstract void show();
+    }
+
+    /**
+     * Cancels the generation step in progress and starts the given one behind a progress dialog. Cancelling the dialog cancels the step.
+     * @param title Title of the progress dialog.
+     * @param budgetMillis Longest time the whole search may take.
+     * @param step Step to run.
+     */
+    private void startGenerationStep(String title, long budgetMillis, final GenerationStep step){
+
+        if (generationToken != null)
+            generationToken.cancel();
+        final CancellationToken cancellationToken = new CancellationToken();
+        generationToken = cancellationToken;
+        final long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+        if (generationDialog != null)
+            generationDialog.dismiss();
+        final ProgressDialog stepDialog = new ProgressDialog(this);
+        stepDialog.setTitle(title);
+        stepDialog.setMessage("Please wait while schedules are checked...");
+        stepDialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
+            @Override
+            public void onCancel(DialogInterface dialog) {
+                cancellationToken.cancel();
+            }
+        });
+        stepDialog.show();
+        generationDialog = stepDialog;
+
+        generationExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean searchFailed = false;
+                try {
+                    if (!cancellationToken.isCancelled())
+                        step.search(cancellationToken, deadlineNanos);
+                } catch (RuntimeException e) {
+                    // The executor would swallow this and leave the dialog up, so it is reported on the UI thread instead
+                    e.printStackTrace();
+                    searchFailed = true;
+                }
+                final boolean failed = searchFailed;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        stepDialog.dismiss();
+                        if (failed) {
+                            Log.e("Generate Schedule", "Generation step failed");
+                            Toast.makeText(SelectCourses.this, "Schedules could not be generated", Toast.LENGTH_LONG).show();
+                            return;
+                        }
+                        if (cancellationToken.isCancelled()) {
+                            Log.i("Generate Schedule", "Generation step cancelled");
+                            return;
+                        }
+                        step.show();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Time left until the deadline, at least 1ms so that it is never mistaken for "no budget".
+     */
+    private static long remainingMillis(long deadlineNanos){
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
     }
 
     /**
@@ -1129,13 +1914,28 @@ public class SelectCourses extends ActionBarActivity {
     }
 
     /**
-     * Load semester info from file into an arraylist of SemesterInfo
+     * Load semester info from file into an arraylist of SemesterInfo.
+     * Semesters are read from the {@link SemesterCatalog} if one was saved, otherwise from JSON saved by earlier versions.
      * @return ArrayList of semesters which the user will be able to select from
      */
     public static ArrayList<SemesterInfo> loadSemesterInfoFromFile(){
 
         Log.i("Load Semester", "Preparing to load");
 
+        try {
+            SemesterCatalog catalog = SemesterCatalog.open(UserData.getContext());
+            if (catalog != null) {
+                ArrayList<SemesterInfo> semesterInfoArrayList = catalog.getSemesters();
+                Log.i("Load Semester", "Loaded " + semesterInfoArrayList.size() + " semesters from catalog");
+                return semesterInfoArrayList;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            Log.e("Load Semesters", "Failed to open semester catalog");
+            // A broken catalog would otherwise be tried again, and hide the semesters saved as JSON, on every load.
+            SemesterCatalog.delete(UserData.getContext());
+        }
+
         SharedPreferences savedSemesters = UserData.getContext().getSharedPreferences(SemesterInfo.getSEMESTER_INFO(), MODE_PRIVATE);
 
         Map<String, ?> allEntries = savedSemesters.getAll();
@@ -1147,8 +1947,8 @@ public class SelectCourses extends ActionBarActivity {
             String semesterInfoString = entry.getValue().toString();
             if (entry.getKey().startsWith("SEMESTER_INFO_")) {
                 try {
-                    JSONObject semesterInfoJSON = new JSONObject(semesterInfoString);
-                    SemesterInfo semesterInfo = new SemesterInfo(semesterInfoJSON);
+                    String departmentOffsets = savedSemesters.getString("SEMESTER_OFFSETS_" + entry.getKey().substring("SEMESTER_INFO_".length()), null);
+                    SemesterInfo semesterInfo = SemesterInfo.parse(semesterInfoString, departmentOffsets);
                     semesterInfoArrayList.add(semesterInfo);
                     Log.i("Semester from File", entry.getKey() + " : " + semesterInfo.getSemesterNumber() + " : " + semesterInfoString);
                 } catch (JSONException e) {
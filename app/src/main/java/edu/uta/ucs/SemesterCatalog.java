@@ -0,0 +1,390 @@
+package edu.uta.ucs;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Saved semester catalogs in a compact binary file which is memory mapped on read.
+ *
+ * <p>Opening the file only reads its header. Semester names and numbers come from a fixed size directory, departments
+ * from a fixed size index per semester, and the courses of a department are decoded from its own block when first
+ * needed (see {@link SemesterInfo.DepartmentInfo#getCourses()}). No JSON or XML is parsed.</p>
+ *
+ * <p>Layout, with every int big endian and every varint an unsigned LEB128:</p>
+ *
+ * <ul>
+ * <li>Header: int magic "UCSC", int {@link #VERSION}, int semester count, int string table offset</li>
+ * <li>Semester directory, 16 bytes per semester: int semester number, int name string, int department count, int department index offset</li>
+ * <li>Department index, 12 bytes per department: int acronym string, int title string, int course block offset</li>
+ * <li>Course blocks: varint course count, then per course a varint course number and a varint title string</li>
+ * <li>String table: int string count, int offset of each string, then each string as a varint byte length and UTF-8 bytes</li>
+ * </ul>
+ *
+ * <p>Strings are referred to by their index in the string table, so department acronyms and course titles shared
+ * between semesters are stored once.</p>
+ *
+ * <p>Every read is bounds checked, so a truncated or corrupt file throws an IOException rather than an
+ * IndexOutOfBoundsException from the buffer.</p>
+ */
+class SemesterCatalog {
+
+    static final String FILE_NAME = "semester_catalog.bin";
+
+    private static final int MAGIC = 0x55435343;
+    /** Increase whenever the layout changes. Files with another version are ignored and fetched again. */
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int SEMESTER_ENTRY_SIZE = 16;
+    private static final int DEPARTMENT_ENTRY_SIZE = 12;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int semesterCount;
+    private final int stringTableOffset;
+    /** Decoded strings by index, filled in as they are first read. Guarded by itself, since semesters are read from several threads. */
+    private final String[] strings;
+
+    private SemesterCatalog(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a semester catalog");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported semester catalog version " + buffer.getInt(4));
+        this.semesterCount = buffer.getInt(8);
+        this.stringTableOffset = buffer.getInt(12);
+        if (semesterCount < 0 || semesterCount > (buffer.limit() - HEADER_SIZE) / SEMESTER_ENTRY_SIZE)
+            throw new IOException("Semester catalog directory does not fit: " + semesterCount + " semesters");
+        int stringCount = readInt(stringTableOffset);
+        if (stringCount < 0 || stringCount > (buffer.limit() - stringTableOffset - 4) / 4)
+            throw new IOException("Semester catalog string table does not fit: " + stringCount + " strings");
+        this.strings = new String[stringCount];
+    }
+
+    /**
+     * Maps a catalog file into memory.
+     *
+     * @return the catalog, or null if the file does not exist or was written in another format.
+     */
+    static SemesterCatalog open(File file) throws IOException {
+        if (!file.exists())
+            return null;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SemesterCatalog(mappedBuffer);
+        } catch (IOException e) {
+            Log.e("Semester Catalog", "Ignoring unreadable catalog: " + e.getMessage());
+            return null;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Opens the catalog saved for this app.
+     *
+     * @return the catalog, or null if none has been saved in the current format.
+     */
+    static SemesterCatalog open(Context context) throws IOException {
+        return open(new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Loads one semester from the catalog saved for this app.
+     *
+     * @return the semester, or null if no catalog is saved or it does not have the semester.
+     */
+    static SemesterInfo loadSemester(Context context, int semesterNumber) {
+        try {
+            SemesterCatalog catalog = open(context);
+            if (catalog == null)
+                return null;
+            for (int index = 0; index < catalog.semesterCount; index++) {
+                if (catalog.getSemesterNumber(index) == semesterNumber)
+                    return new SemesterInfo(catalog, index);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Obtains every semester in the catalog. Only their numbers and names are read until their departments are needed.
+     */
+    ArrayList<SemesterInfo> getSemesters() throws IOException {
+        ArrayList<SemesterInfo> semesters = new ArrayList<>(semesterCount);
+        for (int index = 0; index < semesterCount; index++) {
+            semesters.add(new SemesterInfo(this, index));
+        }
+        return semesters;
+    }
+
+    int getSemesterNumber(int semester) throws IOException {
+        return readInt(semesterEntry(semester));
+    }
+
+    String getSemesterName(int semester) throws IOException {
+        return getString(readInt(semesterEntry(semester) + 4));
+    }
+
+    int getDepartmentCount(int semester) throws IOException {
+        int departmentCount = readInt(semesterEntry(semester) + 8);
+        if (departmentCount < 0 || departmentCount > buffer.limit() / DEPARTMENT_ENTRY_SIZE)
+            throw new IOException("Semester " + semester + " has an invalid department count " + departmentCount);
+        return departmentCount;
+    }
+
+    String getDepartmentAcronym(int semester, int department) throws IOException {
+        return getString(readInt(departmentEntry(semester, department)));
+    }
+
+    String getDepartmentTitle(int semester, int department) throws IOException {
+        return getString(readInt(departmentEntry(semester, department) + 4));
+    }
+
+    /**
+     * @return offset of the course block of a department, to pass to {@link #readCourses(int)}.
+     */
+    int getCourseBlockOffset(int semester, int department) throws IOException {
+        return readInt(departmentEntry(semester, department) + 8);
+    }
+
+    /**
+     * Decodes a course block.
+     *
+     * @param blockOffset offset returned by {@link #getCourseBlockOffset(int, int)}
+     * @return course number and title string index of each course, interleaved. Pass the indexes to {@link #getString(int)}.
+     */
+    int[] readCourses(int blockOffset) throws IOException {
+        int[] position = {blockOffset};
+        int courseCount = readVarint(buffer, position);
+        // Every course takes at least two bytes, which bounds the count before anything is allocated for it.
+        if (courseCount < 0 || courseCount > (buffer.limit() - position[0]) / 2)
+            throw new IOException("Course block at " + blockOffset + " does not fit: " + courseCount + " courses");
+        int[] courses = new int[courseCount * 2];
+        for (int index = 0; index < courses.length; index++) {
+            courses[index] = readVarint(buffer, position);
+        }
+        return courses;
+    }
+
+    String getString(int index) throws IOException {
+        if (index < 0 || index >= strings.length)
+            throw new IOException("String " + index + " is not in the semester catalog");
+        synchronized (strings) {
+            if (strings[index] == null) {
+                int[] position = {readInt(stringTableOffset + 4 + index * 4)};
+                int length = readVarint(buffer, position);
+                if (length < 0 || length > buffer.limit() - position[0])
+                    throw new IOException("String " + index + " does not fit: " + length + " bytes");
+                byte[] bytes = new byte[length];
+                ByteBuffer view = buffer.duplicate();
+                view.position(position[0]);
+                view.get(bytes);
+                strings[index] = new String(bytes, UTF_8);
+            }
+            return strings[index];
+        }
+    }
+
+    private int semesterEntry(int semester) throws IOException {
+        if (semester < 0 || semester >= semesterCount)
+            throw new IOException("Semester " + semester + " is not in the semester catalog");
+        return HEADER_SIZE + semester * SEMESTER_ENTRY_SIZE;
+    }
+
+    private int departmentEntry(int semester, int department) throws IOException {
+        if (department < 0 || department >= getDepartmentCount(semester))
+            throw new IOException("Department " + department + " is not in semester " + semester);
+        return readInt(semesterEntry(semester) + 12) + department * DEPARTMENT_ENTRY_SIZE;
+    }
+
+    private int readInt(int offset) throws IOException {
+        if (offset < 0 || offset > buffer.limit() - 4)
+            throw new IOException("Semester catalog is truncated at " + offset);
+        return buffer.getInt(offset);
+    }
+
+    /**
+     * Deletes the catalog saved for this app, so that semesters saved some other way are not hidden by it.
+     */
+    static void delete(Context context) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        if (file.exists() && !file.delete())
+            Log.e("Semester Catalog", "Could not delete " + file.getPath());
+    }
+
+    /**
+     * Writes semesters to the catalog saved for this app, replacing any earlier catalog.
+     */
+    static void write(ArrayList<SemesterInfo> semesters, Context context) throws IOException {
+        write(semesters, new File(context.getFilesDir(), FILE_NAME));
+    }
+
+    /**
+     * Writes semesters to a catalog file. The file is replaced only once the new one is complete.
+     */
+    static void write(ArrayList<SemesterInfo> semesters, File file) throws IOException {
+        long startTime = System.currentTimeMillis();
+        ArrayList<String> stringList = new ArrayList<>();
+        HashMap<String, Integer> stringIndexes = new HashMap<>();
+
+        // Course blocks come first so that the offset of each one is known when the department index is written.
+        int departmentTotal = 0;
+        for (SemesterInfo semester : semesters) {
+            departmentTotal += semester.getDepartmentArrayList().size();
+        }
+        int courseDataOffset = HEADER_SIZE + semesters.size() * SEMESTER_ENTRY_SIZE + departmentTotal * DEPARTMENT_ENTRY_SIZE;
+
+        ByteArrayOutputStream courseData = new ByteArrayOutputStream();
+        int[] courseBlockOffsets = new int[departmentTotal];
+        int departmentNumber = 0;
+        for (SemesterInfo semester : semesters) {
+            for (SemesterInfo.DepartmentInfo department : semester.getDepartmentArrayList()) {
+                courseBlockOffsets[departmentNumber++] = courseDataOffset + courseData.size();
+                ArrayList<SemesterInfo.DepartmentInfo.CourseInfo> courses;
+                try {
+                    // Not getCourses(), which would save a department whose courses cannot be read as having none
+                    courses = department.loadCourses();
+                } catch (JSONException e) {
+                    throw new IOException("Could not decode courses of " + department.getDepartmentAcronym(), e);
+                }
+                writeVarint(courseData, courses.size());
+                for (SemesterInfo.DepartmentInfo.CourseInfo course : courses) {
+                    writeVarint(courseData, course.getCourseNumber());
+                    writeVarint(courseData, intern(course.getCourseTitle(), stringList, stringIndexes));
+                }
+            }
+        }
+
+        File temporaryFile = new File(file.getPath() + ".tmp");
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+        boolean complete = false;
+        try {
+            // Header strings are interned before the string table offset is fixed, since interning cannot change course data size.
+            int[] semesterNames = new int[semesters.size()];
+            int[] departmentStrings = new int[departmentTotal * 2];
+            departmentNumber = 0;
+            for (int index = 0; index < semesters.size(); index++) {
+                semesterNames[index] = intern(semesters.get(index).getSemesterName(), stringList, stringIndexes);
+                for (SemesterInfo.DepartmentInfo department : semesters.get(index).getDepartmentArrayList()) {
+                    departmentStrings[departmentNumber * 2] = intern(department.getDepartmentAcronym(), stringList, stringIndexes);
+                    departmentStrings[departmentNumber * 2 + 1] = intern(department.getDepartmentTitle(), stringList, stringIndexes);
+                    departmentNumber++;
+                }
+            }
+
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(semesters.size());
+            output.writeInt(courseDataOffset + courseData.size());
+
+            int departmentIndexOffset = HEADER_SIZE + semesters.size() * SEMESTER_ENTRY_SIZE;
+            for (int index = 0; index < semesters.size(); index++) {
+                SemesterInfo semester = semesters.get(index);
+                output.writeInt(semester.getSemesterNumber());
+                output.writeInt(semesterNames[index]);
+                output.writeInt(semester.getDepartmentArrayList().size());
+                output.writeInt(departmentIndexOffset);
+                departmentIndexOffset += semester.getDepartmentArrayList().size() * DEPARTMENT_ENTRY_SIZE;
+            }
+
+            for (departmentNumber = 0; departmentNumber < departmentTotal; departmentNumber++) {
+                output.writeInt(departmentStrings[departmentNumber * 2]);
+                output.writeInt(departmentStrings[departmentNumber * 2 + 1]);
+                output.writeInt(courseBlockOffsets[departmentNumber]);
+            }
+
+            courseData.writeTo(output);
+            writeStringTable(output, stringList, courseDataOffset + courseData.size());
+            complete = true;
+        } finally {
+            output.close();
+            if (!complete)
+                temporaryFile.delete();
+        }
+
+        if (!temporaryFile.renameTo(file)) {
+            temporaryFile.delete();
+            throw new IOException("Could not replace " + file.getPath());
+        }
+        Log.i("Semester Catalog", "Wrote " + semesters.size() + " semesters, " + departmentTotal + " departments and " + stringList.size() + " strings in " + file.length() + " bytes in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    private static void writeStringTable(DataOutputStream output, ArrayList<String> stringList, int stringTableOffset) throws IOException {
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        int[] stringOffsets = new int[stringList.size()];
+        int stringDataOffset = stringTableOffset + 4 + stringList.size() * 4;
+        for (int index = 0; index < stringList.size(); index++) {
+            stringOffsets[index] = stringDataOffset + stringData.size();
+            byte[] bytes = stringList.get(index).getBytes(UTF_8);
+            writeVarint(stringData, bytes.length);
+            stringData.write(bytes, 0, bytes.length);
+        }
+
+        output.writeInt(stringList.size());
+        for (int stringOffset : stringOffsets) {
+            output.writeInt(stringOffset);
+        }
+        stringData.writeTo(output);
+    }
+
+    private static int intern(String string, ArrayList<String> stringList, HashMap<String, Integer> stringIndexes) {
+        if (string == null)
+            string = "";
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            index = stringList.size();
+            stringList.add(string);
+            stringIndexes.put(string, index);
+        }
+        return index;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    /**
+     * Reads a varint at position[0] and moves position[0] past it.
+     */
+    private static int readVarint(ByteBuffer buffer, int[] position) throws IOException {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            if (position[0] < 0 || position[0] >= buffer.limit())
+                throw new IOException("Semester catalog is truncated at " + position[0]);
+            if (shift > 28)
+                throw new IOException("Varint too long at " + position[0]);
+            current = buffer.get(position[0]++);
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+}
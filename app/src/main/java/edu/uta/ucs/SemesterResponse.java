@@ -0,0 +1,129 @@
+package edu.uta.ucs;
+
+import android.content.Intent;
+import android.util.Log;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+/**
+ * A server response carrying semester catalogs, such as the response to GetDepartmentClassData.
+ *
+ * <p>Decoded in a single pass with a streaming {@link JsonReader}, like {@link CourseResponse}. Together with
+ * {@link HTTPService#FetchURL(String, String, android.content.Context, boolean)} the catalog goes from the network to
+ * {@link SemesterInfo} objects without the response ever being held as a String or an org.json tree.</p>
+ */
+public class SemesterResponse {
+
+    private boolean success = false;
+    private String message = null;
+    private float timeTaken = -1;
+    private ArrayList<SemesterInfo> semesters = new ArrayList<>();
+
+    private SemesterResponse() {
+    }
+
+    /**
+     * Decodes the response carried by a broadcast from {@link HTTPService}, whether it was streamed to a file or sent as a String.
+     *
+     * @param broadcastIntent intent received by the BroadcastReceiver
+     * @return the decoded response
+     * @throws JSONException if the response cannot be read, is not valid JSON or a semester is missing a required key.
+     */
+    public static SemesterResponse read(Intent broadcastIntent) throws JSONException {
+        Reader responseReader = null;
+        try {
+            responseReader = HTTPService.openResponse(broadcastIntent);
+            return read(responseReader);
+        } catch (IOException e) {
+            throw new JSONException("Could not read semester response: " + e.getMessage());
+        } finally {
+            if (responseReader != null) {
+                try {
+                    responseReader.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a response from a character stream. The stream is read to the end of the response but not closed.
+     *
+     * @param responseReader stream positioned at the start of the response
+     * @return the decoded response
+     * @throws JSONException if the response is not valid JSON or a semester is missing a required key.
+     */
+    public static SemesterResponse read(Reader responseReader) throws JSONException {
+        long startTime = System.currentTimeMillis();
+        SemesterResponse semesterResponse = new SemesterResponse();
+        JsonReader reader = new JsonReader(responseReader);
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (name.equals("Success")) {
+                    semesterResponse.success = reader.peek() == JsonToken.BOOLEAN ? reader.nextBoolean() : Boolean.parseBoolean(reader.nextString());
+                } else if (name.equals("Message") && reader.peek() != JsonToken.NULL) {
+                    semesterResponse.message = reader.nextString();
+                } else if (name.equals("TimeTaken") && reader.peek() != JsonToken.NULL) {
+                    semesterResponse.timeTaken = Float.parseFloat(reader.nextString());
+                } else if (name.equals("Semesters") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        semesterResponse.semesters.add(SemesterInfo.read(reader));
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IOException e) {
+            throw new JSONException("Could not read semester response: " + e.getMessage());
+        } catch (NumberFormatException e) {
+            throw new JSONException("Could not read semester response: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            // JsonReader throws this when a value has another type than expected, such as an object where a string should be.
+            throw new JSONException("Could not read semester response: " + e.getMessage());
+        }
+        Log.i("Semester Response", "Read " + semesterResponse.semesters.size() + " semesters in " + (System.currentTimeMillis() - startTime) + "ms");
+        return semesterResponse;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return message sent by the server, or null if it did not send one.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean hasMessage() {
+        return message != null;
+    }
+
+    /**
+     * @return server side time taken in seconds, or -1 if the server did not send it.
+     */
+    public float getTimeTaken() {
+        return timeTaken;
+    }
+
+    /**
+     * Obtains the semesters of the response in the order the server sent them. Empty if the response had none.
+     */
+    public ArrayList<SemesterInfo> getSemesters() {
+        return semesters;
+    }
+}
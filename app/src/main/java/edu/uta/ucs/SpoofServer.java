@@ -0,0 +1,246 @@
+package edu.uta.ucs;
+
+import android.content.Context;
+import android.content.Intent;
+import android.support.v4.content.LocalBroadcastManager;
+import android.util.Log;
+
+import com.google.gson.stream.JsonReader;
+
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for the server, used while {@link UserData#spoofServer()} is on.
+ *
+ * <p>Answers requests from the spoof_data.json asset, which maps request urls to responses. The asset is read once and
+ * indexed by url to the byte range of each response, which is only decoded when that url is requested. Responses are
+ * broadcast straight to the receiver, the same way {@link HTTPService} broadcasts a server response.</p>
+ */
+class SpoofServer {
+
+    private static final String SPOOF_DATA_ASSET = "spoof_data.json";
+
+    private static SpoofServer instance = null;
+    private static final ExecutorService responder = Executors.newSingleThreadExecutor();
+
+    private final byte[] spoofData;
+    /** Request url to the offset and length of its response in spoofData. A url listed twice keeps its last response. */
+    private final HashMap<String, int[]> responseRanges = new HashMap<>();
+
+    private SpoofServer(byte[] spoofData) throws IOException {
+        this.spoofData = spoofData;
+        buildIndex();
+    }
+
+    /**
+     * Obtains the spoof server, reading and indexing the asset the first time.
+     * If the asset cannot be read the server answers every request as unknown.
+     */
+    static synchronized SpoofServer getInstance(Context context) {
+        if (instance == null) {
+            long startTime = System.currentTimeMillis();
+            try {
+                instance = new SpoofServer(readAsset(context, SPOOF_DATA_ASSET));
+            } catch (IOException e) {
+                e.printStackTrace();
+                Log.e("Spoof Server", "Could not load " + SPOOF_DATA_ASSET);
+                try {
+                    instance = new SpoofServer("{}".getBytes("UTF-8"));
+                } catch (IOException unexpected) {
+                    throw new IllegalStateException(unexpected);
+                }
+            }
+            Log.i("Spoof Server", "Indexed " + instance.responseRanges.size() + " responses in " + (System.currentTimeMillis() - startTime) + "ms");
+        }
+        return instance;
+    }
+
+    /**
+     * Answers a request on a background thread and broadcasts the response to the receiver in {@link HTTPService#SERVER_RESPONSE}.
+     *
+     * @param context context to broadcast with
+     * @param url requested url
+     * @param receiverTag intentFilter of the receiver
+     */
+    static void answer(Context context, String url, String receiverTag) {
+        answer(context, url, null, receiverTag);
+    }
+
+    /**
+     * Answers a posted request on a background thread and broadcasts the response to the receiver in {@link HTTPService#SERVER_RESPONSE}.
+     * Delta sync requests are answered by the {@link SyncStandInServer}, any other request from the asset.
+     *
+     * @param context context to broadcast with
+     * @param url requested url
+     * @param posted JSON posted with the request, or null for a GET
+     * @param receiverTag intentFilter of the receiver
+     */
+    static void answer(Context context, final String url, final JSONObject posted, final String receiverTag) {
+        final Context applicationContext = context.getApplicationContext();
+        final String syncURL = applicationContext.getResources().getString(R.string.sync_delta);
+        responder.execute(new Runnable() {
+            @Override
+            public void run() {
+                String response;
+                if (posted != null && url.endsWith(syncURL))
+                    response = SyncStandInServer.getInstance().handle(posted);
+                else
+                    response = getInstance(applicationContext).respond(url);
+                Intent broadcastIntent = new Intent(receiverTag);
+                broadcastIntent.putExtra(HTTPService.SERVER_RESPONSE, response);
+                Log.i("Spoof Server SOURCE", receiverTag);
+                Log.i("Spoof Server URL", url);
+                LocalBroadcastManager.getInstance(applicationContext).sendBroadcast(broadcastIntent);
+            }
+        });
+    }
+
+    /**
+     * Finds the response for a url. A url without a response of its own gets the response stored for it without parameters.
+     *
+     * @return the stored response, or a failed response with a message if there is none.
+     */
+    String respond(String url) {
+        String response = lookup(url);
+        int baseURLEnd = url.indexOf("?");
+        if (response == null && baseURLEnd != -1)
+            response = lookup(url.substring(0, baseURLEnd));
+        if (response == null)
+            response = HTTPService.BAD_RESPONSE.substring(0, HTTPService.BAD_RESPONSE.length()-1) + ",\"Message\":\"no spoof URL response stored\"}";
+        return response;
+    }
+
+    /**
+     * @return the response stored for exactly this url, or null if there is none.
+     */
+    String lookup(String url) {
+        int[] range = responseRanges.get(url);
+        if (range == null)
+            return null;
+        try {
+            if (spoofData[range[0]] != '"')
+                return new String(spoofData, range[0], range[1], "UTF-8").trim();
+            return decodeString(range[0], range[1]);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Walks the top level object of the asset, recording where each value starts and ends without decoding it.
+     */
+    private void buildIndex() throws IOException {
+        int position = skipWhitespace(0);
+        position = expect(position, '{');
+        position = skipWhitespace(position);
+        if (position < spoofData.length && spoofData[position] == '}')
+            return;
+        while (true) {
+            int keyEnd = skipString(position);
+            String url = decodeString(position, keyEnd - position);
+            position = expect(skipWhitespace(keyEnd), ':');
+            int valueStart = skipWhitespace(position);
+            int valueEnd = skipValue(valueStart);
+            responseRanges.put(url, new int[]{valueStart, valueEnd - valueStart});
+            position = skipWhitespace(valueEnd);
+            if (position < spoofData.length && spoofData[position] == '}')
+                return;
+            position = skipWhitespace(expect(position, ','));
+        }
+    }
+
+    private String decodeString(int offset, int length) throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(spoofData, offset, length), "UTF-8"));
+        reader.setLenient(true);
+        try {
+            return reader.nextString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private int skipWhitespace(int position) {
+        while (position < spoofData.length && (spoofData[position] == ' ' || spoofData[position] == '\n' || spoofData[position] == '\r' || spoofData[position] == '\t'))
+            position++;
+        return position;
+    }
+
+    private int expect(int position, char expected) throws IOException {
+        if (position >= spoofData.length || spoofData[position] != expected)
+            throw new IOException("Expected '" + expected + "' at byte " + position + " of " + SPOOF_DATA_ASSET);
+        return position + 1;
+    }
+
+    /**
+     * @return position just after the string literal starting at position.
+     */
+    private int skipString(int position) throws IOException {
+        position = expect(position, '"');
+        while (position < spoofData.length) {
+            byte current = spoofData[position++];
+            if (current == '\\')
+                position++;
+            else if (current == '"')
+                return position;
+        }
+        throw new IOException("Unterminated string in " + SPOOF_DATA_ASSET);
+    }
+
+    /**
+     * @return position just after the value starting at position, which may be a string, object, array or literal.
+     */
+    private int skipValue(int position) throws IOException {
+        if (position >= spoofData.length)
+            throw new IOException("Missing value at end of " + SPOOF_DATA_ASSET);
+        if (spoofData[position] == '"')
+            return skipString(position);
+        int depth = 0;
+        while (position < spoofData.length) {
+            byte current = spoofData[position];
+            if (current == '"') {
+                position = skipString(position);
+                continue;
+            }
+            if (current == '{' || current == '[')
+                depth++;
+            else if (current == '}' || current == ']') {
+                if (depth == 0)
+                    return position;
+                depth--;
+            }
+            else if (current == ',' && depth == 0)
+                return position;
+            position++;
+            if (depth == 0 && (current == '}' || current == ']'))
+                return position;
+        }
+        if (depth != 0)
+            throw new IOException("Unterminated value in " + SPOOF_DATA_ASSET);
+        return position;
+    }
+
+    private static byte[] readAsset(Context context, String fileName) throws IOException {
+        InputStream input = context.getAssets().open(fileName);
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(input.available(), 8192));
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = input.read(buffer)) != -1) {
+                output.write(buffer, 0, count);
+            }
+            return output.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * In-memory stand-in for the server side of {@link DeltaSync}, used by {@link SpoofServer} so delta sync can be tried
+ * and tested offline.
+ *
+ * <p>Keeps the latest version of every record with the sequence number of the change which wrote it. A sync token is
+ * the last sequence number the client has seen. An uploaded record replaces the stored one and is listed as accepted,
+ * unless the stored one has a higher revision, in which case the stored one is sent back instead. The response also
+ * carries every other record changed after the client's token.</p>
+ */
+class SyncStandInServer {
+
+    private static SyncStandInServer instance = null;
+
+    /** Latest version of each record by type and id, as uploaded. */
+    private final HashMap<String, JSONObject> records = new HashMap<>();
+    /** Sequence number of the change which last wrote each record. */
+    private final HashMap<String, Integer> recordSequences = new HashMap<>();
+    private int sequence = 0;
+
+    static synchronized SyncStandInServer getInstance() {
+        if (instance == null)
+            instance = new SyncStandInServer();
+        return instance;
+    }
+
+    /**
+     * Answers a delta sync request.
+     *
+     * @param request the request as built by {@link DeltaSync#buildRequest()}. Changes may also be sent as JSON text, like a form post would.
+     * @return the response text
+     */
+    synchronized String handle(JSONObject request) {
+        long startTime = System.currentTimeMillis();
+        try {
+            int since;
+            try {
+                since = Integer.parseInt(request.optString("SyncToken", "0"));
+            } catch (NumberFormatException e) {
+                since = 0;
+            }
+
+            Object changesValue = request.opt("Changes");
+            JSONArray changes = changesValue instanceof JSONArray ? (JSONArray) changesValue : new JSONArray(changesValue != null ? changesValue.toString() : "[]");
+
+            HashSet<String> accepted = new HashSet<>();
+            HashSet<String> rejected = new HashSet<>();
+            JSONArray acceptances = new JSONArray();
+            for (int index = 0; index < changes.length(); index++) {
+                JSONObject change = changes.getJSONObject(index);
+                String key = DeltaSync.key(change.getString("Type"), change.getString("Id"));
+                JSONObject stored = records.get(key);
+                if (stored != null && stored.optInt("Revision", 0) > change.optInt("Revision", 0)) {
+                    Log.i("Sync Stand-In", "Keeping newer revision of " + key);
+                    rejected.add(key);
+                    continue;
+                }
+                records.put(key, change);
+                recordSequences.put(key, ++sequence);
+                accepted.add(key);
+                JSONObject acceptance = new JSONObject();
+                acceptance.put("Type", change.getString("Type"));
+                acceptance.put("Id", change.getString("Id"));
+                if (change.has("Hash"))
+                    acceptance.put("Hash", change.getString("Hash"));
+                acceptances.put(acceptance);
+            }
+
+            JSONArray changedSince = new JSONArray();
+            for (Map.Entry<String, Integer> entry : recordSequences.entrySet()) {
+                if ((entry.getValue() > since || rejected.contains(entry.getKey())) && !accepted.contains(entry.getKey()))
+                    changedSince.put(records.get(entry.getKey()));
+            }
+
+            JSONObject response = new JSONObject();
+            response.put("Success", true);
+            response.put("SyncToken", String.valueOf(sequence));
+            response.put("Accepted", acceptances);
+            response.put("Changes", changedSince);
+            response.put("TimeTaken", String.valueOf((System.currentTimeMillis() - startTime) / 1000f));
+            Log.i("Sync Stand-In", "Accepted " + accepted.size() + " records, sent back " + changedSince.length());
+            return response.toString();
+        } catch (JSONException e) {
+            e.printStackTrace();
+            return HTTPService.BAD_RESPONSE.substring(0, HTTPService.BAD_RESPONSE.length()-1) + ",\"Message\":\"bad sync request\"}";
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package edu.uta.ucs;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Finds the best scoring conflict free schedules according to a {@link ScheduleScorer}.
+ *
+ * <p>The best schedules found so far are kept in a min-heap bounded to the requested count, so the worst of them is
+ * always at the head. Once the heap is full, any partial schedule whose {@link ScheduleScorer#upperBound(Section[], int)}
+ * cannot beat that worst score is skipped along with every schedule below it.</p>
+ *
+ * <p>If the enumerator is stopped by a cancellation token or deadline, {@link #resume()} returns early and can be called
+ * again later to continue from the same place with the schedules kept so far. See {@link AnytimeScheduler}.</p>
+ */
+public class TopScheduleGenerator {
+
+    private final ScheduleEnumerator enumerator;
+    private final ScheduleScorer scorer;
+    private final int count;
+    private final ArrayList<Section> blockOutTimesList;
+    private final int semesterNumber;
+
+    private final PriorityQueue<ScoredSelection> best;
+    private long schedulesScored = 0;
+    private long branchesSkipped = 0;
+    private long nextSequence = 0;
+    private int offeredCount = 0;
+    private boolean prepared = false;
+
+    /**
+     * @param enumerator enumerator over the schedules to rank. It should not have been advanced yet.
+     * @param scorer scoring function. Higher scores are better.
+     * @param count number of schedules to keep.
+     * @param blockOutTimesList Arraylist of block-out times attached to each generated schedule
+     * @param semesterNumber Semester Number the generated schedules are built for.
+     */
+    TopScheduleGenerator(ScheduleEnumerator enumerator, ScheduleScorer scorer, int count, ArrayList<Section> blockOutTimesList, int semesterNumber) {
+        this.enumerator = enumerator;
+        this.scorer = scorer;
+        this.count = Math.max(count, 1);
+        this.blockOutTimesList = blockOutTimesList;
+        this.semesterNumber = semesterNumber;
+        this.best = new PriorityQueue<>(this.count, new WorstFirst());
+    }
+
+    /**
+     * Runs the search to completion.
+     *
+     * @return up to count schedules, best first. Schedules with equal scores stay in the order they were found.
+     */
+    public ArrayList<Schedule> generate() {
+        resume();
+        return getSchedules();
+    }
+
+    /**
+     * Runs the search until the enumerator is exhausted or stopped.
+     *
+     * @return true if the whole search space has been visited.
+     */
+    boolean resume() {
+        long startTime = System.currentTimeMillis();
+        prepare();
+
+        while (enumerator.advance()) {
+            Section[] selection = enumerator.getSelection();
+            int score = scorer.score(selection);
+            schedulesScored++;
+            keep(selection, score);
+        }
+
+        Log.i("Top Schedule Generator", "Scored " + schedulesScored + " schedules and skipped " + branchesSkipped + " branches in " + (System.currentTimeMillis() - startTime) + "ms");
+        return enumerator.isExhausted();
+    }
+
+    /**
+     * Scores a schedule found elsewhere, such as by an earlier search over similar courses, and keeps it if it is good enough.
+     * Offering good schedules before searching lets the search skip more branches from the start.
+     *
+     * @param selection one section per course, in the enumerator's course order. Must be conflict free.
+     */
+    void offer(Section[] selection) {
+        prepare();
+        offeredCount++;
+        keep(selection, scorer.score(selection));
+    }
+
+    /**
+     * Prepares the scorer and installs the branch filter, once, before the first schedule is scored.
+     */
+    private void prepare() {
+        if (prepared)
+            return;
+        prepared = true;
+        scorer.prepare(enumerator.getCandidates());
+        enumerator.setBranchFilter(new ScheduleEnumerator.BranchFilter() {
+            @Override
+            public boolean shouldExplore(Section[] selection, int assignedCount) {
+                if (best.size() < count || scorer.upperBound(selection, assignedCount) > best.peek().score)
+                    return true;
+                branchesSkipped++;
+                return false;
+            }
+        });
+    }
+
+    private void keep(Section[] selection, int score) {
+        // An offered schedule may be found again by the search, so it must not be kept twice.
+        if (offeredCount > 0 && isKept(selection))
+            return;
+        if (best.size() < count) {
+            best.add(new ScoredSelection(selection.clone(), score, nextSequence++));
+        } else if (score > best.peek().score) {
+            best.poll();
+            best.add(new ScoredSelection(selection.clone(), score, nextSequence++));
+        }
+    }
+
+    private boolean isKept(Section[] selection) {
+        for (ScoredSelection scoredSelection : best) {
+            if (Arrays.equals(scoredSelection.selection, selection))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Obtains the best schedules kept so far.
+     *
+     * @return up to count schedules, best first. Schedules with equal scores stay in the order they were found.
+     */
+    public ArrayList<Schedule> getSchedules() {
+        ArrayList<ScoredSelection> ranked = rank();
+        ArrayList<Schedule> schedules = new ArrayList<>(ranked.size());
+        for (ScoredSelection scoredSelection : ranked) {
+            schedules.add(new Schedule("Generated Schedule", semesterNumber, new ArrayList<>(Arrays.asList(scoredSelection.selection)), blockOutTimesList));
+        }
+        return schedules;
+    }
+
+    /**
+     * Obtains the scores of the schedules returned by {@link #getSchedules()}, in the same order.
+     */
+    public int[] getScores() {
+        ArrayList<ScoredSelection> ranked = rank();
+        int[] scores = new int[ranked.size()];
+        for (int index = 0; index < scores.length; index++) {
+            scores[index] = ranked.get(index).score;
+        }
+        return scores;
+    }
+
+    private ArrayList<ScoredSelection> rank() {
+        ArrayList<ScoredSelection> ranked = new ArrayList<>(best);
+        Collections.sort(ranked, Collections.reverseOrder(new WorstFirst()));
+        return ranked;
+    }
+
+    ScheduleEnumerator getEnumerator() {
+        return enumerator;
+    }
+
+    public long getSchedulesScored() {
+        return schedulesScored;
+    }
+
+    public long getBranchesSkipped() {
+        return branchesSkipped;
+    }
+
+    /**
+     * A kept schedule with its score and the order it was found in.
+     */
+    private static class ScoredSelection {
+        final Section[] selection;
+        final int score;
+        final long sequence;
+
+        ScoredSelection(Section[] selection, int score, long sequence) {
+            this.selection = selection;
+            this.score = score;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Orders the lowest score first and, among equal scores, the most recently found first.
+     */
+    private static class WorstFirst implements Comparator<ScoredSelection> {
+        @Override
+        public int compare(ScoredSelection first, ScoredSelection second) {
+            if (first.score != second.score)
+                return first.score < second.score ? -1 : 1;
+            return first.sequence > second.sequence ? -1 : (first.sequence == second.sequence ? 0 : 1);
+        }
+    }
+}
@@ -86,6 +86,13 @@ public class UserData extends Application {
             SelectBlockoutTimes.saveBlockoutCoursesToFile(UserData.getContext(), blockoutTimesFromServer);
         }
 
+        if(userDataJSON.has("SCHEDULES") || userDataJSON.has("BLOCKOUTTIMES")){
+            // Everything saved now came from the server, so the next sync only has to send what changes after this
+            DeltaSync deltaSync = DeltaSync.load(UserData.getContext());
+            deltaSync.markAllSynced(userDataJSON.optString("SyncToken", ""));
+            deltaSync.save(UserData.getContext());
+        }
+
     }
 
     public static JSONObject toJSON() throws JSONException {
@@ -111,7 +118,19 @@ public class UserData extends Application {
         return userDataJSON;
     }
 
-    public static void sync_upload(){
+    /**
+     * Syncs saved schedules and block-out times with the server. With {@link DeltaSync} enabled only records changed
+     * since the last sync are uploaded, and only records changed on the server since then are downloaded and saved.
+     * Otherwise all user data is uploaded, then downloaded again and handed to the receiver to be saved.
+     *
+     * @param receiverTag intentFilter told once the sync is over. May be empty.
+     */
+    public static void sync_upload(String receiverTag){
+
+        if(DeltaSync.isEnabled(UserData.getContext())){
+            DeltaSync.sync(UserData.getContext(), receiverTag);
+            return;
+        }
 
         JSONObject syncJSON;
 
@@ -125,7 +144,10 @@ public class UserData extends Application {
 
         String syncURL = UserData.getContext().getResources().getString(R.string.sync_upload);
 
-        HTTPService.PostJSON(syncURL, syncJSON, "", UserData.getContext());
+        HTTPService.PostJSON(syncURL, syncJSON, "", UserData.getContext(), HTTPService.PRIORITY_BACKGROUND);
+        // Background requests run one at a time in order, so the download sees the upload
+        if(receiverTag != null && !receiverTag.isEmpty())
+            HTTPService.FetchURL(UserData.getContext().getString(R.string.sync_download), receiverTag, UserData.getContext(), false, false, HTTPService.PRIORITY_BACKGROUND);
     }
 
     public static void logout(Context context) {
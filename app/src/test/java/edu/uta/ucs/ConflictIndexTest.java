@@ -0,0 +1,131 @@
+package edu.uta.ucs;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static edu.uta.ucs.TestCourses.blockOut;
+import static edu.uta.ucs.TestCourses.course;
+import static edu.uta.ucs.TestCourses.courses;
+import static edu.uta.ucs.TestCourses.section;
+import static edu.uta.ucs.TestCourses.sections;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ConflictIndexTest {
+
+    private ArrayList<Course> courseArrayList;
+
+    @Before
+    public void setUp() {
+        courseArrayList = courses(
+                course("MATH", "1426",
+                        section(10, 900, 950, Day.M, Day.W),            // id 0
+                        section(11, 1000, 1050, Day.M, Day.W)),         // id 1
+                course("ENGL", "1301",
+                        section(20, 920, 950, Day.M),                   // id 2, overlaps 10
+                        section(21, 900, 950, Day.TU, Day.TH),          // id 3
+                        section(22, 1100, 1150, Day.W, Day.F, Day.M, Day.TH, Day.TU)));  // id 4
+    }
+
+    @Test
+    public void comparesSectionsAcrossCourses() {
+        ConflictIndex index = new ConflictIndex(courseArrayList, new ArrayList<Section>(), true);
+
+        assertEquals(2, index.getCourseCount());
+        assertEquals(5, index.getSectionCount());
+        assertFalse(index.isCompatible(0, 2));
+        assertFalse(index.isCompatible(2, 0));
+        assertTrue(index.isCompatible(1, 2));
+        assertTrue(index.isCompatible(0, 3));
+        assertTrue(index.isCompatible(0, 4));
+    }
+
+    @Test
+    public void sectionsOfTheSameCourseAreNeverCompatible() {
+        ConflictIndex index = new ConflictIndex(courseArrayList, new ArrayList<Section>(), true);
+
+        assertFalse(index.isCompatible(0, 1));
+        assertFalse(index.isCompatible(3, 4));
+    }
+
+    @Test
+    public void restrictNarrowsTheMaskToCompatibleSections() {
+        ConflictIndex index = new ConflictIndex(courseArrayList, new ArrayList<Section>(), true);
+        long[] mask = index.newMask();
+        long[] narrowed = new long[index.getWordCount()];
+
+        index.restrict(mask, 0, narrowed);
+
+        assertArrayEquals(new int[]{3, 4}, index.getSectionIds(narrowed, 1));
+        assertEquals(0, index.countInCourse(narrowed, 0));
+    }
+
+    @Test
+    public void blockOutTimesMakeSectionsUnusable() {
+        Section lunch = blockOut("Lunch", 1100, 1200, Day.F);
+        ConflictIndex index = new ConflictIndex(courseArrayList, sections(lunch), true);
+
+        assertFalse(index.isUsable(4));
+        assertEquals(index.getSectionCount(), index.getBlockingBlockOutId(4));
+        assertSame(lunch, index.getBlockingBlockOut(4));
+        assertTrue(index.isBlockOutTime(index.getBlockingBlockOutId(4)));
+        assertArrayEquals(new int[]{2, 3}, index.getUsableSectionIds(1));
+        assertNull(index.getBlockingBlockOut(3));
+    }
+
+    @Test
+    public void nonOpenSectionsAreFilteredUnlessAllowed() {
+        courseArrayList.get(0).getSectionList().get(1).setStatus(ClassStatus.CLOSED);
+
+        assertFalse(new ConflictIndex(courseArrayList, new ArrayList<Section>(), false).isUsable(1));
+        assertTrue(new ConflictIndex(courseArrayList, new ArrayList<Section>(), true).isUsable(1));
+    }
+
+    @Test
+    public void withFiltersKeepsCompatibility() {
+        ConflictIndex index = new ConflictIndex(courseArrayList, new ArrayList<Section>(), true);
+        ConflictIndex filtered = index.withFilters(sections(blockOut("Lunch", 1100, 1200, Day.F)), true);
+
+        assertFalse(filtered.isUsable(4));
+        assertTrue(index.isUsable(4));
+        assertFalse(filtered.isCompatible(0, 2));
+        assertTrue(filtered.isCompatible(1, 2));
+    }
+
+    @Test
+    public void reusedIndexMatchesAFreshOne() {
+        ConflictIndex previous = new ConflictIndex(courseArrayList, new ArrayList<Section>(), true);
+        courseArrayList.add(course("CSE", "1310", section(30, 1000, 1050, Day.M), section(31, 1300, 1350, Day.TU)));
+
+        ConflictIndex reused = new ConflictIndex(courseArrayList, new ArrayList<Section>(), true, previous);
+        ConflictIndex fresh = new ConflictIndex(courseArrayList, new ArrayList<Section>(), true);
+
+        assertCompatibilityEquals(fresh, reused);
+    }
+
+    @Test
+    public void scheduleBuilderFindsAConflictFreeSelection() {
+        ConflictIndex index = new ConflictIndex(courseArrayList, new ArrayList<Section>(), true);
+        long[][] masks = {index.newMask(), new long[index.getWordCount()], new long[index.getWordCount()]};
+        int[] selectedIds = new int[2];
+
+        assertTrue(Schedule.scheduleBuilder(0, index, masks, selectedIds, new ScheduleConflicts(index), new Random(1)));
+        assertTrue(index.isCompatible(selectedIds[0], selectedIds[1]));
+    }
+
+    static void assertCompatibilityEquals(ConflictIndex expected, ConflictIndex actual) {
+        assertEquals(expected.getSectionCount(), actual.getSectionCount());
+        for (int first = 0; first < expected.getSectionCount(); first++) {
+            for (int second = 0; second < expected.getSectionCount(); second++) {
+                assertEquals("sections " + first + " and " + second, expected.isCompatible(first, second), actual.isCompatible(first, second));
+            }
+        }
+    }
+}
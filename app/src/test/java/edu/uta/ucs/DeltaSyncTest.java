@@ -0,0 +1,254 @@
+package edu.uta.ucs;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DeltaSyncTest {
+
+    private static final String EMAIL = "student@mavs.uta.edu";
+
+    /**
+     * Records kept in memory instead of the schedule store and preference files.
+     */
+    private static class InMemoryRecords implements DeltaSync.LocalRecords {
+
+        private final HashMap<String, String> bodies = new HashMap<>();
+
+        void putSchedule(String name, String body) {
+            bodies.put(DeltaSync.key(DeltaSync.TYPE_SCHEDULE, name), body);
+        }
+
+        void putBlockoutTimes(String body) {
+            bodies.put(DeltaSync.key(DeltaSync.TYPE_BLOCKOUT_TIMES, DeltaSync.TYPE_BLOCKOUT_TIMES), body);
+        }
+
+        @Override
+        public HashMap<String, String> readAll() {
+            return new HashMap<>(bodies);
+        }
+
+        @Override
+        public String read(String type, String id) {
+            return bodies.get(DeltaSync.key(type, id));
+        }
+
+        @Override
+        public void save(String type, JSONObject change) throws JSONException {
+            bodies.put(DeltaSync.key(type, change.getString("Id")), change.get("Data").toString());
+        }
+
+        @Override
+        public void delete(String type, String id) {
+            bodies.remove(DeltaSync.key(type, id));
+        }
+    }
+
+    private static ArrayList<String> uploadedIds(JSONObject request) throws JSONException {
+        ArrayList<String> ids = new ArrayList<>();
+        JSONArray changes = request.getJSONArray("Changes");
+        for (int index = 0; index < changes.length(); index++) {
+            ids.add(changes.getJSONObject(index).getString("Id"));
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static JSONObject acceptance(JSONObject change) throws JSONException {
+        JSONObject acceptance = new JSONObject();
+        acceptance.put("Type", change.getString("Type"));
+        acceptance.put("Id", change.getString("Id"));
+        if (change.has("Hash"))
+            acceptance.put("Hash", change.getString("Hash"));
+        return acceptance;
+    }
+
+    private static JSONObject response(String syncToken, JSONArray accepted, JSONArray changes) throws JSONException {
+        JSONObject response = new JSONObject();
+        response.put("Success", true);
+        response.put("SyncToken", syncToken);
+        response.put("Accepted", accepted);
+        response.put("Changes", changes);
+        return response;
+    }
+
+    @Test
+    public void uploadsOnlyRecordsChangedSinceTheLastSync() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        localRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\"}");
+        localRecords.putSchedule("Spring", "{\"ScheduleName\":\"Spring\"}");
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+        deltaSync.markAllSynced("7");
+
+        localRecords.putSchedule("Spring", "{\"ScheduleName\":\"Spring\",\"Changed\":true}");
+        JSONObject request = deltaSync.buildRequest(EMAIL, false);
+
+        assertEquals("7", request.getString("SyncToken"));
+        assertEquals(Arrays.asList("Spring"), uploadedIds(request));
+    }
+
+    @Test
+    public void onlyAcceptedUploadsCountAsSynced() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        localRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\"}");
+        localRecords.putSchedule("Spring", "{\"ScheduleName\":\"Spring\"}");
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+
+        JSONArray changes = deltaSync.buildRequest(EMAIL, false).getJSONArray("Changes");
+        JSONObject fallChange = "Fall".equals(changes.getJSONObject(0).getString("Id")) ? changes.getJSONObject(0) : changes.getJSONObject(1);
+        assertTrue(deltaSync.applyResponse(response("1", new JSONArray().put(acceptance(fallChange)), new JSONArray())));
+
+        assertEquals(Arrays.asList("Spring"), uploadedIds(deltaSync.buildRequest(EMAIL, false)));
+    }
+
+    @Test
+    public void anAcceptanceOfAnotherHashDoesNotCount() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        localRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\"}");
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+
+        JSONObject acceptance = acceptance(deltaSync.buildRequest(EMAIL, false).getJSONArray("Changes").getJSONObject(0));
+        acceptance.put("Hash", DeltaSync.hash("something else"));
+        deltaSync.applyResponse(response("1", new JSONArray().put(acceptance), new JSONArray()));
+
+        assertEquals(Arrays.asList("Fall"), uploadedIds(deltaSync.buildRequest(EMAIL, false)));
+    }
+
+    @Test
+    public void aFailedSyncIsSentAgain() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        localRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\"}");
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+        deltaSync.buildRequest(EMAIL, false);
+
+        assertFalse(deltaSync.applyResponse(new JSONObject("{\"Success\":false,\"Message\":\"down\"}")));
+        assertEquals(Arrays.asList("Fall"), uploadedIds(deltaSync.buildRequest(EMAIL, false)));
+    }
+
+    @Test
+    public void anAcceptedDeletionForgetsTheRecord() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        localRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\"}");
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+        deltaSync.markAllSynced("1");
+
+        localRecords.delete(DeltaSync.TYPE_SCHEDULE, "Fall");
+        JSONObject deletion = deltaSync.buildRequest(EMAIL, false).getJSONArray("Changes").getJSONObject(0);
+        assertTrue(deletion.getBoolean("Deleted"));
+        deltaSync.applyResponse(response("2", new JSONArray().put(acceptance(deletion)), new JSONArray()));
+
+        assertEquals(0, deltaSync.buildRequest(EMAIL, false).getJSONArray("Changes").length());
+        assertEquals("{}", new JSONObject(deltaSync.getState()).getJSONObject("Records").toString());
+    }
+
+    @Test
+    public void serverChangesAreSavedAndNotSentBack() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+        deltaSync.buildRequest(EMAIL, false);
+
+        JSONObject change = new JSONObject();
+        change.put("Type", DeltaSync.TYPE_SCHEDULE);
+        change.put("Id", "Summer");
+        change.put("Revision", 3);
+        change.put("Hash", DeltaSync.hash("{\"ScheduleName\":\"Summer\"}"));
+        change.put("Data", new JSONObject("{\"ScheduleName\":\"Summer\"}"));
+        deltaSync.applyResponse(response("9", new JSONArray(), new JSONArray().put(change)));
+
+        assertEquals("{\"ScheduleName\":\"Summer\"}", localRecords.read(DeltaSync.TYPE_SCHEDULE, "Summer"));
+        assertEquals("9", deltaSync.getSyncToken());
+        assertEquals(0, deltaSync.buildRequest(EMAIL, false).getJSONArray("Changes").length());
+    }
+
+    @Test
+    public void aServerDeletionIsNotUploadedAgain() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        localRecords.putBlockoutTimes("[]");
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+        deltaSync.markAllSynced("1");
+        deltaSync.buildRequest(EMAIL, false);
+
+        JSONObject deletion = new JSONObject();
+        deletion.put("Type", DeltaSync.TYPE_BLOCKOUT_TIMES);
+        deletion.put("Id", DeltaSync.TYPE_BLOCKOUT_TIMES);
+        deletion.put("Revision", 2);
+        deletion.put("Deleted", true);
+        assertTrue(deltaSync.applyResponse(response("2", new JSONArray(), new JSONArray().put(deletion))));
+
+        assertNull(localRecords.read(DeltaSync.TYPE_BLOCKOUT_TIMES, DeltaSync.TYPE_BLOCKOUT_TIMES));
+        assertEquals(0, deltaSync.buildRequest(EMAIL, false).getJSONArray("Changes").length());
+        assertEquals("{}", new JSONObject(deltaSync.getState()).getJSONObject("Records").toString());
+    }
+
+    @Test
+    public void stateSurvivesBeingSavedAndRestored() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        localRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\"}");
+        localRecords.putSchedule("Spring", "{\"ScheduleName\":\"Spring\"}");
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+        deltaSync.markAllSynced("4");
+        localRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\",\"Changed\":true}");
+
+        DeltaSync restored = new DeltaSync(localRecords);
+        restored.restoreState(deltaSync.getState());
+
+        assertEquals("4", restored.getSyncToken());
+        assertEquals(Arrays.asList("Fall"), uploadedIds(restored.buildRequest(EMAIL, false)));
+    }
+
+    @Test
+    public void anUnreadableStateStartsOver() throws JSONException {
+        InMemoryRecords localRecords = new InMemoryRecords();
+        localRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\"}");
+        DeltaSync deltaSync = new DeltaSync(localRecords);
+
+        deltaSync.restoreState("not json");
+
+        assertEquals("", deltaSync.getSyncToken());
+        assertEquals(Arrays.asList("Fall"), uploadedIds(deltaSync.buildRequest(EMAIL, false)));
+    }
+
+    @Test
+    public void recordsReachAnotherDeviceThroughTheStandInServer() throws JSONException {
+        SyncStandInServer server = new SyncStandInServer();
+        InMemoryRecords firstRecords = new InMemoryRecords();
+        firstRecords.putSchedule("Fall", "{\"ScheduleName\":\"Fall\"}");
+        DeltaSync firstDevice = new DeltaSync(firstRecords);
+        DeltaSync secondDevice = new DeltaSync(new InMemoryRecords());
+
+        assertTrue(firstDevice.applyResponse(new JSONObject(server.handle(firstDevice.buildRequest(EMAIL, false)))));
+        assertTrue(secondDevice.applyResponse(new JSONObject(server.handle(secondDevice.buildRequest(EMAIL, false)))));
+
+        assertEquals(0, firstDevice.buildRequest(EMAIL, false).getJSONArray("Changes").length());
+        assertEquals(0, secondDevice.buildRequest(EMAIL, false).getJSONArray("Changes").length());
+        assertEquals(firstDevice.getSyncToken(), secondDevice.getSyncToken());
+    }
+
+    @Test
+    public void syncsAskedForWhileOneIsRunningFollowItTogether() {
+        assertTrue(DeltaSync.beginSync("FIRST"));
+        assertFalse(DeltaSync.beginSync("SECOND"));
+        assertFalse(DeltaSync.beginSync(""));
+        assertFalse(DeltaSync.beginSync("THIRD"));
+
+        assertEquals(Arrays.asList("FIRST"), DeltaSync.endSync());
+        assertTrue(DeltaSync.startFollowingSync());
+        assertEquals(Arrays.asList("SECOND", "THIRD"), DeltaSync.endSync());
+        assertFalse(DeltaSync.startFollowingSync());
+
+        assertTrue(DeltaSync.beginSync(null));
+        assertTrue(DeltaSync.endSync().isEmpty());
+        assertFalse(DeltaSync.startFollowingSync());
+    }
+}
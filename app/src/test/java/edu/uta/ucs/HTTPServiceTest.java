@@ -0,0 +1,73 @@
+package edu.uta.ucs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HTTPServiceTest {
+
+    @Test
+    public void identicalRequestsShareOneResponse() {
+        String requestKey = HTTPService.requestKey("http://example.com/shared", true, false, HTTPService.PRIORITY_INTERACTIVE);
+
+        long requestId = HTTPService.joinRequest(requestKey, "FIRST");
+        assertTrue(requestId != -1);
+        assertEquals(-1, HTTPService.joinRequest(requestKey, "SECOND"));
+
+        assertEquals(Arrays.asList("FIRST", "SECOND"), HTTPService.finishRequest(requestKey, requestId, "FIRST"));
+        assertTrue(HTTPService.joinRequest(requestKey, "THIRD") != -1);
+    }
+
+    @Test
+    public void staleAndPriorityAreSeparateRequests() {
+        String url = "http://example.com/separate";
+
+        assertFalse(HTTPService.requestKey(url, true, false, HTTPService.PRIORITY_INTERACTIVE).equals(HTTPService.requestKey(url, true, true, HTTPService.PRIORITY_INTERACTIVE)));
+        assertFalse(HTTPService.requestKey(url, true, false, HTTPService.PRIORITY_INTERACTIVE).equals(HTTPService.requestKey(url, true, false, HTTPService.PRIORITY_BACKGROUND)));
+        assertFalse(HTTPService.requestKey(url, true, false, HTTPService.PRIORITY_INTERACTIVE).equals(HTTPService.requestKey(url, false, false, HTTPService.PRIORITY_INTERACTIVE)));
+    }
+
+    @Test
+    public void unregisteredRequestsOnlyAnswerTheirSource() {
+        String requestKey = HTTPService.requestKey("http://example.com/unregistered", false, false, HTTPService.PRIORITY_INTERACTIVE);
+        long requestId = HTTPService.joinRequest(requestKey, "REGISTERED");
+
+        ArrayList<String> receiverTags = HTTPService.finishRequest(requestKey, -1, "REGISTERED");
+
+        assertEquals(Arrays.asList("REGISTERED"), receiverTags);
+        assertEquals(Arrays.asList("REGISTERED"), HTTPService.finishRequest(requestKey, requestId, "REGISTERED"));
+    }
+
+    @Test
+    public void aFinishedRequestIsNotFinishedTwice() {
+        String requestKey = HTTPService.requestKey("http://example.com/twice", false, false, HTTPService.PRIORITY_INTERACTIVE);
+        long requestId = HTTPService.joinRequest(requestKey, "ONLY");
+        HTTPService.finishRequest(requestKey, requestId, "ONLY");
+        long nextRequestId = HTTPService.joinRequest(requestKey, "ONLY");
+
+        assertTrue(HTTPService.finishRequest(requestKey, requestId, "ONLY").isEmpty());
+        assertEquals(Arrays.asList("ONLY"), HTTPService.finishRequest(requestKey, nextRequestId, "ONLY"));
+    }
+
+    @Test
+    public void theBackgroundSlotPassesToEachQueuedRequestInTurn() {
+        HTTPService.BackgroundRequestSlot<String> slot = new HTTPService.BackgroundRequestSlot<>();
+
+        assertTrue(slot.acquire("RUNNING"));
+        assertFalse(slot.acquire("FIRST"));
+        assertFalse(slot.acquire("SECOND"));
+
+        assertEquals("FIRST", slot.release());
+        assertFalse(slot.acquire("THIRD"));
+        assertEquals("SECOND", slot.release());
+        assertEquals("THIRD", slot.release());
+        assertNull(slot.release());
+        assertTrue(slot.acquire("LATER"));
+    }
+}
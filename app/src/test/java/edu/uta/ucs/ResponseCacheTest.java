@@ -0,0 +1,114 @@
+package edu.uta.ucs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Scanner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCacheTest {
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("responses", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        deleteRecursively(directory);
+    }
+
+    @Test
+    public void copiesACachedBody() throws IOException {
+        ResponseCache cache = new ResponseCache(new File(directory, "cache"), 1024);
+        String key = ResponseCache.key("http://example.com/semesters", "session");
+        assertNotNull(cache.put(key, write("body.json", "{\"Success\":true}"), "\"v1\"", null));
+
+        File target = new File(directory, "copy.json");
+        assertTrue(cache.copyBody(key, target));
+
+        assertEquals("{\"Success\":true}", read(target));
+        assertEquals("\"v1\"", cache.get(key).getETag());
+    }
+
+    @Test
+    public void copyFailsOnceTheBodyIsEvicted() throws IOException {
+        ResponseCache cache = new ResponseCache(new File(directory, "cache"), 20);
+        String first = ResponseCache.key("http://example.com/first", null);
+        String second = ResponseCache.key("http://example.com/second", null);
+        cache.put(first, write("first.json", "0123456789"), "\"1\"", null);
+        cache.put(second, write("second.json", "0123456789abcdef"), "\"2\"", null);
+
+        assertNull(cache.get(first));
+        assertFalse(cache.copyBody(first, new File(directory, "copy.json")));
+        assertTrue(cache.copyBody(second, new File(directory, "copy.json")));
+    }
+
+    @Test
+    public void responsesWithoutValidatorsAreNotCached() throws IOException {
+        ResponseCache cache = new ResponseCache(new File(directory, "cache"), 1024);
+        String key = ResponseCache.key("http://example.com/semesters", null);
+
+        assertNull(cache.put(key, write("body.json", "{}"), null, null));
+        assertFalse(cache.copyBody(key, new File(directory, "copy.json")));
+    }
+
+    @Test
+    public void deletesOnlyOldResponseFiles() throws IOException {
+        File old = write("response123.json", "old");
+        File recent = write("response456.json", "recent");
+        File other = write("other.json", "other");
+        long now = System.currentTimeMillis();
+        old.setLastModified(now - 60 * 60 * 1000);
+        other.setLastModified(now - 60 * 60 * 1000);
+
+        HTTPService.deleteUnopenedResponseFiles(directory, now - 10 * 60 * 1000);
+
+        assertFalse(old.exists());
+        assertTrue(recent.exists());
+        assertTrue(other.exists());
+    }
+
+    private File write(String name, String text) throws IOException {
+        File file = new File(directory, name);
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            output.write(text.getBytes("UTF-8"));
+        } finally {
+            output.close();
+        }
+        return file;
+    }
+
+    private static String read(File file) throws IOException {
+        Scanner scanner = new Scanner(file, "UTF-8");
+        try {
+            return scanner.useDelimiter("\\A").next();
+        } finally {
+            scanner.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
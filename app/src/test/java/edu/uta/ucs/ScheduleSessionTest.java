@@ -0,0 +1,80 @@
+package edu.uta.ucs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static edu.uta.ucs.TestCourses.blockOut;
+import static edu.uta.ucs.TestCourses.course;
+import static edu.uta.ucs.TestCourses.courses;
+import static edu.uta.ucs.TestCourses.section;
+import static edu.uta.ucs.TestCourses.sections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduleSessionTest {
+
+    @Test
+    public void keepsTheIndexForTheSameRequest() {
+        ArrayList<Course> courseArrayList = courses(course("MATH", "1426", section(10, 900, 950, Day.M), section(11, 1000, 1050, Day.M)));
+        ScheduleSession session = new ScheduleSession(2158, true);
+        session.update(courseArrayList, sections(blockOut("Work", 1000, 1100, Day.M)));
+        ConflictIndex index = session.getConflictIndex();
+
+        session.update(courseArrayList, sections(blockOut("Work", 1000, 1100, Day.M)));
+
+        assertSame(index, session.getConflictIndex());
+    }
+
+    @Test
+    public void noticesSectionsChangedInPlace() {
+        ArrayList<Course> courseArrayList = courses(course("MATH", "1426", section(10, 900, 950, Day.M)));
+        ScheduleSession session = new ScheduleSession(2158, true);
+        session.update(courseArrayList, new ArrayList<Section>());
+
+        courseArrayList.get(0).getSectionList().add(section(11, 1000, 1050, Day.M));
+        session.update(courseArrayList, new ArrayList<Section>());
+
+        assertEquals(2, session.getConflictIndex().getSectionCount());
+    }
+
+    @Test
+    public void noticesSectionsWithNewIds() {
+        ScheduleSession session = new ScheduleSession(2158, true);
+        session.update(courses(course("MATH", "1426", section(10, 900, 950, Day.M))), new ArrayList<Section>());
+        ConflictIndex index = session.getConflictIndex();
+
+        session.update(courses(course("MATH", "1426", section(12, 900, 950, Day.M))), new ArrayList<Section>());
+
+        assertNotSame(index, session.getConflictIndex());
+        assertEquals(12, session.getConflictIndex().getSection(0).getSectionID());
+    }
+
+    @Test
+    public void noticesSectionsWhichClosed() {
+        ScheduleSession session = new ScheduleSession(2158, false);
+        session.update(courses(course("MATH", "1426", section(10, 900, 950, ClassStatus.OPEN, Day.M))), new ArrayList<Section>());
+        assertTrue(session.getConflictIndex().isUsable(0));
+
+        session.update(courses(course("MATH", "1426", section(10, 900, 950, ClassStatus.CLOSED, Day.M))), new ArrayList<Section>());
+
+        assertFalse(session.getConflictIndex().isUsable(0));
+        assertEquals(ClassStatus.CLOSED, session.getConflictIndex().getSection(0).getStatus());
+    }
+
+    @Test
+    public void noticesRenamedBlockOutTimes() {
+        ArrayList<Course> courseArrayList = courses(course("MATH", "1426", section(10, 900, 950, Day.M)));
+        ScheduleSession session = new ScheduleSession(2158, true);
+        session.update(courseArrayList, sections(blockOut("Work", 900, 1000, Day.M)));
+        assertFalse(session.getConflictIndex().isUsable(0));
+
+        session.update(courseArrayList, sections(blockOut("Gym", 900, 1000, Day.M)));
+
+        assertFalse(session.getConflictIndex().isUsable(0));
+        assertEquals("Gym", session.getConflictIndex().getBlockingBlockOut(0).getInstructors());
+    }
+}
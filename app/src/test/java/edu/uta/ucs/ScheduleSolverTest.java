@@ -0,0 +1,110 @@
+package edu.uta.ucs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static edu.uta.ucs.TestCourses.blockOut;
+import static edu.uta.ucs.TestCourses.course;
+import static edu.uta.ucs.TestCourses.courses;
+import static edu.uta.ucs.TestCourses.section;
+import static edu.uta.ucs.TestCourses.sections;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScheduleSolverTest {
+
+    @Test
+    public void findsTheOnlyConflictFreeSchedule() throws NoSchedulesPossibleException {
+        ArrayList<Course> courseArrayList = courses(
+                course("MATH", "1426", section(10, 900, 950, Day.M), section(11, 1000, 1050, Day.M)),
+                course("ENGL", "1301", section(20, 900, 950, Day.M)));
+
+        ArrayList<Section> selectedSections = new ScheduleSolver(new ConflictIndex(courseArrayList, new ArrayList<Section>(), true), new Random(1)).solve();
+
+        assertEquals(2, selectedSections.size());
+        assertEquals(11, selectedSections.get(0).getSectionID());
+        assertEquals(20, selectedSections.get(1).getSectionID());
+    }
+
+    @Test
+    public void returnsSectionsInCourseOrder() throws NoSchedulesPossibleException {
+        ArrayList<Course> courseArrayList = courses(
+                course("MATH", "1426", section(10, 900, 950, Day.M), section(11, 1000, 1050, Day.TU), section(12, 1100, 1150, Day.W)),
+                course("ENGL", "1301", section(20, 1300, 1350, Day.M)),
+                course("CSE", "1310", section(30, 1400, 1450, Day.TH), section(31, 1500, 1550, Day.F)));
+
+        for (int seed = 0; seed < 10; seed++) {
+            ArrayList<Section> selectedSections = new ScheduleSolver(new ConflictIndex(courseArrayList, new ArrayList<Section>(), true), new Random(seed)).solve();
+            for (int course = 0; course < courseArrayList.size(); course++) {
+                assertTrue(courseArrayList.get(course).getSectionList().contains(selectedSections.get(course)));
+            }
+        }
+    }
+
+    @Test
+    public void failsFastWhenTwoCoursesNeedTheSameTime() {
+        ArrayList<Course> courseArrayList = courses(
+                course("MATH", "1426", section(10, 900, 950, Day.M)),
+                course("ENGL", "1301", section(20, 900, 950, Day.M)),
+                course("CSE", "1310", section(30, 1000, 1050, Day.M), section(31, 1100, 1150, Day.M), section(32, 1200, 1250, Day.M)));
+        ScheduleSolver solver = new ScheduleSolver(new ConflictIndex(courseArrayList, new ArrayList<Section>(), true), null);
+
+        assertFalse(solver.search());
+        assertEquals(2, solver.getNodesVisited());
+        try {
+            solver.solve();
+            fail("Expected NoSchedulesPossibleException");
+        } catch (NoSchedulesPossibleException expected) {
+            assertFalse(solver.getConflicts().isEmpty());
+        }
+    }
+
+    @Test
+    public void avoidsBlockOutTimes() throws NoSchedulesPossibleException {
+        ArrayList<Course> courseArrayList = courses(course("MATH", "1426", section(10, 900, 950, Day.M), section(11, 1000, 1050, Day.M)));
+        ArrayList<Section> blockOutTimes = sections(blockOut("Work", 800, 955, Day.M));
+
+        ArrayList<Section> selectedSections = new ScheduleSolver(new ConflictIndex(courseArrayList, blockOutTimes, true), new Random(1)).solve();
+
+        assertEquals(11, selectedSections.get(0).getSectionID());
+    }
+
+    @Test
+    public void triesPreferredSectionsFirst() throws NoSchedulesPossibleException {
+        ArrayList<Course> courseArrayList = courses(course("MATH", "1426", section(10, 900, 950, Day.M), section(11, 1000, 1050, Day.M), section(12, 1100, 1150, Day.M)));
+        ScheduleSolver solver = new ScheduleSolver(new ConflictIndex(courseArrayList, new ArrayList<Section>(), true), new Random(1));
+        solver.setPreferred(new int[]{2});
+
+        assertEquals(12, solver.solve().get(0).getSectionID());
+        assertEquals(2, solver.getNodesVisited());
+    }
+
+    @Test
+    public void stopsWhenCancelled() {
+        ArrayList<Course> courseArrayList = courses(course("MATH", "1426", section(10, 900, 950, Day.M), section(11, 1000, 1050, Day.M)));
+        ScheduleSolver solver = new ScheduleSolver(new ConflictIndex(courseArrayList, new ArrayList<Section>(), true), new Random(1));
+        CancellationToken cancellationToken = new CancellationToken();
+        cancellationToken.cancel();
+        solver.setCancellationToken(cancellationToken);
+
+        assertFalse(solver.search());
+        assertTrue(solver.isStopped());
+        assertEquals(0, solver.getNodesVisited());
+    }
+
+    @Test
+    public void conflictCoreIsNullWhenStoppedByTheDeadline() {
+        ArrayList<Course> courseArrayList = courses(
+                course("MATH", "1426", section(10, 900, 950, Day.M)),
+                course("ENGL", "1301", section(20, 900, 950, Day.M)));
+
+        assertNotNull(ScheduleConflicts.findMinimalCore(courseArrayList, new ArrayList<Section>(), true));
+        assertNull(ScheduleConflicts.findMinimalCore(courseArrayList, new ArrayList<Section>(), true, null, System.nanoTime() - 1));
+    }
+}
@@ -0,0 +1,124 @@
+package edu.uta.ucs;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScheduleStoreTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("schedules", ".log");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    @Test
+    public void readsBackSavedSchedules() throws IOException {
+        ScheduleStore store = new ScheduleStore(file);
+        store.put(new ScheduleSummary("Fall", 2158, 4, 1000), "{\"ScheduleName\":\"Fall\"}");
+        store.put(new ScheduleSummary("Spring", 2162, 3, 2000), "{\"ScheduleName\":\"Spring\"}");
+
+        assertEquals("{\"ScheduleName\":\"Spring\"}", store.read("Spring"));
+        assertEquals(2, store.getSummaries().size());
+        assertEquals("Fall", store.getSummaries().get(0).getName());
+        assertNull(store.read("Summer"));
+    }
+
+    @Test
+    public void reopenedStoreKeepsTheLatestVersionOfEachSchedule() throws IOException {
+        ScheduleStore store = new ScheduleStore(file);
+        store.put(new ScheduleSummary("Fall", 2158, 4, 1000), "first");
+        store.put(new ScheduleSummary("Spring", 2162, 3, 2000), "spring");
+        store.put(new ScheduleSummary("Fall", 2158, 5, 3000), "second");
+        store.remove("Spring");
+
+        ScheduleStore reopened = new ScheduleStore(file);
+
+        assertEquals(1, reopened.getSummaries().size());
+        assertEquals("second", reopened.read("Fall"));
+        assertEquals(5, reopened.getSummaries().get(0).getSectionCount());
+        assertFalse(reopened.contains("Spring"));
+    }
+
+    @Test
+    public void dropsARecordCutShort() throws IOException {
+        ScheduleStore store = new ScheduleStore(file);
+        store.put(new ScheduleSummary("Fall", 2158, 4, 1000), "fall");
+        store.put(new ScheduleSummary("Spring", 2162, 3, 2000), "spring");
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(randomAccessFile.length() - 2);
+        randomAccessFile.close();
+
+        ScheduleStore reopened = new ScheduleStore(file);
+
+        assertEquals(1, reopened.getSummaries().size());
+        assertEquals("fall", reopened.read("Fall"));
+    }
+
+    @Test
+    public void skipsADamagedRecordAndKeepsTheOnesAfterIt() throws IOException {
+        ScheduleStore store = new ScheduleStore(file);
+        store.put(new ScheduleSummary("Fall", 2158, 4, 1000), "fall");
+        store.put(new ScheduleSummary("Spring", 2162, 3, 2000), "spring");
+        store.put(new ScheduleSummary("Summer", 2165, 2, 3000), "summer");
+        // The body of Spring follows the 43 byte record of Fall and its own 41 byte header
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(43 + 41);
+        randomAccessFile.write('S');
+        randomAccessFile.close();
+
+        ScheduleStore reopened = new ScheduleStore(file);
+
+        assertEquals(2, reopened.getSummaries().size());
+        assertEquals("fall", reopened.read("Fall"));
+        assertFalse(reopened.contains("Spring"));
+        assertEquals("summer", reopened.read("Summer"));
+    }
+
+    @Test
+    public void replaceAllKeepsOnlyTheGivenSchedules() throws IOException {
+        ScheduleStore store = new ScheduleStore(file);
+        store.put(new ScheduleSummary("Old", 2158, 1, 1000), "old");
+        ArrayList<ScheduleSummary> summaries = new ArrayList<>();
+        summaries.add(new ScheduleSummary("B", 2158, 2, 2000));
+        summaries.add(new ScheduleSummary("A", 2162, 3, 3000));
+        ArrayList<String> bodies = new ArrayList<>();
+        bodies.add("b");
+        bodies.add("a");
+
+        store.replaceAll(summaries, bodies);
+
+        assertFalse(store.contains("Old"));
+        assertEquals("B", store.getSummaries().get(0).getName());
+        assertEquals("a", store.read("A"));
+    }
+
+    @Test
+    public void clearEmptiesTheFile() throws IOException {
+        ScheduleStore store = new ScheduleStore(file);
+        store.put(new ScheduleSummary("Fall", 2158, 4, 1000), "fall");
+
+        store.clear();
+
+        assertTrue(store.isEmpty());
+        assertEquals(0, file.length());
+        assertTrue(new ScheduleStore(file).isEmpty());
+    }
+}
@@ -0,0 +1,149 @@
+package edu.uta.ucs;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class SemesterCatalogTest {
+
+    private static final String FALL = "{\"SemesterNumber\":\"2158\",\"SemesterName\":\"Fall 2015\",\"Departments\":["
+            + "{\"DepartmentAcronym\":\"MATH\",\"DepartmentName\":\"Mathematics\",\"CourseNumbers\":[{\"CourseNumber\":\"1426\",\"CourseName\":\"Calculus I\"}]},"
+            + "{\"DepartmentAcronym\":\"ENGL\",\"DepartmentName\":\"English\",\"CourseNumbers\":[{\"CourseNumber\":\"1301\",\"CourseName\":\"Rhetoric\"},"
+            + "{\"CourseNumber\":\"1302\",\"CourseName\":\"Rhetoric II\"}]}]}";
+    private static final String SPRING = "{\"SemesterNumber\":\"2162\",\"SemesterName\":\"Spring 2016\",\"Departments\":["
+            + "{\"DepartmentAcronym\":\"MATH\",\"DepartmentName\":\"Mathematics\",\"CourseNumbers\":[{\"CourseNumber\":\"1426\",\"CourseName\":\"Calculus I\"}]}]}";
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException, JSONException {
+        file = File.createTempFile("semester_catalog", ".bin");
+        ArrayList<SemesterInfo> semesters = new ArrayList<>();
+        semesters.add(SemesterInfo.parse(FALL));
+        semesters.add(SemesterInfo.parse(SPRING));
+        SemesterCatalog.write(semesters, file);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        ArrayList<SemesterInfo> semesters = SemesterCatalog.open(file).getSemesters();
+
+        assertEquals(2, semesters.size());
+        assertEquals(2158, semesters.get(0).getSemesterNumber());
+        assertEquals("Spring 2016", semesters.get(1).getSemesterName());
+        SemesterInfo.DepartmentInfo english = semesters.get(0).getDepartmentInfo("ENGL");
+        assertEquals("English", english.getDepartmentTitle());
+        assertEquals(2, english.getCourses().size());
+        // Courses keep the reversed order SemesterInfo(JSONObject) gives them.
+        assertEquals(1302, english.getCourses().get(0).getCourseNumber());
+        assertEquals("Rhetoric", english.getCourses().get(1).getCourseTitle());
+        assertEquals("Calculus I", semesters.get(1).getDepartmentInfo("MATH").getCourses().get(0).getCourseTitle());
+    }
+
+    @Test
+    public void missingFileOpensAsNull() throws IOException {
+        file.delete();
+
+        assertNull(SemesterCatalog.open(file));
+    }
+
+    @Test
+    public void truncatedFileIsIgnored() throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.setLength(randomAccessFile.length() / 2);
+        randomAccessFile.close();
+
+        assertNull(SemesterCatalog.open(file));
+    }
+
+    @Test
+    public void outOfRangeReadsThrowIOException() throws IOException {
+        SemesterCatalog catalog = SemesterCatalog.open(file);
+        assertNotNull(catalog);
+
+        try {
+            catalog.getString(1000);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+        try {
+            catalog.getSemesterNumber(2);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+        try {
+            catalog.getDepartmentAcronym(1, 1);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+        try {
+            catalog.readCourses((int) file.length() - 1);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void corruptCourseBlockOffsetThrowsIOException() throws IOException {
+        // The first department entry follows the 16 byte header and the two 16 byte semester entries. Its course block offset is its third int.
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(16 + 2 * 16 + 8);
+        randomAccessFile.writeInt(Integer.MAX_VALUE - 2);
+        randomAccessFile.close();
+        SemesterCatalog catalog = SemesterCatalog.open(file);
+
+        try {
+            catalog.readCourses(catalog.getCourseBlockOffset(0, 0));
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void negativeCourseCountThrowsIOException() throws IOException {
+        int blockOffset = SemesterCatalog.open(file).getCourseBlockOffset(0, 0);
+        // A five byte varint reading as -1
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        randomAccessFile.seek(blockOffset);
+        randomAccessFile.write(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F});
+        randomAccessFile.close();
+        SemesterCatalog catalog = SemesterCatalog.open(file);
+
+        try {
+            catalog.readCourses(blockOffset);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void undecodableCoursesFailTheWrite() throws IOException, JSONException {
+        ArrayList<SemesterInfo> semesters = new ArrayList<>();
+        semesters.add(SemesterInfo.parse("{\"SemesterNumber\":\"2158\",\"SemesterName\":\"Fall 2015\",\"Departments\":["
+                + "{\"DepartmentAcronym\":\"MATH\",\"DepartmentName\":\"Mathematics\",\"CourseNumbers\":[{\"CourseNumber\":\"Calculus\"}]}]}"));
+
+        try {
+            SemesterCatalog.write(semesters, file);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+        // The catalog written before is kept
+        assertEquals(2, SemesterCatalog.open(file).getSemesters().size());
+    }
+}
@@ -0,0 +1,66 @@
+package edu.uta.ucs;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SemesterInfoTest {
+
+    private static final String SEMESTER = "{\"SemesterNumber\":\"2158\",\"SemesterName\":\"Fall 2015\",\"Departments\":["
+            + "{\"DepartmentAcronym\":\"MATH\",\"DepartmentName\":\"Mathematics\",\"CourseNumbers\":[{\"CourseNumber\":\"1426\",\"CourseName\":\"Calculus I\"}]},"
+            + "{\"DepartmentAcronym\":\"ENGL\",\"DepartmentName\":\"English\",\"CourseNumbers\":[{\"CourseNumber\":\"1301\",\"CourseName\":\"Rhetoric\"},"
+            + "{\"CourseNumber\":\"1302\",\"CourseName\":\"Rhetoric II\"}]}]}";
+
+    @Test
+    public void loadsTheSameSemesterFromSavedOffsets() throws JSONException {
+        SemesterInfo parsed = SemesterInfo.parse(SEMESTER);
+        SemesterInfo loaded = SemesterInfo.parse(SEMESTER, parsed.getDepartmentOffsets());
+
+        assertEquals(2158, loaded.getSemesterNumber());
+        assertEquals("Fall 2015", loaded.getSemesterName());
+        assertEquals(parsed.getDepartmentArrayList().size(), loaded.getDepartmentArrayList().size());
+        for (int index = 0; index < parsed.getDepartmentArrayList().size(); index++) {
+            assertEquals(parsed.getDepartmentArrayList().get(index).getDepartmentAcronym(), loaded.getDepartmentArrayList().get(index).getDepartmentAcronym());
+        }
+        assertEquals(2, loaded.getDepartmentInfo("engl").getCourses().size());
+        assertEquals("Calculus I", loaded.getDepartmentInfo("MATH").getCourses().get(0).getCourseTitle());
+    }
+
+    @Test
+    public void parsesAgainWhenOffsetsDoNotMatchTheText() throws JSONException {
+        String offsets = SemesterInfo.parse(SEMESTER).getDepartmentOffsets();
+        String changed = SEMESTER.replace("Calculus I\"", "Calculus One\"");
+
+        SemesterInfo loaded = SemesterInfo.parse(changed, offsets);
+
+        assertEquals("Calculus One", loaded.getDepartmentInfo("MATH").getCourses().get(0).getCourseTitle());
+        assertEquals(2, loaded.getDepartmentInfo("ENGL").getCourses().size());
+    }
+
+    @Test
+    public void semestersBuiltFromJSONHaveNoOffsets() throws JSONException {
+        assertNull(new SemesterInfo(new JSONObject(SEMESTER)).getDepartmentOffsets());
+    }
+
+    @Test
+    public void readsNullDepartmentNamesAsTheJSONConstructorDoes() throws JSONException {
+        String response = "{\"Success\":true,\"Semesters\":[{\"SemesterNumber\":2158,\"SemesterName\":\"Fall 2015\",\"Departments\":["
+                + "{\"DepartmentAcronym\":\"MATH\",\"DepartmentName\":null,\"CourseNumbers\":[{\"CourseNumber\":\"1426\",\"CourseName\":null}]}]}]}";
+
+        SemesterInfo semester = SemesterResponse.read(new StringReader(response)).getSemesters().get(0);
+        SemesterInfo expected = new SemesterInfo(new JSONObject(response).getJSONArray("Semesters").getJSONObject(0));
+
+        assertEquals(expected.getDepartmentInfo("MATH").getDepartmentTitle(), semester.getDepartmentInfo("MATH").getDepartmentTitle());
+        assertEquals(expected.getDepartmentInfo("MATH").getCourses().get(0).getCourseTitle(), semester.getDepartmentInfo("MATH").getCourses().get(0).getCourseTitle());
+    }
+
+    @Test(expected = JSONException.class)
+    public void valuesOfTheWrongTypeAreJSONExceptions() throws JSONException {
+        SemesterResponse.read(new StringReader("{\"Success\":true,\"Semesters\":[{\"SemesterNumber\":2158,\"Departments\":[\"MATH\"]}]}"));
+    }
+}
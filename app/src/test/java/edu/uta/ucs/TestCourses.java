@@ -0,0 +1,50 @@
+package edu.uta.ucs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Builds courses and sections for unit tests without going through JSON.
+ */
+final class TestCourses {
+
+    private TestCourses() {
+    }
+
+    /**
+     * Builds an open section meeting on the given days.
+     *
+     * @param start start time as hhmm, EX: 930 for 9:30AM or 1400 for 2:00PM
+     * @param end end time as hhmm
+     */
+    static Section section(int sectionID, int start, int end, Day... days) {
+        return section(sectionID, start, end, ClassStatus.OPEN, days);
+    }
+
+    static Section section(int sectionID, int start, int end, ClassStatus status, Day... days) {
+        return new Section(sectionID, "Staff", "TBA", new TimeShort(start / 100, start % 100), new TimeShort(end / 100, end % 100),
+                new ArrayList<>(Arrays.asList(days)), status, null);
+    }
+
+    static Course course(String department, String courseNumber, Section... sections) {
+        return new Course(courseNumber, department, department + " " + courseNumber, new ArrayList<>(Arrays.asList(sections)));
+    }
+
+    /**
+     * Builds a block-out time. Like in {@link SelectBlockoutTimes}, its section ID is negative and its name is kept as the instructors.
+     */
+    static Section blockOut(String name, int start, int end, Day... days) {
+        Section blockOut = new Section(-1, name, "", new TimeShort(start / 100, start % 100), new TimeShort(end / 100, end % 100),
+                new ArrayList<>(Arrays.asList(days)), ClassStatus.OPEN, null);
+        new Course("BLOCKOUT", "BLOCKOUT", "BLOCKOUT", sections(blockOut));
+        return blockOut;
+    }
+
+    static ArrayList<Course> courses(Course... courses) {
+        return new ArrayList<>(Arrays.asList(courses));
+    }
+
+    static ArrayList<Section> sections(Section... sections) {
+        return new ArrayList<>(Arrays.asList(sections));
+    }
+}
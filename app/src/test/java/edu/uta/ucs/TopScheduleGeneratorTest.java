@@ -0,0 +1,82 @@
+package edu.uta.ucs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static edu.uta.ucs.TestCourses.course;
+import static edu.uta.ucs.TestCourses.courses;
+import static edu.uta.ucs.TestCourses.section;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TopScheduleGeneratorTest {
+
+    /**
+     * Scorer which fails if it is used before being prepared.
+     */
+    private static class PreparedOnlyScorer extends ScheduleScorers.FewestCampusDays {
+
+        private boolean prepared = false;
+
+        @Override
+        public void prepare(Section[][] candidates) {
+            prepared = true;
+        }
+
+        @Override
+        public int score(Section[] selection) {
+            assertTrue("score called before prepare", prepared);
+            return super.score(selection);
+        }
+
+        @Override
+        public int upperBound(Section[] selection, int assignedCount) {
+            assertTrue("upperBound called before prepare", prepared);
+            return super.upperBound(selection, assignedCount);
+        }
+    }
+
+    private static ArrayList<Course> courseArrayList() {
+        return courses(
+                course("MATH", "1426", section(10, 900, 950, Day.M, Day.W), section(11, 900, 950, Day.TU, Day.TH)),
+                course("ENGL", "1301", section(20, 1000, 1050, Day.M, Day.W), section(21, 1000, 1050, Day.F)));
+    }
+
+    @Test
+    public void offerPreparesTheScorerFirst() {
+        ScheduleEnumerator enumerator = new ScheduleEnumerator(courseArrayList(), new ArrayList<Section>(), true, 2158);
+        TopScheduleGenerator generator = new TopScheduleGenerator(enumerator, new PreparedOnlyScorer(), 2, new ArrayList<Section>(), 2158);
+
+        generator.offer(new Section[]{enumerator.getCandidates()[0][1], enumerator.getCandidates()[1][1]});
+        ArrayList<Schedule> schedules = generator.generate();
+
+        assertEquals(2, schedules.size());
+    }
+
+    @Test
+    public void keepsTheBestSchedulesBestFirst() {
+        ScheduleEnumerator enumerator = new ScheduleEnumerator(courseArrayList(), new ArrayList<Section>(), true, 2158);
+        ArrayList<Schedule> schedules = new TopScheduleGenerator(enumerator, new ScheduleScorers.FewestCampusDays(), 1, new ArrayList<Section>(), 2158).generate();
+
+        assertEquals(1, schedules.size());
+        assertEquals(10, schedules.get(0).getSelectedSections().get(0).getSectionID());
+        assertEquals(20, schedules.get(0).getSelectedSections().get(1).getSectionID());
+    }
+
+    @Test
+    public void latestStartIgnoresSectionsWithoutAMeetingTime() {
+        Section[] selection = {section(10, 900, 950, Day.M, Day.W), section(30, 0, 0, Day.TU)};
+
+        assertEquals(9 * 60, new ScheduleScorers.LatestStart().score(selection));
+    }
+
+    @Test
+    public void leastIdleGapIgnoresSectionsWithoutAMeetingTime() {
+        Section[] selection = {section(10, 900, 950, Day.M), section(30, 0, 0, Day.M)};
+        ScheduleScorers.LeastIdleGap scorer = new ScheduleScorers.LeastIdleGap();
+        scorer.prepare(new Section[0][]);
+
+        assertEquals(0, scorer.score(selection));
+    }
+}
@@ -0,0 +1,122 @@
+package edu.uta.ucs;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Realistic inputs for the benchmarks, taken from the spoofed server responses and the semester catalog shipped with the app.
+ *
+ * <p>Files are looked up relative to the repository root, which is the parent of the working directory unless the
+ * {@code ucs.root} system property says otherwise.</p>
+ */
+final class BenchmarkFixtures {
+
+    private static final String SPOOF_DATA = "app/src/main/assets/spoof_data.json";
+    private static final String SEMESTERS = "Semesters.JSON";
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Obtains the course list of the largest GetCourseInfo response in the spoof data, as the server sends it.
+     */
+    static JSONArray courseResults() throws IOException, JSONException {
+        JsonObject spoofData = readJson(SPOOF_DATA).getAsJsonObject();
+
+        String largestResponse = null;
+        int largestCourseCount = 0;
+        for (Map.Entry<String, JsonElement> entry : spoofData.entrySet()) {
+            if (!entry.getKey().contains("GetCourseInfo"))
+                continue;
+            JsonObject response = new JsonParser().parse(entry.getValue().getAsString()).getAsJsonObject();
+            if (!response.has("Results"))
+                continue;
+            int courseCount = response.getAsJsonArray("Results").size();
+            if (courseCount > largestCourseCount) {
+                largestResponse = entry.getValue().getAsString();
+                largestCourseCount = courseCount;
+            }
+        }
+        if (largestResponse == null)
+            throw new IOException("No GetCourseInfo response found in " + SPOOF_DATA);
+        return new JSONObject(largestResponse).getJSONArray("Results");
+    }
+
+    /**
+     * Builds courses from the spoof data.
+     *
+     * @param courseCount number of courses to keep, at most the number in the largest response.
+     * @param maxSections number of sections to keep per course, or 0 to keep all of them.
+     */
+    static ArrayList<Course> courses(int courseCount, int maxSections) throws IOException, JSONException {
+        ArrayList<Course> allCourses = Course.buildCourseList(courseResults());
+        if (courseCount > allCourses.size())
+            throw new IllegalArgumentException("Spoof data only has " + allCourses.size() + " courses");
+
+        ArrayList<Course> courses = new ArrayList<>(courseCount);
+        for (Course course : allCourses.subList(0, courseCount)) {
+            ArrayList<Section> sections = course.getSectionList();
+            if (maxSections > 0 && sections.size() > maxSections)
+                sections = new ArrayList<>(sections.subList(0, maxSections));
+            courses.add(new Course(course.getCourseNumber(), course.getDepartmentAcronym(), course.getCourseTitle(), sections));
+        }
+        return courses;
+    }
+
+    /**
+     * Builds a GetCourseInfo style course list with the given number of courses.
+     * The real courses of the spoof data come first. The rest are named after courses of the semester catalog and
+     * borrow their sections from the real courses in turn.
+     */
+    static String courseListJson(int courseCount) throws IOException, JSONException {
+        JSONArray realCourses = courseResults();
+        JSONArray courseList = new JSONArray();
+        for (int index = 0; index < realCourses.length() && index < courseCount; index++) {
+            courseList.put(realCourses.getJSONObject(index));
+        }
+
+        JsonArray departments = readJson(SEMESTERS).getAsJsonObject().getAsJsonArray("Semesters").get(0).getAsJsonObject().getAsJsonArray("Departments");
+        for (JsonElement departmentElement : departments) {
+            JsonObject department = departmentElement.getAsJsonObject();
+            for (JsonElement courseElement : department.getAsJsonArray("CourseNumbers")) {
+                if (courseList.length() >= courseCount)
+                    return courseList.toString();
+                JsonObject catalogCourse = courseElement.getAsJsonObject();
+                JSONObject course = new JSONObject();
+                course.put("CourseId", catalogCourse.get("CourseNumber").getAsString());
+                course.put("CourseName", catalogCourse.get("CourseName").getAsString());
+                course.put("Department", department.get("DepartmentAcronym").getAsString());
+                course.put("CourseResults", realCourses.getJSONObject(courseList.length() % realCourses.length()).getJSONArray("CourseResults"));
+                courseList.put(course);
+            }
+        }
+        if (courseList.length() < courseCount)
+            throw new IllegalArgumentException("Semester catalog only has " + courseList.length() + " courses");
+        return courseList.toString();
+    }
+
+    private static JsonElement readJson(String path) throws IOException {
+        File file = new File(System.getProperty("ucs.root", ".."), path);
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            // Gson keeps the last value of a duplicated key where org.json would refuse the whole file.
+            return new JsonParser().parse(reader);
+        } finally {
+            reader.close();
+        }
+    }
+}
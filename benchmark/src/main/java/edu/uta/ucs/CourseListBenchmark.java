@@ -0,0 +1,55 @@
+package edu.uta.ucs;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning a GetCourseInfo response into courses, starting from the response text as the receivers in
+ * {@link SelectCourses} do. Compares building an org.json tree for {@link Course#buildCourseList(JSONArray)} with
+ * decoding the text directly with {@link CourseResponse#read(String)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CourseListBenchmark {
+
+    /** Courses in the response. Beyond the real courses of the spoof data, see {@link BenchmarkFixtures#courseListJson(int)}. */
+    @Param({"7", "50", "200"})
+    public int courseCount;
+
+    private String courseListJson;
+    private String responseJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        courseListJson = BenchmarkFixtures.courseListJson(courseCount);
+        responseJson = "{\"Success\":true,\"TimeTaken\":\"1.0\",\"Results\":" + courseListJson + "}";
+    }
+
+    @Benchmark
+    public ArrayList<Course> buildCourseList() throws JSONException {
+        return Course.buildCourseList(new JSONArray(courseListJson));
+    }
+
+    @Benchmark
+    public ArrayList<Course> readCourseResponse() throws JSONException {
+        return CourseResponse.read(responseJson).getCourses();
+    }
+}
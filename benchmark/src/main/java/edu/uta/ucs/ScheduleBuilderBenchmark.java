@@ -0,0 +1,65 @@
+package edu.uta.ucs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building one schedule with {@link Schedule#scheduleBuilder(int, ArrayList, ArrayList, ArrayList, boolean)} and
+ * {@link Schedule#scheduleBuilderIgnoreConflicts(int, ArrayList, ArrayList, boolean)}.
+ *
+ * <p>Courses and sections come from the spoof data. Cutting sections down can leave no conflict free schedule, in which
+ * case the failing search is measured instead; that is a real outcome for users too.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleBuilderBenchmark {
+
+    @Param({"2", "4", "7"})
+    public int courseCount;
+
+    /** Sections kept per course, 0 keeps all of them. */
+    @Param({"4", "8", "0"})
+    public int maxSections;
+
+    private ArrayList<Course> courses;
+    private final ArrayList<Section> blockOutTimes = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws Exception {
+        courses = BenchmarkFixtures.courses(courseCount, maxSections);
+    }
+
+    @Benchmark
+    public Object scheduleBuilder() {
+        try {
+            return Schedule.scheduleBuilder(0, courses, new ArrayList<Section>(), blockOutTimes, true);
+        } catch (NoSchedulesPossibleException noSchedulesPossible) {
+            return noSchedulesPossible;
+        }
+    }
+
+    @Benchmark
+    public Object scheduleBuilderIgnoreConflicts() {
+        try {
+            return Schedule.scheduleBuilderIgnoreConflicts(0, courses, new ArrayList<Section>(), true);
+        } catch (NoSchedulesPossibleException noOpenSections) {
+            return noOpenSections;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package edu.uta.ucs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Section#conflictsWith(Section)} over every pair of a set of real sections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SectionConflictBenchmark {
+
+    /** Number of sections compared pairwise, taken from the spoof data in course order. */
+    @Param({"16", "64", "177"})
+    public int sectionCount;
+
+    private Section[] sections;
+
+    @Setup
+    public void setUp() throws Exception {
+        ArrayList<Section> allSections = new ArrayList<>();
+        ArrayList<Course> courses = BenchmarkFixtures.courses(BenchmarkFixtures.courseResults().length(), 0);
+        for (Course course : courses) {
+            allSections.addAll(course.getSectionList());
+        }
+        if (sectionCount > allSections.size())
+            throw new IllegalArgumentException("Spoof data only has " + allSections.size() + " sections");
+        sections = allSections.subList(0, sectionCount).toArray(new Section[sectionCount]);
+    }
+
+    /**
+     * One operation compares every pair of sections once.
+     *
+     * @return number of conflicting pairs, so the comparisons cannot be optimized away.
+     */
+    @Benchmark
+    public int allPairs() {
+        int conflictCount = 0;
+        for (int first = 0; first < sections.length; first++) {
+            for (int second = first + 1; second < sections.length; second++) {
+                if (sections[first].conflictsWith(sections[second]))
+                    conflictCount++;
+            }
+        }
+        return conflictCount;
+    }
+}